@@ -0,0 +1,136 @@
+package com.terminaltrainer.bench;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.filesystem.VirtualDirectory;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.shell.GlobExpander;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Measures glob expansion in one directory with 100k entries, against a
+ * brute-force scan that tests every name with a regular expression. The
+ * directory holds numbered file_N.txt and foo_N.log files and 100
+ * subdirectories of 10 files each, so that '**' has somewhere to descend.
+ *
+ * Run from the repository root:
+ * <pre>
+ *   javac -d /tmp/tt $(find src bench -name '*.java')
+ *   java -cp /tmp/tt com.terminaltrainer.bench.GlobBench [entries] [rounds]
+ * </pre>
+ */
+public final class GlobBench {
+    private static final int DIRECTORIES = 100;
+    private static final int FILES_PER_DIRECTORY = 10;
+
+    private static final String[][] PATTERNS = {
+            {"*", "/big/*"},
+            {"prefix", "/big/foo_1*"},
+            {"?", "/big/file_1234?.txt"},
+            {"[...]", "/big/file_[0-4]7.txt"},
+            {"**", "/big/**/foo_1*"},
+    };
+
+    private GlobBench() {
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        TerminalSession session = new TerminalSession();
+        VirtualDirectory root = (VirtualDirectory) session.getFileSystem().resolvePath("/", "/");
+        VirtualDirectory big = new VirtualDirectory("big", root);
+        root.addChild(big);
+        for (int i = 0; i < DIRECTORIES; i++) {
+            VirtualDirectory directory = new VirtualDirectory("dir_" + i, big);
+            big.addChild(directory);
+            for (int j = 0; j < FILES_PER_DIRECTORY; j++) {
+                directory.addChild(new VirtualFile("foo_" + j + ".txt", directory));
+            }
+        }
+        for (int i = 0; big.getChildCount() < entries; i++) {
+            String name = i % 10 == 0 ? "foo_" + i + ".log" : "file_" + i + ".txt";
+            big.addChild(new VirtualFile(name, big));
+        }
+
+        GlobExpander expander = new GlobExpander(session.getFileSystem());
+        for (String[] pattern : PATTERNS) {
+            run(expander, big, pattern[0], pattern[1], rounds);
+        }
+    }
+
+    private static void run(GlobExpander expander, VirtualDirectory big, String kind, String pattern, int rounds) {
+        // One untimed pass so the JIT has compiled the expansion
+        int matches = expander.expand(pattern, "/").size();
+        long[] latencies = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            expander.expand(pattern, "/");
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        String last = pattern.substring(pattern.lastIndexOf('/') + 1);
+        Pattern regex = Pattern.compile(toRegex(last));
+        boolean recursive = pattern.contains("/**/");
+        int bruteForceMatches = bruteForce(big, regex, recursive).size();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            bruteForce(big, regex, recursive);
+        }
+        double bruteForce = (System.nanoTime() - start) / 1e6 / rounds;
+
+        System.out.printf("%-6s %-22s %6d matches: p50 %7.2f ms, max %7.2f ms; brute force %7.2f ms (%d matches)%n",
+                kind, pattern, matches,
+                latencies[latencies.length / 2] / 1e6,
+                latencies[latencies.length - 1] / 1e6,
+                bruteForce, bruteForceMatches);
+    }
+
+    /**
+     * Tests the name of every entry, and of every entry below it when the
+     * pattern has a '**' segment.
+     */
+    private static List<String> bruteForce(VirtualDirectory directory, Pattern regex, boolean recursive) {
+        List<String> matches = new ArrayList<>();
+        for (VirtualFileSystemNode child : directory.getChildren()) {
+            if (regex.matcher(child.getName()).matches()) {
+                matches.add(child.getPath());
+            }
+            if (recursive && child.isDirectory()) {
+                matches.addAll(bruteForce((VirtualDirectory) child, regex, true));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Translates the wildcards used above into a regular expression.
+     */
+    private static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*':
+                    regex.append(".*");
+                    break;
+                case '?':
+                    regex.append('.');
+                    break;
+                case '[':
+                case ']':
+                case '-':
+                    regex.append(c);
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+}
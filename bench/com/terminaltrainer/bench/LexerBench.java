@@ -0,0 +1,109 @@
+package com.terminaltrainer.bench;
+
+import com.terminaltrainer.core.shell.CommandList;
+import com.terminaltrainer.core.shell.ShellLexer;
+import com.terminaltrainer.core.shell.ShellParser;
+import com.terminaltrainer.core.shell.ShellSyntaxException;
+import com.terminaltrainer.core.shell.Token;
+
+import java.util.List;
+
+/**
+ * Measures how many command lines per second the shell lexer and parser
+ * handle, next to the regex split they replaced.
+ *
+ * Run from the repository root:
+ * <pre>
+ *   javac -d /tmp/tt $(find src bench -name '*.java')
+ *   java -cp /tmp/tt com.terminaltrainer.bench.LexerBench [seconds per case]
+ * </pre>
+ */
+public final class LexerBench {
+    private static final String[] LINES = {
+            "ls -l /home/user",
+            "cat notes.txt | grep -i todo > todo.txt",
+            "mkdir -p project/{src,test}/com/example && touch project/src/Main.java",
+            "echo \"it's a \\\"quoted\\\" string\" 'and a single one' # with a comment",
+            "grep error log1.txt log2.txt log3.txt log4.txt log5.txt log6.txt log7.txt log8.txt"
+    };
+
+    private LexerBench() {
+    }
+
+    public static void main(String[] args) throws ShellSyntaxException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+        ShellLexer lexer = new ShellLexer();
+        ShellParser parser = new ShellParser();
+
+        System.out.printf("%-8s %10s %10s %10s%n", "chars", "split", "lexer", "parser");
+        for (String line : LINES) {
+            // Each case runs once untimed so the JIT has compiled it
+            measureSplit(line, seconds / 2);
+            measureLexer(lexer, line, seconds / 2);
+            measureParser(parser, line, seconds / 2);
+            System.out.printf("%-8d %10s %10s %10s   %s%n", line.length(),
+                    format(measureSplit(line, seconds)),
+                    format(measureLexer(lexer, line, seconds)),
+                    format(measureParser(parser, line, seconds)),
+                    line);
+        }
+        System.out.println("(command lines per second)");
+    }
+
+    private static double measureSplit(String line, double seconds) {
+        long sink = 0;
+        long iterations = 0;
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long start = System.nanoTime();
+        do {
+            for (int i = 0; i < 1000; i++) {
+                sink += line.trim().split("\\s+").length;
+            }
+            iterations += 1000;
+        } while (System.nanoTime() < deadline);
+        return rate(iterations, start, sink);
+    }
+
+    private static double measureLexer(ShellLexer lexer, String line, double seconds) throws ShellSyntaxException {
+        long sink = 0;
+        long iterations = 0;
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long start = System.nanoTime();
+        do {
+            for (int i = 0; i < 1000; i++) {
+                List<Token> tokens = lexer.tokenize(line);
+                sink += tokens.size();
+            }
+            iterations += 1000;
+        } while (System.nanoTime() < deadline);
+        return rate(iterations, start, sink);
+    }
+
+    private static double measureParser(ShellParser parser, String line, double seconds) throws ShellSyntaxException {
+        long sink = 0;
+        long iterations = 0;
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long start = System.nanoTime();
+        do {
+            for (int i = 0; i < 1000; i++) {
+                CommandList commands = parser.parse(line);
+                sink += commands.hashCode();
+            }
+            iterations += 1000;
+        } while (System.nanoTime() < deadline);
+        return rate(iterations, start, sink);
+    }
+
+    private static double rate(long iterations, long start, long sink) {
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        // Printed nowhere, but keeps the work from being optimized away
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return iterations / elapsed;
+    }
+
+    private static String format(double rate) {
+        return rate >= 1e6 ? String.format("%.2fM", rate / 1e6) : String.format("%.0fk", rate / 1e3);
+    }
+}
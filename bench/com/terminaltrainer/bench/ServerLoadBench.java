@@ -0,0 +1,108 @@
+package com.terminaltrainer.bench;
+
+import com.terminaltrainer.server.ServerConfig;
+import com.terminaltrainer.server.SessionServer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for the session server. Starts a server on a free loopback
+ * port, connects the given number of clients, and has each of them run
+ * the given number of commands back to back, timing each command from
+ * sending the line to receiving the next prompt.
+ *
+ * Run from the repository root:
+ * <pre>
+ *   javac -d /tmp/tt $(find src bench -name '*.java')
+ *   java -cp /tmp/tt com.terminaltrainer.bench.ServerLoadBench [clients] [commands per client]
+ * </pre>
+ *
+ * Each client is a thread of this process, so on a small machine the
+ * clients compete with the server for the CPU and the latencies include
+ * their own scheduling.
+ */
+public final class ServerLoadBench {
+    private ServerLoadBench() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int commands = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        try (SessionServer server = new SessionServer(ServerConfig.localhost(0).withMaxSessions(clients))) {
+            server.start();
+            int port = server.getPort();
+            long[] latencies = new long[clients * commands];
+            AtomicInteger failures = new AtomicInteger();
+            CountDownLatch connected = new CountDownLatch(clients);
+            CountDownLatch go = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(clients);
+
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                Thread thread = new Thread(() -> {
+                    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                        InputStream in = socket.getInputStream();
+                        OutputStream out = socket.getOutputStream();
+                        awaitPrompt(in);
+                        connected.countDown();
+                        go.await();
+                        for (int i = 0; i < commands; i++) {
+                            long start = System.nanoTime();
+                            out.write(("echo hello " + i + "\n").getBytes(StandardCharsets.UTF_8));
+                            out.flush();
+                            awaitPrompt(in);
+                            latencies[client * commands + i] = System.nanoTime() - start;
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        failures.incrementAndGet();
+                        connected.countDown();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "load-client-" + c);
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            connected.await();
+            long start = System.nanoTime();
+            go.countDown();
+            done.await();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("%d clients x %d commands: %.0f commands/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d failed clients%n",
+                    clients, commands, latencies.length / seconds,
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    latencies[latencies.length - 1] / 1e6,
+                    failures.get());
+            System.out.println(server.getMetrics());
+        }
+    }
+
+    /**
+     * Reads until the end of the next prompt, which is "$ ".
+     */
+    private static void awaitPrompt(InputStream in) throws IOException {
+        int previous = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (previous == '$' && b == ' ') {
+                return;
+            }
+            previous = b;
+        }
+        throw new EOFException("Connection closed before the prompt");
+    }
+}
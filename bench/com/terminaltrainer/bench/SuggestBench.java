@@ -0,0 +1,125 @@
+package com.terminaltrainer.bench;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.filesystem.VirtualDirectory;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.suggest.LevenshteinSearch;
+import com.terminaltrainer.core.suggest.SpellingSuggester;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures "Did you mean" lookups for missing paths in one large
+ * directory, against a brute-force scan that computes the distance to
+ * every name. Two kinds of names are tried: numbered ones sharing a long
+ * prefix, such as report_N.txt, and random letters. Each query is a real
+ * name with one typo: a swap, a deletion or a substitution.
+ *
+ * Run from the repository root:
+ * <pre>
+ *   javac -d /tmp/tt $(find src bench -name '*.java')
+ *   java -cp /tmp/tt com.terminaltrainer.bench.SuggestBench [entries] [queries]
+ * </pre>
+ */
+public final class SuggestBench {
+    private static final int BRUTE_FORCE_QUERIES = 200;
+
+    private SuggestBench() {
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        run("numbered", entries, queries);
+        run("random", entries, queries);
+    }
+
+    private static void run(String kind, int entries, int queryCount) {
+        TerminalSession session = new TerminalSession();
+        VirtualDirectory root = (VirtualDirectory) session.getFileSystem().resolvePath("/", "/");
+        VirtualDirectory directory = new VirtualDirectory("big", root);
+        root.addChild(directory);
+
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            String name = kind.equals("numbered") ? "report_" + i + ".txt" : randomWord(random);
+            if (directory.addChild(new VirtualFile(name, directory))) {
+                names.add(name);
+            }
+        }
+
+        String[] queries = new String[queryCount];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = typo(names.get(random.nextInt(names.size())), random);
+        }
+
+        SpellingSuggester suggester = session.getSpellingSuggester();
+        // One untimed pass so the JIT has compiled the search
+        for (String query : queries) {
+            suggester.suggestPaths("/big/" + query);
+        }
+        long[] latencies = new long[queries.length];
+        int found = 0;
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            if (!suggester.suggestPaths("/big/" + queries[i]).isEmpty()) {
+                found++;
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        int bruteForceQueries = Math.min(BRUTE_FORCE_QUERIES, queries.length);
+        long totalDistance = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < bruteForceQueries; i++) {
+            int best = Integer.MAX_VALUE;
+            for (String name : names) {
+                best = Math.min(best, LevenshteinSearch.distance(queries[i], name));
+            }
+            totalDistance += best;
+        }
+        double bruteForce = (System.nanoTime() - start) / 1e6 / bruteForceQueries;
+
+        System.out.printf("%-8s %d entries: p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d/%d found;"
+                        + " brute force %.1f ms/lookup, nearest name %.2f edits away on average%n",
+                kind, names.size(),
+                latencies[latencies.length / 2] / 1e6,
+                latencies[latencies.length * 99 / 100] / 1e6,
+                latencies[latencies.length - 1] / 1e6,
+                found, queries.length, bruteForce, (double) totalDistance / bruteForceQueries);
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 5 + random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    /**
+     * Makes one typo in a word: swapping two letters, dropping one or changing one.
+     */
+    private static String typo(String word, Random random) {
+        char[] chars = word.toCharArray();
+        int i = random.nextInt(chars.length - 1);
+        switch (random.nextInt(3)) {
+            case 0:
+                char swapped = chars[i];
+                chars[i] = chars[i + 1];
+                chars[i + 1] = swapped;
+                return new String(chars);
+            case 1:
+                return word.substring(0, i) + word.substring(i + 1);
+            default:
+                chars[i] = (char) ('a' + random.nextInt(26));
+                return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.JScrollPane;
+import javax.swing.JTextPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Style;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyleContext;
+import javax.swing.text.StyledDocument;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares the default text pane views with {@link GridEditorKit} on
+ * streaming output. Each frame appends 16K characters in three alternating
+ * styles, trims to the default scrollback, lays the pane out, scrolls to
+ * the bottom and paints an 800x600 viewport into an image, as the terminal
+ * does while a command prints. Two shapes of output are tried: ordinary
+ * 79-character lines, and 100000-character lines that have to be wrapped.
+ *
+ * Runs headless. From the repository root:
+ * <pre>
+ *   javac -d /tmp/tt $(find src bench -name '*.java')
+ *   java -Djava.awt.headless=true -cp /tmp/tt com.terminaltrainer.ui.GridRendererBench
+ * </pre>
+ */
+public final class GridRendererBench {
+    private static final int CHUNK = 4096;
+    private static final int CHUNKS_PER_FRAME = 4;
+
+    private GridRendererBench() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                run(false, 8_000_000, 79);
+                run(true, 8_000_000, 79);
+                run(false, 2_000_000, 100_000);
+                run(true, 2_000_000, 100_000);
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void run(boolean grid, int total, int lineLength) throws BadLocationException {
+        JTextPane pane = new JTextPane();
+        if (grid) {
+            pane.setEditorKit(new GridEditorKit());
+        }
+        pane.setBackground(Color.BLACK);
+        pane.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+        StyledDocument document = pane.getStyledDocument();
+        Style base = StyleContext.getDefaultStyleContext().getStyle(StyleContext.DEFAULT_STYLE);
+        Style output = document.addStyle("output", base);
+        StyleConstants.setForeground(output, Color.LIGHT_GRAY);
+        Style error = document.addStyle("error", base);
+        StyleConstants.setForeground(error, Color.RED);
+        StyleConstants.setBold(error, true);
+        Style prompt = document.addStyle("prompt", base);
+        StyleConstants.setForeground(prompt, Color.GREEN);
+        Style[] styles = {output, error, prompt};
+
+        JScrollPane scroll = new JScrollPane(pane);
+        scroll.setSize(800, 600);
+        scroll.doLayout();
+        JViewport viewport = scroll.getViewport();
+        BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+
+        StringBuilder text = new StringBuilder();
+        for (int n = 0; text.length() < CHUNK; ) {
+            for (int i = 0; i < lineLength && text.length() < CHUNK; i++) {
+                text.append((char) ('a' + n++ % 26));
+            }
+            text.append('\n');
+        }
+        String chunk = text.substring(0, CHUNK);
+
+        long start = System.nanoTime();
+        long worst = 0;
+        int frames = 0;
+        for (int written = 0; written < total; ) {
+            long frameStart = System.nanoTime();
+            for (int k = 0; k < CHUNKS_PER_FRAME && written < total; k++, written += CHUNK) {
+                document.insertString(document.getLength(), chunk, styles[(written / CHUNK) % styles.length]);
+            }
+            Element root = document.getDefaultRootElement();
+            int trim = ScrollbackLimit.DEFAULT.getTrimOffset(root, document.getLength(), document.getLength());
+            if (trim > 0) {
+                document.remove(0, trim);
+            }
+            viewport.doLayout();
+            Dimension preferred = pane.getPreferredSize();
+            pane.setSize(viewport.getWidth(), Math.max(preferred.height, viewport.getHeight()));
+            viewport.setViewPosition(new Point(0, Math.max(0, pane.getHeight() - viewport.getHeight())));
+            Graphics2D g = image.createGraphics();
+            scroll.paint(g);
+            g.dispose();
+            worst = Math.max(worst, System.nanoTime() - frameStart);
+            frames++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-7s %6d-char lines, %.0f MB: %8.0f chars/s, %d frames, average %.1f ms, worst %.1f ms%n",
+                grid ? "grid" : "default", lineLength, total / 1e6, total / seconds,
+                frames, seconds * 1000 / frames, worst / 1e6);
+    }
+}
@@ -0,0 +1,182 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.JScrollPane;
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Style;
+import javax.swing.text.StyledDocument;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures how responsive the event dispatch thread stays while a large
+ * output is rendered into the terminal pane. A producer writes 10 MB in
+ * 8K chunks while a probe posts an empty task to the EDT every 2 ms,
+ * standing in for keystrokes, and records how long each task waited.
+ *
+ * Three ways of rendering are compared:
+ * <ul>
+ *   <li>old: one unbounded insert per 64K batch, as the sink did before
+ *       {@link OutputRenderer}</li>
+ *   <li>renderer: {@link OutputRenderer} with its time-budgeted frames</li>
+ *   <li>renderer+trim: the same, trimming to the default scrollback after
+ *       each frame as the terminal does</li>
+ * </ul>
+ *
+ * Runs headless, so layout and painting are not included. From the
+ * repository root:
+ * <pre>
+ *   javac -d /tmp/tt $(find src bench -name '*.java')
+ *   java -Djava.awt.headless=true -cp /tmp/tt com.terminaltrainer.ui.RendererBench [rounds]
+ * </pre>
+ */
+public final class RendererBench {
+    private static final int TOTAL = 10_000_000;
+    private static final int OLD_BATCH = 64 * 1024;
+
+    private RendererBench() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        for (int round = 0; round < rounds; round++) {
+            run("old", round);
+            run("renderer", round);
+            run("renderer+trim", round);
+        }
+    }
+
+    private static void run(String mode, int round) throws Exception {
+        JTextPane[] created = new JTextPane[1];
+        SwingUtilities.invokeAndWait(() -> {
+            created[0] = new JTextPane();
+            new JScrollPane(created[0]).setSize(800, 600);
+        });
+        JTextPane pane = created[0];
+        StyledDocument document = pane.getStyledDocument();
+        Style style = document.addStyle("output", null);
+
+        boolean trim = mode.equals("renderer+trim");
+        OutputRenderer renderer = new OutputRenderer(pane, () -> {
+            if (!trim) {
+                return;
+            }
+            Element root = document.getDefaultRootElement();
+            int end = ScrollbackLimit.DEFAULT.getTrimOffset(root, document.getLength(), document.getLength());
+            if (end > 0) {
+                try {
+                    document.remove(0, end);
+                } catch (BadLocationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        BatchingSink old = new BatchingSink(document, style);
+
+        CountDownLatch done = new CountDownLatch(1);
+        List<Long> waits = Collections.synchronizedList(new ArrayList<Long>());
+        Thread probe = new Thread(() -> {
+            while (done.getCount() > 0) {
+                long posted = System.nanoTime();
+                try {
+                    SwingUtilities.invokeAndWait(() -> waits.add(System.nanoTime() - posted));
+                    Thread.sleep(2);
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }, "edt-probe");
+
+        char[] line = "some verbose output line with a few words in it 0123456789\n".toCharArray();
+        char[] chunk = new char[8192];
+        int chunkLength = 0;
+        while (chunkLength + line.length <= chunk.length) {
+            System.arraycopy(line, 0, chunk, chunkLength, line.length);
+            chunkLength += line.length;
+        }
+
+        long start = System.nanoTime();
+        probe.start();
+        for (long written = 0; written < TOTAL; written += chunkLength) {
+            if (mode.equals("old")) {
+                old.write(chunk, chunkLength);
+            } else {
+                renderer.write(chunk, 0, chunkLength, style);
+            }
+        }
+        if (mode.equals("old")) {
+            old.finish(done::countDown);
+        } else {
+            renderer.whenRendered(done::countDown);
+        }
+        done.await();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        probe.join();
+
+        long[] sorted = new long[waits.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = waits.get(i);
+        }
+        Arrays.sort(sorted);
+        System.out.printf("%-14s round %d: 10 MB in %5d ms, document %8d chars; EDT wait p50 %5.1f ms, p99 %6.1f ms, max %6.1f ms (%d probes)%n",
+                mode, round, millis, document.getLength(),
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6,
+                sorted.length);
+    }
+
+    /**
+     * The sink as it was before the renderer: output is collected up to
+     * 64K and inserted in one task on the EDT, however long that takes.
+     */
+    private static final class BatchingSink {
+        private final StyledDocument document;
+        private final Style style;
+        private final StringBuilder pending = new StringBuilder();
+        private boolean flushScheduled;
+
+        BatchingSink(StyledDocument document, Style style) {
+            this.document = document;
+            this.style = style;
+        }
+
+        synchronized void write(char[] chars, int length) throws InterruptedException {
+            while (pending.length() >= OLD_BATCH) {
+                wait();
+            }
+            pending.append(chars, 0, length);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                SwingUtilities.invokeLater(this::flush);
+            }
+        }
+
+        void finish(Runnable action) {
+            SwingUtilities.invokeLater(() -> {
+                flush();
+                action.run();
+            });
+        }
+
+        private void flush() {
+            String text;
+            synchronized (this) {
+                text = pending.toString();
+                pending.setLength(0);
+                flushScheduled = false;
+                notifyAll();
+            }
+            try {
+                document.insertString(document.getLength(), text, style);
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
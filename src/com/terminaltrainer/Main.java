@@ -1,15 +1,40 @@
 package com.terminaltrainer;
 
+import com.terminaltrainer.cli.CliMain;
+import com.terminaltrainer.headless.HeadlessMain;
+import com.terminaltrainer.server.ServerMain;
+import com.terminaltrainer.ui.StartupMetrics;
 import com.terminaltrainer.ui.TerminalUI;
 import com.terminaltrainer.core.TerminalSession;
 
+import java.util.concurrent.CompletableFuture;
+
 
 public class Main {
     public static void main(String[] args) {
-        TerminalSession session = new TerminalSession();
-        
-        TerminalUI terminalUI = new TerminalUI(session);
-        
+        if (HeadlessMain.isHeadless(args)) {
+            System.exit(HeadlessMain.run(args));
+        }
+        if (CliMain.isCli(args)) {
+            System.exit(CliMain.run(args));
+        }
+        if (ServerMain.isServer(args)) {
+            System.exit(ServerMain.run(args));
+        }
+
+        startUI();
+    }
+
+
+    // Kept separate so that headless, command-line and server runs never load the Swing classes
+    private static void startUI() {
+        StartupMetrics metrics = new StartupMetrics();
+
+        // The session and its commands are built while the window is shown
+        CompletableFuture<TerminalSession> session = CompletableFuture.supplyAsync(TerminalSession::new);
+
+        TerminalUI terminalUI = new TerminalUI(session, metrics);
+
         terminalUI.start();
     }
 }
\ No newline at end of file
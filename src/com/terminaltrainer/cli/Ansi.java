@@ -0,0 +1,27 @@
+package com.terminaltrainer.cli;
+
+/**
+ * The ANSI escape sequences used by the command-line front-end.
+ */
+final class Ansi {
+    static final String RESET = "\033[0m";
+    static final String BOLD_GREEN = "\033[1;32m";
+    static final String RED = "\033[31m";
+    static final String YELLOW_BOLD = "\033[1;33m";
+    static final String CLEAR_TO_END_OF_LINE = "\033[K";
+    static final String CLEAR_SCREEN = "\033[H\033[2J";
+    static final String BELL = "\007";
+
+    private Ansi() {
+    }
+
+    /**
+     * Moves the cursor left.
+     *
+     * @param columns The number of columns to move
+     * @return The escape sequence, or an empty string for zero columns
+     */
+    static String cursorLeft(int columns) {
+        return columns > 0 ? "\033[" + columns + "D" : "";
+    }
+}
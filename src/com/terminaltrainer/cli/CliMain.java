@@ -0,0 +1,133 @@
+package com.terminaltrainer.cli;
+
+import com.terminaltrainer.core.CommandHistory;
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.completion.CompletionEngine;
+import com.terminaltrainer.core.exec.CommandRunner;
+import com.terminaltrainer.core.exec.RunningCommand;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Interactive front-end for plain terminals, such as over ssh, started
+ * with {@code --cli}. Uses no AWT or Swing classes, so it starts quickly
+ * and needs little memory.
+ *
+ * On a terminal that stty can put in raw mode, lines are edited with
+ * {@link LineEditor}, the prompt and errors are colored (unless NO_COLOR is
+ * set) and Ctrl+C cancels the running command. Otherwise lines are read
+ * as they come, without echo or colors. Type 'exit' or press Ctrl+D on an
+ * empty line to leave. The history is kept in the file given by
+ * {@link CommandHistory#defaultLogFile()}.
+ */
+public final class CliMain {
+
+    private CliMain() {
+    }
+
+    /**
+     * Checks if the program arguments ask for the command-line front-end.
+     *
+     * @param args The program arguments
+     * @return true if the arguments include --cli
+     */
+    public static boolean isCli(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--cli")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the interactive front-end until the user leaves.
+     *
+     * @param args The program arguments
+     * @return The process exit status
+     */
+    public static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        RawMode rawMode = new RawMode();
+        boolean interactive = rawMode.enable();
+        if (interactive) {
+            Runtime.getRuntime().addShutdownHook(new Thread(rawMode::restore, "terminal-restore"));
+        }
+
+        TerminalSession session = new TerminalSession();
+        Path historyFile = CommandHistory.defaultLogFile();
+        if (historyFile != null) {
+            session.getCommandHistory().attachLog(historyFile);
+        }
+        CommandRunner runner = new CommandRunner(session);
+        TerminalOutput output = new TerminalOutput(new FileOutputStream(FileDescriptor.out),
+                interactive && System.getenv("NO_COLOR") == null);
+        KeyReader keys = new KeyReader(new FileInputStream(FileDescriptor.in), runner::cancelCurrent);
+        LineEditor editor = new LineEditor(keys, output, session.getCommandHistory(),
+                new CompletionEngine(session), rawMode::columns);
+
+        output.print("Welcome to Terminal Trainer!\n", Ansi.YELLOW_BOLD);
+        output.print("This educational application will help you learn basic Linux commands.\n", null);
+        output.print("Type 'help' for a list of available commands.\n", null);
+        output.print("Type 'tutorial start' to begin the guided tutorial.\n\n", null);
+
+        try {
+            while (true) {
+                String line = interactive ? editor.readLine(session.getPrompt()) : readPlainLine(keys, output, session);
+                if (line == null || line.trim().equals("exit") || line.trim().equals("logout")) {
+                    break;
+                }
+
+                RunningCommand command = runner.submit(line, output);
+                command.await();
+
+                if (command.isCancelled()) {
+                    output.print("^C\n", null);
+                } else if (output.endsMidLine()) {
+                    output.print("\n", null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            output.close();
+            runner.close();
+            rawMode.restore();
+        }
+        return 0;
+    }
+
+    /**
+     * Reads a line without editing, for input that is not a terminal.
+     *
+     * @return The line, or null if the input ended
+     */
+    private static String readPlainLine(KeyReader keys, TerminalOutput output, TerminalSession session)
+            throws InterruptedException {
+        output.print(session.getPrompt(), null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (true) {
+            int b = keys.read();
+            if (b == KeyReader.END_OF_INPUT) {
+                if (bytes.size() == 0) {
+                    output.print("\n", null);
+                    return null;
+                }
+                break;
+            }
+            if (b == '\n') {
+                break;
+            }
+            bytes.write(b);
+        }
+        String line = bytes.toString(StandardCharsets.UTF_8);
+        output.print(line + "\n", null);
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+}
@@ -0,0 +1,100 @@
+package com.terminaltrainer.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the terminal's input on a background thread, one byte at a time,
+ * so keys can be handled while a command is running. Ctrl+C is offered to
+ * an interrupt handler first and only queued if the handler declines it,
+ * and bytes typed ahead of the next prompt are kept until it reads them.
+ */
+final class KeyReader {
+    /**
+     * Returned by the read methods once the input has ended.
+     */
+    static final int END_OF_INPUT = -1;
+
+    /**
+     * Returned by {@link #poll} when no byte arrived in time.
+     */
+    static final int TIMEOUT = -2;
+
+    static final int CTRL_C = 3;
+
+    /**
+     * Decides what Ctrl+C does at the moment it is pressed.
+     */
+    interface InterruptHandler {
+        /**
+         * Handles Ctrl+C.
+         *
+         * @return true if the key was consumed, false to pass it to the line editor
+         */
+        boolean interrupt();
+    }
+
+    private final BlockingQueue<Integer> bytes;
+
+    /**
+     * Creates a reader and starts its thread.
+     *
+     * @param in The terminal's input stream
+     * @param interruptHandler Receives Ctrl+C before it is queued
+     */
+    KeyReader(InputStream in, InterruptHandler interruptHandler) {
+        this.bytes = new LinkedBlockingQueue<>();
+        Thread thread = new Thread(() -> {
+            try {
+                int b;
+                while ((b = in.read()) != -1) {
+                    if (b == CTRL_C && interruptHandler.interrupt()) {
+                        continue;
+                    }
+                    bytes.add(b);
+                }
+            } catch (IOException e) {
+                // Treat a broken input like its end
+            }
+            bytes.add(END_OF_INPUT);
+        }, "terminal-input");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for the next byte.
+     *
+     * @return The byte, or {@link #END_OF_INPUT}
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    int read() throws InterruptedException {
+        int b = bytes.take();
+        if (b == END_OF_INPUT) {
+            // Keep reporting the end to later reads
+            bytes.add(END_OF_INPUT);
+        }
+        return b;
+    }
+
+    /**
+     * Waits a limited time for the next byte.
+     *
+     * @param millis How long to wait
+     * @return The byte, {@link #END_OF_INPUT} or {@link #TIMEOUT}
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    int poll(long millis) throws InterruptedException {
+        Integer b = bytes.poll(millis, TimeUnit.MILLISECONDS);
+        if (b == null) {
+            return TIMEOUT;
+        }
+        if (b == END_OF_INPUT) {
+            bytes.add(END_OF_INPUT);
+        }
+        return b;
+    }
+}
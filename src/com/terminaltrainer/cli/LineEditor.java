@@ -0,0 +1,426 @@
+package com.terminaltrainer.cli;
+
+import com.terminaltrainer.core.CommandHistory;
+import com.terminaltrainer.core.ReverseHistorySearch;
+import com.terminaltrainer.core.completion.Completion;
+import com.terminaltrainer.core.completion.CompletionEngine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntSupplier;
+
+/**
+ * Emacs-style line editing on a terminal in raw mode.
+ *
+ * Supports cursor movement (arrows, Home, End, Ctrl+A/E/B/F), deletion
+ * (Backspace, Delete, Ctrl+D/K/U/W), history navigation (Up, Down, Ctrl+P/N),
+ * Ctrl+R to search the history as you type, Ctrl+L to clear the screen and
+ * Ctrl+C to abandon the line. Tab completes the word before the cursor, and
+ * a second Tab lists the candidates if it is still ambiguous. Typing at the
+ * end of the line echoes just the new character; any other change redraws
+ * the line in a single write.
+ */
+final class LineEditor {
+    private static final int CTRL_A = 1;
+    private static final int CTRL_B = 2;
+    private static final int CTRL_D = 4;
+    private static final int CTRL_E = 5;
+    private static final int CTRL_F = 6;
+    private static final int CTRL_G = 7;
+    private static final int BACKSPACE = 8;
+    private static final int TAB = 9;
+    private static final int CTRL_K = 11;
+    private static final int CTRL_L = 12;
+    private static final int CTRL_N = 14;
+    private static final int CTRL_P = 16;
+    private static final int CTRL_R = 18;
+    private static final int CTRL_U = 21;
+    private static final int CTRL_W = 23;
+    private static final int ESCAPE = 27;
+    private static final int DELETE = 127;
+
+    /**
+     * How long to wait for the rest of an escape sequence before treating
+     * ESC as a key on its own.
+     */
+    private static final long ESCAPE_TIMEOUT_MILLIS = 50;
+
+    /**
+     * Marks that no key is waiting to be handled after a search.
+     */
+    private static final int NO_KEY = Integer.MIN_VALUE;
+
+    private final KeyReader keys;
+    private final TerminalOutput output;
+    private final CommandHistory history;
+    private final ReverseHistorySearch search;
+    private final CompletionEngine completion;
+    private final IntSupplier columns;
+    private final StringBuilder line;
+    private final StringBuilder redraw;
+    private String prompt;
+    private int cursor;
+    private String draft;
+    private boolean lastKeyWasTab;
+
+    /**
+     * Creates a new editor.
+     *
+     * @param keys Where keys are read from
+     * @param output Where the line is echoed
+     * @param history The history to navigate with Up and Down
+     * @param completion The engine that completes words on Tab
+     * @param columns Gets the terminal width, for listing candidates
+     */
+    LineEditor(KeyReader keys, TerminalOutput output, CommandHistory history, CompletionEngine completion,
+               IntSupplier columns) {
+        this.keys = keys;
+        this.output = output;
+        this.history = history;
+        this.search = new ReverseHistorySearch(history);
+        this.completion = completion;
+        this.columns = columns;
+        this.line = new StringBuilder();
+        this.redraw = new StringBuilder();
+    }
+
+    /**
+     * Shows a prompt and reads one line.
+     *
+     * @param prompt The prompt
+     * @return The line, or null if the input ended
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    String readLine(String prompt) throws InterruptedException {
+        this.prompt = prompt;
+        line.setLength(0);
+        cursor = 0;
+        draft = null;
+        history.resetNavigation();
+        output.print(prompt, Ansi.BOLD_GREEN);
+
+        int pendingKey = NO_KEY;
+        while (true) {
+            int key = pendingKey != NO_KEY ? pendingKey : keys.read();
+            pendingKey = NO_KEY;
+            boolean tabBefore = lastKeyWasTab;
+            lastKeyWasTab = key == TAB;
+            switch (key) {
+                case KeyReader.END_OF_INPUT:
+                    if (line.length() == 0) {
+                        output.print("\n", null);
+                        return null;
+                    }
+                    output.print("\n", null);
+                    return line.toString();
+                case '\r':
+                case '\n':
+                    output.print("\n", null);
+                    return line.toString();
+                case KeyReader.CTRL_C:
+                    output.print("^C\n", null);
+                    line.setLength(0);
+                    cursor = 0;
+                    history.resetNavigation();
+                    output.print(prompt, Ansi.BOLD_GREEN);
+                    break;
+                case CTRL_D:
+                    if (line.length() == 0) {
+                        output.print("\n", null);
+                        return null;
+                    }
+                    deleteForward();
+                    break;
+                case BACKSPACE:
+                case DELETE:
+                    deleteBackward();
+                    break;
+                case CTRL_A:
+                    moveTo(0);
+                    break;
+                case CTRL_E:
+                    moveTo(line.length());
+                    break;
+                case CTRL_B:
+                    moveTo(cursor - 1);
+                    break;
+                case CTRL_F:
+                    moveTo(cursor + 1);
+                    break;
+                case CTRL_K:
+                    line.setLength(cursor);
+                    refresh();
+                    break;
+                case CTRL_U:
+                    line.delete(0, cursor);
+                    cursor = 0;
+                    refresh();
+                    break;
+                case CTRL_W:
+                    deleteWordBackward();
+                    break;
+                case CTRL_L:
+                    output.print(Ansi.CLEAR_SCREEN, null);
+                    refresh();
+                    break;
+                case CTRL_P:
+                    showHistory(history.getPreviousCommand(), true);
+                    break;
+                case CTRL_N:
+                    showHistory(history.getNextCommand(), false);
+                    break;
+                case CTRL_R:
+                    pendingKey = reverseSearch();
+                    break;
+                case ESCAPE:
+                    handleEscape();
+                    break;
+                case TAB:
+                    complete(tabBefore);
+                    break;
+                default:
+                    if (key >= 0x80) {
+                        insert(readUtf8(key));
+                    } else if (key >= ' ') {
+                        insert(String.valueOf((char) key));
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void handleEscape() throws InterruptedException {
+        int next = keys.poll(ESCAPE_TIMEOUT_MILLIS);
+        if (next != '[' && next != 'O') {
+            return;
+        }
+
+        int parameter = 0;
+        int key = keys.poll(ESCAPE_TIMEOUT_MILLIS);
+        while (key >= '0' && key <= '9' || key == ';') {
+            parameter = key == ';' ? 0 : parameter * 10 + (key - '0');
+            key = keys.poll(ESCAPE_TIMEOUT_MILLIS);
+        }
+
+        switch (key) {
+            case 'A':
+                showHistory(history.getPreviousCommand(), true);
+                break;
+            case 'B':
+                showHistory(history.getNextCommand(), false);
+                break;
+            case 'C':
+                moveTo(cursor + 1);
+                break;
+            case 'D':
+                moveTo(cursor - 1);
+                break;
+            case 'H':
+                moveTo(0);
+                break;
+            case 'F':
+                moveTo(line.length());
+                break;
+            case '~':
+                if (parameter == 1 || parameter == 7) {
+                    moveTo(0);
+                } else if (parameter == 4 || parameter == 8) {
+                    moveTo(line.length());
+                } else if (parameter == 3) {
+                    deleteForward();
+                }
+                break;
+            default:
+                // Unsupported sequence
+                break;
+        }
+    }
+
+    /**
+     * Searches the history as the query is typed. Ctrl+R moves to an older
+     * match, and Ctrl+G or Ctrl+C gives up and restores the line. Any other
+     * key puts the match on the line and is then handled as usual, so Enter
+     * runs it and the arrows start editing it.
+     *
+     * @return The key that ended the search, or NO_KEY if it was abandoned
+     */
+    private int reverseSearch() throws InterruptedException {
+        String original = line.toString();
+        int originalCursor = cursor;
+        search.start();
+        showSearch();
+
+        while (true) {
+            int key = keys.read();
+            switch (key) {
+                case CTRL_R:
+                    search.searchOlder();
+                    showSearch();
+                    break;
+                case BACKSPACE:
+                case DELETE:
+                    search.deleteLast();
+                    showSearch();
+                    break;
+                case CTRL_G:
+                case KeyReader.CTRL_C:
+                    search.finish();
+                    line.setLength(0);
+                    line.append(original);
+                    cursor = originalCursor;
+                    refresh();
+                    return NO_KEY;
+                default:
+                    if (key >= ' ') {
+                        search.append(key >= 0x80 ? readUtf8(key) : String.valueOf((char) key));
+                        showSearch();
+                        break;
+                    }
+                    String match = search.finish();
+                    if (!match.isEmpty()) {
+                        line.setLength(0);
+                        line.append(match);
+                        cursor = search.getMatchOffset();
+                    }
+                    refresh();
+                    return key;
+            }
+        }
+    }
+
+    private void showSearch() {
+        String match = search.getMatch();
+        redraw.setLength(0);
+        redraw.append('\r').append(search.getPrompt()).append(match).append(Ansi.CLEAR_TO_END_OF_LINE)
+              .append(Ansi.cursorLeft(match.length() - search.getMatchOffset()));
+        output.print(redraw.toString(), null);
+    }
+
+    /**
+     * Reads the continuation bytes of a UTF-8 sequence.
+     */
+    private String readUtf8(int first) throws InterruptedException {
+        int length = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+        byte[] bytes = new byte[length];
+        bytes[0] = (byte) first;
+        for (int i = 1; i < length; i++) {
+            int b = keys.poll(ESCAPE_TIMEOUT_MILLIS);
+            if (b < 0) {
+                length = i;
+                break;
+            }
+            bytes[i] = (byte) b;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Completes the word before the cursor, or lists the candidates when
+     * Tab is pressed twice without the word getting longer.
+     */
+    private void complete(boolean secondTab) {
+        Completion result = completion.complete(line.toString(), cursor);
+        if (result.extendsWord()) {
+            line.replace(result.getStart(), result.getEnd(), result.getReplacement());
+            cursor = result.getStart() + result.getReplacement().length();
+            refresh();
+            return;
+        }
+        if (!secondTab || result.getCandidates().size() < 2) {
+            output.print(Ansi.BELL, null);
+            return;
+        }
+
+        output.print("\n" + result.formatCandidates(columns.getAsInt()), null);
+        refresh();
+    }
+
+    private void insert(String text) {
+        boolean atEnd = cursor == line.length();
+        line.insert(cursor, text);
+        cursor += text.length();
+        if (atEnd) {
+            output.print(text, null);
+        } else {
+            refresh();
+        }
+    }
+
+    private void deleteBackward() {
+        if (cursor == 0) {
+            return;
+        }
+        line.deleteCharAt(--cursor);
+        refresh();
+    }
+
+    private void deleteForward() {
+        if (cursor == line.length()) {
+            return;
+        }
+        line.deleteCharAt(cursor);
+        refresh();
+    }
+
+    private void deleteWordBackward() {
+        int start = cursor;
+        while (start > 0 && line.charAt(start - 1) == ' ') {
+            start--;
+        }
+        while (start > 0 && line.charAt(start - 1) != ' ') {
+            start--;
+        }
+        line.delete(start, cursor);
+        cursor = start;
+        refresh();
+    }
+
+    private void moveTo(int position) {
+        int target = Math.max(0, Math.min(line.length(), position));
+        if (target == cursor) {
+            return;
+        }
+        cursor = target;
+        refresh();
+    }
+
+    /**
+     * Replaces the line with a history entry. The line being typed is kept
+     * when leaving it, and comes back after the newest entry.
+     */
+    private void showHistory(String entry, boolean backward) {
+        if (backward) {
+            if (entry.isEmpty()) {
+                return;
+            }
+            if (draft == null) {
+                draft = line.toString();
+            }
+        } else if (entry.isEmpty()) {
+            if (draft == null) {
+                return;
+            }
+            entry = draft;
+            draft = null;
+        }
+
+        line.setLength(0);
+        line.append(entry);
+        cursor = line.length();
+        refresh();
+    }
+
+    /**
+     * Redraws the prompt and line, and puts the cursor back in place.
+     */
+    private void refresh() {
+        redraw.setLength(0);
+        redraw.append('\r');
+        if (output.usesColors()) {
+            redraw.append(Ansi.BOLD_GREEN).append(prompt).append(Ansi.RESET);
+        } else {
+            redraw.append(prompt);
+        }
+        redraw.append(line).append(Ansi.CLEAR_TO_END_OF_LINE).append(Ansi.cursorLeft(line.length() - cursor));
+        output.print(redraw.toString(), null);
+    }
+}
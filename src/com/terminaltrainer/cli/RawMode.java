@@ -0,0 +1,99 @@
+package com.terminaltrainer.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Switches the controlling terminal in and out of a raw-ish mode with stty,
+ * so that keys arrive one at a time, unechoed, and Ctrl+C arrives as a
+ * character instead of a signal. Output processing is left on, so a
+ * written "\n" still starts a new line.
+ */
+final class RawMode {
+    private static final File TTY = new File("/dev/tty");
+
+    private String savedSettings;
+
+    /**
+     * Enables raw mode.
+     *
+     * @return true if the terminal is now in raw mode, false if there is no
+     *         terminal or stty is not available
+     */
+    boolean enable() {
+        if (savedSettings != null) {
+            return true;
+        }
+        if (System.console() == null || !TTY.exists()) {
+            return false;
+        }
+
+        String settings = stty("-g");
+        if (settings == null || stty("-icanon", "-echo", "-isig", "-ixon", "-iexten", "min", "1", "time", "0") == null) {
+            return false;
+        }
+        savedSettings = settings.trim();
+        return true;
+    }
+
+    /**
+     * Restores the terminal settings saved by {@link #enable()}.
+     */
+    void restore() {
+        if (savedSettings != null) {
+            stty(savedSettings);
+            savedSettings = null;
+        }
+    }
+
+    /**
+     * Gets the width of the terminal.
+     *
+     * @return The number of columns, or 80 if the terminal does not say
+     */
+    int columns() {
+        String size = stty("size");
+        if (size != null) {
+            String[] parts = size.trim().split("\\s+");
+            if (parts.length == 2) {
+                try {
+                    int columns = Integer.parseInt(parts[1]);
+                    if (columns > 0) {
+                        return columns;
+                    }
+                } catch (NumberFormatException e) {
+                    // Fall back to the default
+                }
+            }
+        }
+        return 80;
+    }
+
+    private static String stty(String... args) {
+        String[] command = new String[args.length + 1];
+        command[0] = "stty";
+        System.arraycopy(args, 0, command, 1, args.length);
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectInput(TTY)
+                    .redirectErrorStream(true)
+                    .start();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (InputStream in = process.getInputStream()) {
+                in.transferTo(output);
+            }
+            if (process.waitFor() != 0) {
+                return null;
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.terminaltrainer.cli;
+
+import com.terminaltrainer.core.io.AnsiParser;
+import com.terminaltrainer.core.io.AnsiStyle;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered writer for the command-line front-end.
+ *
+ * Writers append to an in-memory buffer and return at once; a background
+ * thread encodes the buffer as UTF-8 and writes it to the terminal in large
+ * blocks, so a command is never held up by a slow terminal or ssh link
+ * unless it gets more than {@link #MAX_BUFFERED} characters ahead. Prompts,
+ * line editing and command output all go through the same buffer, so they
+ * reach the terminal in the order they were written.
+ *
+ * Command output is run through an {@link AnsiParser} for each stream.
+ * When colors are enabled, each style run is written after the SGR
+ * sequence for its style; standard error is red unless it picks a color
+ * itself. Otherwise only the text is written. Either way, other escape
+ * sequences never reach the terminal, where they could move the cursor
+ * under the line editor, and a command cannot leave a color on for the prompt.
+ */
+final class TerminalOutput implements OutputSink {
+    /**
+     * The most characters that may wait to be written before writers block.
+     */
+    static final int MAX_BUFFERED = 256 * 1024;
+
+    private final OutputStream out;
+    private final boolean colors;
+    private final Thread writerThread;
+    private final AnsiParser outputParser;
+    private final AnsiParser errorParser;
+    // The style the terminal is in, as far as this output has set it
+    private int terminalStyle = AnsiStyle.DEFAULT;
+    private StringBuilder pending;
+    private StringBuilder spare;
+    private boolean writing;
+    private boolean closed;
+    private char lastChar = '\n';
+
+    /**
+     * Creates a new output and starts its writer thread.
+     *
+     * @param out The terminal's output stream
+     * @param colors Whether to use ANSI colors
+     */
+    TerminalOutput(OutputStream out, boolean colors) {
+        this.out = out;
+        this.colors = colors;
+        this.pending = new StringBuilder();
+        this.spare = new StringBuilder();
+        this.outputParser = new AnsiParser((chars, offset, length, style) -> appendRun(chars, offset, length, style));
+        this.errorParser = new AnsiParser((chars, offset, length, style) -> appendRun(chars, offset, length,
+                AnsiStyle.getForeground(style) == AnsiStyle.DEFAULT_COLOR ? AnsiStyle.withForeground(style, AnsiStyle.RED) : style));
+        this.writerThread = new Thread(this::drainLoop, "terminal-output");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    boolean usesColors() {
+        return colors;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws InterruptedIOException {
+        parse(outputParser, chars, offset, length);
+    }
+
+    @Override
+    public void writeError(char[] chars, int offset, int length) throws InterruptedIOException {
+        parse(errorParser, chars, offset, length);
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return colors;
+    }
+
+    /**
+     * Returns the terminal to the default style, ready for the prompt.
+     */
+    @Override
+    public synchronized void finish(int exitStatus) {
+        outputParser.reset();
+        errorParser.reset();
+        resetStyle();
+        notifyAll();
+    }
+
+    /**
+     * Writes text, optionally in a color.
+     *
+     * @param text The text
+     * @param color The ANSI color sequence, or null for none
+     */
+    void print(String text, String color) {
+        try {
+            append(color, text.toCharArray(), 0, text.length());
+        } catch (InterruptedIOException e) {
+            // The interrupt flag is set again; the text is dropped
+        }
+    }
+
+    /**
+     * Checks if the last text written did not end with a line break.
+     *
+     * @return true if the cursor is in the middle of a line
+     */
+    synchronized boolean endsMidLine() {
+        return lastChar != '\n';
+    }
+
+    /**
+     * Waits until everything written so far has reached the terminal.
+     */
+    synchronized void flush() {
+        while ((pending.length() > 0 || writing) && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Flushes and stops the writer thread.
+     */
+    void close() {
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    private synchronized void append(String color, char[] chars, int offset, int length) throws InterruptedIOException {
+        if (length == 0 || closed) {
+            return;
+        }
+        awaitSpace();
+
+        resetStyle();
+        boolean colored = colors && color != null;
+        if (colored) {
+            pending.append(color);
+        }
+        pending.append(chars, offset, length);
+        if (colored) {
+            pending.append(Ansi.RESET);
+        }
+        lastChar = chars[offset + length - 1];
+        notifyAll();
+    }
+
+    private synchronized void parse(AnsiParser parser, char[] chars, int offset, int length)
+            throws InterruptedIOException {
+        if (length == 0 || closed) {
+            return;
+        }
+        awaitSpace();
+        try {
+            parser.parse(chars, offset, length);
+        } catch (IOException e) {
+            // appendRun does not throw
+        }
+        notifyAll();
+    }
+
+    /**
+     * Appends a run of command output. Called by the parsers, holding the lock.
+     */
+    private void appendRun(char[] chars, int offset, int length, int style) {
+        if (colors && style != terminalStyle) {
+            if (style == AnsiStyle.DEFAULT) {
+                pending.append(Ansi.RESET);
+            } else {
+                AnsiStyle.appendSgr(style, pending);
+            }
+            terminalStyle = style;
+        }
+        pending.append(chars, offset, length);
+        lastChar = chars[offset + length - 1];
+    }
+
+    private void resetStyle() {
+        if (terminalStyle != AnsiStyle.DEFAULT) {
+            pending.append(Ansi.RESET);
+            terminalStyle = AnsiStyle.DEFAULT;
+        }
+    }
+
+    private void awaitSpace() throws InterruptedIOException {
+        while (pending.length() >= MAX_BUFFERED && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing to the terminal");
+            }
+        }
+    }
+
+    private void drainLoop() {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+
+        while (true) {
+            StringBuilder batch;
+            synchronized (this) {
+                while (pending.length() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.length() == 0) {
+                    return;
+                }
+                // Swap buffers so writers can keep appending while this batch is written
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                writing = true;
+                notifyAll();
+            }
+
+            try {
+                CharBuffer chars = CharBuffer.wrap(batch);
+                encoder.reset();
+                while (true) {
+                    boolean done = !encoder.encode(chars, bytes, true).isOverflow();
+                    if (done) {
+                        encoder.flush(bytes);
+                    }
+                    out.write(bytes.array(), 0, bytes.position());
+                    bytes.clear();
+                    if (done) {
+                        break;
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                // The terminal went away; keep draining so writers never block forever
+            }
+
+            synchronized (this) {
+                batch.setLength(0);
+                writing = false;
+                notifyAll();
+            }
+        }
+    }
+}
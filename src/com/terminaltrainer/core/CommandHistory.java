@@ -1,65 +1,604 @@
 package com.terminaltrainer.core;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-
+/**
+ * The command lines entered in a session, shared by every front-end.
+ *
+ * Entries live in a ring buffer of fixed capacity, so the oldest entry is
+ * dropped once it is full. Each entry keeps the event number it was given
+ * when added, as shown by 'history' and used by '!n'.
+ *
+ * Reverse search goes through an index from every three-character
+ * sequence (trigram) to the numbers of the entries containing it, so only
+ * entries holding the rarest trigram of the query are checked. The index is
+ * updated as entries are added and dropped.
+ *
+ * A history can be backed by a log file that every entry is appended to.
+ * The log is read the first time the history is used rather than when it is
+ * attached, and is rewritten with just the retained entries once it grows
+ * to twice the capacity.
+ *
+ * All methods are thread-safe: commands add entries on their own thread
+ * while the front-end navigates on another.
+ */
 public class CommandHistory {
-    private final List<String> history;
-    private int currentIndex;
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * The system property naming the log file of the interactive front-ends.
+     * An empty value keeps the history in memory only.
+     */
+    public static final String LOG_FILE_PROPERTY = "terminaltrainer.history.file";
+
+    private static final int NGRAM = 3;
+
+    private final String[] entries;
+    private int start;
+    private int size;
+    private int firstNumber;
+    private int navigation;
+    private final Map<Long, Postings> index;
+
+    private Path logFile;
+    private boolean logLoaded;
+    private int logLines;
+
 
     public CommandHistory() {
-        this.history = new ArrayList<>();
-        this.currentIndex = 0;
+        this(DEFAULT_CAPACITY);
     }
 
 
-    public void addCommand(String command) {
-        if (command == null || command.trim().isEmpty()) {
-            return;
+    /**
+     * Creates an empty history.
+     *
+     * @param capacity The most entries to keep
+     */
+    public CommandHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
         }
-        
-        if (!history.isEmpty() && command.equals(history.get(history.size() - 1))) {
+        this.entries = new String[capacity];
+        this.firstNumber = 1;
+        this.index = new HashMap<>();
+        this.logLoaded = true;
+    }
+
+
+    /**
+     * Gets the log file the interactive front-ends keep their history in.
+     *
+     * @return The file named by {@link #LOG_FILE_PROPERTY}, by default
+     *         .terminaltrainer_history in the user's home directory, or null for none
+     */
+    public static Path defaultLogFile() {
+        String file = System.getProperty(LOG_FILE_PROPERTY);
+        if (file == null) {
+            return Paths.get(System.getProperty("user.home"), ".terminaltrainer_history");
+        }
+        return file.trim().isEmpty() ? null : Paths.get(file.trim());
+    }
+
+
+    /**
+     * Backs the history with a log file. Entries already in the file come
+     * before the current ones; the file is read on first use.
+     *
+     * @param logFile The file, created when the first entry is added if it does not exist
+     */
+    public synchronized void attachLog(Path logFile) {
+        this.logFile = logFile;
+        this.logLoaded = false;
+    }
+
+
+    public synchronized void addCommand(String command) {
+        ensureLoaded();
+        if (!append(command)) {
             return;
         }
-        
-        history.add(command);
-        currentIndex = history.size();
+        navigation = size;
+
+        if (logFile != null) {
+            writeLog(command);
+        }
     }
 
 
-    public String getPreviousCommand() {
-        if (history.isEmpty() || currentIndex <= 0) {
+    public synchronized String getPreviousCommand() {
+        ensureLoaded();
+        if (size == 0 || navigation <= 0) {
             return "";
         }
-        
-        currentIndex = Math.max(0, currentIndex - 1);
-        return history.get(currentIndex);
+
+        navigation--;
+        return entryAt(navigation);
     }
 
 
-    public String getNextCommand() {
-        if (history.isEmpty() || currentIndex >= history.size() - 1) {
-            currentIndex = history.size();
+    public synchronized String getNextCommand() {
+        ensureLoaded();
+        if (size == 0 || navigation >= size - 1) {
+            navigation = size;
             return "";
         }
-        
-        currentIndex++;
-        return history.get(currentIndex);
+
+        navigation++;
+        return entryAt(navigation);
+    }
+
+
+    public synchronized void resetNavigation() {
+        ensureLoaded();
+        navigation = size;
+    }
+
+
+    public synchronized List<String> getHistory() {
+        ensureLoaded();
+        List<String> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(entryAt(i));
+        }
+        return result;
+    }
+
+
+    /**
+     * Gets the event number of the oldest entry still kept.
+     *
+     * @return The number; the entries of {@link #getHistory()} are numbered up from it
+     */
+    public synchronized int getFirstNumber() {
+        ensureLoaded();
+        return firstNumber;
+    }
+
+
+    /**
+     * Gets the event number the next entry will be given.
+     *
+     * @return The number
+     */
+    public synchronized int getNextNumber() {
+        ensureLoaded();
+        return firstNumber + size;
+    }
+
+
+    /**
+     * Gets an entry by event number.
+     *
+     * @param number The event number
+     * @return The entry, or null if there is none with that number
+     */
+    public synchronized String get(int number) {
+        ensureLoaded();
+        int position = number - firstNumber;
+        return position >= 0 && position < size ? entryAt(position) : null;
+    }
+
+
+    /**
+     * Clears the history, and the log file if there is one.
+     */
+    public synchronized void clear() {
+        ensureLoaded();
+        Arrays.fill(entries, null);
+        start = 0;
+        firstNumber = 1;
+        size = 0;
+        navigation = 0;
+        index.clear();
+
+        if (logFile != null) {
+            try {
+                Files.deleteIfExists(logFile);
+                logLines = 0;
+            } catch (IOException e) {
+                logFailed(e);
+            }
+        }
+    }
+
+
+    /**
+     * Replaces the history with entries that were numbered from a given
+     * event number, so that 'history' and '!n' see the same numbers as
+     * wherever they came from. The log file, if there is one, is rewritten
+     * with them.
+     *
+     * @param firstNumber The event number of the first entry
+     * @param commands The entries, oldest first
+     */
+    public synchronized void restore(int firstNumber, List<String> commands) {
+        if (firstNumber <= 0) {
+            throw new IllegalArgumentException("firstNumber must be positive");
+        }
+        clear();
+        this.firstNumber = firstNumber;
+        for (String command : commands) {
+            addCommand(command);
+        }
+    }
+
+
+    public synchronized int size() {
+        ensureLoaded();
+        return size;
+    }
+
+
+    /**
+     * Finds the newest entry containing some text, older than a given entry.
+     *
+     * @param query The text to look for; matching is case-sensitive
+     * @param before The event number to search back from, exclusive
+     * @return The event number of the entry, or -1 if none matches
+     */
+    public synchronized int search(String query, int before) {
+        ensureLoaded();
+        int last = Math.min(before, firstNumber + size) - 1;
+        if (query.isEmpty() || last < firstNumber) {
+            return -1;
+        }
+
+        if (query.length() < NGRAM) {
+            for (int number = last; number >= firstNumber; number--) {
+                if (entryAt(number - firstNumber).contains(query)) {
+                    return number;
+                }
+            }
+            return -1;
+        }
+
+        // Every match holds all of the query's trigrams, so checking the
+        // entries that hold the rarest one is enough
+        Postings rarest = null;
+        for (int i = 0; i + NGRAM <= query.length(); i++) {
+            Postings postings = index.get(ngramKey(query, i));
+            if (postings == null) {
+                return -1;
+            }
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        for (int i = rarest.lastIndexAtMost(last); i >= 0; i--) {
+            int number = rarest.get(i);
+            if (entryAt(number - firstNumber).contains(query)) {
+                return number;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Expands history references the way an interactive shell does: '!!' is
+     * the last entry, '!n' entry n, '!-n' the nth entry back and '!prefix'
+     * the newest entry starting with prefix. References inside single quotes
+     * or after a backslash, and a '!' followed by a blank, '=', '(' or a
+     * double quote, are left alone.
+     *
+     * @param line The command line
+     * @return The expanded line, the same instance if it held no references
+     * @throws HistoryExpansionException if a reference matches no entry
+     */
+    public synchronized String expand(String line) throws HistoryExpansionException {
+        if (line.indexOf('!') < 0) {
+            return line;
+        }
+        ensureLoaded();
+
+        boolean singleQuoted = false;
+        boolean doubleQuoted = false;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '\\' && !singleQuoted) {
+                i += 2;
+                continue;
+            }
+            if (c == '\'' && !doubleQuoted) {
+                singleQuoted = !singleQuoted;
+            } else if (c == '"' && !singleQuoted) {
+                doubleQuoted = !doubleQuoted;
+            }
+            if (c != '!' || singleQuoted || i + 1 >= line.length() || isLiteralAfterBang(line.charAt(i + 1))) {
+                i++;
+                continue;
+            }
+
+            int end = referenceEnd(line, i + 1);
+            String reference = line.substring(i, end);
+            String entry = resolve(reference);
+            if (entry == null) {
+                throw new HistoryExpansionException(reference);
+            }
+
+            line = line.substring(0, i) + entry + line.substring(end);
+            i += entry.length();
+        }
+        return line;
+    }
+
+
+    private static boolean isLiteralAfterBang(char c) {
+        return Character.isWhitespace(c) || c == '=' || c == '(' || c == '"';
+    }
+
+
+    private static int referenceEnd(String line, int from) {
+        char first = line.charAt(from);
+        if (first == '!') {
+            return from + 1;
+        }
+        int end = from;
+        if (first == '-' || Character.isDigit(first)) {
+            end++;
+            while (end < line.length() && Character.isDigit(line.charAt(end))) {
+                end++;
+            }
+            return end;
+        }
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end))
+                && ";&|<>()'\"".indexOf(line.charAt(end)) < 0) {
+            end++;
+        }
+        return end;
+    }
+
+
+    /**
+     * Gets the entry a reference such as '!!' or '!12' stands for.
+     *
+     * @return The entry, or null if there is none
+     */
+    private String resolve(String reference) {
+        String designator = reference.substring(1);
+        if (designator.equals("!")) {
+            return size > 0 ? entryAt(size - 1) : null;
+        }
+        if (designator.matches("-?\\d+")) {
+            int number;
+            try {
+                number = Integer.parseInt(designator);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            return get(number < 0 ? firstNumber + size + number : number);
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            String entry = entryAt(i);
+            if (entry.startsWith(designator)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Adds an entry to the ring and the index, dropping the oldest if full.
+     *
+     * @return false if the entry was blank or repeats the last one
+     */
+    private boolean append(String command) {
+        if (command == null || command.trim().isEmpty()) {
+            return false;
+        }
+        if (size > 0 && command.equals(entryAt(size - 1))) {
+            return false;
+        }
+
+        if (size == entries.length) {
+            unindex(entries[start], firstNumber);
+            entries[start] = null;
+            start = (start + 1) % entries.length;
+            firstNumber++;
+            size--;
+        }
+        int number = firstNumber + size;
+        entries[(start + size) % entries.length] = command;
+        size++;
+        indexEntry(command, number);
+        return true;
     }
 
 
-    public List<String> getHistory() {
-        return new ArrayList<>(history);
+    private String entryAt(int position) {
+        return entries[(start + position) % entries.length];
     }
 
-    public void clear() {
-        history.clear();
-        currentIndex = 0;
+
+    private void indexEntry(String entry, int number) {
+        for (int i = 0; i + NGRAM <= entry.length(); i++) {
+            index.computeIfAbsent(ngramKey(entry, i), key -> new Postings()).add(number);
+        }
     }
 
 
-    public int size() {
-        return history.size();
+    /**
+     * Removes the oldest entry from the index. Its number is the smallest
+     * in every list it appears in, so it is always at the front.
+     */
+    private void unindex(String entry, int number) {
+        for (int i = 0; i + NGRAM <= entry.length(); i++) {
+            Long key = ngramKey(entry, i);
+            Postings postings = index.get(key);
+            if (postings != null && postings.removeFirst(number) && postings.size == 0) {
+                index.remove(key);
+            }
+        }
+    }
+
+
+    private static long ngramKey(String text, int offset) {
+        return (long) text.charAt(offset) << 32 | (long) text.charAt(offset + 1) << 16 | text.charAt(offset + 2);
+    }
+
+
+    /**
+     * Reads the log file the first time the history is used.
+     */
+    private void ensureLoaded() {
+        if (logLoaded) {
+            return;
+        }
+        logLoaded = true;
+
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                append(unescape(line));
+                logLines++;
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing logged yet
+        } catch (IOException e) {
+            logFailed(e);
+        }
+        navigation = size;
+    }
+
+
+    private void writeLog(String command) {
+        try {
+            if (logLines + 1 >= entries.length * 2) {
+                compactLog();
+                return;
+            }
+            try (Writer writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(escape(command));
+                writer.write('\n');
+            }
+            logLines++;
+        } catch (IOException e) {
+            logFailed(e);
+        }
+    }
+
+
+    /**
+     * Rewrites the log with just the entries in memory, replacing the old
+     * file in one step so a crash cannot lose it.
+     */
+    private void compactLog() throws IOException {
+        Path temporary = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < size; i++) {
+                writer.write(escape(entryAt(i)));
+                writer.write('\n');
+            }
+        }
+        Files.move(temporary, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = size;
+    }
+
+
+    /**
+     * Stops logging after a failure, so the history keeps working in memory.
+     */
+    private void logFailed(IOException e) {
+        System.err.println("history: cannot use " + logFile + ": " + e.getMessage());
+        logFile = null;
+    }
+
+
+    private static String escape(String command) {
+        return command.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+
+    private static String unescape(String line) {
+        if (line.indexOf('\\') < 0) {
+            return line;
+        }
+        StringBuilder result = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                c = line.charAt(++i) == 'n' ? '\n' : line.charAt(i);
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+
+    /**
+     * The event numbers of the entries holding one trigram, in ascending order.
+     */
+    private static final class Postings {
+        private int[] numbers = new int[4];
+        private int head;
+        private int size;
+
+        void add(int number) {
+            // A trigram occurring twice in one entry is listed once
+            if (size > 0 && get(size - 1) == number) {
+                return;
+            }
+            if (head + size == numbers.length) {
+                if (head > 0 && size <= numbers.length / 2) {
+                    System.arraycopy(numbers, head, numbers, 0, size);
+                } else {
+                    numbers = Arrays.copyOfRange(numbers, head, head + size * 2);
+                }
+                head = 0;
+            }
+            numbers[head + size] = number;
+            size++;
+        }
+
+        boolean removeFirst(int number) {
+            if (size == 0 || numbers[head] != number) {
+                return false;
+            }
+            head++;
+            size--;
+            return true;
+        }
+
+        int get(int i) {
+            return numbers[head + i];
+        }
+
+        /**
+         * Finds the last position holding a number no greater than a limit.
+         *
+         * @return The position, or -1 if every number is greater
+         */
+        int lastIndexAtMost(int limit) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (get(middle) <= limit) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
     }
-}
\ No newline at end of file
+}
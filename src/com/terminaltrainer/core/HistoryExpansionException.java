@@ -0,0 +1,24 @@
+package com.terminaltrainer.core;
+
+/**
+ * Thrown when a history reference such as '!12' or '!ls' matches no entry.
+ */
+public class HistoryExpansionException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String reference;
+
+    /**
+     * Creates a new expansion error.
+     *
+     * @param reference The reference as written, including the '!'
+     */
+    public HistoryExpansionException(String reference) {
+        super(reference + ": event not found");
+        this.reference = reference;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+}
@@ -0,0 +1,154 @@
+package com.terminaltrainer.core;
+
+/**
+ * The state of an incremental reverse search through a {@link CommandHistory},
+ * as started with Ctrl+R. Front-ends feed it keys and show its prompt and match.
+ *
+ * Typing extends the query and looks for it from the current match back;
+ * searching again moves to the next older match. When nothing matches, the
+ * last match stays shown and the search is marked as failing, as in bash.
+ */
+public class ReverseHistorySearch {
+    private final CommandHistory history;
+    private final StringBuilder query;
+    private String lastQuery;
+    private int matchNumber;
+    private String match;
+    private boolean failing;
+    private boolean active;
+
+    public ReverseHistorySearch(CommandHistory history) {
+        this.history = history;
+        this.query = new StringBuilder();
+        this.lastQuery = "";
+        this.match = "";
+    }
+
+
+    /**
+     * Starts a new search with an empty query.
+     */
+    public void start() {
+        query.setLength(0);
+        matchNumber = history.getNextNumber();
+        match = "";
+        failing = false;
+        active = true;
+    }
+
+
+    /**
+     * Ends the search, remembering the query for the next one.
+     *
+     * @return The match, or an empty string if there was none
+     */
+    public String finish() {
+        if (query.length() > 0) {
+            lastQuery = query.toString();
+        }
+        active = false;
+        return match;
+    }
+
+
+    public boolean isActive() {
+        return active;
+    }
+
+
+    /**
+     * Adds text to the query, keeping the current match if it still matches.
+     *
+     * @param text The typed text
+     */
+    public void append(String text) {
+        query.append(text);
+        if (failing) {
+            return;
+        }
+        if (!match.isEmpty() && match.contains(query)) {
+            return;
+        }
+        find(matchNumber + (match.isEmpty() ? 0 : 1));
+    }
+
+
+    /**
+     * Removes the last character of the query and searches again from the newest entry.
+     */
+    public void deleteLast() {
+        if (query.length() == 0) {
+            return;
+        }
+        query.setLength(query.length() - 1);
+        failing = false;
+        match = "";
+        matchNumber = history.getNextNumber();
+        if (query.length() > 0) {
+            find(matchNumber);
+        }
+    }
+
+
+    /**
+     * Moves to the next older match. With an empty query, the query of the
+     * previous search is used again.
+     */
+    public void searchOlder() {
+        if (query.length() == 0) {
+            query.append(lastQuery);
+        }
+        if (query.length() > 0) {
+            find(matchNumber);
+        }
+    }
+
+
+    public String getQuery() {
+        return query.toString();
+    }
+
+
+    public String getMatch() {
+        return match;
+    }
+
+
+    /**
+     * Gets where the query occurs in the match, for placing the cursor.
+     *
+     * @return The offset, or 0 if there is no match
+     */
+    public int getMatchOffset() {
+        return Math.max(0, match.indexOf(query.toString()));
+    }
+
+
+    public boolean isFailing() {
+        return failing;
+    }
+
+
+    /**
+     * Gets the prompt shown in place of the usual one while searching.
+     *
+     * @return The prompt, such as {@code (reverse-i-search)`ls': }
+     */
+    public String getPrompt() {
+        return (failing ? "(failed reverse-i-search)`" : "(reverse-i-search)`") + query + "': ";
+    }
+
+
+    private void find(int before) {
+        int number = history.search(query.toString(), before);
+        // A command may have pushed the entry out of the history meanwhile
+        String entry = number < 0 ? null : history.get(number);
+        if (entry == null) {
+            failing = true;
+            return;
+        }
+        failing = false;
+        matchNumber = number;
+        match = entry;
+    }
+}
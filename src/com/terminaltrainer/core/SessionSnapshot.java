@@ -0,0 +1,346 @@
+package com.terminaltrainer.core;
+
+import com.terminaltrainer.core.filesystem.VirtualDirectory;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, serialized copy of a session's state: the file system tree,
+ * the current directory, user and host names, command history with its
+ * event numbers and tutorial progress.
+ *
+ * The state is encoded once when the snapshot is taken, in a compact binary
+ * format: a header, the session fields, then the file system in pre-order
+ * with variable-length integers, and owners and groups written once and
+ * referred to by index afterwards. Restoring decodes into a session, so one
+ * snapshot can seed any number of sessions, from any number of threads.
+ * Creation times are not preserved.
+ */
+public final class SessionSnapshot {
+    private static final int MAGIC = 0x54545353; // "TTSS"
+    private static final int VERSION = 2;
+    // Version 1 did not record the number of the first history entry
+    private static final int VERSION_WITHOUT_HISTORY_NUMBERS = 1;
+    private static final int TYPE_FILE = 0;
+    private static final int TYPE_DIRECTORY = 1;
+
+    private final byte[] data;
+
+    private SessionSnapshot(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Takes a snapshot of a session. The session must not be running a command.
+     *
+     * @param session The session
+     * @return The snapshot
+     */
+    public static SessionSnapshot capture(TerminalSession session) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            writeString(out, session.getUsername());
+            writeString(out, session.getHostname());
+            writeString(out, session.getCurrentDirectory());
+            out.writeBoolean(session.getTutorialManager().isTutorialMode());
+            writeVarInt(out, session.getTutorialManager().getCurrentTutorialStep());
+
+            CommandHistory commandHistory = session.getCommandHistory();
+            List<String> history = commandHistory.getHistory();
+            writeVarInt(out, commandHistory.getFirstNumber());
+            writeVarInt(out, history.size());
+            for (String command : history) {
+                writeString(out, command);
+            }
+
+            writeNode(out, session.getFileSystem().getRoot(), new HashMap<>());
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new UncheckedIOException(e);
+        }
+        return new SessionSnapshot(bytes.toByteArray());
+    }
+
+    /**
+     * Wraps bytes produced by {@link #toByteArray()}. The bytes are checked
+     * when the snapshot is restored.
+     *
+     * @param data The encoded snapshot
+     * @return The snapshot
+     */
+    public static SessionSnapshot fromByteArray(byte[] data) {
+        return new SessionSnapshot(data.clone());
+    }
+
+    /**
+     * Reads a snapshot from a stream.
+     *
+     * @param in The stream, read to its end
+     * @return The snapshot
+     * @throws IOException if reading fails
+     */
+    public static SessionSnapshot read(InputStream in) throws IOException {
+        return new SessionSnapshot(in.readAllBytes());
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @param file The file
+     * @return The snapshot
+     * @throws IOException if reading fails
+     */
+    public static SessionSnapshot read(Path file) throws IOException {
+        return new SessionSnapshot(Files.readAllBytes(file));
+    }
+
+    /**
+     * Writes the snapshot to a stream.
+     *
+     * @param out The stream
+     * @throws IOException if writing fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(data);
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing it if it exists.
+     *
+     * @param file The file
+     * @throws IOException if writing fails
+     */
+    public void write(Path file) throws IOException {
+        Files.write(file, data);
+    }
+
+    /**
+     * Gets the encoded snapshot.
+     *
+     * @return A copy of the encoded bytes
+     */
+    public byte[] toByteArray() {
+        return data.clone();
+    }
+
+    /**
+     * Gets the size of the encoded snapshot.
+     *
+     * @return The size in bytes
+     */
+    public int size() {
+        return data.length;
+    }
+
+    /**
+     * Creates a new session holding the snapshot's state.
+     *
+     * @return The restored session
+     * @throws IOException if the snapshot is malformed or from an unsupported version
+     */
+    public TerminalSession restore() throws IOException {
+        TerminalSession session = new TerminalSession();
+        restoreInto(session);
+        return session;
+    }
+
+    /**
+     * Replaces a session's state with the snapshot's. The session must not
+     * be running a command. If the snapshot is malformed the session may be
+     * left partly restored.
+     *
+     * @param session The session to overwrite
+     * @throws IOException if the snapshot is malformed or from an unsupported version
+     */
+    public void restoreInto(TerminalSession session) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a session snapshot");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION && version != VERSION_WITHOUT_HISTORY_NUMBERS) {
+                throw new IOException("Unsupported session snapshot version: " + version);
+            }
+
+            session.setUsername(readString(in));
+            session.setHostname(readString(in));
+            String currentDirectory = readString(in);
+            boolean tutorialMode = in.readBoolean();
+            int tutorialStep = readVarInt(in);
+
+            int firstHistoryNumber = version == VERSION_WITHOUT_HISTORY_NUMBERS ? 1 : readVarInt(in);
+            if (firstHistoryNumber == 0) {
+                throw new IOException("Bad history number in session snapshot");
+            }
+            int historySize = readVarInt(in);
+            List<String> history = new ArrayList<>();
+            for (int i = 0; i < historySize; i++) {
+                history.add(readString(in));
+            }
+            session.getCommandHistory().restore(firstHistoryNumber, history);
+
+            VirtualDirectory root = session.getFileSystem().getRoot();
+            if (in.readUnsignedByte() != TYPE_DIRECTORY) {
+                throw new IOException("Snapshot root is not a directory");
+            }
+            // The root keeps its name
+            readString(in);
+            root.clear();
+            readNodeFields(in, root, new ArrayList<>());
+
+            session.setCurrentDirectory(currentDirectory);
+            session.getTutorialManager().restoreState(tutorialMode, tutorialStep);
+        } catch (EOFException e) {
+            throw new IOException("Truncated session snapshot", e);
+        } catch (RuntimeException e) {
+            // Damaged data can still decode into values the session rejects, such as an impossible time
+            throw new IOException("Malformed session snapshot", e);
+        }
+    }
+
+    private static void writeNode(DataOutputStream out, VirtualFileSystemNode node,
+                                  Map<String, Integer> names) throws IOException {
+        out.writeByte(node.isDirectory() ? TYPE_DIRECTORY : TYPE_FILE);
+        writeString(out, node.getName());
+        writeName(out, node.getOwner(), names);
+        writeName(out, node.getGroup(), names);
+        writeVarInt(out, node.getPermissions());
+        out.writeLong(node.getModificationTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+
+        if (node.isFile()) {
+            writeString(out, ((VirtualFile) node).getContent());
+            return;
+        }
+
+        List<VirtualFileSystemNode> children = ((VirtualDirectory) node).getChildren();
+        writeVarInt(out, children.size());
+        for (VirtualFileSystemNode child : children) {
+            writeNode(out, child, names);
+        }
+    }
+
+    /**
+     * Reads the fields that follow a node's type and name and applies them
+     * to a node that was already created, reading the children of a directory too.
+     */
+    private static void readNodeFields(DataInputStream in, VirtualFileSystemNode node,
+                                       List<String> names) throws IOException {
+        node.setOwner(readName(in, names));
+        node.setGroup(readName(in, names));
+        node.setPermissions(readVarInt(in));
+        LocalDateTime modificationTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneOffset.UTC);
+
+        if (node.isFile()) {
+            ((VirtualFile) node).setContent(readString(in));
+        } else {
+            VirtualDirectory directory = (VirtualDirectory) node;
+            int childCount = readVarInt(in);
+            for (int i = 0; i < childCount; i++) {
+                int type = in.readUnsignedByte();
+                String name = readString(in);
+                VirtualFileSystemNode child;
+                if (type == TYPE_FILE) {
+                    child = new VirtualFile(name, directory);
+                } else if (type == TYPE_DIRECTORY) {
+                    child = new VirtualDirectory(name, directory);
+                } else {
+                    throw new IOException("Unknown node type in session snapshot: " + type);
+                }
+                if (!directory.addChild(child)) {
+                    throw new IOException("Duplicate name in session snapshot: " + child.getPath());
+                }
+                readNodeFields(in, child, names);
+            }
+        }
+
+        // Adding children and setting content both touch the modification time
+        node.setModificationTime(modificationTime);
+    }
+
+    private static void writeName(DataOutputStream out, String name, Map<String, Integer> names) throws IOException {
+        Integer index = names.get(name);
+        if (index != null) {
+            writeVarInt(out, index + 1);
+            return;
+        }
+        names.put(name, names.size());
+        writeVarInt(out, 0);
+        writeString(out, name);
+    }
+
+    private static String readName(DataInputStream in, List<String> names) throws IOException {
+        int index = readVarInt(in);
+        if (index == 0) {
+            String name = readString(in);
+            names.add(name);
+            return name;
+        }
+        if (index > names.size()) {
+            throw new IOException("Bad name reference in session snapshot: " + index);
+        }
+        return names.get(index - 1);
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length > in.available()) {
+            throw new IOException("Truncated session snapshot");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                // Only lengths, counts and other non-negative values are written as varints
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed integer in session snapshot");
+    }
+}
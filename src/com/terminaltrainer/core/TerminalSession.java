@@ -2,8 +2,15 @@ package com.terminaltrainer.core;
 
 import com.terminaltrainer.core.filesystem.VirtualFileSystem;
 import com.terminaltrainer.core.commands.CommandProcessor;
+import com.terminaltrainer.core.commands.result.CommandResult;
+import com.terminaltrainer.core.io.OutputMirror;
+import com.terminaltrainer.core.io.OutputSink;
+import com.terminaltrainer.core.io.StringOutputSink;
+import com.terminaltrainer.core.suggest.SpellingSuggester;
 import com.terminaltrainer.education.TutorialManager;
 
+import java.io.IOException;
+
 
 public class TerminalSession {
     private final VirtualFileSystem fileSystem;
@@ -13,6 +20,9 @@ public class TerminalSession {
     private String username;
     private String hostname;
     private final CommandHistory commandHistory;
+    private final SpellingSuggester spellingSuggester;
+    private final OutputMirror mirror;
+    private volatile boolean historyExpansion;
 
 
     public TerminalSession() {
@@ -23,12 +33,85 @@ public class TerminalSession {
         this.username = "user";
         this.hostname = "terminaltrainer";
         this.commandHistory = new CommandHistory();
+        this.spellingSuggester = new SpellingSuggester(this);
+        this.mirror = new OutputMirror();
+        this.historyExpansion = true;
     }
 
 
     public String executeCommand(String commandInput) {
+        StringOutputSink output = new StringOutputSink();
+        executeCommand(commandInput, output);
+        return output.getText();
+    }
+
+
+    /**
+     * Runs a command line and adds it to the history. History references
+     * such as '!!' are expanded first, and the expanded line is echoed.
+     * The prompt, the command line and its output are also added to the
+     * mirror, followed by the next prompt.
+     *
+     * @param commandInput The command line
+     * @param output Where to write output and errors; finished with the exit status
+     * @return The exit status
+     */
+    public int executeCommand(String commandInput, OutputSink output) {
+        mirror.publishCommand(getPrompt(), commandInput != null ? commandInput : "");
+        try {
+            return run(commandInput, mirror.tee(output));
+        } finally {
+            // After the command, so that a change of directory shows
+            mirror.publishPrompt(getPrompt());
+        }
+    }
+
+
+    private int run(String commandInput, OutputSink output) {
+        if (historyExpansion && commandInput != null) {
+            try {
+                String expanded = commandHistory.expand(commandInput);
+                if (!expanded.equals(commandInput)) {
+                    output.write(expanded + "\n");
+                    commandInput = expanded;
+                }
+            } catch (HistoryExpansionException e) {
+                writeQuietly(output, e.getMessage());
+                output.finish(1);
+                return 1;
+            } catch (IOException e) {
+                // The output is gone, but the command can still run
+            }
+        }
+
         commandHistory.addCommand(commandInput);
-        return commandProcessor.processCommand(commandInput);
+        return commandProcessor.processCommand(commandInput, output);
+    }
+
+
+    private static void writeQuietly(OutputSink output, String error) {
+        try {
+            output.writeError(error + "\n");
+        } catch (IOException e) {
+            // Nobody is left to tell
+        }
+    }
+
+
+    public CommandResult<?> executeStructured(String commandInput) {
+        return commandProcessor.executeStructured(commandInput);
+    }
+
+
+    /**
+     * Gets the live copy of what this session shows, for read-only viewers.
+     * Every command line run through {@link #executeCommand(String, OutputSink)}
+     * is added to it along with its prompt and output.
+     *
+     * @return The mirror
+     */
+    public OutputMirror getMirror() {
+        return mirror;
     }
 
 
@@ -37,6 +120,11 @@ public class TerminalSession {
     }
 
 
+    public SpellingSuggester getSpellingSuggester() {
+        return spellingSuggester;
+    }
+
+
     public String getPrompt() {
         String displayPath = currentDirectory;
         if (currentDirectory.equals("/home/" + username)) {
@@ -69,6 +157,23 @@ public class TerminalSession {
     }
 
 
+    public boolean isHistoryExpansion() {
+        return historyExpansion;
+    }
+
+
+    /**
+     * Turns expansion of history references such as '!!' on or off. It is
+     * on by default; like a shell running a script, non-interactive callers
+     * should turn it off.
+     *
+     * @param historyExpansion Whether to expand history references
+     */
+    public void setHistoryExpansion(boolean historyExpansion) {
+        this.historyExpansion = historyExpansion;
+    }
+
+
     public TutorialManager getTutorialManager() {
         return tutorialManager;
     }
@@ -2,6 +2,9 @@ package com.terminaltrainer.core.commands;
 
 import com.terminaltrainer.core.TerminalSession;
 
+import java.util.Collections;
+import java.util.List;
+
 
 public interface Command {
 
@@ -15,4 +18,15 @@ public interface Command {
     
 
     String execute(String[] args, TerminalSession session);
-}
\ No newline at end of file
+
+
+    /**
+     * Gets the options this command accepts, such as "-l", for completion.
+     * Every command also accepts --help, which need not be listed.
+     *
+     * @return The option names
+     */
+    default List<String> getOptions() {
+        return Collections.emptyList();
+    }
+}
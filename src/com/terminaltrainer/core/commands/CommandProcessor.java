@@ -3,26 +3,91 @@ package com.terminaltrainer.core.commands;
 import com.terminaltrainer.core.TerminalSession;
 import com.terminaltrainer.core.commands.impl.CatCommand;
 import com.terminaltrainer.core.commands.impl.CdCommand;
+import com.terminaltrainer.core.commands.impl.EchoCommand;
+import com.terminaltrainer.core.commands.impl.GrepCommand;
+import com.terminaltrainer.core.commands.impl.HeadCommand;
 import com.terminaltrainer.core.commands.impl.HelpCommand;
+import com.terminaltrainer.core.commands.impl.HistoryCommand;
+import com.terminaltrainer.core.commands.impl.LocateCommand;
 import com.terminaltrainer.core.commands.impl.LsCommand;
 import com.terminaltrainer.core.commands.impl.MkdirCommand;
+import com.terminaltrainer.core.commands.impl.PagerCommand;
 import com.terminaltrainer.core.commands.impl.PwdCommand;
+import com.terminaltrainer.core.commands.impl.TailCommand;
 import com.terminaltrainer.core.commands.impl.TouchCommand;
 import com.terminaltrainer.core.commands.impl.TutorialCommand;
+import com.terminaltrainer.core.commands.impl.UpdatedbCommand;
+import com.terminaltrainer.core.commands.impl.WcCommand;
+import com.terminaltrainer.core.commands.result.CommandResult;
+import com.terminaltrainer.core.exec.BudgetExceededException;
+import com.terminaltrainer.core.exec.BudgetMetrics;
+import com.terminaltrainer.core.exec.CommandCancelledException;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.exec.ResourceBudget;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystem;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.filesystem.VirtualFileWriter;
+import com.terminaltrainer.core.io.BoundedPipe;
+import com.terminaltrainer.core.io.MeteredOutputSink;
+import com.terminaltrainer.core.io.OutputSink;
+import com.terminaltrainer.core.io.Pager;
+import com.terminaltrainer.core.io.StringOutputSink;
+import com.terminaltrainer.core.io.WriterOutputSink;
+import com.terminaltrainer.core.shell.BraceExpander;
+import com.terminaltrainer.core.shell.CommandList;
+import com.terminaltrainer.core.shell.GlobExpander;
+import com.terminaltrainer.core.shell.Pipeline;
+import com.terminaltrainer.core.shell.Redirection;
+import com.terminaltrainer.core.shell.ShellParser;
+import com.terminaltrainer.core.shell.ShellSyntaxException;
+import com.terminaltrainer.core.shell.SimpleCommand;
+import com.terminaltrainer.core.shell.Token;
 
-import java.util.Arrays;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 public class CommandProcessor {
+    private static final String COMMAND_NOT_FOUND = "Command not found: ";
+    private static final String EXECUTION_ERROR = "Error executing command: ";
+    private static final String COMMAND_STOPPED = "Command stopped: ";
+    private static final int CANCELLED_STATUS = 130;
+    private static final int BUDGET_EXCEEDED_STATUS = 124;
+    private static final int MAX_PIPELINE_STAGES = 32;
+    private static final int MAX_STAGE_THREADS = 256;
+
     private final Map<String, Command> commands;
     private final TerminalSession session;
+    private final ShellParser parser;
+    private final BraceExpander braceExpander;
+    private GlobExpander globExpander;
+    private volatile ResourceBudget budget;
+    private volatile BudgetMetrics budgetMetrics;
 
 
     public CommandProcessor(TerminalSession session) {
         this.session = session;
         this.commands = new HashMap<>();
+        this.parser = new ShellParser();
+        this.braceExpander = new BraceExpander();
+        this.budget = ResourceBudget.fromSystemProperties();
+        this.budgetMetrics = new BudgetMetrics();
         registerCommands();
     }
 
@@ -36,8 +101,19 @@ public class CommandProcessor {
         registerCommand(new MkdirCommand());
 
         registerCommand(new CatCommand());
+        registerCommand(new PagerCommand("less"));
+        registerCommand(new PagerCommand("more"));
+        registerCommand(new HeadCommand());
+        registerCommand(new TailCommand());
+        registerCommand(new WcCommand());
+        registerCommand(new EchoCommand());
+        registerCommand(new GrepCommand());
+
+        registerCommand(new LocateCommand());
+        registerCommand(new UpdatedbCommand());
 
         registerCommand(new HelpCommand());
+        registerCommand(new HistoryCommand());
 
         registerCommand(new TutorialCommand());
     }
@@ -49,29 +125,529 @@ public class CommandProcessor {
 
 
     public String processCommand(String commandInput) {
+        StringOutputSink output = new StringOutputSink();
+        processCommand(commandInput, output);
+        return output.getText();
+    }
+
+
+    /**
+     * Runs a command line, streaming its output to a sink as it is produced.
+     *
+     * @param commandInput The command line
+     * @param output Where to write output and errors; finished with the exit status
+     * @return The exit status of the last pipeline that ran
+     */
+    public int processCommand(String commandInput, OutputSink output) {
+        ExecutionContext context = ExecutionContext.current();
+        ExecutionContext previous = null;
+        boolean bound = context.isDetached();
+        if (bound) {
+            context = new ExecutionContext();
+            previous = ExecutionContext.bind(context);
+        }
+
+        int status;
+        try {
+            context.startBudget(budget);
+            MeteredOutputSink meteredOutput = new MeteredOutputSink(output, context);
+            status = runCommandLine(commandInput, meteredOutput);
+            status = reportBudgetFailure(context, meteredOutput, output.getErrorWriter(), status);
+        } finally {
+            if (bound) {
+                ExecutionContext.restore(previous);
+            }
+        }
+
+        output.finish(status);
+        return status;
+    }
+
+
+    /**
+     * Reports a command line that was stopped by its budget and counts it
+     * in the metrics. The message bypasses the meter, since the output limit
+     * may be what was exceeded.
+     *
+     * @return The exit status the command line should finish with
+     */
+    private int reportBudgetFailure(ExecutionContext context, MeteredOutputSink meteredOutput,
+                                    Writer error, int status) {
+        budgetMetrics.recordCommandLine();
+        BudgetExceededException failure = context.getBudgetFailure();
+        if (failure == null) {
+            return status;
+        }
+        budgetMetrics.recordTrip(failure.getResource());
+        String separator = meteredOutput.endsMidLine() ? "\n" : "";
+        writeQuietly(error, separator + COMMAND_STOPPED + failure.getMessage() + "\n");
+        return BUDGET_EXCEEDED_STATUS;
+    }
+
+
+    public ResourceBudget getBudget() {
+        return budget;
+    }
+
+
+    /**
+     * Sets the limits applied to each command line run from now on.
+     *
+     * @param budget The budget, or {@link ResourceBudget#unlimited()} for none
+     */
+    public void setBudget(ResourceBudget budget) {
+        this.budget = budget;
+    }
+
+
+    public BudgetMetrics getBudgetMetrics() {
+        return budgetMetrics;
+    }
+
+
+    /**
+     * Replaces the metrics that budget trips are counted in, so that several
+     * sessions can report into one set.
+     *
+     * @param budgetMetrics The metrics
+     */
+    public void setBudgetMetrics(BudgetMetrics budgetMetrics) {
+        this.budgetMetrics = budgetMetrics;
+    }
+
+
+    /**
+     * Runs a single command and returns its structured result without
+     * formatting it, for scripts and graders that inspect fields directly.
+     * Commands that only produce text yield one row per output line.
+     *
+     * @param commandInput A command line holding exactly one command, without pipes or redirections
+     * @return The result rows, errors and exit status
+     */
+    public CommandResult<?> executeStructured(String commandInput) {
+        CommandList commandList;
+        try {
+            commandList = parser.parse(commandInput == null ? "" : commandInput);
+        } catch (ShellSyntaxException e) {
+            return CommandResult.failure(e.toDisplayString(), 2);
+        }
+
+        List<Pipeline> pipelines = commandList.getPipelines();
+        if (pipelines.size() != 1 || pipelines.get(0).getStages().size() != 1
+                || !pipelines.get(0).getStages().get(0).getRedirections().isEmpty()) {
+            return CommandResult.failure("structured execution needs exactly one command without pipes or redirections", 2);
+        }
+
+        SimpleCommand simpleCommand = pipelines.get(0).getStages().get(0);
+        String commandName = simpleCommand.getName();
+        List<Token> words = simpleCommand.getArguments();
+        String[] args = new String[words.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = words.get(i).getPattern();
+        }
+
+        Command command = commands.get(commandName);
+        if (command == null) {
+            return CommandResult.failure(commandNotFound(commandName), 127);
+        }
+
+        ExecutionContext context = ExecutionContext.current();
+        ExecutionContext previous = null;
+        boolean bound = context.isDetached();
+        if (bound) {
+            context = new ExecutionContext();
+            previous = ExecutionContext.bind(context);
+        }
+
+        try {
+            context.startBudget(budget);
+            budgetMetrics.recordCommandLine();
+            args = expandArguments(args);
+            if (command instanceof StructuredCommand) {
+                return ((StructuredCommand<?>) command).executeStructured(args, session);
+            }
+
+            StringWriter output = new StringWriter();
+            StringWriter error = new StringWriter();
+            int status = LegacyCommandAdapter.adapt(command)
+                    .execute(args, session, new StringReader(""),
+                            new MeteredOutputSink(new WriterOutputSink(output, error), context));
+            List<String> errors = new ArrayList<>();
+            for (String line : error.toString().split("\n")) {
+                if (!line.isEmpty()) {
+                    errors.add(line);
+                }
+            }
+            return CommandResult.ofText(output.toString(), errors, status);
+        } catch (BudgetExceededException e) {
+            budgetMetrics.recordTrip(e.getResource());
+            return CommandResult.failure(COMMAND_STOPPED + e.getMessage(), BUDGET_EXCEEDED_STATUS);
+        } catch (CommandCancelledException e) {
+            return CommandResult.failure(commandName + ": cancelled", CANCELLED_STATUS);
+        } catch (Exception e) {
+            return CommandResult.failure(EXECUTION_ERROR + e.getMessage(), 1);
+        } finally {
+            if (bound) {
+                ExecutionContext.restore(previous);
+            }
+        }
+    }
+
+
+    private int runCommandLine(String commandInput, OutputSink output) {
         if (commandInput == null || commandInput.trim().isEmpty()) {
-            return "";
+            return 0;
+        }
+
+        CommandList commandList;
+        try {
+            commandList = parser.parse(commandInput);
+        } catch (ShellSyntaxException e) {
+            writeQuietly(output.getErrorWriter(), e.toDisplayString() + "\n");
+            return 2;
+        }
+
+        List<Pipeline> pipelines = commandList.getPipelines();
+        ExecutionContext context = ExecutionContext.current();
+        int status = 0;
+
+        try {
+            for (int i = 0; i < pipelines.size(); i++) {
+                if (context.isCancelled()) {
+                    return CANCELLED_STATUS;
+                }
+                if (i > 0) {
+                    CommandList.Connector connector = commandList.getConnectorAfter(i - 1);
+                    if ((connector == CommandList.Connector.AND && status != 0)
+                            || (connector == CommandList.Connector.OR && status == 0)) {
+                        continue;
+                    }
+                }
+
+                status = runPipeline(pipelines.get(i), output);
+            }
+        } catch (CommandCancelledException e) {
+            return CANCELLED_STATUS;
+        }
+
+        return context.isCancelled() ? CANCELLED_STATUS : status;
+    }
+
+
+    /**
+     * Runs every stage of a pipeline concurrently, connected by bounded pipes.
+     * Arguments are expanded and redirections opened on the calling thread
+     * before any stage starts; the last stage runs on the calling thread.
+     * Output of the last stage and errors of every stage go to the terminal sink.
+     * Upstream stages run with the caller's execution context, and cancelling
+     * it closes every pipe so that no stage stays blocked on a full or empty buffer.
+     * A pipeline longer than {@link #MAX_PIPELINE_STAGES} is refused, and so is
+     * one whose upstream stages cannot all get a thread from the shared pool.
+     *
+     * @return The exit status of the last stage
+     */
+    private int runPipeline(Pipeline pipeline, OutputSink terminal) {
+        List<SimpleCommand> stages = pipeline.getStages();
+        int count = stages.size();
+        Writer terminalOutput = terminal.getOutputWriter();
+        Writer terminalError = terminal.getErrorWriter();
+        if (count > MAX_PIPELINE_STAGES) {
+            writeQuietly(terminalError, "pipeline: too many stages: " + count
+                    + " (at most " + MAX_PIPELINE_STAGES + ")\n");
+            return 2;
+        }
+        // Upstream stages must all run at once, so their threads are taken together or not at all
+        int unstarted = count - 1;
+        if (!StagePool.reserve(unstarted)) {
+            writeQuietly(terminalError, "pipeline: too many pipeline stages running, try again later\n");
+            return 1;
+        }
+
+        try {
+            BoundedPipe[] pipes = new BoundedPipe[count - 1];
+            for (int i = 0; i < pipes.length; i++) {
+                pipes[i] = new BoundedPipe();
+            }
+
+            PreparedStage[] prepared = new PreparedStage[count];
+            for (int i = 0; i < count; i++) {
+                Reader input = i > 0 ? pipes[i - 1].getReader() : new StringReader("");
+                boolean piped = i < count - 1;
+                Writer output = piped ? pipes[i].getWriter() : terminalOutput;
+                prepared[i] = prepareStage(stages.get(i), input, output, piped, !piped && terminal.isTerminal(),
+                        piped ? null : terminal.getPager(), terminalError);
+            }
+
+            ExecutionContext context = ExecutionContext.current();
+            Runnable closePipes = () -> {
+                for (BoundedPipe pipe : pipes) {
+                    closeQuietly(pipe.getWriter());
+                    closeQuietly(pipe.getReader());
+                }
+            };
+            if (pipes.length > 0) {
+                context.addCancellationListener(closePipes);
+            }
+
+            List<Future<?>> upstream = new ArrayList<>();
+            for (int i = 0; i < count - 1; i++) {
+                PreparedStage stage = prepared[i];
+                upstream.add(StagePool.EXECUTOR.submit(context.wrap(() -> {
+                    try {
+                        runStage(stage);
+                    } finally {
+                        StagePool.release(1);
+                    }
+                })));
+                unstarted--;
+            }
+
+            int status = runStage(prepared[count - 1]);
+
+            for (Future<?> future : upstream) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    writeQuietly(terminalError, EXECUTION_ERROR + e.getCause().getMessage() + "\n");
+                }
+            }
+            context.removeCancellationListener(closePipes);
+            return context.isCancelled() ? CANCELLED_STATUS : status;
+        } finally {
+            StagePool.release(unstarted);
+        }
+    }
+
+
+    private PreparedStage prepareStage(SimpleCommand simpleCommand, Reader input, Writer output,
+                                       boolean ownsOutput, boolean toTerminal, Pager pager, Writer error) {
+        PreparedStage stage = new PreparedStage(simpleCommand.getName(), input, output, ownsOutput, error);
+        stage.toTerminal = toTerminal;
+        stage.pager = pager;
+        List<Token> words = simpleCommand.getArguments();
+        String[] patterns = new String[words.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = words.get(i).getPattern();
+        }
+
+        try {
+            stage.args = expandArguments(patterns);
+        } catch (IllegalArgumentException e) {
+            stage.failure = stage.name + ": " + e.getMessage();
+            return stage;
+        }
+
+        for (Redirection redirection : simpleCommand.getRedirections()) {
+            String failure = openRedirection(stage, redirection);
+            if (failure != null) {
+                stage.failure = failure;
+                return stage;
+            }
+        }
+        return stage;
+    }
+
+
+    /**
+     * Points a stage's input or output at the file named by a redirection.
+     *
+     * @return An error message, or null if the redirection was opened
+     */
+    private String openRedirection(PreparedStage stage, Redirection redirection) {
+        String[] targets;
+        try {
+            targets = expandArguments(new String[] {redirection.getTarget().getPattern()});
+        } catch (IllegalArgumentException e) {
+            return stage.name + ": " + e.getMessage();
+        }
+        if (targets.length != 1) {
+            return stage.name + ": " + redirection.getTarget().getText() + ": ambiguous redirect";
+        }
+
+        String path = targets[0];
+        VirtualFileSystem fileSystem = session.getFileSystem();
+        String currentDirectory = session.getCurrentDirectory();
+        VirtualFileSystemNode node = fileSystem.resolvePath(path, currentDirectory);
+
+        if (redirection.getType() == Redirection.Type.INPUT) {
+            if (node == null) {
+                return stage.name + ": " + path + ": No such file or directory"
+                        + session.getSpellingSuggester().pathHint(path);
+            }
+            if (!node.isFile()) {
+                return stage.name + ": " + path + ": Is a directory";
+            }
+            stage.input = new StringReader(((VirtualFile) node).getContent());
+            return null;
         }
 
-        String[] parts = commandInput.trim().split("\\s+");
-        String commandName = parts[0];
-        String[] args = Arrays.copyOfRange(parts, 1, parts.length);
+        if (node == null) {
+            if (!fileSystem.createFile(path, currentDirectory, "")) {
+                return stage.name + ": " + path + ": No such file or directory";
+            }
+            node = fileSystem.resolvePath(path, currentDirectory);
+        }
+        if (!node.isFile()) {
+            return stage.name + ": " + path + ": Is a directory";
+        }
+
+        // The pipe this stage would have written to gets no output, but must still see end of input
+        if (stage.ownsOutput) {
+            closeQuietly(stage.output);
+        }
+        stage.output = new VirtualFileWriter((VirtualFile) node, redirection.getType() == Redirection.Type.APPEND);
+        stage.ownsOutput = true;
+        stage.toTerminal = false;
+        stage.pager = null;
+        return null;
+    }
+
+
+    private int runStage(PreparedStage stage) {
+        try {
+            if (stage.failure != null) {
+                writeQuietly(stage.error, stage.failure + "\n");
+                return 1;
+            }
+            return executeStage(stage);
+        } finally {
+            // Signal end of input downstream, and stop upstream from blocking on a full pipe
+            if (stage.ownsOutput) {
+                closeQuietly(stage.output);
+            }
+            closeQuietly(stage.input);
+        }
+    }
+
+
+    private int executeStage(PreparedStage stage) {
+        String[] args = stage.args;
 
         if (args.length > 0 && (args[0].equals("--help") || args[0].equals("-h"))) {
-            return getCommandHelp(commandName);
+            writeQuietly(stage.output, getCommandHelp(stage.name) + "\n");
+            return 0;
         }
 
-        Command command = commands.get(commandName);
+        Command command = commands.get(stage.name);
 
         if (command == null) {
-            return "Command not found: " + commandName + ". Type 'help' for a list of available commands.";
+            writeQuietly(stage.error, commandNotFound(stage.name) + "\n");
+            return 127;
         }
 
         try {
-            return command.execute(args, session);
+            OutputSink output = new WriterOutputSink(stage.output, stage.error, stage.toTerminal, stage.pager);
+            return LegacyCommandAdapter.adapt(command).execute(args, session, stage.input, output);
+        } catch (CommandCancelledException e) {
+            return CANCELLED_STATUS;
+        } catch (IOException e) {
+            // The next stage stopped reading, or the pipes were closed by cancellation
+            return ExecutionContext.current().isCancelled() ? CANCELLED_STATUS : 1;
         } catch (Exception e) {
-            return "Error executing command: " + e.getMessage();
+            writeQuietly(stage.error, EXECUTION_ERROR + e.getMessage() + "\n");
+            return 1;
+        }
+    }
+
+
+    private String[] expandArguments(String[] args) {
+        if (globExpander == null) {
+            globExpander = new GlobExpander(session.getFileSystem());
         }
+        String[] braceExpanded = braceExpander.expandAll(args);
+        return globExpander.expandAll(braceExpanded, session.getCurrentDirectory());
+    }
+
+
+    private static void writeQuietly(Writer writer, String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            // Broken pipe: the reader has gone away
+        }
+    }
+
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing useful to do
+        }
+    }
+
+
+    /**
+     * Holds the thread pool that runs upstream pipeline stages. It is shared
+     * by all sessions, so running many sessions side by side does not leave
+     * an idle pool behind for each one, and is only created once a pipeline runs.
+     * The pool has at most {@link #MAX_STAGE_THREADS} threads, and a pipeline
+     * reserves one for each upstream stage before any of them starts, so an
+     * admitted stage never waits in the queue behind stages that cannot finish.
+     */
+    private static final class StagePool {
+        private static final Semaphore THREADS = new Semaphore(MAX_STAGE_THREADS);
+        private static final ExecutorService EXECUTOR = createExecutor();
+
+        private static ExecutorService createExecutor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_STAGE_THREADS, MAX_STAGE_THREADS,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+                        Thread thread = new Thread(runnable, "pipeline-stage");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+
+        static boolean reserve(int stages) {
+            return THREADS.tryAcquire(stages);
+        }
+
+        /**
+         * Hands back reserved threads, by each stage as it finishes and by
+         * the pipeline for stages it never started.
+         */
+        static void release(int stages) {
+            THREADS.release(stages);
+        }
+    }
+
+
+    /**
+     * A pipeline stage with its arguments expanded and its streams connected.
+     */
+    private static final class PreparedStage {
+        private final String name;
+        private final Writer error;
+        private String[] args;
+        private Reader input;
+        private Writer output;
+        private boolean ownsOutput;
+        private boolean toTerminal;
+        private Pager pager;
+        private String failure;
+
+        private PreparedStage(String name, Reader input, Writer output, boolean ownsOutput, Writer error) {
+            this.name = name;
+            this.input = input;
+            this.output = output;
+            this.ownsOutput = ownsOutput;
+            this.error = error;
+            this.args = new String[0];
+        }
+    }
+
+
+    private String commandNotFound(String commandName) {
+        return COMMAND_NOT_FOUND + commandName + ". Type 'help' for a list of available commands."
+                + session.getSpellingSuggester().commandHint(commandName);
     }
 
 
@@ -0,0 +1,78 @@
+package com.terminaltrainer.core.commands;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Adapts a command that returns its whole output as a string to the
+ * {@link StreamingCommand} contract, so it can run in pipelines and write to
+ * an {@link OutputSink}.
+ *
+ * Such commands report errors as "name: message", so output starting with
+ * that prefix goes to standard error and yields a non-zero exit status.
+ */
+public class LegacyCommandAdapter implements StreamingCommand {
+    private final Command command;
+
+    /**
+     * Creates an adapter for a command.
+     *
+     * @param command The command to adapt
+     */
+    public LegacyCommandAdapter(Command command) {
+        this.command = command;
+    }
+
+    /**
+     * Gets a streaming view of any command.
+     *
+     * @param command The command
+     * @return The command itself if it already streams, otherwise an adapter for it
+     */
+    public static StreamingCommand adapt(Command command) {
+        if (command instanceof StreamingCommand) {
+            return (StreamingCommand) command;
+        }
+        return new LegacyCommandAdapter(command);
+    }
+
+    @Override
+    public String getName() {
+        return command.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return command.getDescription();
+    }
+
+    @Override
+    public String getHelpText() {
+        return command.getHelpText();
+    }
+
+    @Override
+    public String execute(String[] args, TerminalSession session) {
+        return command.execute(args, session);
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        String result = command.execute(args, session);
+        if (result == null || result.isEmpty()) {
+            return 0;
+        }
+
+        String text = result.endsWith("\n") ? result : result + "\n";
+        if (result.startsWith(command.getName() + ": ")) {
+            output.writeError(text);
+            return 1;
+        }
+
+        output.write(text);
+        return 0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.terminaltrainer.core.commands;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.io.OutputSink;
+import com.terminaltrainer.core.io.StringOutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * A command that reads its input as a stream and writes its output to an
+ * {@link OutputSink} in chunks, so it can take part in pipelines and
+ * redirections and its output can be shown while it is still running,
+ * without ever holding the whole output in memory.
+ */
+public interface StreamingCommand extends Command {
+
+    /**
+     * Executes the command.
+     *
+     * @param args The command arguments
+     * @param session The terminal session
+     * @param input The standard input of the command
+     * @param output Where to write output and error messages
+     * @return The exit status, 0 for success
+     * @throws IOException if reading the input or writing the output fails
+     */
+    int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException;
+
+
+    @Override
+    default String execute(String[] args, TerminalSession session) {
+        StringOutputSink output = new StringOutputSink();
+        try {
+            execute(args, session, new StringReader(""), output);
+        } catch (IOException e) {
+            return getName() + ": " + e.getMessage();
+        }
+        return output.getText();
+    }
+}
@@ -0,0 +1,55 @@
+package com.terminaltrainer.core.commands;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.result.CommandResult;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A command that produces typed rows instead of text. The rows are only
+ * formatted when the output is written to a terminal or pipe; programmatic
+ * callers can use {@link #executeStructured} and read the fields directly.
+ *
+ * @param <T> The row type
+ */
+public interface StructuredCommand<T> extends StreamingCommand {
+
+    /**
+     * Executes the command and returns its structured result.
+     *
+     * @param args The command arguments
+     * @param session The terminal session
+     * @return The result rows, errors and exit status
+     */
+    CommandResult<T> executeStructured(String[] args, TerminalSession session);
+
+
+    @Override
+    default int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        return writeResult(executeStructured(args, session), output);
+    }
+
+
+    /**
+     * Writes a result as text: its errors to standard error, then its
+     * formatted rows to standard output.
+     *
+     * @param result The result
+     * @param output Where to write it
+     * @return The exit status of the result
+     * @throws IOException if the output can no longer accept text
+     */
+    static int writeResult(CommandResult<?> result, OutputSink output) throws IOException {
+        for (String error : result.getErrors()) {
+            output.writeError(error + "\n");
+        }
+
+        String text = result.toText();
+        if (!text.isEmpty()) {
+            output.write(text.endsWith("\n") ? text : text + "\n");
+        }
+        return result.getExitStatus();
+    }
+}
@@ -1,14 +1,27 @@
 package com.terminaltrainer.core.commands.impl;
 
 import com.terminaltrainer.core.TerminalSession;
-import com.terminaltrainer.core.commands.Command;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.filesystem.LineIndex;
 import com.terminaltrainer.core.filesystem.VirtualFile;
 import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Implementation of the 'cat' command, which displays file contents.
+ * With -n, the lines of a file are found through its line index, which
+ * the file keeps, so numbering it again later does not scan it again.
  */
-public class CatCommand implements Command {
+public class CatCommand implements StreamingCommand {
+    private static final int CHUNK_SIZE = 8192;
+
     @Override
     public String getName() {
         return "cat";
@@ -21,57 +34,210 @@ public class CatCommand implements Command {
 
     @Override
     public String getHelpText() {
-        return "Usage: cat [FILE]...\n" +
-               "Display the contents of FILE(s).\n\n" +
+        return "Usage: cat [OPTION]... [FILE]...\n" +
+               "Display the contents of FILE(s).\n" +
+               "With no FILE, or when FILE is -, read standard input.\n\n" +
+               "Options:\n" +
+               "  -n                  number all output lines\n\n" +
                "Examples:\n" +
                "  cat file.txt        Display the contents of file.txt\n" +
-               "  cat file1 file2     Display the contents of file1 followed by file2";
+               "  cat -n file.txt     Display file.txt with line numbers\n" +
+               "  cat file1 file2     Display the contents of file1 followed by file2\n" +
+               "  cat a b > c         Write the contents of a and b into c";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-n");
     }
 
     @Override
-    public String execute(String[] args, TerminalSession session) {
-        if (args.length == 0) {
-            return "cat: missing file operand\nTry 'cat --help' for more information.";
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        boolean number = false;
+        List<String> files = new ArrayList<>();
+
+        // Parse arguments
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                output.write(getHelpText() + "\n");
+                return 0;
+            }
+            if (arg.equals("-") || !arg.startsWith("-")) {
+                files.add(arg);
+                continue;
+            }
+            for (int j = 1; j < arg.length(); j++) {
+                if (arg.charAt(j) != 'n') {
+                    output.writeError("cat: invalid option -- '" + arg.charAt(j) + "'\n" +
+                            "Try 'cat --help' for more information.\n");
+                    return 1;
+                }
+                number = true;
+            }
+        }
+
+        // Numbering carries on from one file to the next
+        LineNumberer numberer = number ? new LineNumberer(output) : null;
+        if (files.isEmpty()) {
+            // No files: copy standard input
+            copy(input, output, numberer);
+            return 0;
         }
         
-        StringBuilder result = new StringBuilder();
+        int status = 0;
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
         
-        for (int i = 0; i < args.length; i++) {
-            String path = args[i];
+        for (int i = 0; i < files.size(); i++) {
+            String path = files.get(i);
             
-            if (path.equals("--help") || path.equals("-h")) {
-                return getHelpText();
+            if (path.equals("-")) {
+                copy(input, output, numberer);
+                continue;
             }
             
             // Resolve the file path
             VirtualFileSystemNode node = session.getFileSystem().resolvePath(path, session.getCurrentDirectory());
             
             if (node == null) {
-                result.append("cat: ").append(path).append(": No such file or directory");
-                if (i < args.length - 1) {
-                    result.append("\n");
-                }
+                output.writeError("cat: " + path + ": No such file or directory"
+                        + session.getSpellingSuggester().pathHint(path) + "\n");
+                status = 1;
                 continue;
             }
             
             if (!node.isFile()) {
-                result.append("cat: ").append(path).append(": Is a directory");
-                if (i < args.length - 1) {
-                    result.append("\n");
-                }
+                output.writeError("cat: " + path + ": Is a directory\n");
+                status = 1;
                 continue;
             }
             
-            // Display the file contents
-            VirtualFile file = (VirtualFile) node;
-            result.append(file.getContent());
+            String content;
+            if (numberer != null) {
+                LineIndex index = ((VirtualFile) node).getLineIndex();
+                content = index.getText();
+                numberer.writeLines(index);
+            } else {
+                // Write the file contents in chunks so a pipe can apply backpressure
+                content = ((VirtualFile) node).getContent();
+                for (int offset = 0; offset < content.length(); offset += CHUNK_SIZE) {
+                    int end = Math.min(content.length(), offset + CHUNK_SIZE);
+                    context.checkCancelled();
+                    content.getChars(offset, end, buffer, 0);
+                    output.write(buffer, 0, end - offset);
+                }
+            }
             
             // Add a newline between files if this isn't the last file
-            if (i < args.length - 1 && !file.getContent().endsWith("\n")) {
-                result.append("\n");
+            if (i < files.size() - 1 && !content.isEmpty() && !content.endsWith("\n")) {
+                if (numberer != null) {
+                    numberer.write("\n");
+                } else {
+                    output.write("\n");
+                }
             }
         }
         
-        return result.toString();
+        if (numberer != null) {
+            numberer.flush();
+        }
+        return status;
+    }
+
+    /**
+     * Copies everything from a reader to the standard output of a sink.
+     *
+     * @param input The reader
+     * @param output The sink
+     * @param numberer Numbers the lines, or null to copy them as they are
+     * @throws IOException if reading or writing fails
+     */
+    private void copy(Reader input, OutputSink output, LineNumberer numberer) throws IOException {
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            context.checkCancelled();
+            if (numberer != null) {
+                numberer.write(buffer, read);
+            } else {
+                output.write(buffer, 0, read);
+            }
+        }
+        if (numberer != null) {
+            numberer.flush();
+        }
+    }
+
+    /**
+     * Numbers lines as cat -n does, collecting the output into chunks.
+     */
+    private static final class LineNumberer {
+        private final OutputSink output;
+        private final StringBuilder pending = new StringBuilder(CHUNK_SIZE + 256);
+        private final ExecutionContext context = ExecutionContext.current();
+        private long number;
+        private boolean atLineStart = true;
+
+        LineNumberer(OutputSink output) {
+            this.output = output;
+        }
+
+        /**
+         * Writes all the lines of a file, looked up in its index.
+         */
+        void writeLines(LineIndex index) throws IOException {
+            String text = index.getText();
+            for (int line = 0; index.hasLine(line); line++) {
+                int start = index.getLineStart(line);
+                int end = index.hasLine(line + 1) ? index.getLineStart(line + 1) : text.length();
+                startLine();
+                pending.append(text, start, end);
+                atLineStart = text.charAt(end - 1) == '\n';
+                drain();
+            }
+        }
+
+        /**
+         * Writes text read from a stream, which may end partway through a line.
+         */
+        void write(char[] buffer, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                startLine();
+                pending.append(buffer[i]);
+                atLineStart = buffer[i] == '\n';
+            }
+            drain();
+        }
+
+        void write(String text) throws IOException {
+            write(text.toCharArray(), text.length());
+        }
+
+        void flush() throws IOException {
+            if (pending.length() > 0) {
+                output.write(pending.toString());
+                pending.setLength(0);
+            }
+        }
+
+        private void startLine() {
+            if (atLineStart) {
+                // Right-aligned in six columns, as "%6d\t" would give
+                String digits = Long.toString(++number);
+                for (int i = digits.length(); i < 6; i++) {
+                    pending.append(' ');
+                }
+                pending.append(digits).append('\t');
+                atLineStart = false;
+            }
+        }
+
+        private void drain() throws IOException {
+            if (pending.length() >= CHUNK_SIZE) {
+                context.checkCancelled();
+                flush();
+            }
+        }
     }
-}
\ No newline at end of file
+}
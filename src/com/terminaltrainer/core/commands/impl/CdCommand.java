@@ -60,7 +60,8 @@ public class CdCommand implements Command {
         VirtualFileSystemNode node = session.getFileSystem().resolvePath(targetPath, session.getCurrentDirectory());
         
         if (node == null) {
-            return "cd: " + targetPath + ": No such file or directory";
+            return "cd: " + targetPath + ": No such file or directory"
+                    + session.getSpellingSuggester().pathHint(targetPath);
         }
         
         if (!node.isDirectory()) {
@@ -0,0 +1,66 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of the 'echo' command, which prints its arguments.
+ */
+public class EchoCommand implements StreamingCommand {
+    @Override
+    public String getName() {
+        return "echo";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Display a line of text";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: echo [-n] [STRING]...\n" +
+               "Display the STRING(s), separated by spaces, on standard output.\n\n" +
+               "Options:\n" +
+               "  -n     do not output the trailing newline\n\n" +
+               "Examples:\n" +
+               "  echo Hello world       Print 'Hello world'\n" +
+               "  echo note >> log.txt   Append a line to log.txt";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-n");
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        boolean trailingNewline = true;
+        int start = 0;
+        
+        if (args.length > 0 && args[0].equals("-n")) {
+            trailingNewline = false;
+            start = 1;
+        }
+        
+        StringBuilder line = new StringBuilder();
+        for (int i = start; i < args.length; i++) {
+            if (i > start) {
+                line.append(' ');
+            }
+            line.append(args[i]);
+        }
+        if (trailingNewline) {
+            line.append('\n');
+        }
+        
+        output.write(line.toString());
+        return 0;
+    }
+}
@@ -0,0 +1,219 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.io.AnsiStyle;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of the 'grep' command, which prints lines containing a pattern.
+ * Input is read line by line, so grep works on pipelines of any size.
+ * When the output goes to a terminal, matches, file names and line numbers
+ * are colored as GNU grep colors them by default.
+ */
+public class GrepCommand implements StreamingCommand {
+    private static final int MATCH_STYLE = AnsiStyle.withBold(AnsiStyle.withForeground(AnsiStyle.DEFAULT, AnsiStyle.RED), true);
+    private static final int FILE_NAME_STYLE = AnsiStyle.withForeground(AnsiStyle.DEFAULT, AnsiStyle.MAGENTA);
+    private static final int LINE_NUMBER_STYLE = AnsiStyle.withForeground(AnsiStyle.DEFAULT, AnsiStyle.GREEN);
+    private static final int SEPARATOR_STYLE = AnsiStyle.withForeground(AnsiStyle.DEFAULT, AnsiStyle.CYAN);
+    @Override
+    public String getName() {
+        return "grep";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Print lines matching a pattern";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: grep [OPTION]... PATTERN [FILE]...\n" +
+               "Search for PATTERN in each FILE, or in standard input if no FILE is given.\n" +
+               "PATTERN is matched as a plain string.\n\n" +
+               "Options:\n" +
+               "  -i     ignore case distinctions\n" +
+               "  -v     select non-matching lines\n" +
+               "  -n     prefix each line with its line number\n" +
+               "  -c     only print a count of matching lines\n\n" +
+               "Examples:\n" +
+               "  grep hello notes.txt    Show lines of notes.txt containing 'hello'\n" +
+               "  ls | grep txt           Show directory entries containing 'txt'";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-c", "-i", "-n", "-v");
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        boolean ignoreCase = false;
+        boolean invert = false;
+        boolean lineNumbers = false;
+        boolean countOnly = false;
+        String pattern = null;
+        List<String> files = new ArrayList<>();
+
+        // Parse arguments
+        for (String arg : args) {
+            if (pattern == null && arg.startsWith("-") && arg.length() > 1) {
+                for (int i = 1; i < arg.length(); i++) {
+                    char option = arg.charAt(i);
+                    switch (option) {
+                        case 'i':
+                            ignoreCase = true;
+                            break;
+                        case 'v':
+                            invert = true;
+                            break;
+                        case 'n':
+                            lineNumbers = true;
+                            break;
+                        case 'c':
+                            countOnly = true;
+                            break;
+                        default:
+                            output.writeError("grep: invalid option -- '" + option + "'\n" +
+                                        "Try 'grep --help' for more information.\n");
+                            return 2;
+                    }
+                }
+            } else if (pattern == null) {
+                pattern = arg;
+            } else {
+                files.add(arg);
+            }
+        }
+
+        if (pattern == null) {
+            output.writeError("grep: missing pattern\nTry 'grep --help' for more information.\n");
+            return 2;
+        }
+
+        String needle = ignoreCase ? pattern.toLowerCase() : pattern;
+        boolean showFileNames = files.size() > 1;
+        int matched = 0;
+        int status = 0;
+
+        if (files.isEmpty()) {
+            matched = search(input, null, needle, ignoreCase, invert, lineNumbers, countOnly, output);
+        }
+
+        for (String path : files) {
+            VirtualFileSystemNode node = session.getFileSystem().resolvePath(path, session.getCurrentDirectory());
+            if (node == null) {
+                output.writeError("grep: " + path + ": No such file or directory"
+                        + session.getSpellingSuggester().pathHint(path) + "\n");
+                status = 2;
+                continue;
+            }
+            if (!node.isFile()) {
+                output.writeError("grep: " + path + ": Is a directory\n");
+                status = 2;
+                continue;
+            }
+
+            Reader fileInput = new StringReader(((VirtualFile) node).getContent());
+            matched += search(fileInput, showFileNames ? path : null, needle, ignoreCase, invert,
+                    lineNumbers, countOnly, output);
+        }
+
+        if (status != 0) {
+            return status;
+        }
+        return matched > 0 ? 0 : 1;
+    }
+
+    /**
+     * Searches one input and writes the selected lines.
+     *
+     * @return The number of selected lines
+     */
+    private int search(Reader input, String label, String needle, boolean ignoreCase, boolean invert,
+                       boolean lineNumbers, boolean countOnly, OutputSink output) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        StringBuilder line = new StringBuilder();
+        boolean colors = output.isTerminal();
+        int lineNumber = 0;
+        int count = 0;
+        String text;
+        ExecutionContext context = ExecutionContext.current();
+
+        while ((text = reader.readLine()) != null) {
+            context.checkCancelled();
+            lineNumber++;
+            String haystack = ignoreCase ? text.toLowerCase() : text;
+            if (haystack.contains(needle) == invert) {
+                continue;
+            }
+
+            count++;
+            if (countOnly) {
+                continue;
+            }
+
+            line.setLength(0);
+            if (colors) {
+                if (label != null) {
+                    line.append(AnsiStyle.paint(label, FILE_NAME_STYLE)).append(AnsiStyle.paint(":", SEPARATOR_STYLE));
+                }
+                if (lineNumbers) {
+                    line.append(AnsiStyle.paint(Integer.toString(lineNumber), LINE_NUMBER_STYLE))
+                            .append(AnsiStyle.paint(":", SEPARATOR_STYLE));
+                }
+                appendHighlighted(line, text, invert ? null : haystack, needle);
+            } else {
+                if (label != null) {
+                    line.append(label).append(':');
+                }
+                if (lineNumbers) {
+                    line.append(lineNumber).append(':');
+                }
+                line.append(text);
+            }
+            line.append('\n');
+            output.write(line.toString());
+        }
+
+        if (countOnly) {
+            output.write((label != null ? label + ":" : "") + count + "\n");
+        }
+        return count;
+    }
+
+    /**
+     * Appends a line with every match of the pattern highlighted.
+     *
+     * @param line Where to append
+     * @param text The line as read
+     * @param haystack The line as searched, or null to highlight nothing
+     * @param needle The pattern as searched for
+     */
+    private void appendHighlighted(StringBuilder line, String text, String haystack, String needle) {
+        // Lower-casing can change the length of some characters, and then the offsets no longer line up
+        if (haystack == null || needle.isEmpty() || haystack.length() != text.length()) {
+            line.append(text);
+            return;
+        }
+        int from = 0;
+        int match;
+        while ((match = haystack.indexOf(needle, from)) >= 0) {
+            line.append(text, from, match);
+            line.append(AnsiStyle.paint(text.substring(match, match + needle.length()), MATCH_STYLE));
+            from = match + needle.length();
+        }
+        line.append(text, from, text.length());
+    }
+}
@@ -0,0 +1,189 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.filesystem.LineIndex;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of the 'head' command, which prints the first lines of files.
+ * For a file, the end of those lines is found through the file's line
+ * index, so only they are scanned however large the file is.
+ */
+public class HeadCommand implements StreamingCommand {
+    private static final int CHUNK_SIZE = 8192;
+    private static final int DEFAULT_LINES = 10;
+
+    @Override
+    public String getName() {
+        return "head";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Print the first lines of files";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: head [OPTION]... [FILE]...\n" +
+               "Print the first 10 lines of each FILE.\n" +
+               "With no FILE, or when FILE is -, read standard input.\n\n" +
+               "Options:\n" +
+               "  -n NUM   print the first NUM lines instead of the first 10\n" +
+               "  -NUM     the same as -n NUM\n\n" +
+               "Examples:\n" +
+               "  head notes.txt       Show the first 10 lines of notes.txt\n" +
+               "  head -n 3 a.txt b    Show the first 3 lines of each file";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-n");
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        int lines = DEFAULT_LINES;
+        List<String> files = new ArrayList<>();
+
+        // Parse arguments
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-") || !arg.startsWith("-")) {
+                files.add(arg);
+                continue;
+            }
+            String number;
+            if (arg.equals("-n")) {
+                if (i + 1 == args.length) {
+                    output.writeError("head: option requires an argument -- 'n'\n" +
+                            "Try 'head --help' for more information.\n");
+                    return 1;
+                }
+                number = args[++i];
+            } else if (arg.startsWith("-n")) {
+                number = arg.substring(2);
+            } else if (Character.isDigit(arg.charAt(1))) {
+                number = arg.substring(1);
+            } else {
+                output.writeError("head: invalid option -- '" + arg.charAt(1) + "'\n" +
+                        "Try 'head --help' for more information.\n");
+                return 1;
+            }
+            lines = parseCount(number);
+            if (lines < 0) {
+                output.writeError("head: invalid number of lines: '" + number + "'\n");
+                return 1;
+            }
+        }
+
+        if (files.isEmpty()) {
+            files.add("-");
+        }
+
+        int status = 0;
+        boolean headers = files.size() > 1;
+        boolean first = true;
+        for (String path : files) {
+            LineIndex index = null;
+            if (!path.equals("-")) {
+                VirtualFileSystemNode node = session.getFileSystem().resolvePath(path, session.getCurrentDirectory());
+                if (node == null) {
+                    output.writeError("head: cannot open '" + path + "' for reading: No such file or directory"
+                            + session.getSpellingSuggester().pathHint(path) + "\n");
+                    status = 1;
+                    continue;
+                }
+                if (!node.isFile()) {
+                    output.writeError("head: error reading '" + path + "': Is a directory\n");
+                    status = 1;
+                    continue;
+                }
+                index = ((VirtualFile) node).getLineIndex();
+            }
+
+            if (headers) {
+                output.write((first ? "" : "\n") + "==> " + (path.equals("-") ? "standard input" : path) + " <==\n");
+            }
+            first = false;
+            if (index != null) {
+                String text = index.getText();
+                write(text, index.hasLine(lines) ? index.getLineStart(lines) : text.length(), output);
+            } else {
+                copyLines(input, lines, output);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Parses a count of lines.
+     *
+     * @param number The count as given
+     * @return The count, or -1 if it is not a number
+     */
+    private static int parseCount(String number) {
+        if (number.isEmpty()) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            // Anything this large means all of it
+            value = Math.min(Integer.MAX_VALUE, value * 10 + (c - '0'));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes the start of a text in chunks, so a pipe can apply backpressure.
+     *
+     * @param text The text
+     * @param end The offset to stop at
+     * @param output The sink
+     * @throws IOException if writing fails
+     */
+    private static void write(String text, int end, OutputSink output) throws IOException {
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        for (int offset = 0; offset < end; offset += CHUNK_SIZE) {
+            int chunkEnd = Math.min(end, offset + CHUNK_SIZE);
+            context.checkCancelled();
+            text.getChars(offset, chunkEnd, buffer, 0);
+            output.write(buffer, 0, chunkEnd - offset);
+        }
+    }
+
+    /**
+     * Copies standard input up to and including its given number of line breaks.
+     */
+    private void copyLines(Reader input, int lines, OutputSink output) throws IOException {
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        int remaining = lines;
+        int read;
+        while (remaining > 0 && (read = input.read(buffer)) != -1) {
+            context.checkCancelled();
+            int end = 0;
+            while (end < read && remaining > 0) {
+                if (buffer[end++] == '\n') {
+                    remaining--;
+                }
+            }
+            output.write(buffer, 0, end);
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.terminaltrainer.core.commands.impl;
 import com.terminaltrainer.core.TerminalSession;
 import com.terminaltrainer.core.commands.Command;
 import com.terminaltrainer.core.commands.CommandProcessor;
+import com.terminaltrainer.core.commands.StructuredCommand;
+import com.terminaltrainer.core.commands.result.CommandInfo;
+import com.terminaltrainer.core.commands.result.CommandResult;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,7 +14,12 @@ import java.util.Map;
 /**
  * Implementation of the 'help' command, which provides help information about available commands.
  */
-public class HelpCommand implements Command {
+public class HelpCommand implements StructuredCommand<CommandInfo> {
+    private static final String[] CATEGORIES = {
+            "Navigation", "File Operations", "Text Viewing", "Help System",
+            "System Information", "Educational Features", "Other Commands"
+    };
+
     @Override
     public String getName() {
         return "help";
@@ -34,7 +42,7 @@ public class HelpCommand implements Command {
     }
 
     @Override
-    public String execute(String[] args, TerminalSession session) {
+    public CommandResult<CommandInfo> executeStructured(String[] args, TerminalSession session) {
         CommandProcessor commandProcessor = session.getCommandProcessor();
         
         if (args.length == 0) {
@@ -43,9 +51,15 @@ public class HelpCommand implements Command {
         } else if (args.length == 1) {
             // One argument, show help for that command
             String commandName = args[0];
-            return commandProcessor.getCommandHelp(commandName);
+            Command command = commandProcessor.getCommands().get(commandName);
+            if (command == null) {
+                return CommandResult.failure(commandProcessor.getCommandHelp(commandName), 1);
+            }
+            List<CommandInfo> rows = new ArrayList<>();
+            rows.add(new CommandInfo(command.getName(), command.getDescription(), categoryOf(command.getName())));
+            return new CommandResult<>(rows, new ArrayList<>(), 0, entries -> command.getHelpText());
         } else {
-            return "help: too many arguments";
+            return CommandResult.failure("help: too many arguments", 1);
         }
     }
 
@@ -53,102 +67,70 @@ public class HelpCommand implements Command {
      * Lists all available commands with brief descriptions.
      *
      * @param commandProcessor The command processor
-     * @return A formatted list of commands
+     * @return One row per command, formatted by category when rendered
      */
-    private String listAllCommands(CommandProcessor commandProcessor) {
+    private CommandResult<CommandInfo> listAllCommands(CommandProcessor commandProcessor) {
         Map<String, Command> commands = commandProcessor.getCommands();
-        
-        if (commands.isEmpty()) {
-            return "No commands available.";
-        }
-        
-        StringBuilder result = new StringBuilder();
-        result.append("Available commands:\n");
-        
-        // Group commands by category
-        List<Command> navigationCommands = new ArrayList<>();
-        List<Command> fileOperationCommands = new ArrayList<>();
-        List<Command> textViewingCommands = new ArrayList<>();
-        List<Command> helpCommands = new ArrayList<>();
-        List<Command> systemInfoCommands = new ArrayList<>();
-        List<Command> educationalCommands = new ArrayList<>();
-        List<Command> otherCommands = new ArrayList<>();
+        List<CommandInfo> rows = new ArrayList<>();
         
         for (Command command : commands.values()) {
-            String name = command.getName();
-            
-            // Categorize commands
-            if (name.equals("cd") || name.equals("ls") || name.equals("pwd")) {
-                navigationCommands.add(command);
-            } else if (name.equals("touch") || name.equals("mkdir") || name.equals("rm") || 
-                       name.equals("cp") || name.equals("mv")) {
-                fileOperationCommands.add(command);
-            } else if (name.equals("cat") || name.equals("more") || name.equals("less")) {
-                textViewingCommands.add(command);
-            } else if (name.equals("help") || name.equals("man")) {
-                helpCommands.add(command);
-            } else if (name.equals("whoami") || name.equals("date") || name.equals("clear")) {
-                systemInfoCommands.add(command);
-            } else if (name.equals("tutorial") || name.equals("challenge") || name.equals("achievements")) {
-                educationalCommands.add(command);
-            } else {
-                otherCommands.add(command);
-            }
-        }
-        
-        // Add navigation commands
-        if (!navigationCommands.isEmpty()) {
-            result.append("\nNavigation:\n");
-            for (Command command : navigationCommands) {
-                result.append(String.format("  %-10s %s\n", command.getName(), command.getDescription()));
-            }
-        }
-        
-        // Add file operation commands
-        if (!fileOperationCommands.isEmpty()) {
-            result.append("\nFile Operations:\n");
-            for (Command command : fileOperationCommands) {
-                result.append(String.format("  %-10s %s\n", command.getName(), command.getDescription()));
-            }
-        }
-        
-        // Add text viewing commands
-        if (!textViewingCommands.isEmpty()) {
-            result.append("\nText Viewing:\n");
-            for (Command command : textViewingCommands) {
-                result.append(String.format("  %-10s %s\n", command.getName(), command.getDescription()));
-            }
+            rows.add(new CommandInfo(command.getName(), command.getDescription(), categoryOf(command.getName())));
         }
         
-        // Add help commands
-        if (!helpCommands.isEmpty()) {
-            result.append("\nHelp System:\n");
-            for (Command command : helpCommands) {
-                result.append(String.format("  %-10s %s\n", command.getName(), command.getDescription()));
-            }
+        return new CommandResult<>(rows, new ArrayList<>(), 0, this::formatCommandList);
+    }
+
+    /**
+     * Gets the help category a command is listed under.
+     *
+     * @param name The command name
+     * @return The category title
+     */
+    private String categoryOf(String name) {
+        if (name.equals("cd") || name.equals("ls") || name.equals("pwd")) {
+            return "Navigation";
+        } else if (name.equals("touch") || name.equals("mkdir") || name.equals("rm") || 
+                   name.equals("cp") || name.equals("mv")) {
+            return "File Operations";
+        } else if (name.equals("cat") || name.equals("more") || name.equals("less") ||
+                   name.equals("head") || name.equals("tail") || name.equals("wc")) {
+            return "Text Viewing";
+        } else if (name.equals("help") || name.equals("man")) {
+            return "Help System";
+        } else if (name.equals("whoami") || name.equals("date") || name.equals("clear")) {
+            return "System Information";
+        } else if (name.equals("tutorial") || name.equals("challenge") || name.equals("achievements")) {
+            return "Educational Features";
+        } else {
+            return "Other Commands";
         }
-        
-        // Add system info commands
-        if (!systemInfoCommands.isEmpty()) {
-            result.append("\nSystem Information:\n");
-            for (Command command : systemInfoCommands) {
-                result.append(String.format("  %-10s %s\n", command.getName(), command.getDescription()));
-            }
+    }
+
+    /**
+     * Formats the command list grouped by category.
+     *
+     * @param rows The command rows
+     * @return A formatted list of commands
+     */
+    private String formatCommandList(List<CommandInfo> rows) {
+        if (rows.isEmpty()) {
+            return "No commands available.";
         }
         
-        // Add educational commands
-        if (!educationalCommands.isEmpty()) {
-            result.append("\nEducational Features:\n");
-            for (Command command : educationalCommands) {
-                result.append(String.format("  %-10s %s\n", command.getName(), command.getDescription()));
-            }
-        }
+        StringBuilder result = new StringBuilder();
+        result.append("Available commands:\n");
         
-        // Add other commands
-        if (!otherCommands.isEmpty()) {
-            result.append("\nOther Commands:\n");
-            for (Command command : otherCommands) {
-                result.append(String.format("  %-10s %s\n", command.getName(), command.getDescription()));
+        for (String category : CATEGORIES) {
+            boolean first = true;
+            for (CommandInfo row : rows) {
+                if (!row.getCategory().equals(category)) {
+                    continue;
+                }
+                if (first) {
+                    result.append("\n").append(category).append(":\n");
+                    first = false;
+                }
+                result.append(String.format("  %-10s %s\n", row.getName(), row.getDescription()));
             }
         }
         
@@ -0,0 +1,92 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.CommandHistory;
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of the 'history' command, which lists or clears the command history.
+ */
+public class HistoryCommand implements StreamingCommand {
+    @Override
+    public String getName() {
+        return "history";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Display or clear the command history";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: history [-c] [N]\n" +
+               "Display the command history with event numbers.\n\n" +
+               "Options:\n" +
+               "  -c     clear the history\n\n" +
+               "Previous commands can be reused in a command line:\n" +
+               "  !!         the last command\n" +
+               "  !N         command number N\n" +
+               "  !-N        the command N lines back\n" +
+               "  !PREFIX    the last command starting with PREFIX\n" +
+               "Press Ctrl+R to search the history as you type.\n\n" +
+               "Examples:\n" +
+               "  history       List every command kept\n" +
+               "  history 10    List the last 10 commands";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-c");
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        CommandHistory history = session.getCommandHistory();
+        int count = Integer.MAX_VALUE;
+
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                output.write(getHelpText() + "\n");
+                return 0;
+            }
+            if (arg.equals("-c")) {
+                history.clear();
+                return 0;
+            }
+            try {
+                count = Integer.parseInt(arg);
+            } catch (NumberFormatException e) {
+                count = -1;
+            }
+            if (count < 0) {
+                output.writeError("history: " + arg + ": numeric argument required\n");
+                return 1;
+            }
+        }
+
+        // Copy first so commands added meanwhile cannot shift the numbers
+        List<String> entries;
+        int firstNumber;
+        synchronized (history) {
+            entries = history.getHistory();
+            firstNumber = history.getFirstNumber();
+        }
+
+        ExecutionContext context = ExecutionContext.current();
+        StringBuilder lines = new StringBuilder();
+        for (int i = Math.max(0, entries.size() - count); i < entries.size(); i++) {
+            context.checkCancelled();
+            lines.append(String.format("%5d  %s\n", firstNumber + i, entries.get(i)));
+        }
+        output.write(lines.toString());
+        return 0;
+    }
+}
@@ -0,0 +1,91 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.Command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation of the 'locate' command, which finds files by name using the file system's name index.
+ */
+public class LocateCommand implements Command {
+    @Override
+    public String getName() {
+        return "locate";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Find files by name";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: locate [OPTION]... PATTERN...\n" +
+               "Search the file name index for entries whose path contains PATTERN.\n\n" +
+               "Options:\n" +
+               "  -b     match only the base name of each entry\n" +
+               "  -i     ignore case distinctions when matching\n" +
+               "  -c     only print the number of matching entries\n\n" +
+               "Examples:\n" +
+               "  locate welcome      Find every path containing 'welcome'\n" +
+               "  locate -b -i doc    Find entries whose name contains 'doc' in any case";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-b", "-c", "-i");
+    }
+
+    @Override
+    public String execute(String[] args, TerminalSession session) {
+        boolean basenameOnly = false;
+        boolean ignoreCase = false;
+        boolean countOnly = false;
+        List<String> patterns = new ArrayList<>();
+
+        // Parse arguments
+        for (String arg : args) {
+            if (arg.startsWith("-") && arg.length() > 1) {
+                for (int i = 1; i < arg.length(); i++) {
+                    char option = arg.charAt(i);
+                    switch (option) {
+                        case 'b':
+                            basenameOnly = true;
+                            break;
+                        case 'i':
+                            ignoreCase = true;
+                            break;
+                        case 'c':
+                            countOnly = true;
+                            break;
+                        default:
+                            return "locate: invalid option -- '" + option + "'\n" +
+                                   "Try 'locate --help' for more information.";
+                    }
+                }
+            } else {
+                patterns.add(arg);
+            }
+        }
+
+        if (patterns.isEmpty()) {
+            return "locate: no pattern to search for specified\nTry 'locate --help' for more information.";
+        }
+
+        Set<String> matches = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            matches.addAll(session.getFileSystem().locate(pattern, basenameOnly, ignoreCase));
+        }
+
+        if (countOnly) {
+            return String.valueOf(matches.size());
+        }
+
+        return String.join("\n", matches);
+    }
+}
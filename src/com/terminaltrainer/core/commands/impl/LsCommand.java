@@ -1,19 +1,29 @@
 package com.terminaltrainer.core.commands.impl;
 
 import com.terminaltrainer.core.TerminalSession;
-import com.terminaltrainer.core.commands.Command;
+import com.terminaltrainer.core.commands.StructuredCommand;
+import com.terminaltrainer.core.commands.result.CommandResult;
+import com.terminaltrainer.core.commands.result.FileEntry;
 import com.terminaltrainer.core.filesystem.VirtualDirectory;
-import com.terminaltrainer.core.filesystem.VirtualFile;
 import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.io.AnsiStyle;
+import com.terminaltrainer.core.io.OutputSink;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Implementation of the 'ls' command, which lists directory contents.
+ * When the listing goes to a terminal, directory names are shown in bold
+ * blue, as GNU ls shows them.
  */
-public class LsCommand implements Command {
+public class LsCommand implements StructuredCommand<FileEntry> {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd HH:mm");
+    private static final int DIRECTORY_STYLE = AnsiStyle.withBold(AnsiStyle.withForeground(AnsiStyle.DEFAULT, AnsiStyle.BLUE), true);
 
     @Override
     public String getName() {
@@ -40,10 +50,34 @@ public class LsCommand implements Command {
     }
 
     @Override
-    public String execute(String[] args, TerminalSession session) {
+    public List<String> getOptions() {
+        return Arrays.asList("-a", "-l");
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        return StructuredCommand.writeResult(list(args, session, output.isTerminal()), output);
+    }
+
+
+    @Override
+    public CommandResult<FileEntry> executeStructured(String[] args, TerminalSession session) {
+        return list(args, session, false);
+    }
+
+
+    /**
+     * Lists the operands.
+     *
+     * @param args The command arguments
+     * @param session The terminal session
+     * @param colors Whether the formatted listing colors directory names
+     * @return The entries, errors and exit status
+     */
+    private CommandResult<FileEntry> list(String[] args, TerminalSession session, boolean colors) {
         boolean longFormat = false;
         boolean showHidden = false;
-        String targetPath = ".";
+        List<String> targetPaths = new ArrayList<>();
 
         // Parse arguments
         for (String arg : args) {
@@ -59,98 +93,188 @@ public class LsCommand implements Command {
                             showHidden = true;
                             break;
                         default:
-                            return "ls: invalid option -- '" + option + "'\n" +
-                                   "Try 'ls --help' for more information.";
+                            return CommandResult.failure("ls: invalid option -- '" + option + "'\n" +
+                                   "Try 'ls --help' for more information.", 2);
                     }
                 }
             } else {
                 // It's a path
-                targetPath = arg;
+                targetPaths.add(arg);
             }
         }
 
-        // Resolve the target path
-        VirtualFileSystemNode node = session.getFileSystem().resolvePath(targetPath, session.getCurrentDirectory());
-        
-        if (node == null) {
-            return "ls: cannot access '" + targetPath + "': No such file or directory";
+        if (targetPaths.isEmpty()) {
+            targetPaths.add(".");
         }
 
-        if (node.isFile()) {
-            // If it's a file, just show the file info
-            return formatFileInfo((VirtualFile) node, longFormat);
-        } else {
-            // It's a directory, list its contents
-            VirtualDirectory dir = (VirtualDirectory) node;
-            List<VirtualFileSystemNode> contents = dir.getChildren();
-            
-            if (contents.isEmpty()) {
-                return ""; // Empty directory
+        List<String> errors = new ArrayList<>();
+        List<FileEntry> files = new ArrayList<>();
+        List<Section> directories = new ArrayList<>();
+
+        // Resolve the target paths
+        for (String targetPath : targetPaths) {
+            VirtualFileSystemNode node = session.getFileSystem().resolvePath(targetPath, session.getCurrentDirectory());
+
+            if (node == null) {
+                errors.add("ls: cannot access '" + targetPath + "': No such file or directory"
+                        + session.getSpellingSuggester().pathHint(targetPath));
+            } else if (node.isFile()) {
+                files.add(new FileEntry(node));
+            } else {
+                directories.add(new Section(targetPath, listDirectory((VirtualDirectory) node, showHidden)));
             }
+        }
 
-            StringBuilder result = new StringBuilder();
-            
-            for (VirtualFileSystemNode child : contents) {
-                // Skip hidden files (starting with .) unless -a is specified
-                if (!showHidden && child.getName().startsWith(".")) {
-                    continue;
-                }
-                
-                if (longFormat) {
-                    if (child.isFile()) {
-                        result.append(formatFileInfo((VirtualFile) child, true)).append("\n");
-                    } else {
-                        result.append(formatDirectoryInfo((VirtualDirectory) child)).append("\n");
-                    }
-                } else {
-                    result.append(child.getName());
-                    if (child.isDirectory()) {
-                        result.append("/");
-                    }
-                    result.append("  ");
+        // Files given as operands are listed together, before any directory
+        List<Section> sections = new ArrayList<>();
+        if (!files.isEmpty()) {
+            sections.add(new Section(null, files));
+        }
+        sections.addAll(directories);
+
+        List<FileEntry> rows = new ArrayList<>();
+        for (Section section : sections) {
+            rows.addAll(section.entries);
+        }
+
+        boolean showHeaders = targetPaths.size() > 1;
+        boolean useLongFormat = longFormat;
+        return new CommandResult<>(rows, errors, errors.isEmpty() ? 0 : 2,
+                entries -> formatSections(sections, useLongFormat, showHeaders, colors));
+    }
+
+    /**
+     * Collects the entries of a directory.
+     *
+     * @param dir The directory
+     * @param showHidden Whether to include entries starting with .
+     * @return The entries, in name order
+     */
+    private List<FileEntry> listDirectory(VirtualDirectory dir, boolean showHidden) {
+        List<FileEntry> entries = new ArrayList<>();
+
+        for (VirtualFileSystemNode child : dir.getChildren()) {
+            // Skip hidden files (starting with .) unless -a is specified
+            if (!showHidden && child.getName().startsWith(".")) {
+                continue;
+            }
+            entries.add(new FileEntry(child));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Formats the listing as it appears in the terminal.
+     *
+     * @param sections The operand files followed by one section per directory
+     * @param longFormat Whether to use long format
+     * @param showHeaders Whether to label each directory section
+     * @param colors Whether to color directory names
+     * @return The formatted listing
+     */
+    private String formatSections(List<Section> sections, boolean longFormat, boolean showHeaders, boolean colors) {
+        StringBuilder result = new StringBuilder();
+
+        for (Section section : sections) {
+            if (result.length() > 0) {
+                result.append(showHeaders ? "\n\n" : "\n");
+            }
+
+            String listing = formatEntries(section.entries, longFormat, section.label != null, colors);
+            if (showHeaders && section.label != null) {
+                result.append(section.label).append(":");
+                if (!listing.isEmpty()) {
+                    result.append("\n");
                 }
             }
-            
-            return result.toString().trim();
+            result.append(listing);
         }
+
+        return trimTrailing(result);
     }
 
     /**
-     * Formats file information for display.
+     * Formats the entries of one section.
      *
-     * @param file The file
+     * @param entries The entries
      * @param longFormat Whether to use long format
-     * @return The formatted file info
+     * @param markDirectories Whether to append / to directory names in short format
+     * @param colors Whether to color directory names
+     * @return The formatted entries
      */
-    private String formatFileInfo(VirtualFile file, boolean longFormat) {
-        if (!longFormat) {
-            return file.getName();
+    private String formatEntries(List<FileEntry> entries, boolean longFormat, boolean markDirectories, boolean colors) {
+        StringBuilder result = new StringBuilder();
+
+        for (FileEntry entry : entries) {
+            String name = colors ? colorName(entry) : entry.getName();
+            if (longFormat) {
+                result.append(formatLongEntry(entry, name)).append("\n");
+            } else {
+                result.append(name);
+                if (markDirectories && entry.isDirectory()) {
+                    result.append("/");
+                }
+                result.append("  ");
+            }
         }
-        
-        // Format: permissions owner group size date name
-        return String.format("%s %s %s %6d %s %s",
-                file.getPermissionsString(),
-                file.getOwner(),
-                file.getGroup(),
-                file.getSize(),
-                DATE_FORMATTER.format(file.getModificationTime()),
-                file.getName());
+
+        return trimTrailing(result);
     }
 
     /**
-     * Formats directory information for display.
+     * Drops the separators after the last entry. Unlike String.trim, keeps
+     * a leading escape character, which is below the space too.
      *
-     * @param dir The directory
-     * @return The formatted directory info
+     * @param text The formatted text
+     * @return The text without trailing spaces and line breaks
      */
-    private String formatDirectoryInfo(VirtualDirectory dir) {
+    private static String trimTrailing(StringBuilder text) {
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\n')) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Wraps the name of an entry in the color for its type.
+     *
+     * @param entry The entry
+     * @return The name, colored if its type has a color
+     */
+    private String colorName(FileEntry entry) {
+        return entry.isDirectory() ? AnsiStyle.paint(entry.getName(), DIRECTORY_STYLE) : entry.getName();
+    }
+
+    /**
+     * Formats an entry in long format.
+     *
+     * @param entry The entry
+     * @param name The name to show, possibly colored
+     * @return The formatted entry info
+     */
+    private String formatLongEntry(FileEntry entry, String name) {
         // Format: permissions owner group size date name
         return String.format("%s %s %s %6d %s %s",
-                dir.getPermissionsString(),
-                dir.getOwner(),
-                dir.getGroup(),
-                dir.getSize(),
-                DATE_FORMATTER.format(dir.getModificationTime()),
-                dir.getName());
+                entry.getPermissionsString(),
+                entry.getOwner(),
+                entry.getGroup(),
+                entry.getSize(),
+                DATE_FORMATTER.format(entry.getModificationTime()),
+                name);
+    }
+
+    /**
+     * A group of entries listed under one operand.
+     */
+    private static final class Section {
+        private final String label;
+        private final List<FileEntry> entries;
+
+        private Section(String label, List<FileEntry> entries) {
+            this.label = label;
+            this.entries = entries;
+        }
     }
 }
\ No newline at end of file
@@ -2,8 +2,12 @@ package com.terminaltrainer.core.commands.impl;
 
 import com.terminaltrainer.core.TerminalSession;
 import com.terminaltrainer.core.commands.Command;
+import com.terminaltrainer.core.filesystem.CreationStatus;
 import com.terminaltrainer.core.filesystem.VirtualFileSystem;
-import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Implementation of the 'mkdir' command, which creates directories.
@@ -27,7 +31,13 @@ public class MkdirCommand implements Command {
                "  -p     create parent directories as needed\n\n" +
                "Examples:\n" +
                "  mkdir dir1 dir2     Create directories dir1 and dir2\n" +
-               "  mkdir -p a/b/c      Create directory a, then a/b, then a/b/c";
+               "  mkdir -p a/b/c      Create directory a, then a/b, then a/b/c\n" +
+               "  mkdir -p p/{x,y}    Create directories p/x and p/y";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-p");
     }
 
     @Override
@@ -41,88 +51,52 @@ public class MkdirCommand implements Command {
         }
         
         boolean createParents = false;
-        int startIndex = 0;
+        List<String> paths = new ArrayList<>();
         
         // Check for -p option
-        if (args[0].equals("-p")) {
-            createParents = true;
-            startIndex = 1;
-            
-            if (args.length == 1) {
-                return "mkdir: missing operand\nTry 'mkdir --help' for more information.";
+        for (String arg : args) {
+            if (arg.equals("-p")) {
+                createParents = true;
+            } else {
+                paths.add(arg);
             }
         }
         
+        if (paths.isEmpty()) {
+            return "mkdir: missing operand\nTry 'mkdir --help' for more information.";
+        }
+        
+        // Create all directories in one pass so shared parents are only resolved once
         VirtualFileSystem fileSystem = session.getFileSystem();
-        String currentDirectory = session.getCurrentDirectory();
+        List<CreationStatus> statuses = fileSystem.createDirectories(paths, session.getCurrentDirectory(), createParents);
         StringBuilder result = new StringBuilder();
         
-        for (int i = startIndex; i < args.length; i++) {
-            String path = args[i];
-            
-            if (createParents) {
-                // Create parent directories as needed
-                String[] components = path.split("/");
-                StringBuilder currentPath = new StringBuilder();
-                
-                // Handle absolute paths
-                if (path.startsWith("/")) {
-                    currentPath.append("/");
-                }
-                
-                for (int j = 0; j < components.length; j++) {
-                    String component = components[j];
-                    
-                    if (component.isEmpty()) {
+        for (int i = 0; i < paths.size(); i++) {
+            String reason;
+            switch (statuses.get(i)) {
+                case CREATED:
+                    continue;
+                case EXISTS:
+                    if (createParents) {
                         continue;
                     }
-                    
-                    if (currentPath.length() > 0 && currentPath.charAt(currentPath.length() - 1) != '/') {
-                        currentPath.append("/");
-                    }
-                    
-                    currentPath.append(component);
-                    
-                    // Check if this directory already exists
-                    VirtualFileSystemNode node = fileSystem.resolvePath(currentPath.toString(), currentDirectory);
-                    
-                    if (node == null) {
-                        // Create the directory
-                        boolean success = fileSystem.createDirectory(currentPath.toString(), currentDirectory);
-                        
-                        if (!success && result.length() > 0) {
-                            result.append("\n");
-                            result.append("mkdir: cannot create directory '").append(currentPath).append("': File exists or parent directory doesn't exist");
-                        }
-                    } else if (!node.isDirectory()) {
-                        if (result.length() > 0) {
-                            result.append("\n");
-                        }
-                        result.append("mkdir: cannot create directory '").append(currentPath).append("': Not a directory");
-                        break;
-                    }
-                }
-            } else {
-                // Create just the specified directory
-                boolean success = fileSystem.createDirectory(path, currentDirectory);
-                
-                if (!success) {
-                    if (result.length() > 0) {
-                        result.append("\n");
-                    }
-                    
-                    // Check if the directory already exists
-                    VirtualFileSystemNode node = fileSystem.resolvePath(path, currentDirectory);
-                    
-                    if (node != null && node.isDirectory()) {
-                        result.append("mkdir: cannot create directory '").append(path).append("': File exists");
-                    } else if (node != null) {
-                        result.append("mkdir: cannot create directory '").append(path).append("': Not a directory");
-                    } else {
-                        result.append("mkdir: cannot create directory '").append(path).append("': No such file or directory");
-                    }
-                }
+                    reason = "File exists";
+                    break;
+                case FILE_EXISTS:
+                    reason = "File exists";
+                    break;
+                case NOT_A_DIRECTORY:
+                    reason = "Not a directory";
+                    break;
+                default:
+                    reason = "No such file or directory";
+                    break;
+            }
+            
+            if (result.length() > 0) {
+                result.append("\n");
             }
+            result.append("mkdir: cannot create directory '").append(paths.get(i)).append("': ").append(reason);
         }
         
         return result.toString();
@@ -0,0 +1,135 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.io.OutputSink;
+import com.terminaltrainer.core.io.Pager;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Implementation of the 'less' and 'more' commands, which show files one
+ * screen at a time in the terminal's pager. Files are shown one after
+ * another, each until the user quits it. Like the real commands, they
+ * copy the files through as cat does when standard output is not a
+ * terminal that can page, such as a pipe, a file or the command line.
+ */
+public class PagerCommand implements StreamingCommand {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final String name;
+    private final CatCommand cat;
+
+    /**
+     * Creates the command.
+     *
+     * @param name The name it is run by, "less" or "more"
+     */
+    public PagerCommand(String name) {
+        this.name = name;
+        this.cat = new CatCommand();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getDescription() {
+        return "View file contents one screen at a time";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: " + name + " [FILE]...\n" +
+               "Show the contents of FILE(s) one screen at a time.\n" +
+               "With no FILE, or when FILE is -, read standard input.\n\n" +
+               "Keys:\n" +
+               "  Space, f, Page Down   Forward one screen\n" +
+               "  b, Page Up            Back one screen\n" +
+               "  Enter, j, Down        Forward one line\n" +
+               "  k, Up                 Back one line\n" +
+               "  Left, Right           Scroll sideways\n" +
+               "  g, G                  Go to the first or last line\n" +
+               "  /PATTERN              Search forward for PATTERN\n" +
+               "  n, N                  Repeat the search forward or backward\n" +
+               "  q                     Quit\n\n" +
+               "Examples:\n" +
+               "  " + name + " notes.txt       Read notes.txt\n" +
+               "  ls -l /bin | " + name + "    Read a long listing";
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        Pager pager = output.getPager();
+        if (pager == null) {
+            return cat.execute(args, session, input, output);
+        }
+
+        ExecutionContext context = ExecutionContext.current();
+        if (args.length == 0) {
+            page(pager, "(standard input)", read(input));
+            return 0;
+        }
+
+        int status = 0;
+        for (String path : args) {
+            context.checkCancelled();
+            if (path.equals("-")) {
+                page(pager, "(standard input)", read(input));
+                continue;
+            }
+
+            VirtualFileSystemNode node = session.getFileSystem().resolvePath(path, session.getCurrentDirectory());
+            if (node == null) {
+                output.writeError(name + ": " + path + ": No such file or directory"
+                        + session.getSpellingSuggester().pathHint(path) + "\n");
+                status = 1;
+            } else if (!node.isFile()) {
+                output.writeError(name + ": " + path + ": Is a directory\n");
+                status = 1;
+            } else {
+                page(pager, path, ((VirtualFile) node).getContent());
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Pages a text. The command line's time limit is stopped meanwhile,
+     * since the time is spent by the user reading and not by the command.
+     */
+    private void page(Pager pager, String title, String text) throws IOException {
+        ExecutionContext context = ExecutionContext.current();
+        context.pauseDeadline();
+        try {
+            pager.page(title, text);
+        } finally {
+            context.resumeDeadline();
+        }
+    }
+
+    /**
+     * Reads the rest of standard input, which has to be there in full before it can be paged.
+     *
+     * @param input The reader
+     * @return Everything it had
+     * @throws IOException if reading fails
+     */
+    private String read(Reader input) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            context.checkCancelled();
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,299 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.filesystem.LineIndex;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of the 'tail' command, which prints the last lines or
+ * characters of files. For a file, the start of those lines is found
+ * through the file's line index, which searches back from the end, so the
+ * cost depends on the lines printed and not on the size of the file.
+ * Standard input has to be read to its end, keeping only what may still
+ * be printed.
+ */
+public class TailCommand implements StreamingCommand {
+    private static final int CHUNK_SIZE = 8192;
+    private static final int DEFAULT_LINES = 10;
+
+    @Override
+    public String getName() {
+        return "tail";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Print the last lines of files";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: tail [OPTION]... [FILE]...\n" +
+               "Print the last 10 lines of each FILE.\n" +
+               "With no FILE, or when FILE is -, read standard input.\n\n" +
+               "Options:\n" +
+               "  -n NUM   print the last NUM lines instead of the last 10\n" +
+               "  -c NUM   print the last NUM characters\n" +
+               "  -NUM     the same as -n NUM\n\n" +
+               "Examples:\n" +
+               "  tail log.txt         Show the last 10 lines of log.txt\n" +
+               "  tail -n 1 log.txt    Show the last line of log.txt";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-c", "-n");
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        int count = DEFAULT_LINES;
+        boolean characters = false;
+        List<String> files = new ArrayList<>();
+
+        // Parse arguments
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-") || !arg.startsWith("-")) {
+                files.add(arg);
+                continue;
+            }
+            String number;
+            char option = arg.charAt(1);
+            if (option == 'n' || option == 'c') {
+                if (arg.length() > 2) {
+                    number = arg.substring(2);
+                } else if (i + 1 < args.length) {
+                    number = args[++i];
+                } else {
+                    output.writeError("tail: option requires an argument -- '" + option + "'\n" +
+                            "Try 'tail --help' for more information.\n");
+                    return 1;
+                }
+                characters = option == 'c';
+            } else if (Character.isDigit(option)) {
+                number = arg.substring(1);
+                characters = false;
+            } else {
+                output.writeError("tail: invalid option -- '" + option + "'\n" +
+                        "Try 'tail --help' for more information.\n");
+                return 1;
+            }
+            count = parseCount(number);
+            if (count < 0) {
+                output.writeError("tail: invalid number of " + (characters ? "bytes" : "lines")
+                        + ": '" + number + "'\n");
+                return 1;
+            }
+        }
+
+        if (files.isEmpty()) {
+            files.add("-");
+        }
+
+        int status = 0;
+        boolean headers = files.size() > 1;
+        boolean first = true;
+        for (String path : files) {
+            String text;
+            int start;
+            if (path.equals("-")) {
+                text = characters ? readLastChars(input, count) : readLastLines(input, count);
+                start = 0;
+            } else {
+                VirtualFileSystemNode node = session.getFileSystem().resolvePath(path, session.getCurrentDirectory());
+                if (node == null) {
+                    output.writeError("tail: cannot open '" + path + "' for reading: No such file or directory"
+                            + session.getSpellingSuggester().pathHint(path) + "\n");
+                    status = 1;
+                    continue;
+                }
+                if (!node.isFile()) {
+                    output.writeError("tail: error reading '" + path + "': Is a directory\n");
+                    status = 1;
+                    continue;
+                }
+                LineIndex index = ((VirtualFile) node).getLineIndex();
+                text = index.getText();
+                start = characters ? Math.max(0, text.length() - count) : index.getLastLinesStart(count);
+            }
+
+            if (headers) {
+                output.write((first ? "" : "\n") + "==> " + (path.equals("-") ? "standard input" : path) + " <==\n");
+            }
+            first = false;
+            write(text, start, output);
+        }
+        return status;
+    }
+
+    /**
+     * Parses a count of lines or characters.
+     *
+     * @param number The count as given
+     * @return The count, or -1 if it is not a number
+     */
+    private static int parseCount(String number) {
+        if (number.isEmpty()) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            // Anything this large means all of it
+            value = Math.min(Integer.MAX_VALUE, value * 10 + (c - '0'));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes the end of a text in chunks, so a pipe can apply backpressure.
+     *
+     * @param text The text
+     * @param start The offset to start at
+     * @param output The sink
+     * @throws IOException if writing fails
+     */
+    private static void write(String text, int start, OutputSink output) throws IOException {
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        for (int offset = start; offset < text.length(); offset += CHUNK_SIZE) {
+            int end = Math.min(text.length(), offset + CHUNK_SIZE);
+            context.checkCancelled();
+            text.getChars(offset, end, buffer, 0);
+            output.write(buffer, 0, end - offset);
+        }
+    }
+
+    /**
+     * Reads standard input to its end, keeping only its last lines. The
+     * line breaks are noted as they are read, in a ring holding as many as
+     * the lines kept need, so each character is looked at once and the
+     * text before the oldest of them is dropped from time to time.
+     */
+    private String readLastLines(Reader input, int lines) throws IOException {
+        StringBuilder kept = new StringBuilder();
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        // Positions after each line break, counted from the start of the input
+        LineBreaks breaks = new LineBreaks((int) Math.min(Integer.MAX_VALUE, lines + 1L));
+        long keptFrom = 0;
+        long total = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            context.checkCancelled();
+            if (lines == 0) {
+                continue;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    breaks.add(total + i + 1);
+                }
+            }
+            kept.append(buffer, 0, read);
+            total += read;
+            // Nothing before the oldest break can still be printed once the ring is full
+            if (breaks.isFull()) {
+                int unused = (int) (breaks.getOldest() - keptFrom);
+                // Dropped only once it is most of the text, so the copying stays linear
+                if (unused >= 4 * CHUNK_SIZE && unused >= kept.length() / 2) {
+                    kept.delete(0, unused);
+                    keptFrom += unused;
+                }
+            }
+        }
+        if (lines == 0) {
+            return "";
+        }
+
+        // A line break at the very end belongs to the last line
+        int count = breaks.size();
+        if (count > 0 && breaks.get(count - 1) == total) {
+            count--;
+        }
+        long start = count >= lines ? breaks.get(count - lines) : 0;
+        return kept.substring((int) (start - keptFrom));
+    }
+
+    /**
+     * Reads standard input to its end, keeping only its last characters.
+     */
+    private String readLastChars(Reader input, int chars) throws IOException {
+        StringBuilder kept = new StringBuilder();
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            context.checkCancelled();
+            kept.append(buffer, 0, read);
+            // Dropped only once it is most of the text, so the copying stays linear
+            if (kept.length() > 2L * Math.max(chars, 4 * CHUNK_SIZE)) {
+                kept.delete(0, kept.length() - chars);
+            }
+        }
+        return kept.substring(Math.max(0, kept.length() - chars));
+    }
+
+    /**
+     * The most recent line break positions, oldest first, in a ring that
+     * grows only as far as it is filled.
+     */
+    private static final class LineBreaks {
+        private final int capacity;
+        private long[] positions;
+        private int first;
+        private int size;
+
+        LineBreaks(int capacity) {
+            // -n with a huge count must not allocate for lines that never come
+            this.capacity = Math.max(1, capacity);
+            this.positions = new long[Math.min(this.capacity, 1024)];
+        }
+
+        void add(long position) {
+            if (size == capacity) {
+                positions[first] = position;
+                first = (first + 1) % positions.length;
+                return;
+            }
+            if (size == positions.length) {
+                long[] grown = new long[(int) Math.min(capacity, 2L * positions.length)];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = positions[(first + i) % positions.length];
+                }
+                positions = grown;
+                first = 0;
+            }
+            positions[(first + size++) % positions.length] = position;
+        }
+
+        boolean isFull() {
+            return size == capacity;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return positions[(first + index) % positions.length];
+        }
+
+        long getOldest() {
+            return get(0);
+        }
+    }
+}
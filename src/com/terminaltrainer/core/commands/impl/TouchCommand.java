@@ -2,8 +2,11 @@ package com.terminaltrainer.core.commands.impl;
 
 import com.terminaltrainer.core.TerminalSession;
 import com.terminaltrainer.core.commands.Command;
+import com.terminaltrainer.core.filesystem.CreationStatus;
 import com.terminaltrainer.core.filesystem.VirtualFileSystem;
-import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Implementation of the 'touch' command, which creates empty files.
@@ -25,7 +28,8 @@ public class TouchCommand implements Command {
                "Create empty files or update file timestamps.\n\n" +
                "Examples:\n" +
                "  touch file.txt     Create an empty file named file.txt\n" +
-               "  touch f1 f2 f3     Create three empty files: f1, f2, and f3";
+               "  touch f1 f2 f3     Create three empty files: f1, f2, and f3\n" +
+               "  touch f{1..3}      Same as above, using brace expansion";
     }
 
     @Override
@@ -38,28 +42,23 @@ public class TouchCommand implements Command {
             return getHelpText();
         }
         
+        // Create all files in one pass so shared parents are only resolved once
         VirtualFileSystem fileSystem = session.getFileSystem();
-        String currentDirectory = session.getCurrentDirectory();
+        List<String> paths = Arrays.asList(args);
+        List<CreationStatus> statuses = fileSystem.createFiles(paths, session.getCurrentDirectory());
         StringBuilder result = new StringBuilder();
         
-        for (String path : args) {
-            // Check if the file already exists
-            VirtualFileSystemNode node = fileSystem.resolvePath(path, currentDirectory);
+        for (int i = 0; i < paths.size(); i++) {
+            CreationStatus status = statuses.get(i);
+            if (status.exists()) {
+                continue;
+            }
             
-            if (node != null) {
-                // File exists, update its timestamp
-                node.updateModificationTime();
-            } else {
-                // File doesn't exist, create it
-                boolean success = fileSystem.createFile(path, currentDirectory, "");
-                
-                if (!success) {
-                    if (result.length() > 0) {
-                        result.append("\n");
-                    }
-                    result.append("touch: cannot touch '").append(path).append("': No such file or directory");
-                }
+            if (result.length() > 0) {
+                result.append("\n");
             }
+            String reason = status == CreationStatus.NOT_A_DIRECTORY ? "Not a directory" : "No such file or directory";
+            result.append("touch: cannot touch '").append(paths.get(i)).append("': ").append(reason);
         }
         
         return result.toString();
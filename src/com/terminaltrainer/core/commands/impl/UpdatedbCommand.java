@@ -0,0 +1,39 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.Command;
+
+/**
+ * Implementation of the 'updatedb' command, which rebuilds the file name index used by 'locate'.
+ */
+public class UpdatedbCommand implements Command {
+    @Override
+    public String getName() {
+        return "updatedb";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Rebuild the file name index used by locate";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: updatedb\n" +
+               "Rebuild the file name index used by 'locate'.\n\n" +
+               "The index is updated automatically whenever files are created, moved\n" +
+               "or deleted, so running updatedb is only needed to verify it.\n\n" +
+               "Example:\n" +
+               "  updatedb    Rebuild the index and report how many entries it holds";
+    }
+
+    @Override
+    public String execute(String[] args, TerminalSession session) {
+        if (args.length > 0) {
+            return "updatedb: too many arguments";
+        }
+
+        int entries = session.getFileSystem().rebuildNameIndex();
+        return "updatedb: indexed " + entries + " entries";
+    }
+}
@@ -0,0 +1,238 @@
+package com.terminaltrainer.core.commands.impl;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.StreamingCommand;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.filesystem.VirtualFile;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of the 'wc' command, which counts the lines, words and
+ * characters of files. The lines of a file are counted by its line index,
+ * which the file keeps, so only the first count scans it; counting again
+ * costs nothing until the file changes. Words still take a scan, so it is
+ * only made when they are asked for.
+ */
+public class WcCommand implements StreamingCommand {
+    private static final int CHUNK_SIZE = 8192;
+    // The width of each count when reading standard input, whose size is not known ahead
+    private static final int STREAM_WIDTH = 7;
+
+    @Override
+    public String getName() {
+        return "wc";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Count lines, words and characters";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Usage: wc [OPTION]... [FILE]...\n" +
+               "Print the line, word and character counts of each FILE, and a total\n" +
+               "line if more than one FILE is given. A word is a run of characters\n" +
+               "between spaces. With no FILE, or when FILE is -, read standard input.\n\n" +
+               "Options:\n" +
+               "  -l   print the line counts\n" +
+               "  -w   print the word counts\n" +
+               "  -c   print the character counts\n" +
+               "  -m   the same as -c\n\n" +
+               "Examples:\n" +
+               "  wc notes.txt         Count everything in notes.txt\n" +
+               "  ls | wc -l           Count the entries in the current directory";
+    }
+
+    @Override
+    public List<String> getOptions() {
+        return Arrays.asList("-c", "-l", "-m", "-w");
+    }
+
+    @Override
+    public int execute(String[] args, TerminalSession session, Reader input, OutputSink output) throws IOException {
+        boolean lines = false;
+        boolean words = false;
+        boolean chars = false;
+        List<String> files = new ArrayList<>();
+
+        // Parse arguments
+        for (String arg : args) {
+            if (arg.equals("-") || !arg.startsWith("-")) {
+                files.add(arg);
+                continue;
+            }
+            for (int j = 1; j < arg.length(); j++) {
+                char option = arg.charAt(j);
+                if (option == 'l') {
+                    lines = true;
+                } else if (option == 'w') {
+                    words = true;
+                } else if (option == 'c' || option == 'm') {
+                    chars = true;
+                } else {
+                    output.writeError("wc: invalid option -- '" + option + "'\n" +
+                            "Try 'wc --help' for more information.\n");
+                    return 1;
+                }
+            }
+        }
+        if (!lines && !words && !chars) {
+            lines = true;
+            words = true;
+            chars = true;
+        }
+
+        boolean fromInput = files.isEmpty();
+        if (fromInput) {
+            files.add("-");
+        }
+
+        // Find every file first, since the widths depend on their sizes
+        int status = 0;
+        List<String> names = new ArrayList<>();
+        List<VirtualFile> sources = new ArrayList<>();
+        long totalSize = 0;
+        boolean streamed = false;
+        for (String path : files) {
+            if (path.equals("-")) {
+                names.add(path);
+                sources.add(null);
+                streamed = true;
+                continue;
+            }
+            VirtualFileSystemNode node = session.getFileSystem().resolvePath(path, session.getCurrentDirectory());
+            if (node == null) {
+                output.writeError("wc: " + path + ": No such file or directory"
+                        + session.getSpellingSuggester().pathHint(path) + "\n");
+                status = 1;
+            } else if (!node.isFile()) {
+                output.writeError("wc: " + path + ": Is a directory\n");
+                status = 1;
+            } else {
+                VirtualFile file = (VirtualFile) node;
+                names.add(path);
+                sources.add(file);
+                totalSize += file.getContent().length();
+            }
+        }
+
+        int columns = (lines ? 1 : 0) + (words ? 1 : 0) + (chars ? 1 : 0);
+        int width;
+        if (columns == 1 && files.size() == 1) {
+            width = 1;
+        } else if (streamed) {
+            width = STREAM_WIDTH;
+        } else {
+            width = Long.toString(totalSize).length();
+        }
+
+        long[] total = new long[3];
+        for (int i = 0; i < sources.size(); i++) {
+            VirtualFile file = sources.get(i);
+            long[] counts;
+            if (file == null) {
+                counts = count(input);
+            } else {
+                String content = file.getContent();
+                counts = new long[] {
+                        lines ? file.getLineIndex().getLineBreakCount() : 0,
+                        words ? countWords(content) : 0,
+                        content.length()
+                };
+            }
+            for (int j = 0; j < 3; j++) {
+                total[j] += counts[j];
+            }
+            String name = fromInput ? null : names.get(i);
+            output.write(format(counts, lines, words, chars, width, name));
+        }
+        if (files.size() > 1) {
+            output.write(format(total, lines, words, chars, width, "total"));
+        }
+        return status;
+    }
+
+    /**
+     * Formats a line of counts, each right-aligned in the same width.
+     */
+    private static String format(long[] counts, boolean lines, boolean words, boolean chars,
+                                 int width, String name) {
+        StringBuilder line = new StringBuilder();
+        boolean[] shown = {lines, words, chars};
+        for (int j = 0; j < 3; j++) {
+            if (!shown[j]) {
+                continue;
+            }
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            String digits = Long.toString(counts[j]);
+            for (int k = digits.length(); k < width; k++) {
+                line.append(' ');
+            }
+            line.append(digits);
+        }
+        if (name != null) {
+            line.append(' ').append(name);
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * Counts the words of a text, scanning it in chunks so the count can be cancelled.
+     */
+    private static long countWords(String text) {
+        ExecutionContext context = ExecutionContext.current();
+        long words = 0;
+        boolean inWord = false;
+        for (int offset = 0; offset < text.length(); offset += CHUNK_SIZE) {
+            context.checkCancelled();
+            int end = Math.min(text.length(), offset + CHUNK_SIZE);
+            for (int i = offset; i < end; i++) {
+                boolean space = Character.isWhitespace(text.charAt(i));
+                if (!space && !inWord) {
+                    words++;
+                }
+                inWord = !space;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Counts the lines, words and characters of standard input as it is read.
+     *
+     * @return The line, word and character counts
+     */
+    private long[] count(Reader input) throws IOException {
+        char[] buffer = new char[CHUNK_SIZE];
+        ExecutionContext context = ExecutionContext.current();
+        long[] counts = new long[3];
+        boolean inWord = false;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            context.checkCancelled();
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    counts[0]++;
+                }
+                boolean space = Character.isWhitespace(c);
+                if (!space && !inWord) {
+                    counts[1]++;
+                }
+                inWord = !space;
+            }
+            counts[2] += read;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,40 @@
+package com.terminaltrainer.core.commands.result;
+
+/**
+ * A row describing one available command, as reported by 'help'.
+ */
+public final class CommandInfo {
+    private final String name;
+    private final String description;
+    private final String category;
+
+    /**
+     * Creates a new command description.
+     *
+     * @param name The command name
+     * @param description The one-line description
+     * @param category The help category the command is listed under
+     */
+    public CommandInfo(String name, String description, String category) {
+        this.name = name;
+        this.description = description;
+        this.category = category;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,95 @@
+package com.terminaltrainer.core.commands.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The structured outcome of a command: typed rows, error messages and an
+ * exit status. Rows are only turned into text when {@link #toText()} is
+ * called, so scripts, pipelines and graders that read the rows directly
+ * never pay for formatting.
+ *
+ * @param <T> The row type
+ */
+public final class CommandResult<T> {
+    private final List<T> rows;
+    private final List<String> errors;
+    private final int exitStatus;
+    private final Function<List<T>, String> formatter;
+    private String text;
+
+    /**
+     * Creates a new result.
+     *
+     * @param rows The result rows
+     * @param errors The error messages, without trailing newlines
+     * @param exitStatus The exit status, 0 for success
+     * @param formatter Turns the rows into terminal text when it is first needed
+     */
+    public CommandResult(List<T> rows, List<String> errors, int exitStatus, Function<List<T>, String> formatter) {
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        this.exitStatus = exitStatus;
+        this.formatter = formatter;
+    }
+
+    /**
+     * Creates a result from plain text output, with one row per line.
+     *
+     * @param output The standard output of the command
+     * @param errors The error messages, without trailing newlines
+     * @param exitStatus The exit status, 0 for success
+     * @return A result whose rows are the output lines
+     */
+    public static CommandResult<String> ofText(String output, List<String> errors, int exitStatus) {
+        List<String> lines = new ArrayList<>();
+        if (!output.isEmpty()) {
+            String trimmed = output.endsWith("\n") ? output.substring(0, output.length() - 1) : output;
+            Collections.addAll(lines, trimmed.split("\n", -1));
+        }
+        return new CommandResult<>(lines, errors, exitStatus, rows -> String.join("\n", rows));
+    }
+
+    /**
+     * Creates a result holding only an error.
+     *
+     * @param error The error message
+     * @param exitStatus The exit status
+     * @param <T> The row type
+     * @return A result with no rows
+     */
+    public static <T> CommandResult<T> failure(String error, int exitStatus) {
+        return new CommandResult<>(new ArrayList<>(), Collections.singletonList(error), exitStatus, rows -> "");
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public int getExitStatus() {
+        return exitStatus;
+    }
+
+    public boolean isSuccess() {
+        return exitStatus == 0;
+    }
+
+    /**
+     * Formats the rows as they would appear in a terminal. The text is
+     * produced on the first call and reused afterwards.
+     *
+     * @return The formatted output, without a trailing newline
+     */
+    public String toText() {
+        if (text == null) {
+            text = formatter.apply(rows);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,108 @@
+package com.terminaltrainer.core.commands.result;
+
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+
+import java.time.LocalDateTime;
+
+/**
+ * A snapshot of one file system entry as reported by a command such as 'ls'.
+ *
+ * The path and size are only worked out when first asked for, since the
+ * size of a directory sums its whole subtree and a short listing shows
+ * neither.
+ */
+public final class FileEntry {
+    /**
+     * The kinds of entries.
+     */
+    public enum Type {
+        FILE,
+        DIRECTORY
+    }
+
+    private final VirtualFileSystemNode node;
+    private final String name;
+    private final Type type;
+    private String path;
+    private long size = -1;
+    private final LocalDateTime modificationTime;
+    private final int permissions;
+    private final String owner;
+    private final String group;
+
+    /**
+     * Creates an entry describing a node.
+     *
+     * @param node The node to describe
+     */
+    public FileEntry(VirtualFileSystemNode node) {
+        this.node = node;
+        this.name = node.getName();
+        this.type = node.isDirectory() ? Type.DIRECTORY : Type.FILE;
+        this.modificationTime = node.getModificationTime();
+        this.permissions = node.getPermissions();
+        this.owner = node.getOwner();
+        this.group = node.getGroup();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        if (path == null) {
+            path = node.getPath();
+        }
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isDirectory() {
+        return type == Type.DIRECTORY;
+    }
+
+    public long getSize() {
+        if (size < 0) {
+            size = node.getSize();
+        }
+        return size;
+    }
+
+    public LocalDateTime getModificationTime() {
+        return modificationTime;
+    }
+
+    /**
+     * Gets the Unix-style permission bits (e.g., 0755).
+     *
+     * @return The permissions
+     */
+    public int getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * Gets the permissions as a string (e.g., "drwxr-xr-x").
+     *
+     * @return The permissions string
+     */
+    public String getPermissionsString() {
+        return VirtualFileSystemNode.formatPermissions(permissions, isDirectory());
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public String toString() {
+        return isDirectory() ? name + "/" : name;
+    }
+}
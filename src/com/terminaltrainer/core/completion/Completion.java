@@ -0,0 +1,151 @@
+package com.terminaltrainer.core.completion;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of completing the word before the caret: the text that should
+ * replace it, and the candidates it could be completed to.
+ *
+ * The replacement is always at least the original word, extended by the
+ * prefix all candidates share. When there is exactly one candidate it is
+ * the whole candidate followed by a space, or by '/' for a directory.
+ */
+public final class Completion {
+    private final int start;
+    private final int end;
+    private final String original;
+    private final String replacement;
+    private final List<String> candidates;
+    private final boolean moreCandidates;
+
+    Completion(int start, int end, String original, String replacement, List<String> candidates,
+               boolean moreCandidates) {
+        this.start = start;
+        this.end = end;
+        this.original = original;
+        this.replacement = replacement;
+        this.candidates = Collections.unmodifiableList(candidates);
+        this.moreCandidates = moreCandidates;
+    }
+
+    static Completion none(int caret) {
+        return new Completion(caret, caret, "", "", Collections.emptyList(), false);
+    }
+
+    /**
+     * Gets the offset in the line where the word being completed starts.
+     *
+     * @return The start offset
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the offset in the line just after the word being completed, which is the caret.
+     *
+     * @return The end offset
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the text to put in place of the word, quoted for the shell.
+     *
+     * @return The replacement text
+     */
+    public String getReplacement() {
+        return replacement;
+    }
+
+    /**
+     * Checks if applying the completion would change the line.
+     *
+     * @return true if the replacement is longer than the original word
+     */
+    public boolean extendsWord() {
+        return !replacement.equals(original);
+    }
+
+    /**
+     * Gets the candidates, in sorted order, as they should be listed to the user.
+     *
+     * @return The candidates
+     */
+    public List<String> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Checks if there were more candidates than are listed.
+     *
+     * @return true if the candidate list was cut short
+     */
+    public boolean hasMoreCandidates() {
+        return moreCandidates;
+    }
+
+    /**
+     * Checks if the word completes to exactly one candidate.
+     *
+     * @return true if there is a single candidate
+     */
+    public boolean isUnique() {
+        return candidates.size() == 1 && !moreCandidates;
+    }
+
+    /**
+     * Replaces the word in a line with the completion.
+     *
+     * @param line The line the completion was computed for
+     * @return The completed line
+     */
+    public String applyTo(String line) {
+        return line.substring(0, start) + replacement + line.substring(end);
+    }
+
+    /**
+     * Lays out the candidates in columns, filled top to bottom, as ls does.
+     *
+     * @param width The available width in characters
+     * @return The candidates, one row per line, each line ending in a newline
+     */
+    public String formatCandidates(int width) {
+        if (candidates.isEmpty()) {
+            return "";
+        }
+
+        int columnWidth = 0;
+        for (String candidate : candidates) {
+            columnWidth = Math.max(columnWidth, candidate.length() + 2);
+        }
+        int columns = Math.max(1, width / columnWidth);
+        int rows = (candidates.size() + columns - 1) / columns;
+
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int index = column * rows + row;
+                if (index >= candidates.size()) {
+                    break;
+                }
+                String candidate = candidates.get(index);
+                text.append(candidate);
+                boolean last = column == columns - 1 || index + rows >= candidates.size();
+                if (!last) {
+                    for (int i = candidate.length(); i < columnWidth; i++) {
+                        text.append(' ');
+                    }
+                }
+            }
+            text.append('\n');
+        }
+        if (moreCandidates) {
+            text.append("(only the first ").append(candidates.size())
+                    .append(" matches are shown; type more characters to narrow them down)\n");
+        }
+        return text.toString();
+    }
+}
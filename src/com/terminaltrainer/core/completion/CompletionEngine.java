@@ -0,0 +1,292 @@
+package com.terminaltrainer.core.completion;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.commands.Command;
+import com.terminaltrainer.core.filesystem.VirtualDirectory;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Completes the word before the caret in a command line: command names in
+ * command position, option names after a command, and paths elsewhere.
+ *
+ * Command names are looked up in a {@link PrefixTrie} built once from the
+ * command registry. Paths use the sorted children of the directory being
+ * completed in, so the cost depends on the number of matches listed, which
+ * is capped, and not on the size of the directory. The engine reads the
+ * session's file system, so it must not be used while a command is running.
+ */
+public class CompletionEngine {
+    /**
+     * The most candidates a completion lists.
+     */
+    public static final int MAX_CANDIDATES = 500;
+
+    /**
+     * Characters that the shell would not take literally outside quotes.
+     */
+    private static final String SPECIAL_CHARACTERS = " \t\\'\"*?[]{},;&|<>";
+
+    private final TerminalSession session;
+    private final Map<String, Command> commands;
+    private final PrefixTrie commandNames;
+
+    /**
+     * Creates a completion engine for a session.
+     *
+     * @param session The session whose commands and file system are completed
+     */
+    public CompletionEngine(TerminalSession session) {
+        this.session = session;
+        this.commands = session.getCommandProcessor().getCommands();
+        this.commandNames = new PrefixTrie();
+        for (String name : commands.keySet()) {
+            commandNames.add(name);
+        }
+    }
+
+    /**
+     * Completes the word that ends at the caret.
+     *
+     * @param line The command line
+     * @param caret The caret offset in the line
+     * @return The completion, with no candidates if nothing matches
+     */
+    public Completion complete(String line, int caret) {
+        Word word = Word.scan(line, caret);
+        if (word == null) {
+            return Completion.none(caret);
+        }
+
+        if (word.commandPosition && word.text.indexOf('/') < 0) {
+            List<String> names = commandNames.getWordsWithPrefix(word.text, MAX_CANDIDATES + 1);
+            return complete(word, line, caret, names, commandNames.getCommonPrefix(word.text), false);
+        }
+
+        Command command = word.commandName != null ? commands.get(word.commandName) : null;
+        if (command != null && word.text.startsWith("-")) {
+            TreeSet<String> options = new TreeSet<>(command.getOptions());
+            options.add("--help");
+            List<String> matches = new ArrayList<>();
+            for (String option : options) {
+                if (option.startsWith(word.text)) {
+                    matches.add(option);
+                }
+            }
+            return complete(word, line, caret, matches, commonPrefix(matches), false);
+        }
+
+        return completePath(word, line, caret);
+    }
+
+    private Completion completePath(Word word, String line, int caret) {
+        int slash = word.text.lastIndexOf('/');
+        String directoryPart = word.text.substring(0, slash + 1);
+        String namePrefix = word.text.substring(slash + 1);
+
+        String directoryPath = directoryPart.isEmpty() ? "." : directoryPart;
+        if (directoryPath.startsWith("~/")) {
+            directoryPath = "/home/" + session.getUsername() + directoryPath.substring(1);
+        }
+        VirtualFileSystemNode node = session.getFileSystem().resolvePath(directoryPath, session.getCurrentDirectory());
+        if (node == null || !node.isDirectory()) {
+            return Completion.none(caret);
+        }
+        VirtualDirectory directory = (VirtualDirectory) node;
+
+        // Like other shells, hidden entries are only offered once a '.' is typed
+        boolean showHidden = namePrefix.startsWith(".");
+        List<String> names = new ArrayList<>();
+        boolean onlyDirectory = false;
+        for (VirtualFileSystemNode child : directory.getChildrenWithPrefix(namePrefix, MAX_CANDIDATES + 1)) {
+            if (showHidden || !child.getName().startsWith(".")) {
+                names.add(child.isDirectory() ? child.getName() + "/" : child.getName());
+                onlyDirectory = child.isDirectory();
+            }
+        }
+
+        String common = directory.getCommonChildPrefix(namePrefix);
+        if (names.size() == 1) {
+            common = names.get(0);
+        }
+        if (common != null) {
+            common = directoryPart + common;
+        }
+        return complete(word, line, caret, names, common, onlyDirectory && names.size() == 1);
+    }
+
+    /**
+     * Builds the completion from the candidates. A unique candidate is
+     * finished with a space, unless it is a directory to keep typing in.
+     */
+    private static Completion complete(Word word, String line, int caret, List<String> candidates,
+                                       String common, boolean directory) {
+        String original = line.substring(word.start, caret);
+        if (candidates.isEmpty() || common == null) {
+            return new Completion(word.start, caret, original, original, new ArrayList<>(), false);
+        }
+
+        boolean more = candidates.size() > MAX_CANDIDATES;
+        if (more) {
+            candidates = new ArrayList<>(candidates.subList(0, MAX_CANDIDATES));
+        }
+        boolean unique = candidates.size() == 1 && !more;
+
+        String replacement;
+        if (common.length() <= word.text.length()) {
+            replacement = original;
+        } else {
+            replacement = quote(common, word.quote, unique && !directory);
+        }
+        if (unique && !directory) {
+            replacement += " ";
+        }
+        return new Completion(word.start, caret, original, replacement, candidates, more);
+    }
+
+    /**
+     * Quotes completed text the way the word was typed: inside the open
+     * quote if there is one, otherwise with backslashes.
+     */
+    private static String quote(String text, char openQuote, boolean closeQuote) {
+        StringBuilder quoted = new StringBuilder();
+        if (openQuote == '\'' && text.indexOf('\'') < 0) {
+            quoted.append('\'').append(text);
+        } else if (openQuote == '"' || openQuote == '\'') {
+            quoted.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if ("\"\\$`".indexOf(c) >= 0) {
+                    quoted.append('\\');
+                }
+                quoted.append(c);
+            }
+            openQuote = '"';
+        } else {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (SPECIAL_CHARACTERS.indexOf(c) >= 0 || (c == '#' && i == 0)) {
+                    quoted.append('\\');
+                }
+                quoted.append(c);
+            }
+        }
+        if (closeQuote && openQuote != 0) {
+            quoted.append(openQuote);
+        }
+        return quoted.toString();
+    }
+
+    private static String commonPrefix(List<String> words) {
+        if (words.isEmpty()) {
+            return null;
+        }
+        String first = words.get(0);
+        String last = words.get(words.size() - 1);
+        int length = 0;
+        while (length < Math.min(first.length(), last.length()) && first.charAt(length) == last.charAt(length)) {
+            length++;
+        }
+        return first.substring(0, length);
+    }
+
+    /**
+     * The word before the caret, with quotes and escapes removed, and where
+     * it stands in its command.
+     */
+    private static final class Word {
+        private int start = -1;
+        private final StringBuilder textBuilder = new StringBuilder();
+        private String text;
+        private char quote;
+        private boolean commandPosition;
+        private String commandName;
+
+        /**
+         * Scans a line up to the caret.
+         *
+         * @return The word, or null if the caret is inside a comment
+         */
+        static Word scan(String line, int caret) {
+            Word word = new Word();
+            int wordsInCommand = 0;
+            String commandName = null;
+            boolean afterRedirection = false;
+
+            for (int i = 0; i < caret; i++) {
+                char c = line.charAt(i);
+
+                if (word.quote == '\'') {
+                    if (c == '\'') {
+                        word.quote = 0;
+                    } else {
+                        word.textBuilder.append(c);
+                    }
+                    continue;
+                }
+                if (word.quote == '"') {
+                    if (c == '"') {
+                        word.quote = 0;
+                    } else if (c == '\\' && i + 1 < caret && "\"\\$`".indexOf(line.charAt(i + 1)) >= 0) {
+                        word.textBuilder.append(line.charAt(++i));
+                    } else {
+                        word.textBuilder.append(c);
+                    }
+                    continue;
+                }
+
+                boolean boundary = Character.isWhitespace(c) || ";&|<>".indexOf(c) >= 0;
+                if (boundary) {
+                    if (word.start >= 0) {
+                        if (afterRedirection) {
+                            afterRedirection = false;
+                        } else {
+                            if (wordsInCommand == 0) {
+                                commandName = word.textBuilder.toString();
+                            }
+                            wordsInCommand++;
+                        }
+                        word.start = -1;
+                        word.textBuilder.setLength(0);
+                    }
+                    if (c == ';' || c == '&' || c == '|') {
+                        wordsInCommand = 0;
+                        commandName = null;
+                        afterRedirection = false;
+                    } else if (c == '<' || c == '>') {
+                        afterRedirection = true;
+                    }
+                    continue;
+                }
+
+                if (word.start < 0) {
+                    if (c == '#') {
+                        return null;
+                    }
+                    word.start = i;
+                }
+                if (c == '\\') {
+                    if (i + 1 < caret) {
+                        word.textBuilder.append(line.charAt(++i));
+                    }
+                } else if (c == '\'' || c == '"') {
+                    word.quote = c;
+                } else {
+                    word.textBuilder.append(c);
+                }
+            }
+
+            if (word.start < 0) {
+                word.start = caret;
+            }
+            word.text = word.textBuilder.toString();
+            word.commandPosition = wordsInCommand == 0 && !afterRedirection;
+            word.commandName = commandName;
+            return word;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.terminaltrainer.core.completion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A set of words stored as a character trie, so the words sharing a prefix
+ * and the longest prefix they have in common are found by walking the
+ * prefix once instead of scanning every word. Words come out in sorted order.
+ */
+public class PrefixTrie {
+    private final Node root;
+    private int size;
+
+    /**
+     * Creates a new, empty trie.
+     */
+    public PrefixTrie() {
+        this.root = new Node();
+    }
+
+    /**
+     * Adds a word to the trie.
+     *
+     * @param word The word
+     * @return true if the word was added, false if it was already present
+     */
+    public boolean add(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.children.computeIfAbsent(word.charAt(i), c -> new Node());
+        }
+        if (node.word) {
+            return false;
+        }
+        node.word = true;
+        size++;
+        return true;
+    }
+
+    /**
+     * Checks if the trie contains a word.
+     *
+     * @param word The word
+     * @return true if the word was added to the trie
+     */
+    public boolean contains(String word) {
+        Node node = find(word);
+        return node != null && node.word;
+    }
+
+    /**
+     * Gets the number of words in the trie.
+     *
+     * @return The number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the words that start with a prefix, in sorted order.
+     *
+     * @param prefix The prefix
+     * @param limit The maximum number of words to return
+     * @return At most limit matching words
+     */
+    public List<String> getWordsWithPrefix(String prefix, int limit) {
+        List<String> words = new ArrayList<>();
+        Node node = find(prefix);
+        if (node != null) {
+            collect(node, new StringBuilder(prefix), words, limit);
+        }
+        return words;
+    }
+
+    /**
+     * Gets the longest prefix shared by all words that start with a prefix.
+     *
+     * @param prefix The prefix
+     * @return The shared prefix, or null if no word starts with the prefix
+     */
+    public String getCommonPrefix(String prefix) {
+        Node node = find(prefix);
+        if (node == null) {
+            return null;
+        }
+
+        StringBuilder common = new StringBuilder(prefix);
+        while (!node.word && node.children.size() == 1) {
+            Map.Entry<Character, Node> only = node.children.firstEntry();
+            common.append(only.getKey().charValue());
+            node = only.getValue();
+        }
+        return common.toString();
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private static void collect(Node node, StringBuilder path, List<String> words, int limit) {
+        if (words.size() >= limit) {
+            return;
+        }
+        if (node.word) {
+            words.add(path.toString());
+        }
+        for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+            path.append(entry.getKey().charValue());
+            collect(entry.getValue(), path, words, limit);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    private static final class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private boolean word;
+    }
+}
@@ -0,0 +1,32 @@
+package com.terminaltrainer.core.exec;
+
+/**
+ * Thrown when a command line uses more of a resource than its
+ * {@link ResourceBudget} allows. The command is cancelled as a result.
+ */
+public class BudgetExceededException extends CommandCancelledException {
+    private static final long serialVersionUID = 1L;
+
+    private final ResourceBudget.Resource resource;
+    private final long limit;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param resource The resource whose limit was exceeded
+     * @param limit The limit
+     */
+    public BudgetExceededException(ResourceBudget.Resource resource, long limit) {
+        super(resource.describe(limit) + " exceeded");
+        this.resource = resource;
+        this.limit = limit;
+    }
+
+    public ResourceBudget.Resource getResource() {
+        return resource;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,73 @@
+package com.terminaltrainer.core.exec;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how many command lines ran and how often each budget limit
+ * stopped one. Safe to share between sessions and threads.
+ */
+public class BudgetMetrics {
+    private final LongAdder commandLines;
+    private final AtomicLongArray trips;
+
+    /**
+     * Creates new metrics with all counts at zero.
+     */
+    public BudgetMetrics() {
+        this.commandLines = new LongAdder();
+        this.trips = new AtomicLongArray(ResourceBudget.Resource.values().length);
+    }
+
+    /**
+     * Records that a command line ran.
+     */
+    public void recordCommandLine() {
+        commandLines.increment();
+    }
+
+    /**
+     * Records that a command line was stopped by a limit.
+     *
+     * @param resource The resource whose limit was exceeded
+     */
+    public void recordTrip(ResourceBudget.Resource resource) {
+        trips.incrementAndGet(resource.ordinal());
+    }
+
+    public long getCommandLines() {
+        return commandLines.sum();
+    }
+
+    /**
+     * Gets how often a limit stopped a command line.
+     *
+     * @param resource The resource
+     * @return The number of trips
+     */
+    public long getTrips(ResourceBudget.Resource resource) {
+        return trips.get(resource.ordinal());
+    }
+
+    /**
+     * Gets how often any limit stopped a command line.
+     *
+     * @return The total number of trips
+     */
+    public long getTotalTrips() {
+        long total = 0;
+        for (int i = 0; i < trips.length(); i++) {
+            total += trips.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("command lines: ").append(getCommandLines());
+        for (ResourceBudget.Resource resource : ResourceBudget.Resource.values()) {
+            text.append(", ").append(resource.name().toLowerCase()).append(" trips: ").append(getTrips(resource));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.terminaltrainer.core.exec;
+
+/**
+ * Thrown by long-running work when the command it belongs to has been cancelled.
+ */
+public class CommandCancelledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param message A description of the cancelled work
+     */
+    public CommandCancelledException(String message) {
+        super(message);
+    }
+}
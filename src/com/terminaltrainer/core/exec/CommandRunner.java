@@ -0,0 +1,122 @@
+package com.terminaltrainer.core.exec;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a session's command lines on a dedicated background thread, so that
+ * callers such as the Swing event dispatch thread never block on a command.
+ *
+ * Command lines of one session run strictly one after another, in the order
+ * they were submitted, because they share the current directory and history.
+ * Each one gets its own {@link ExecutionContext}, which {@link RunningCommand#cancel()}
+ * uses to stop it. A command line cancelled while still queued is dropped
+ * without running, as a terminal discards type-ahead on Ctrl+C.
+ *
+ * The runner uses one platform thread for the life of the session. Commands
+ * work on the in-memory file system and rarely block, so a virtual thread
+ * would save only that one thread's stack and would make no difference to
+ * how many commands can run.
+ */
+public class CommandRunner implements AutoCloseable {
+    private static final int CANCELLED_STATUS = 130;
+    private static final String EXECUTION_ERROR = "Error executing command: ";
+
+    private final TerminalSession session;
+    private final ExecutorService executor;
+    private final Set<RunningCommand> queued;
+    private volatile RunningCommand current;
+
+    /**
+     * Creates a new runner.
+     *
+     * @param session The session to run commands in
+     */
+    public CommandRunner(TerminalSession session) {
+        this.session = session;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "command-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queued = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Queues a command line for execution.
+     *
+     * @param commandLine The command line
+     * @param output Where to stream output and errors; finished with the exit status
+     * @return A handle for waiting on or cancelling the command
+     */
+    public RunningCommand submit(String commandLine, OutputSink output) {
+        ExecutionContext context = new ExecutionContext();
+        RunningCommand command = new RunningCommand(context);
+        queued.add(command);
+        executor.execute(context.wrap(() -> {
+            current = command;
+            queued.remove(command);
+            int status = 1;
+            try {
+                if (command.isCancelled()) {
+                    status = CANCELLED_STATUS;
+                    output.finish(status);
+                    return;
+                }
+                status = session.executeCommand(commandLine, output);
+            } catch (RuntimeException | Error e) {
+                // The command line never finished its output, so the caller would wait forever
+                try {
+                    output.writeError(EXECUTION_ERROR + e + "\n");
+                } catch (IOException ignored) {
+                    // Nobody is left to tell
+                }
+                output.finish(status);
+                throw e;
+            } finally {
+                current = null;
+                command.complete(status);
+            }
+        }));
+        return command;
+    }
+
+    /**
+     * Cancels the command that is currently running, if any, together with
+     * the command lines queued behind it.
+     *
+     * @return true if a command was running or queued
+     */
+    public boolean cancelCurrent() {
+        boolean cancelled = false;
+        for (RunningCommand command : queued) {
+            command.cancel();
+            cancelled = true;
+        }
+        RunningCommand command = current;
+        if (command != null) {
+            command.cancel();
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancels the running command and stops accepting new ones.
+     */
+    @Override
+    public void close() {
+        cancelCurrent();
+        executor.shutdownNow();
+        // Queued command lines will never run now, so nobody should wait for them
+        for (RunningCommand command : queued) {
+            command.complete(CANCELLED_STATUS);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.terminaltrainer.core.exec;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State shared by everything that runs on behalf of one command line:
+ * its cancellation flag and the use it has made of its {@link ResourceBudget}.
+ *
+ * The context is bound to the threads doing the work, so long-running code
+ * anywhere below the command (file system traversals, output sinks, pipes)
+ * can call {@link #checkCancelled()} on {@link #current()} without the
+ * context being passed through every method. Code running outside any
+ * command sees a context that is never cancelled and has no limits.
+ */
+public final class ExecutionContext {
+    private static final ThreadLocal<ExecutionContext> CURRENT = new ThreadLocal<>();
+    private static final ExecutionContext DETACHED = new ExecutionContext();
+
+    private final List<Runnable> cancellationListeners;
+    private final AtomicLong outputBytes;
+    private final AtomicLong nodesVisited;
+    private final AtomicLong nodesCreated;
+    private volatile boolean cancelled;
+    private volatile ResourceBudget budget;
+    private volatile long deadline;
+    private volatile BudgetExceededException budgetFailure;
+    // While paused, the deadline is off and the time that was left is kept here
+    private int pauses;
+    private long remainingWhilePaused;
+
+    /**
+     * Creates a new context that has not been cancelled and has no limits.
+     */
+    public ExecutionContext() {
+        this.cancellationListeners = new CopyOnWriteArrayList<>();
+        this.outputBytes = new AtomicLong();
+        this.nodesVisited = new AtomicLong();
+        this.nodesCreated = new AtomicLong();
+        this.cancelled = false;
+        this.budget = ResourceBudget.unlimited();
+    }
+
+    /**
+     * Gets the context bound to the calling thread.
+     *
+     * @return The bound context, or a context that is never cancelled if none is bound
+     */
+    public static ExecutionContext current() {
+        ExecutionContext context = CURRENT.get();
+        return context != null ? context : DETACHED;
+    }
+
+    /**
+     * Checks if this is the context seen by threads with no bound context.
+     *
+     * @return true if no command owns this context
+     */
+    public boolean isDetached() {
+        return this == DETACHED;
+    }
+
+    /**
+     * Binds a context to the calling thread.
+     *
+     * @param context The context to bind, or null to unbind
+     * @return The previously bound context, to be restored with {@link #restore}
+     */
+    public static ExecutionContext bind(ExecutionContext context) {
+        ExecutionContext previous = CURRENT.get();
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Restores the context that was bound before a call to {@link #bind}.
+     *
+     * @param previous The value returned by {@link #bind}
+     */
+    public static void restore(ExecutionContext previous) {
+        bind(previous);
+    }
+
+    /**
+     * Wraps a task so that it runs with this context bound.
+     *
+     * @param task The task
+     * @return A task that binds this context around the original one
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            ExecutionContext previous = bind(this);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Requests cancellation. Work that checks the context stops at its next
+     * check, and registered listeners are run so that blocked work can be
+     * woken up. Has no effect on the detached context.
+     */
+    public void cancel() {
+        if (this == DETACHED || cancelled) {
+            return;
+        }
+        cancelled = true;
+        for (Runnable listener : cancellationListeners) {
+            listener.run();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws if cancellation has been requested or the time limit has passed.
+     *
+     * @throws CommandCancelledException if the context has been cancelled
+     * @throws BudgetExceededException if the time limit has passed
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            BudgetExceededException failure = budgetFailure;
+            throw failure != null ? failure : new CommandCancelledException("Command cancelled");
+        }
+        long limit = deadline;
+        if (limit != 0 && System.nanoTime() - limit > 0) {
+            throw exceed(ResourceBudget.Resource.WALL_TIME);
+        }
+    }
+
+    /**
+     * Starts enforcing a budget, resetting the time and resources used so far.
+     * Has no effect on the detached context.
+     *
+     * @param budget The budget
+     */
+    public void startBudget(ResourceBudget budget) {
+        if (this == DETACHED) {
+            return;
+        }
+        this.budget = budget;
+        outputBytes.set(0);
+        nodesVisited.set(0);
+        nodesCreated.set(0);
+        long wallTime = budget.getWallTimeMillis();
+        long start = System.nanoTime();
+        synchronized (this) {
+            pauses = 0;
+            // Zero means no deadline, so a deadline landing on it is moved by a nanosecond
+            this.deadline = wallTime > 0 ? (start + wallTime * 1_000_000L) | 1 : 0;
+        }
+    }
+
+    /**
+     * Stops the time limit while the command waits for the user, as a
+     * pager does while it is being read. Each call must be matched by a
+     * call to {@link #resumeDeadline()}. Has no effect on the detached context.
+     */
+    public synchronized void pauseDeadline() {
+        if (this == DETACHED || pauses++ > 0) {
+            return;
+        }
+        long limit = deadline;
+        remainingWhilePaused = limit != 0 ? limit - System.nanoTime() : 0;
+        deadline = 0;
+    }
+
+    /**
+     * Restarts the time limit stopped by {@link #pauseDeadline()}, with the
+     * time that was left when it was stopped.
+     */
+    public synchronized void resumeDeadline() {
+        if (this == DETACHED || pauses == 0 || --pauses > 0) {
+            return;
+        }
+        if (remainingWhilePaused != 0) {
+            deadline = (System.nanoTime() + remainingWhilePaused) | 1;
+            remainingWhilePaused = 0;
+        }
+    }
+
+    /**
+     * Gets the budget failure that stopped this context's command, if any.
+     *
+     * @return The first limit that was exceeded, or null
+     */
+    public BudgetExceededException getBudgetFailure() {
+        return budgetFailure;
+    }
+
+    /**
+     * Charges file system nodes visited by a traversal, and checks for cancellation.
+     *
+     * @param count The number of nodes visited
+     * @throws CommandCancelledException if the context has been cancelled or a limit has been exceeded
+     */
+    public void chargeVisits(int count) {
+        charge(nodesVisited, count, ResourceBudget.Resource.NODES_VISITED);
+    }
+
+    /**
+     * Charges file system nodes created, and checks for cancellation.
+     *
+     * @param count The number of nodes created
+     * @throws CommandCancelledException if the context has been cancelled or a limit has been exceeded
+     */
+    public void chargeCreations(int count) {
+        charge(nodesCreated, count, ResourceBudget.Resource.NODES_CREATED);
+    }
+
+    /**
+     * Charges output by its UTF-8 encoded length, and checks for cancellation.
+     *
+     * @param chars The characters written
+     * @param offset The offset of the first character
+     * @param length The number of characters
+     * @throws CommandCancelledException if the context has been cancelled or a limit has been exceeded
+     */
+    public void chargeOutput(char[] chars, int offset, int length) {
+        if (this == DETACHED) {
+            return;
+        }
+        long bytes = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            bytes += utf8Length(chars[i]);
+        }
+        charge(outputBytes, bytes, ResourceBudget.Resource.OUTPUT_BYTES);
+    }
+
+    /**
+     * Charges output by its UTF-8 encoded length, and checks for cancellation.
+     *
+     * @param text The text written
+     * @param offset The offset of the first character
+     * @param length The number of characters
+     * @throws CommandCancelledException if the context has been cancelled or a limit has been exceeded
+     */
+    public void chargeOutput(CharSequence text, int offset, int length) {
+        if (this == DETACHED) {
+            return;
+        }
+        long bytes = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            bytes += utf8Length(text.charAt(i));
+        }
+        charge(outputBytes, bytes, ResourceBudget.Resource.OUTPUT_BYTES);
+    }
+
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800 || Character.isSurrogate(c)) {
+            // A surrogate pair encodes to four bytes, two for each half
+            return 2;
+        }
+        return 3;
+    }
+
+    private void charge(AtomicLong counter, long amount, ResourceBudget.Resource resource) {
+        if (this == DETACHED) {
+            return;
+        }
+        long limit = budget.getLimit(resource);
+        if (counter.addAndGet(amount) > limit && limit > 0) {
+            throw exceed(resource);
+        }
+        checkCancelled();
+    }
+
+    /**
+     * Records a budget failure and cancels the context, so that every stage
+     * of the command stops and not just the one that noticed.
+     */
+    private BudgetExceededException exceed(ResourceBudget.Resource resource) {
+        BudgetExceededException failure = new BudgetExceededException(resource, budget.getLimit(resource));
+        synchronized (this) {
+            if (budgetFailure == null) {
+                budgetFailure = failure;
+            }
+        }
+        cancel();
+        return budgetFailure;
+    }
+
+    /**
+     * Registers a listener that runs when the context is cancelled, or
+     * immediately if it already has been.
+     *
+     * @param listener The listener
+     */
+    public void addCancellationListener(Runnable listener) {
+        if (this == DETACHED) {
+            return;
+        }
+        cancellationListeners.add(listener);
+        if (cancelled && cancellationListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Removes a listener registered with {@link #addCancellationListener}.
+     *
+     * @param listener The listener
+     */
+    public void removeCancellationListener(Runnable listener) {
+        cancellationListeners.remove(listener);
+    }
+}
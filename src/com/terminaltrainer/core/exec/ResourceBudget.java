@@ -0,0 +1,148 @@
+package com.terminaltrainer.core.exec;
+
+/**
+ * Limits on the resources a single command line may use.
+ *
+ * Limits are enforced cooperatively: file system traversals, output sinks
+ * and redirections charge the {@link ExecutionContext} of the running
+ * command, which stops it with a {@link BudgetExceededException} once a
+ * limit is passed. A limit of zero or less means unlimited.
+ */
+public final class ResourceBudget {
+    /**
+     * The resources a budget limits.
+     */
+    public enum Resource {
+        WALL_TIME("time limit of %d ms"),
+        OUTPUT_BYTES("output limit of %d bytes"),
+        NODES_VISITED("limit of %d visited nodes"),
+        NODES_CREATED("limit of %d created nodes");
+
+        private final String description;
+
+        Resource(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Describes the limit on this resource.
+         *
+         * @param limit The limit
+         * @return A description such as "output limit of 1024 bytes"
+         */
+        public String describe(long limit) {
+            return String.format(description, limit);
+        }
+    }
+
+    /**
+     * Prefix of the system properties read by {@link #fromSystemProperties()}.
+     */
+    public static final String PROPERTY_PREFIX = "terminaltrainer.budget.";
+
+    private static final ResourceBudget UNLIMITED = new ResourceBudget(0, 0, 0, 0);
+
+    /**
+     * The budget used when no system property overrides it: generous enough
+     * for anything a lesson asks for, small enough that a runaway command
+     * cannot hold a worker for long.
+     */
+    public static final ResourceBudget DEFAULT = new ResourceBudget(30_000, 64L * 1024 * 1024, 5_000_000, 1_000_000);
+
+    private final long wallTimeMillis;
+    private final long outputBytes;
+    private final long nodesVisited;
+    private final long nodesCreated;
+
+    /**
+     * Creates a new budget.
+     *
+     * @param wallTimeMillis The longest a command line may run, in milliseconds
+     * @param outputBytes The most output a command line may write to the terminal or to files, in UTF-8 bytes
+     * @param nodesVisited The most file system nodes a command line may visit while traversing
+     * @param nodesCreated The most file system nodes a command line may create
+     */
+    public ResourceBudget(long wallTimeMillis, long outputBytes, long nodesVisited, long nodesCreated) {
+        this.wallTimeMillis = wallTimeMillis;
+        this.outputBytes = outputBytes;
+        this.nodesVisited = nodesVisited;
+        this.nodesCreated = nodesCreated;
+    }
+
+    /**
+     * Gets a budget without limits.
+     *
+     * @return The unlimited budget
+     */
+    public static ResourceBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Reads a budget from the system properties terminaltrainer.budget.wallTimeMillis,
+     * .outputBytes, .nodesVisited and .nodesCreated. Missing or malformed
+     * properties fall back to {@link #DEFAULT}.
+     *
+     * @return The configured budget
+     */
+    public static ResourceBudget fromSystemProperties() {
+        return new ResourceBudget(
+                readProperty("wallTimeMillis", DEFAULT.wallTimeMillis),
+                readProperty("outputBytes", DEFAULT.outputBytes),
+                readProperty("nodesVisited", DEFAULT.nodesVisited),
+                readProperty("nodesCreated", DEFAULT.nodesCreated));
+    }
+
+    private static long readProperty(String name, long defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets the limit on a resource.
+     *
+     * @param resource The resource
+     * @return The limit, or zero or less if unlimited
+     */
+    public long getLimit(Resource resource) {
+        switch (resource) {
+            case WALL_TIME:
+                return wallTimeMillis;
+            case OUTPUT_BYTES:
+                return outputBytes;
+            case NODES_VISITED:
+                return nodesVisited;
+            default:
+                return nodesCreated;
+        }
+    }
+
+    public long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public long getNodesCreated() {
+        return nodesCreated;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceBudget[wallTimeMillis=" + wallTimeMillis + ", outputBytes=" + outputBytes
+                + ", nodesVisited=" + nodesVisited + ", nodesCreated=" + nodesCreated + "]";
+    }
+}
@@ -0,0 +1,49 @@
+package com.terminaltrainer.core.exec;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A handle on a command line submitted to a {@link CommandRunner}.
+ */
+public final class RunningCommand {
+    private final ExecutionContext context;
+    private final CountDownLatch done;
+    private volatile int exitStatus;
+
+    RunningCommand(ExecutionContext context) {
+        this.context = context;
+        this.done = new CountDownLatch(1);
+    }
+
+    /**
+     * Requests cancellation. The command stops at its next cancellation
+     * check and finishes with exit status 130, as if interrupted by SIGINT.
+     */
+    public void cancel() {
+        context.cancel();
+    }
+
+    public boolean isCancelled() {
+        return context.isCancelled();
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Waits for the command to finish.
+     *
+     * @return The exit status
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public int await() throws InterruptedException {
+        done.await();
+        return exitStatus;
+    }
+
+    void complete(int status) {
+        this.exitStatus = status;
+        done.countDown();
+    }
+}
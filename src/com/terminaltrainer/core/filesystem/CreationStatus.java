@@ -0,0 +1,46 @@
+package com.terminaltrainer.core.filesystem;
+
+/**
+ * Outcome of creating a single path with one of the bulk creation methods
+ * of {@link VirtualFileSystem}.
+ */
+public enum CreationStatus {
+    /**
+     * The node was created.
+     */
+    CREATED,
+
+    /**
+     * A node with that name already exists.
+     */
+    EXISTS,
+
+    /**
+     * A directory was asked for, but a file with that name already exists.
+     */
+    FILE_EXISTS,
+
+    /**
+     * A component of the parent path is a file.
+     */
+    NOT_A_DIRECTORY,
+
+    /**
+     * A component of the parent path does not exist.
+     */
+    NO_SUCH_DIRECTORY,
+
+    /**
+     * The path has no name to create, such as "/" or "".
+     */
+    INVALID_PATH;
+
+    /**
+     * Checks if the path exists as requested after the operation.
+     *
+     * @return true if the node was created or already existed
+     */
+    public boolean exists() {
+        return this == CREATED || this == EXISTS;
+    }
+}
@@ -0,0 +1,182 @@
+package com.terminaltrainer.core.filesystem;
+
+import java.util.Arrays;
+
+/**
+ * The offsets where the lines of a text start, found only as far as they
+ * are needed.
+ *
+ * Nothing is scanned up front. Asking for a line scans just far enough to
+ * find it, and later requests carry on from there, so the first lines of a
+ * large text are found at once and the whole text is scanned at most once.
+ * A line is the text up to a line break; text after the last line break
+ * is a final line without one. The text may grow at the end, as a file does
+ * when it is appended to, and the lines already found are kept.
+ *
+ * Safe to use from several threads, such as the stages of a pipeline
+ * reading the same file.
+ */
+public final class LineIndex {
+    private String text;
+    // starts[0..found) are the line starts found so far; a start equal to
+    // the length of the text is where a line would begin if text followed
+    private int[] starts;
+    private int found;
+    private int scanned;
+
+    /**
+     * Creates an index of a text without scanning any of it.
+     *
+     * @param text The text
+     */
+    public LineIndex(String text) {
+        this.text = text;
+        this.starts = new int[64];
+        this.found = 1;
+    }
+
+    public synchronized String getText() {
+        return text;
+    }
+
+    /**
+     * Moves on to a longer version of the text, keeping what has been found.
+     *
+     * @param longer The new text, which must start with the current one
+     */
+    synchronized void extend(String longer) {
+        text = longer;
+    }
+
+    /**
+     * Checks if a text has a line, scanning only as far as that line.
+     *
+     * @param line The line number, from 0
+     * @return true if the text is longer than that many lines
+     */
+    public synchronized boolean hasLine(int line) {
+        if (line < 0) {
+            return false;
+        }
+        scanTo(line + 1);
+        return line < found && starts[line] < text.length();
+    }
+
+    /**
+     * Counts the lines, scanning the rest of the text the first time.
+     *
+     * @return The number of lines
+     */
+    public synchronized int getLineCount() {
+        scanTo(Integer.MAX_VALUE);
+        return starts[found - 1] < text.length() ? found : found - 1;
+    }
+
+    /**
+     * Gets where a line starts.
+     *
+     * @param line The line number, from 0
+     * @return The offset of its first character
+     * @throws IndexOutOfBoundsException if the text has no such line
+     */
+    public synchronized int getLineStart(int line) {
+        checkLine(line);
+        return starts[line];
+    }
+
+    /**
+     * Gets where a line ends, not counting its line break.
+     *
+     * @param line The line number, from 0
+     * @return The offset after its last character
+     * @throws IndexOutOfBoundsException if the text has no such line
+     */
+    public synchronized int getLineEnd(int line) {
+        checkLine(line);
+        // If the next line's start is still unknown after this, the line has no line break
+        scanTo(line + 2);
+        return line + 1 < found ? starts[line + 1] - 1 : text.length();
+    }
+
+    /**
+     * Finds the line an offset is on, scanning only as far as the offset.
+     *
+     * @param offset The offset, from 0 to the length of the text
+     * @return The line number; the offset of a line break is on the line it ends
+     */
+    public synchronized int getLineOf(int offset) {
+        if (offset < 0 || offset > text.length()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is outside the text");
+        }
+        while (scanned <= offset && scanned < text.length()) {
+            scanTo(found + 1);
+        }
+        int index = Arrays.binarySearch(starts, 0, found, offset);
+        int line = index >= 0 ? index : -index - 2;
+        // The end of a text ending in a line break is not a line of its own
+        return line > 0 && starts[line] == text.length() ? line - 1 : line;
+    }
+
+    /**
+     * Counts the line breaks, which is what wc -l counts. The first call
+     * scans the rest of the text; later ones cost nothing until the text grows.
+     *
+     * @return The number of line breaks
+     */
+    public synchronized int getLineBreakCount() {
+        scanTo(Integer.MAX_VALUE);
+        return found - 1;
+    }
+
+    /**
+     * Finds where the last lines of the text start, as tail shows them.
+     * Once the whole text has been scanned this is a lookup; before that,
+     * the text is searched backwards from its end, so the cost depends on
+     * the length of those lines and not of the text.
+     *
+     * @param lines The number of lines
+     * @return The offset where they start, 0 if the text has no more lines than that
+     */
+    public synchronized int getLastLinesStart(int lines) {
+        if (lines <= 0) {
+            return text.length();
+        }
+        if (scanned == text.length()) {
+            int count = getLineCount();
+            return lines >= count ? 0 : starts[count - lines];
+        }
+        // A line break at the very end belongs to the last line
+        int position = text.endsWith("\n") ? text.length() - 1 : text.length();
+        for (int i = 0; i < lines; i++) {
+            position = text.lastIndexOf('\n', position - 1);
+            if (position < 0) {
+                return 0;
+            }
+        }
+        return position + 1;
+    }
+
+    private void checkLine(int line) {
+        if (!hasLine(line)) {
+            throw new IndexOutOfBoundsException("Line " + line + " is past the end of the text");
+        }
+    }
+
+    /**
+     * Scans until the starts of the first {@code lines} lines are known or the text ends.
+     */
+    private void scanTo(int lines) {
+        while (found < lines && scanned < text.length()) {
+            int lineBreak = text.indexOf('\n', scanned);
+            if (lineBreak < 0) {
+                scanned = text.length();
+                return;
+            }
+            if (found == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[found++] = lineBreak + 1;
+            scanned = lineBreak + 1;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.terminaltrainer.core.filesystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Global index over the names of all nodes in a virtual file system.
+ * The index is attached to the root directory and kept up to date by
+ * {@link VirtualDirectory#addChild} and {@link VirtualDirectory#removeChild},
+ * so lookups never need a full walk of the tree.
+ *
+ * Distinct names are indexed by their trigrams. A fragment lookup intersects
+ * the posting lists of the fragment's trigrams, which touches only names that
+ * share those trigrams instead of every node in the tree.
+ *
+ * A fragment of one or two characters has no trigram of its own. Every name
+ * containing it either has a trigram containing it or is shorter than a
+ * trigram, so such lookups scan the distinct trigrams, which are far fewer
+ * than the names, and take the posting lists of those that match, plus a
+ * small set of the short names. When those lists hold more entries than
+ * there are distinct names, the names are scanned instead. A rare short
+ * fragment costs a scan of the trigrams, while a common one costs about as
+ * much as the distinct names, which its matches mostly are anyway.
+ */
+public class NameIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<String, Set<VirtualFileSystemNode>> nodesByName;
+    private final Map<String, Set<String>> namesByTrigram;
+    private final Set<String> shortNames;
+    private int nodeCount;
+
+    /**
+     * Creates a new, empty name index.
+     */
+    public NameIndex() {
+        this.nodesByName = new HashMap<>();
+        this.namesByTrigram = new HashMap<>();
+        this.shortNames = new HashSet<>();
+        this.nodeCount = 0;
+    }
+
+    /**
+     * Adds a node and all of its descendants to the index.
+     *
+     * @param node The root of the subtree to add
+     */
+    public void addSubtree(VirtualFileSystemNode node) {
+        add(node);
+        if (node.isDirectory()) {
+            for (VirtualFileSystemNode child : ((VirtualDirectory) node).getChildren()) {
+                addSubtree(child);
+            }
+        }
+    }
+
+    /**
+     * Removes a node and all of its descendants from the index.
+     *
+     * @param node The root of the subtree to remove
+     */
+    public void removeSubtree(VirtualFileSystemNode node) {
+        remove(node);
+        if (node.isDirectory()) {
+            for (VirtualFileSystemNode child : ((VirtualDirectory) node).getChildren()) {
+                removeSubtree(child);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry from the index.
+     */
+    public void clear() {
+        nodesByName.clear();
+        namesByTrigram.clear();
+        shortNames.clear();
+        nodeCount = 0;
+    }
+
+    /**
+     * Gets the number of indexed nodes.
+     *
+     * @return The number of nodes in the index
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * Finds all nodes whose name contains the given fragment.
+     *
+     * @param fragment The fragment to look for
+     * @param ignoreCase Whether to match regardless of case
+     * @return The matching nodes, in no particular order
+     */
+    public List<VirtualFileSystemNode> findByNameFragment(String fragment, boolean ignoreCase) {
+        List<VirtualFileSystemNode> result = new ArrayList<>();
+        if (fragment == null || fragment.isEmpty()) {
+            return result;
+        }
+
+        String needle = ignoreCase ? fragment.toLowerCase() : fragment;
+        for (String name : candidateNames(needle, ignoreCase)) {
+            String haystack = ignoreCase ? name.toLowerCase() : name;
+            if (haystack.contains(needle)) {
+                result.addAll(nodesByName.get(name));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds all nodes with exactly the given name.
+     *
+     * @param name The name to look for
+     * @return The matching nodes, in no particular order
+     */
+    public List<VirtualFileSystemNode> findByName(String name) {
+        Set<VirtualFileSystemNode> nodes = nodesByName.get(name);
+        if (nodes == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(nodes);
+    }
+
+    /**
+     * Gets the distinct names that may contain the given fragment.
+     *
+     * @param needle The fragment, already lower-cased if ignoring case
+     * @param ignoreCase Whether trigrams are looked up case-insensitively
+     * @return The candidate names
+     */
+    private Set<String> candidateNames(String needle, boolean ignoreCase) {
+        if (needle.length() < GRAM_LENGTH) {
+            return namesWithShortFragment(needle, ignoreCase);
+        }
+
+        Set<String> candidates = null;
+        for (String gram : trigrams(needle)) {
+            Set<String> postings = ignoreCase ? postingsIgnoreCase(gram) : namesByTrigram.get(gram);
+            if (postings == null || postings.isEmpty()) {
+                return Collections.emptySet();
+            }
+            if (candidates == null) {
+                candidates = new HashSet<>(postings);
+            } else {
+                candidates.retainAll(postings);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Gets the names that may contain a fragment shorter than a trigram: those
+     * with a trigram containing it, and those too short to have a trigram.
+     *
+     * @param needle The fragment, already lower-cased if ignoring case
+     * @param ignoreCase Whether trigrams are compared case-insensitively
+     * @return The candidate names
+     */
+    private Set<String> namesWithShortFragment(String needle, boolean ignoreCase) {
+        List<Set<String>> matching = new ArrayList<>();
+        long postings = shortNames.size();
+        for (Map.Entry<String, Set<String>> entry : namesByTrigram.entrySet()) {
+            String gram = ignoreCase ? entry.getKey().toLowerCase() : entry.getKey();
+            if (gram.contains(needle)) {
+                matching.add(entry.getValue());
+                postings += entry.getValue().size();
+            }
+        }
+        // A common fragment lists most names several times over; checking each name once is cheaper
+        if (postings >= nodesByName.size()) {
+            return nodesByName.keySet();
+        }
+
+        Set<String> candidates = new HashSet<>(shortNames);
+        for (Set<String> names : matching) {
+            candidates.addAll(names);
+        }
+        return candidates;
+    }
+
+    /**
+     * Gets the names containing any case variant of a lower-case trigram.
+     *
+     * @param gram The lower-case trigram
+     * @return The union of the matching posting lists
+     */
+    private Set<String> postingsIgnoreCase(String gram) {
+        Set<String> union = new HashSet<>();
+        int variants = 1 << gram.length();
+        for (int mask = 0; mask < variants; mask++) {
+            char[] chars = gram.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    chars[i] = Character.toUpperCase(chars[i]);
+                }
+            }
+            Set<String> postings = namesByTrigram.get(new String(chars));
+            if (postings != null) {
+                union.addAll(postings);
+            }
+        }
+        return union;
+    }
+
+    private void add(VirtualFileSystemNode node) {
+        String name = node.getName();
+        Set<VirtualFileSystemNode> nodes = nodesByName.get(name);
+        if (nodes == null) {
+            nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+            nodesByName.put(name, nodes);
+            if (name.length() < GRAM_LENGTH) {
+                shortNames.add(name);
+            }
+            for (String gram : trigrams(name)) {
+                namesByTrigram.computeIfAbsent(gram, key -> new HashSet<>()).add(name);
+            }
+        }
+        if (nodes.add(node)) {
+            nodeCount++;
+        }
+    }
+
+    private void remove(VirtualFileSystemNode node) {
+        String name = node.getName();
+        Set<VirtualFileSystemNode> nodes = nodesByName.get(name);
+        if (nodes == null || !nodes.remove(node)) {
+            return;
+        }
+
+        nodeCount--;
+        if (nodes.isEmpty()) {
+            nodesByName.remove(name);
+            shortNames.remove(name);
+            for (String gram : trigrams(name)) {
+                Set<String> postings = namesByTrigram.get(gram);
+                if (postings != null) {
+                    postings.remove(name);
+                    if (postings.isEmpty()) {
+                        namesByTrigram.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
@@ -2,15 +2,17 @@ package com.terminaltrainer.core.filesystem;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
 
 /**
  * Represents a directory in the virtual file system.
  */
 public class VirtualDirectory extends VirtualFileSystemNode {
-    private final Map<String, VirtualFileSystemNode> children;
+    private final NavigableMap<String, VirtualFileSystemNode> children;
+    private NameIndex nameIndex;
 
     /**
      * Creates a new virtual directory.
@@ -20,7 +22,7 @@ public class VirtualDirectory extends VirtualFileSystemNode {
      */
     public VirtualDirectory(String name, VirtualDirectory parent) {
         super(name, parent);
-        this.children = new HashMap<>();
+        this.children = new TreeMap<>();
     }
 
     /**
@@ -36,6 +38,11 @@ public class VirtualDirectory extends VirtualFileSystemNode {
         
         children.put(node.getName(), node);
         updateModificationTime();
+
+        NameIndex index = getNameIndex();
+        if (index != null) {
+            index.addSubtree(node);
+        }
         return true;
     }
 
@@ -52,6 +59,11 @@ public class VirtualDirectory extends VirtualFileSystemNode {
         
         VirtualFileSystemNode removed = children.remove(name);
         updateModificationTime();
+
+        NameIndex index = getNameIndex();
+        if (index != null) {
+            index.removeSubtree(removed);
+        }
         return removed;
     }
 
@@ -68,12 +80,95 @@ public class VirtualDirectory extends VirtualFileSystemNode {
     /**
      * Gets all child nodes.
      *
-     * @return A list of all child nodes
+     * @return A list of all child nodes, in name order
      */
     public List<VirtualFileSystemNode> getChildren() {
         return new ArrayList<>(children.values());
     }
 
+    /**
+     * Gets the names of the child nodes as a sorted, read-only view that
+     * follows later changes, for searches that navigate by name.
+     *
+     * @return The child names
+     */
+    public NavigableSet<String> getChildNames() {
+        return Collections.unmodifiableNavigableSet(children.navigableKeySet());
+    }
+
+    /**
+     * Gets the child nodes whose names start with the given prefix, in name order.
+     * Children are kept sorted, so only the matching range is visited.
+     *
+     * @param prefix The name prefix
+     * @return A list of the matching child nodes
+     */
+    public List<VirtualFileSystemNode> getChildrenWithPrefix(String prefix) {
+        return getChildrenWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the first child nodes whose names start with the given prefix, in name order.
+     *
+     * @param prefix The name prefix
+     * @param limit The maximum number of nodes to return
+     * @return A list of at most limit matching child nodes
+     */
+    public List<VirtualFileSystemNode> getChildrenWithPrefix(String prefix, int limit) {
+        List<VirtualFileSystemNode> matches = new ArrayList<>();
+        for (VirtualFileSystemNode node : childrenWithPrefix(prefix).values()) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            matches.add(node);
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the longest name prefix shared by all children whose names start
+     * with the given prefix. Since children are kept sorted, only the first
+     * and last matching names need to be compared.
+     *
+     * @param prefix The name prefix
+     * @return The shared prefix, or null if no child name starts with the prefix
+     */
+    public String getCommonChildPrefix(String prefix) {
+        NavigableMap<String, VirtualFileSystemNode> matches = childrenWithPrefix(prefix);
+        if (matches.isEmpty()) {
+            return null;
+        }
+
+        String first = matches.firstKey();
+        String last = matches.lastKey();
+        int length = 0;
+        int max = Math.min(first.length(), last.length());
+        while (length < max && first.charAt(length) == last.charAt(length)) {
+            length++;
+        }
+        return first.substring(0, length);
+    }
+
+    /**
+     * Gets a view of the children whose names start with the given prefix.
+     */
+    private NavigableMap<String, VirtualFileSystemNode> childrenWithPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return children;
+        }
+
+        // The names just past the range start with the prefix's last character incremented
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return children.tailMap(prefix, true);
+        }
+        String upperBound = prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+        return children.subMap(prefix, true, upperBound, false);
+    }
+
     /**
      * Gets all child files.
      *
@@ -136,10 +231,39 @@ public class VirtualDirectory extends VirtualFileSystemNode {
      * Clears all children from this directory.
      */
     public void clear() {
+        NameIndex index = getNameIndex();
+        if (index != null) {
+            for (VirtualFileSystemNode child : children.values()) {
+                index.removeSubtree(child);
+            }
+        }
         children.clear();
         updateModificationTime();
     }
 
+    /**
+     * Attaches a name index to this directory. Only the root of a file system
+     * carries an index; every directory below it reports changes to it.
+     *
+     * @param nameIndex The index to keep up to date, or null to detach
+     */
+    public void setNameIndex(NameIndex nameIndex) {
+        this.nameIndex = nameIndex;
+    }
+
+    /**
+     * Gets the name index of the tree this directory belongs to.
+     *
+     * @return The index attached to the root of this tree, or null if there is none
+     */
+    public NameIndex getNameIndex() {
+        VirtualDirectory current = this;
+        while (current.getParent() != null) {
+            current = current.getParent();
+        }
+        return current.nameIndex;
+    }
+
     @Override
     public boolean isDirectory() {
         return true;
@@ -2,9 +2,15 @@ package com.terminaltrainer.core.filesystem;
 
 /**
  * Represents a file in the virtual file system.
+ *
+ * The content is guarded by the file's lock, since the stages of a
+ * pipeline run concurrently and one may read a file while another
+ * appends to it through a redirection, as in {@code cat f | grep x >> f}.
  */
 public class VirtualFile extends VirtualFileSystemNode {
     private String content;
+    private StringBuilder pendingAppends;
+    private LineIndex lineIndex;
 
     /**
      * Creates a new virtual file.
@@ -34,32 +40,74 @@ public class VirtualFile extends VirtualFileSystemNode {
      *
      * @return The file content
      */
-    public String getContent() {
+    public synchronized String getContent() {
+        if (pendingAppends != null) {
+            content = content.concat(pendingAppends.toString());
+            pendingAppends = null;
+        }
         return content;
     }
 
+    /**
+     * Gets the index of the lines of the file. It is made the first time it
+     * is asked for and scans only as far as it is used. Appending to the
+     * file keeps the lines already found, and setting its content
+     * discards them.
+     *
+     * @return The index, whose text is the current content
+     */
+    public synchronized LineIndex getLineIndex() {
+        String current = getContent();
+        if (lineIndex == null) {
+            lineIndex = new LineIndex(current);
+        } else if (lineIndex.getText() != current) {
+            lineIndex.extend(current);
+        }
+        return lineIndex;
+    }
+
     /**
      * Sets the content of the file.
      *
      * @param content The new content
      */
-    public void setContent(String content) {
+    public synchronized void setContent(String content) {
         this.content = content != null ? content : "";
+        this.pendingAppends = null;
+        this.lineIndex = null;
         updateModificationTime();
     }
 
     /**
-     * Appends content to the file.
+     * Appends content to the file. Appends are buffered until the content is
+     * next read, so writing a file in many small chunks stays linear.
      *
      * @param additionalContent The content to append
      */
     public void appendContent(String additionalContent) {
         if (additionalContent != null) {
-            this.content += additionalContent;
-            updateModificationTime();
+            appendContent(additionalContent, 0, additionalContent.length());
         }
     }
 
+    /**
+     * Appends part of a character sequence to the file.
+     *
+     * @param source The characters to append from
+     * @param start The index of the first character to append
+     * @param end The index after the last character to append
+     */
+    public synchronized void appendContent(CharSequence source, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        if (pendingAppends == null) {
+            pendingAppends = new StringBuilder(Math.max(16, end - start));
+        }
+        pendingAppends.append(source, start, end);
+        updateModificationTime();
+    }
+
     @Override
     public boolean isDirectory() {
         return false;
@@ -71,8 +119,8 @@ public class VirtualFile extends VirtualFileSystemNode {
     }
 
     @Override
-    public long getSize() {
-        return content.length();
+    public synchronized long getSize() {
+        return content.length() + (pendingAppends != null ? pendingAppends.length() : 0);
     }
 
     @Override
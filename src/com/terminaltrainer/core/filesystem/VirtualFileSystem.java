@@ -1,15 +1,25 @@
 package com.terminaltrainer.core.filesystem;
 
+import com.terminaltrainer.core.exec.ExecutionContext;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages the virtual file system structure.
  * Provides methods for navigating the file system, creating and manipulating
  * files and directories, and resolving paths.
+ * Traversals and bulk operations charge the {@link ExecutionContext} of the
+ * running command, so they stop when it is cancelled or over budget.
  */
 public class VirtualFileSystem {
     private final VirtualDirectory root;
+    private final NameIndex nameIndex;
 
     /**
      * Creates a new virtual file system with a basic Linux-like structure.
@@ -17,6 +27,8 @@ public class VirtualFileSystem {
     public VirtualFileSystem() {
         // Create the root directory
         this.root = new VirtualDirectory("", null);
+        this.nameIndex = new NameIndex();
+        this.root.setNameIndex(nameIndex);
         
         // Create basic Linux directory structure
         VirtualDirectory bin = new VirtualDirectory("bin", root);
@@ -64,6 +76,106 @@ public class VirtualFileSystem {
         return root;
     }
 
+    /**
+     * Gets the name index covering every node below the root.
+     *
+     * @return The name index
+     */
+    public NameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Rebuilds the name index from scratch by walking the whole tree.
+     * The index is normally maintained incrementally, so this is only
+     * needed to recover from nodes that were modified behind its back.
+     *
+     * @return The number of nodes in the rebuilt index
+     */
+    public int rebuildNameIndex() {
+        nameIndex.clear();
+        for (VirtualFileSystemNode child : root.getChildren()) {
+            nameIndex.addSubtree(child);
+        }
+        return nameIndex.size();
+    }
+
+    /**
+     * Finds the paths of all nodes matching a fragment using the name index.
+     * Unless basenameOnly is set, a node matches when the fragment occurs
+     * anywhere in its absolute path, as with locate(1).
+     *
+     * @param fragment The fragment to look for
+     * @param basenameOnly Whether to match against node names only
+     * @param ignoreCase Whether to match regardless of case
+     * @return The sorted absolute paths of all matching nodes
+     */
+    public List<String> locate(String fragment, boolean basenameOnly, boolean ignoreCase) {
+        List<String> paths = new ArrayList<>();
+        if (fragment == null || fragment.isEmpty()) {
+            return paths;
+        }
+
+        if (basenameOnly) {
+            for (VirtualFileSystemNode node : nameIndex.findByNameFragment(fragment, ignoreCase)) {
+                paths.add(node.getPath());
+            }
+            Collections.sort(paths);
+            return paths;
+        }
+
+        // Any path containing the fragment contains its longest slash-free
+        // piece inside a single component, so nodes named like that piece and
+        // their descendants are the only candidates.
+        String piece = "";
+        for (String part : fragment.split("/")) {
+            if (part.length() > piece.length()) {
+                piece = part;
+            }
+        }
+
+        String needle = ignoreCase ? fragment.toLowerCase() : fragment;
+        ExecutionContext context = ExecutionContext.current();
+        Set<VirtualFileSystemNode> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<VirtualFileSystemNode> candidates = piece.isEmpty()
+                ? root.getChildren()
+                : nameIndex.findByNameFragment(piece, ignoreCase);
+        for (VirtualFileSystemNode candidate : candidates) {
+            collectMatches(candidate, needle, ignoreCase, context, seen, paths);
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    /**
+     * Adds the paths of a node and its descendants that contain the needle.
+     *
+     * @param node The node to start from
+     * @param needle The fragment, already lower-cased if ignoring case
+     * @param ignoreCase Whether to match regardless of case
+     * @param context The context to charge visited nodes to
+     * @param seen Nodes that were already visited through another candidate
+     * @param paths The list to add matching paths to
+     */
+    private void collectMatches(VirtualFileSystemNode node, String needle, boolean ignoreCase,
+                                ExecutionContext context, Set<VirtualFileSystemNode> seen, List<String> paths) {
+        if (!seen.add(node)) {
+            return;
+        }
+        context.chargeVisits(1);
+
+        String path = node.getPath();
+        if ((ignoreCase ? path.toLowerCase() : path).contains(needle)) {
+            paths.add(path);
+        }
+
+        if (node.isDirectory()) {
+            for (VirtualFileSystemNode child : ((VirtualDirectory) node).getChildren()) {
+                collectMatches(child, needle, ignoreCase, context, seen, paths);
+            }
+        }
+    }
+
     /**
      * Resolves a path to a file system node.
      *
@@ -136,7 +248,7 @@ public class VirtualFileSystem {
         
         // Traverse the path
         for (String component : components) {
-            if (component.isEmpty()) {
+            if (component.isEmpty() || component.equals(".")) {
                 continue;
             }
             
@@ -144,6 +256,13 @@ public class VirtualFileSystem {
                 return null; // Cannot traverse into a file
             }
             
+            if (component.equals("..")) {
+                if (current.getParent() != null) {
+                    current = current.getParent();
+                }
+                continue;
+            }
+            
             VirtualDirectory currentDir = (VirtualDirectory) current;
             current = currentDir.getChild(component);
             
@@ -226,6 +345,162 @@ public class VirtualFileSystem {
         return parentDir.addChild(newFile);
     }
 
+    /**
+     * Creates many directories in one pass. Resolved path prefixes are shared
+     * between all paths, so each distinct prefix is looked up only once no
+     * matter how many paths run through it or how deep they are.
+     *
+     * @param paths The paths of the directories to create
+     * @param currentDirectory The current directory (for relative paths)
+     * @param createParents Whether to create missing parent directories
+     * @return The outcome for each path, in the same order as the paths
+     */
+    public List<CreationStatus> createDirectories(List<String> paths, String currentDirectory, boolean createParents) {
+        return createAll(paths, currentDirectory, true, createParents);
+    }
+
+    /**
+     * Creates many empty files in one pass, sharing resolved parent
+     * directories between paths. Existing nodes have their modification
+     * time updated, as with touch(1).
+     *
+     * @param paths The paths of the files to create
+     * @param currentDirectory The current directory (for relative paths)
+     * @return The outcome for each path, in the same order as the paths
+     */
+    public List<CreationStatus> createFiles(List<String> paths, String currentDirectory) {
+        return createAll(paths, currentDirectory, false, false);
+    }
+
+    private List<CreationStatus> createAll(List<String> paths, String currentDirectory,
+                                           boolean directories, boolean createParents) {
+        List<CreationStatus> statuses = new ArrayList<>(paths.size());
+        ResolvedPrefix absoluteStart = new ResolvedPrefix(root, null);
+        ResolvedPrefix relativeStart = null;
+
+        ExecutionContext context = ExecutionContext.current();
+
+        for (String path : paths) {
+            context.checkCancelled();
+            List<String> components = new ArrayList<>();
+            if (path != null) {
+                for (String component : path.split("/")) {
+                    if (!component.isEmpty()) {
+                        components.add(component);
+                    }
+                }
+            }
+
+            if (components.isEmpty()) {
+                statuses.add(path != null && path.startsWith("/") ? CreationStatus.EXISTS : CreationStatus.INVALID_PATH);
+                continue;
+            }
+
+            ResolvedPrefix prefix;
+            if (path.startsWith("/")) {
+                prefix = absoluteStart;
+            } else {
+                if (relativeStart == null) {
+                    relativeStart = new ResolvedPrefix(resolvePath(".", currentDirectory), CreationStatus.NO_SUCH_DIRECTORY);
+                }
+                prefix = relativeStart;
+            }
+
+            // Walk the shared prefixes down to the parent directory
+            for (int i = 0; i < components.size() - 1; i++) {
+                prefix = prefix.descend(components.get(i), createParents);
+            }
+
+            if (prefix.node == null) {
+                statuses.add(prefix.failure);
+                continue;
+            }
+            if (!prefix.node.isDirectory()) {
+                statuses.add(CreationStatus.NOT_A_DIRECTORY);
+                continue;
+            }
+
+            VirtualDirectory parent = (VirtualDirectory) prefix.node;
+            String name = components.get(components.size() - 1);
+            VirtualFileSystemNode existing = name.equals(".") || name.equals("..")
+                    ? parent
+                    : parent.getChild(name);
+
+            if (existing != null) {
+                if (!directories) {
+                    existing.updateModificationTime();
+                    statuses.add(CreationStatus.EXISTS);
+                } else {
+                    // Even with -p, a file in the way is not the directory that was asked for
+                    statuses.add(existing.isDirectory() ? CreationStatus.EXISTS : CreationStatus.FILE_EXISTS);
+                }
+                continue;
+            }
+
+            VirtualFileSystemNode created = directories
+                    ? new VirtualDirectory(name, parent)
+                    : new VirtualFile(name, parent, "");
+            context.chargeCreations(1);
+            parent.addChild(created);
+            prefix.remember(name, created);
+            statuses.add(CreationStatus.CREATED);
+        }
+
+        return statuses;
+    }
+
+    /**
+     * A node reached while walking a path during bulk creation, together
+     * with the nodes already resolved below it.
+     */
+    private static final class ResolvedPrefix {
+        private final VirtualFileSystemNode node;
+        private final CreationStatus failure;
+        private final Map<String, ResolvedPrefix> children;
+
+        private ResolvedPrefix(VirtualFileSystemNode node, CreationStatus failure) {
+            this.node = node;
+            this.failure = failure;
+            this.children = new HashMap<>();
+        }
+
+        private ResolvedPrefix descend(String component, boolean createMissing) {
+            ResolvedPrefix next = children.get(component);
+            if (next != null) {
+                return next;
+            }
+
+            if (node == null) {
+                next = new ResolvedPrefix(null, failure);
+            } else if (!node.isDirectory()) {
+                next = new ResolvedPrefix(null, CreationStatus.NOT_A_DIRECTORY);
+            } else {
+                VirtualDirectory directory = (VirtualDirectory) node;
+                VirtualFileSystemNode child;
+                if (component.equals(".")) {
+                    child = directory;
+                } else if (component.equals("..")) {
+                    child = directory.getParent() != null ? directory.getParent() : directory;
+                } else {
+                    child = directory.getChild(component);
+                    if (child == null && createMissing) {
+                        ExecutionContext.current().chargeCreations(1);
+                        child = new VirtualDirectory(component, directory);
+                        directory.addChild(child);
+                    }
+                }
+                next = new ResolvedPrefix(child, child == null ? CreationStatus.NO_SUCH_DIRECTORY : null);
+            }
+
+            children.put(component, next);
+            return next;
+        }
+
+        private void remember(String component, VirtualFileSystemNode created) {
+            children.put(component, new ResolvedPrefix(created, null));
+        }
+    }
+
     /**
      * Deletes a file or directory at the specified path.
      *
@@ -439,6 +714,7 @@ public class VirtualFileSystem {
         }
         
         // Copy the node
+        ExecutionContext.current().chargeCreations(1);
         if (sourceNode.isFile()) {
             VirtualFile sourceFile = (VirtualFile) sourceNode;
             VirtualFile newFile = new VirtualFile(destName, destParent, sourceFile.getContent());
@@ -454,8 +730,11 @@ public class VirtualFileSystem {
             
             // If recursive, copy all children
             if (recursive) {
+                ExecutionContext context = ExecutionContext.current();
                 for (VirtualFileSystemNode child : sourceDir.getChildren()) {
+                    context.chargeVisits(1);
                     if (child.isFile()) {
+                        context.chargeCreations(1);
                         VirtualFile childFile = (VirtualFile) child;
                         VirtualFile newChildFile = new VirtualFile(child.getName(), newDir, childFile.getContent());
                         newDir.addChild(newChildFile);
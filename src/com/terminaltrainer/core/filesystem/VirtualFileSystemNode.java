@@ -112,6 +112,15 @@ public abstract class VirtualFileSystemNode {
         this.modificationTime = LocalDateTime.now();
     }
 
+    /**
+     * Sets the modification time, for example when restoring a saved session.
+     *
+     * @param modificationTime The new modification time
+     */
+    public void setModificationTime(LocalDateTime modificationTime) {
+        this.modificationTime = modificationTime;
+    }
+
     /**
      * Gets the owner of the node.
      *
@@ -175,10 +184,21 @@ public abstract class VirtualFileSystemNode {
      * @return The permissions string
      */
     public String getPermissionsString() {
+        return formatPermissions(permissions, isDirectory());
+    }
+
+    /**
+     * Formats permission bits as a string (e.g., "drwxr-xr-x").
+     *
+     * @param permissions The Unix-style permission bits
+     * @param directory Whether the node is a directory
+     * @return The permissions string
+     */
+    public static String formatPermissions(int permissions, boolean directory) {
         StringBuilder sb = new StringBuilder();
         
         // Is this a directory?
-        sb.append(isDirectory() ? 'd' : '-');
+        sb.append(directory ? 'd' : '-');
         
         // Owner permissions
         sb.append((permissions & 0400) != 0 ? 'r' : '-');
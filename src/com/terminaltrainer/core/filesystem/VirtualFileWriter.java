@@ -0,0 +1,51 @@
+package com.terminaltrainer.core.filesystem;
+
+import com.terminaltrainer.core.exec.ExecutionContext;
+
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * A writer that appends directly to the content of a virtual file.
+ * Used for output redirection, so command output is streamed into the file
+ * instead of being collected in memory first. Written text counts against
+ * the output budget of the command doing the writing.
+ */
+public class VirtualFileWriter extends Writer {
+    private final VirtualFile file;
+
+    /**
+     * Creates a writer for a file.
+     *
+     * @param file The file to write to
+     * @param append Whether to keep the existing content; if false the file is truncated
+     */
+    public VirtualFileWriter(VirtualFile file, boolean append) {
+        this.file = file;
+        if (!append) {
+            file.setContent("");
+        }
+    }
+
+    @Override
+    public void write(char[] source, int offset, int length) {
+        ExecutionContext.current().chargeOutput(source, offset, length);
+        file.appendContent(CharBuffer.wrap(source), offset, offset + length);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) {
+        ExecutionContext.current().chargeOutput(text, offset, length);
+        file.appendContent(text, offset, offset + length);
+    }
+
+    @Override
+    public void flush() {
+        // Content is appended to the file as it is written
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
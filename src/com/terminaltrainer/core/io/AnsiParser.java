@@ -0,0 +1,333 @@
+package com.terminaltrainer.core.io;
+
+import java.io.IOException;
+
+/**
+ * Splits a stream of text containing ANSI escape sequences into runs of
+ * plain text, each with the {@link AnsiStyle} that applies to it.
+ *
+ * The parser is a state machine in the style of the DEC VT500 parser: each
+ * character is classified through a lookup table, and a second table gives
+ * the action and next state for each state and class. The state lives in
+ * the parser, so a sequence split across chunks is picked up where the
+ * last chunk left it. SGR sequences (ESC [ ... m) change the style; other
+ * control sequences, and OSC strings such as window titles, are dropped.
+ * Other control characters, like newlines and tabs, are passed on as text.
+ *
+ * Parsing allocates nothing: text runs are reported as ranges of the
+ * caller's array. A parser is not thread safe; use one per stream.
+ */
+public final class AnsiParser {
+
+    /**
+     * Receives the text runs found by a parser.
+     */
+    public interface Handler {
+
+        /**
+         * Called for each run of text in one style. The characters are only
+         * valid during the call.
+         *
+         * @param chars The array holding the text
+         * @param offset The index of the first character
+         * @param length The number of characters, at least 1
+         * @param style The {@link AnsiStyle} of the text
+         * @throws IOException if the text cannot be passed on
+         */
+        void text(char[] chars, int offset, int length, int style) throws IOException;
+    }
+
+    // States
+    private static final int GROUND = 0;
+    private static final int ESCAPE = 1;
+    private static final int ESCAPE_INTERMEDIATE = 2;
+    private static final int CSI_PARAM = 3;
+    private static final int CSI_IGNORE = 4;
+    private static final int OSC_STRING = 5;
+    private static final int OSC_ESCAPE = 6;
+    private static final int STATE_COUNT = 7;
+
+    // Character classes
+    private static final int PRINTABLE = 0;
+    private static final int CONTROL = 1;
+    private static final int ESC = 2;
+    private static final int BELL = 3;
+    private static final int DIGIT = 4;
+    private static final int SEPARATOR = 5;
+    private static final int INTERMEDIATE = 6;
+    private static final int PRIVATE_MARKER = 7;
+    private static final int OPEN_BRACKET = 8;
+    private static final int CLOSE_BRACKET = 9;
+    private static final int BACKSLASH = 10;
+    private static final int FINAL = 11;
+    private static final int CLASS_COUNT = 12;
+
+    // Actions
+    private static final int PRINT = 0;
+    private static final int EXECUTE = 1;
+    private static final int IGNORE = 2;
+    private static final int CLEAR = 3;
+    private static final int PARAM = 4;
+    private static final int NEXT_PARAM = 5;
+    private static final int DISPATCH = 6;
+
+    private static final int STATE_BITS = 3;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+
+    private static final int MAX_PARAMS = 16;
+    private static final int MAX_PARAM_VALUE = 9999;
+
+    private static final byte[] CLASSES = new byte[128];
+    private static final byte[] TRANSITIONS = new byte[STATE_COUNT * CLASS_COUNT];
+
+    static {
+        for (int c = 0; c < CLASSES.length; c++) {
+            CLASSES[c] = (byte) classify((char) c);
+        }
+
+        // Unless listed below, characters end a sequence and are dropped
+        for (int state = 0; state < STATE_COUNT; state++) {
+            for (int charClass = 0; charClass < CLASS_COUNT; charClass++) {
+                on(state, charClass, IGNORE, GROUND);
+            }
+            // Control characters take effect inside a sequence without ending it,
+            // and ESC starts a new sequence from anywhere
+            on(state, CONTROL, EXECUTE, state);
+            on(state, BELL, EXECUTE, state);
+            on(state, ESC, CLEAR, ESCAPE);
+        }
+
+        for (int charClass = 0; charClass < CLASS_COUNT; charClass++) {
+            on(GROUND, charClass, PRINT, GROUND);
+        }
+        on(GROUND, ESC, CLEAR, ESCAPE);
+
+        on(ESCAPE, OPEN_BRACKET, CLEAR, CSI_PARAM);
+        on(ESCAPE, CLOSE_BRACKET, IGNORE, OSC_STRING);
+        on(ESCAPE, INTERMEDIATE, IGNORE, ESCAPE_INTERMEDIATE);
+        on(ESCAPE_INTERMEDIATE, INTERMEDIATE, IGNORE, ESCAPE_INTERMEDIATE);
+
+        on(CSI_PARAM, DIGIT, PARAM, CSI_PARAM);
+        on(CSI_PARAM, SEPARATOR, NEXT_PARAM, CSI_PARAM);
+        on(CSI_PARAM, PRIVATE_MARKER, IGNORE, CSI_IGNORE);
+        on(CSI_PARAM, INTERMEDIATE, IGNORE, CSI_IGNORE);
+        for (int charClass : new int[] {FINAL, OPEN_BRACKET, CLOSE_BRACKET, BACKSLASH}) {
+            on(CSI_PARAM, charClass, DISPATCH, GROUND);
+        }
+        for (int charClass : new int[] {DIGIT, SEPARATOR, INTERMEDIATE, PRIVATE_MARKER}) {
+            on(CSI_IGNORE, charClass, IGNORE, CSI_IGNORE);
+        }
+
+        // An OSC string runs to BEL or to ESC \
+        for (int charClass = 0; charClass < CLASS_COUNT; charClass++) {
+            on(OSC_STRING, charClass, IGNORE, OSC_STRING);
+        }
+        on(OSC_STRING, BELL, IGNORE, GROUND);
+        on(OSC_STRING, ESC, IGNORE, OSC_ESCAPE);
+        for (int charClass = 0; charClass < CLASS_COUNT; charClass++) {
+            TRANSITIONS[OSC_ESCAPE * CLASS_COUNT + charClass] = TRANSITIONS[ESCAPE * CLASS_COUNT + charClass];
+        }
+        on(OSC_ESCAPE, BACKSLASH, IGNORE, GROUND);
+    }
+
+    private static int classify(char c) {
+        if (c == 0x1b) {
+            return ESC;
+        }
+        if (c == 0x07) {
+            return BELL;
+        }
+        if (c < 0x20 || c == 0x7f) {
+            return CONTROL;
+        }
+        if (c >= '0' && c <= '9') {
+            return DIGIT;
+        }
+        if (c == ';' || c == ':') {
+            return SEPARATOR;
+        }
+        if (c < 0x30) {
+            return INTERMEDIATE;
+        }
+        if (c < 0x40) {
+            return PRIVATE_MARKER;
+        }
+        if (c == '[') {
+            return OPEN_BRACKET;
+        }
+        if (c == ']') {
+            return CLOSE_BRACKET;
+        }
+        if (c == '\\') {
+            return BACKSLASH;
+        }
+        return FINAL;
+    }
+
+    private static void on(int state, int charClass, int action, int next) {
+        TRANSITIONS[state * CLASS_COUNT + charClass] = (byte) (action << STATE_BITS | next);
+    }
+
+    private final Handler handler;
+    private final int[] params = new int[MAX_PARAMS];
+    private int paramCount;
+    private int state = GROUND;
+    private int style = AnsiStyle.DEFAULT;
+
+    /**
+     * Creates a parser in the ground state with the default style.
+     *
+     * @param handler Receives the text runs
+     */
+    public AnsiParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Parses a chunk of text, passing its text runs to the handler.
+     *
+     * @param chars The characters to parse from
+     * @param offset The index of the first character
+     * @param length The number of characters
+     * @throws IOException if the handler fails
+     */
+    public void parse(char[] chars, int offset, int length) throws IOException {
+        int end = offset + length;
+        int runStart = offset;
+        int current = state;
+
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            if (current == GROUND && c >= 0x20 && c != 0x7f) {
+                continue;
+            }
+
+            int transition = TRANSITIONS[current * CLASS_COUNT + (c < 0x80 ? CLASSES[c] : PRINTABLE)];
+            int action = transition >>> STATE_BITS;
+            int next = transition & STATE_MASK;
+            if (action == PRINT) {
+                current = next;
+                continue;
+            }
+
+            if (i > runStart && current == GROUND) {
+                handler.text(chars, runStart, i - runStart, style);
+            }
+            runStart = i + 1;
+
+            switch (action) {
+                case EXECUTE:
+                    handler.text(chars, i, 1, style);
+                    break;
+                case CLEAR:
+                    paramCount = 0;
+                    params[0] = 0;
+                    break;
+                case PARAM:
+                    if (paramCount == 0) {
+                        paramCount = 1;
+                    }
+                    int value = params[paramCount - 1] * 10 + (c - '0');
+                    params[paramCount - 1] = Math.min(value, MAX_PARAM_VALUE);
+                    break;
+                case NEXT_PARAM:
+                    if (paramCount == 0) {
+                        paramCount = 1;
+                    }
+                    if (paramCount < MAX_PARAMS) {
+                        params[paramCount++] = 0;
+                    }
+                    break;
+                case DISPATCH:
+                    if (c == 'm') {
+                        style = applySgr(style, params, paramCount);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            current = next;
+        }
+
+        if (end > runStart && current == GROUND) {
+            handler.text(chars, runStart, end - runStart, style);
+        }
+        state = current;
+    }
+
+    /**
+     * Gets the style that the next text will have.
+     *
+     * @return The {@link AnsiStyle}
+     */
+    public int getStyle() {
+        return style;
+    }
+
+    /**
+     * Returns to plain text, dropping any sequence that has not ended.
+     */
+    public void reset() {
+        state = GROUND;
+        paramCount = 0;
+        style = AnsiStyle.DEFAULT;
+    }
+
+    /**
+     * Applies the parameters of an SGR sequence to a style.
+     */
+    private static int applySgr(int style, int[] params, int count) {
+        if (count == 0) {
+            return AnsiStyle.DEFAULT;
+        }
+        for (int i = 0; i < count; i++) {
+            int param = params[i];
+            if (param == 0) {
+                style = AnsiStyle.DEFAULT;
+            } else if (param == 1) {
+                style = AnsiStyle.withBold(style, true);
+            } else if (param == 3) {
+                style = AnsiStyle.withItalic(style, true);
+            } else if (param == 4) {
+                style = AnsiStyle.withUnderline(style, true);
+            } else if (param == 7) {
+                style = AnsiStyle.withInverse(style, true);
+            } else if (param == 22) {
+                style = AnsiStyle.withBold(style, false);
+            } else if (param == 23) {
+                style = AnsiStyle.withItalic(style, false);
+            } else if (param == 24) {
+                style = AnsiStyle.withUnderline(style, false);
+            } else if (param == 27) {
+                style = AnsiStyle.withInverse(style, false);
+            } else if (param >= 30 && param <= 37) {
+                style = AnsiStyle.withForeground(style, param - 30);
+            } else if (param == 39) {
+                style = AnsiStyle.withForeground(style, AnsiStyle.DEFAULT_COLOR);
+            } else if (param >= 40 && param <= 47) {
+                style = AnsiStyle.withBackground(style, param - 40);
+            } else if (param == 49) {
+                style = AnsiStyle.withBackground(style, AnsiStyle.DEFAULT_COLOR);
+            } else if (param >= 90 && param <= 97) {
+                style = AnsiStyle.withForeground(style, param - 90 + 8);
+            } else if (param >= 100 && param <= 107) {
+                style = AnsiStyle.withBackground(style, param - 100 + 8);
+            } else if (param == 38 || param == 48) {
+                // 38;5;N picks a palette color, 38;2;R;G;B the nearest one to an RGB color
+                int color = -1;
+                if (i + 2 < count && params[i + 1] == 5) {
+                    color = Math.min(params[i + 2], 255);
+                    i += 2;
+                } else if (i + 4 < count && params[i + 1] == 2) {
+                    color = AnsiStyle.nearestColor(Math.min(params[i + 2], 255),
+                            Math.min(params[i + 3], 255), Math.min(params[i + 4], 255));
+                    i += 4;
+                } else {
+                    break;
+                }
+                style = param == 38 ? AnsiStyle.withForeground(style, color) : AnsiStyle.withBackground(style, color);
+            }
+        }
+        return style;
+    }
+}
@@ -0,0 +1,217 @@
+package com.terminaltrainer.core.io;
+
+/**
+ * Text attributes set by ANSI SGR sequences, packed into an int so that
+ * style runs can be passed around without allocating.
+ *
+ * Colors are indexes into the 256-color xterm palette, or
+ * {@link #DEFAULT_COLOR} for whatever the front-end uses by default. The
+ * value 0 ({@link #DEFAULT}) is plain text, so a zeroed int is a valid style.
+ * The same codes are used for every front-end; {@link #rgb(int)} gives the
+ * palette colors for those that draw their own text.
+ */
+public final class AnsiStyle {
+    /**
+     * Plain text in the front-end's default colors.
+     */
+    public static final int DEFAULT = 0;
+
+    /**
+     * Returned by {@link #getForeground(int)} and {@link #getBackground(int)} for the default color.
+     */
+    public static final int DEFAULT_COLOR = -1;
+
+    public static final int BLACK = 0;
+    public static final int RED = 1;
+    public static final int GREEN = 2;
+    public static final int YELLOW = 3;
+    public static final int BLUE = 4;
+    public static final int MAGENTA = 5;
+    public static final int CYAN = 6;
+    public static final int WHITE = 7;
+
+    // Colors are stored plus one, so 0 means the default
+    private static final int COLOR_BITS = 9;
+    private static final int COLOR_MASK = (1 << COLOR_BITS) - 1;
+    private static final int BACKGROUND_SHIFT = COLOR_BITS;
+    private static final int BOLD = 1 << 2 * COLOR_BITS;
+    private static final int ITALIC = BOLD << 1;
+    private static final int UNDERLINE = BOLD << 2;
+    private static final int INVERSE = BOLD << 3;
+
+    private static final int[] BASIC_COLORS = {
+        0x000000, 0xcd0000, 0x00cd00, 0xcdcd00, 0x0000ee, 0xcd00cd, 0x00cdcd, 0xe5e5e5,
+        0x7f7f7f, 0xff0000, 0x00ff00, 0xffff00, 0x5c5cff, 0xff00ff, 0x00ffff, 0xffffff
+    };
+    private static final int[] CUBE_LEVELS = {0x00, 0x5f, 0x87, 0xaf, 0xd7, 0xff};
+
+    private AnsiStyle() {
+    }
+
+    /**
+     * Gets the foreground color of a style.
+     *
+     * @param style The style
+     * @return The palette index, or {@link #DEFAULT_COLOR}
+     */
+    public static int getForeground(int style) {
+        return (style & COLOR_MASK) - 1;
+    }
+
+    /**
+     * Gets the background color of a style.
+     *
+     * @param style The style
+     * @return The palette index, or {@link #DEFAULT_COLOR}
+     */
+    public static int getBackground(int style) {
+        return (style >>> BACKGROUND_SHIFT & COLOR_MASK) - 1;
+    }
+
+    public static boolean isBold(int style) {
+        return (style & BOLD) != 0;
+    }
+
+    public static boolean isItalic(int style) {
+        return (style & ITALIC) != 0;
+    }
+
+    public static boolean isUnderline(int style) {
+        return (style & UNDERLINE) != 0;
+    }
+
+    public static boolean isInverse(int style) {
+        return (style & INVERSE) != 0;
+    }
+
+    /**
+     * Sets the foreground color of a style.
+     *
+     * @param style The style
+     * @param color The palette index, or {@link #DEFAULT_COLOR}
+     * @return The changed style
+     */
+    public static int withForeground(int style, int color) {
+        return style & ~COLOR_MASK | color + 1 & COLOR_MASK;
+    }
+
+    /**
+     * Sets the background color of a style.
+     *
+     * @param style The style
+     * @param color The palette index, or {@link #DEFAULT_COLOR}
+     * @return The changed style
+     */
+    public static int withBackground(int style, int color) {
+        return style & ~(COLOR_MASK << BACKGROUND_SHIFT) | (color + 1 & COLOR_MASK) << BACKGROUND_SHIFT;
+    }
+
+    public static int withBold(int style, boolean bold) {
+        return bold ? style | BOLD : style & ~BOLD;
+    }
+
+    public static int withItalic(int style, boolean italic) {
+        return italic ? style | ITALIC : style & ~ITALIC;
+    }
+
+    public static int withUnderline(int style, boolean underline) {
+        return underline ? style | UNDERLINE : style & ~UNDERLINE;
+    }
+
+    public static int withInverse(int style, boolean inverse) {
+        return inverse ? style | INVERSE : style & ~INVERSE;
+    }
+
+    /**
+     * Gets the RGB value of a palette color, as xterm shows it.
+     *
+     * @param color The palette index, 0 to 255
+     * @return The color as 0xRRGGBB
+     */
+    public static int rgb(int color) {
+        if (color < 16) {
+            return BASIC_COLORS[color];
+        }
+        if (color < 232) {
+            int cube = color - 16;
+            return CUBE_LEVELS[cube / 36] << 16 | CUBE_LEVELS[cube / 6 % 6] << 8 | CUBE_LEVELS[cube % 6];
+        }
+        int grey = 8 + (color - 232) * 10;
+        return grey << 16 | grey << 8 | grey;
+    }
+
+    /**
+     * Finds the palette color of the 6x6x6 cube closest to an RGB color.
+     *
+     * @param red The red component, 0 to 255
+     * @param green The green component, 0 to 255
+     * @param blue The blue component, 0 to 255
+     * @return The palette index
+     */
+    public static int nearestColor(int red, int green, int blue) {
+        return 16 + 36 * nearestLevel(red) + 6 * nearestLevel(green) + nearestLevel(blue);
+    }
+
+    private static int nearestLevel(int component) {
+        int best = 0;
+        for (int i = 1; i < CUBE_LEVELS.length; i++) {
+            if (Math.abs(CUBE_LEVELS[i] - component) < Math.abs(CUBE_LEVELS[best] - component)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the SGR sequence that switches a terminal from any style to this one.
+     *
+     * @param style The style
+     * @param out Where to append the sequence
+     */
+    public static void appendSgr(int style, StringBuilder out) {
+        out.append("\033[0");
+        if (isBold(style)) {
+            out.append(";1");
+        }
+        if (isItalic(style)) {
+            out.append(";3");
+        }
+        if (isUnderline(style)) {
+            out.append(";4");
+        }
+        if (isInverse(style)) {
+            out.append(";7");
+        }
+        appendColor(getForeground(style), 30, out);
+        appendColor(getBackground(style), 40, out);
+        out.append('m');
+    }
+
+    private static void appendColor(int color, int base, StringBuilder out) {
+        if (color == DEFAULT_COLOR) {
+            return;
+        }
+        out.append(';');
+        if (color < 8) {
+            out.append(base + color);
+        } else if (color < 16) {
+            out.append(base + 60 + color - 8);
+        } else {
+            out.append(base + 8).append(";5;").append(color);
+        }
+    }
+
+    /**
+     * Wraps text in the sequences that show it in a style and then return
+     * to the default, for commands writing colored output.
+     *
+     * @param text The text
+     * @param style The style
+     * @return The text with escape sequences around it
+     */
+    public static String paint(String text, int style) {
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        appendSgr(style, out);
+        return out.append(text).append("\033[0m").toString();
+    }
+}
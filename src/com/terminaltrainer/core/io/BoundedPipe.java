@@ -0,0 +1,163 @@
+package com.terminaltrainer.core.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * A fixed-capacity character pipe connecting two pipeline stages.
+ *
+ * The writer blocks while the buffer is full and the reader blocks while it
+ * is empty, so a fast producer never runs more than one buffer ahead of its
+ * consumer. Closing the writer signals end of input once the buffer drains;
+ * closing the reader makes further writes fail with a broken pipe error so
+ * that the producer can stop early.
+ */
+public class BoundedPipe {
+    /**
+     * The default buffer capacity, in characters.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final char[] buffer;
+    private int readIndex;
+    private int count;
+    private boolean writerClosed;
+    private boolean readerClosed;
+
+    private final Reader reader;
+    private final Writer writer;
+
+    /**
+     * Creates a new pipe with the default capacity.
+     */
+    public BoundedPipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new pipe.
+     *
+     * @param capacity The buffer capacity, in characters
+     */
+    public BoundedPipe(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.buffer = new char[capacity];
+        this.reader = new PipeReader();
+        this.writer = new PipeWriter();
+    }
+
+    /**
+     * Gets the reading end of the pipe.
+     *
+     * @return The reader
+     */
+    public Reader getReader() {
+        return reader;
+    }
+
+    /**
+     * Gets the writing end of the pipe.
+     *
+     * @return The writer
+     */
+    public Writer getWriter() {
+        return writer;
+    }
+
+    private synchronized void write(char[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            while (count == buffer.length && !readerClosed) {
+                awaitChange();
+            }
+            if (readerClosed) {
+                throw new IOException("Broken pipe");
+            }
+            if (writerClosed) {
+                throw new IOException("Pipe closed");
+            }
+
+            int writeIndex = (readIndex + count) % buffer.length;
+            int chunk = Math.min(length, Math.min(buffer.length - count, buffer.length - writeIndex));
+            System.arraycopy(source, offset, buffer, writeIndex, chunk);
+            count += chunk;
+            offset += chunk;
+            length -= chunk;
+            notifyAll();
+        }
+    }
+
+    private synchronized int read(char[] target, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (count == 0 && !writerClosed && !readerClosed) {
+            awaitChange();
+        }
+        if (readerClosed) {
+            throw new IOException("Pipe closed");
+        }
+        if (count == 0) {
+            return -1;
+        }
+
+        int chunk = Math.min(length, Math.min(count, buffer.length - readIndex));
+        System.arraycopy(buffer, readIndex, target, offset, chunk);
+        readIndex = (readIndex + chunk) % buffer.length;
+        count -= chunk;
+        notifyAll();
+        return chunk;
+    }
+
+    private synchronized void closeWriter() {
+        writerClosed = true;
+        notifyAll();
+    }
+
+    private synchronized void closeReader() {
+        readerClosed = true;
+        count = 0;
+        notifyAll();
+    }
+
+    private void awaitChange() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on pipe");
+        }
+    }
+
+    private final class PipeReader extends Reader {
+        @Override
+        public int read(char[] target, int offset, int length) throws IOException {
+            return BoundedPipe.this.read(target, offset, length);
+        }
+
+        @Override
+        public void close() {
+            closeReader();
+        }
+    }
+
+    private final class PipeWriter extends Writer {
+        @Override
+        public void write(char[] source, int offset, int length) throws IOException {
+            BoundedPipe.this.write(source, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            // Written characters are visible to the reader immediately
+        }
+
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    }
+}
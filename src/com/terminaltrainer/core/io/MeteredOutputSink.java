@@ -0,0 +1,83 @@
+package com.terminaltrainer.core.io;
+
+import com.terminaltrainer.core.exec.ExecutionContext;
+
+import java.io.IOException;
+
+/**
+ * An output sink that charges everything written through it to the output
+ * budget of an {@link ExecutionContext} before passing it on.
+ * {@link #finish(int)} is not forwarded, since the caller that created
+ * the meter finishes the sink it wraps itself.
+ */
+public class MeteredOutputSink implements OutputSink {
+    private final OutputSink target;
+    private final ExecutionContext context;
+    private volatile char lastChar = '\n';
+
+    /**
+     * Creates a new sink.
+     *
+     * @param target The sink to pass output on to
+     * @param context The context to charge
+     */
+    public MeteredOutputSink(OutputSink target, ExecutionContext context) {
+        this.target = target;
+        this.context = context;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        context.chargeOutput(chars, offset, length);
+        target.write(chars, offset, length);
+        if (length > 0) {
+            lastChar = chars[offset + length - 1];
+        }
+    }
+
+    @Override
+    public void writeError(char[] chars, int offset, int length) throws IOException {
+        context.chargeOutput(chars, offset, length);
+        target.writeError(chars, offset, length);
+        if (length > 0) {
+            lastChar = chars[offset + length - 1];
+        }
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        context.chargeOutput(text, 0, text.length());
+        target.write(text);
+        if (!text.isEmpty()) {
+            lastChar = text.charAt(text.length() - 1);
+        }
+    }
+
+    @Override
+    public void writeError(String text) throws IOException {
+        context.chargeOutput(text, 0, text.length());
+        target.writeError(text);
+        if (!text.isEmpty()) {
+            lastChar = text.charAt(text.length() - 1);
+        }
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return target.isTerminal();
+    }
+
+    @Override
+    public Pager getPager() {
+        return target.getPager();
+    }
+
+    /**
+     * Checks if the last text passed on did not end with a line break.
+     *
+     * @return true if the output stopped in the middle of a line
+     */
+    public boolean endsMidLine() {
+        return lastChar != '\n';
+    }
+}
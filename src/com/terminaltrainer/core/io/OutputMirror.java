@@ -0,0 +1,441 @@
+package com.terminaltrainer.core.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A copy of everything a session shows, prompts and command lines included,
+ * for read-only viewers to follow as it happens.
+ *
+ * The stream is plain terminal text with ANSI SGR sequences, and
+ * standard error is shown in red. Every character has a sequence number,
+ * its position in the stream, so a viewer can tell that a delta carries
+ * on exactly where the last one ended. The last characters of the stream
+ * are kept so that a viewer joining late, or one that fell behind, can
+ * start again from a keyframe instead of from the beginning.
+ *
+ * Publishing never blocks on a viewer. It copies the text into the tail and
+ * into the pending text of each viewer, and a viewer that leaves more than
+ * its limit unread loses its pending text and gets a keyframe next instead.
+ * So a slow or stuck viewer costs the session at most one bounded buffer,
+ * and never holds it up. All methods are safe to call from any thread.
+ */
+public final class OutputMirror {
+    /**
+     * How many characters of the stream a keyframe holds by default.
+     */
+    public static final int DEFAULT_KEYFRAME_CHARS = 16 * 1024;
+
+    /**
+     * How many unread characters a viewer may have by default before it is
+     * dropped back to a keyframe.
+     */
+    public static final int DEFAULT_MAX_PENDING_CHARS = 64 * 1024;
+
+    private static final String ERROR_START;
+    private static final String ERROR_END = "\u001b[0m";
+
+    static {
+        StringBuilder sgr = new StringBuilder();
+        AnsiStyle.appendSgr(AnsiStyle.withForeground(AnsiStyle.DEFAULT, AnsiStyle.RED), sgr);
+        ERROR_START = sgr.toString();
+    }
+
+    private final int maxPendingChars;
+    // Guarded by this
+    private final char[] tail;
+    private long sequence;
+    private char lastChar = '\n';
+    private boolean atPrompt;
+    private final List<Viewer> viewers;
+
+    /**
+     * Creates a mirror with the default limits.
+     */
+    public OutputMirror() {
+        this(DEFAULT_KEYFRAME_CHARS, DEFAULT_MAX_PENDING_CHARS);
+    }
+
+    /**
+     * Creates a mirror.
+     *
+     * @param keyframeChars How many characters of the stream a keyframe holds
+     * @param maxPendingChars How many unread characters a viewer may have before it is dropped to a keyframe
+     */
+    public OutputMirror(int keyframeChars, int maxPendingChars) {
+        if (keyframeChars <= 0 || maxPendingChars <= 0) {
+            throw new IllegalArgumentException("Mirror limits must be positive");
+        }
+        this.tail = new char[keyframeChars];
+        this.maxPendingChars = maxPendingChars;
+        this.viewers = new ArrayList<>();
+    }
+
+    /**
+     * Appends text to the stream.
+     *
+     * @param chars The characters to append from
+     * @param offset The index of the first character to append
+     * @param length The number of characters to append
+     */
+    public synchronized void publish(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        append(chars, offset, length);
+        atPrompt = false;
+        signal();
+    }
+
+    /**
+     * Appends text to the stream.
+     *
+     * @param text The text to append
+     */
+    public void publish(String text) {
+        publish(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Appends text written to standard error, colored red.
+     *
+     * @param chars The characters to append from
+     * @param offset The index of the first character to append
+     * @param length The number of characters to append
+     */
+    public synchronized void publishError(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        append(ERROR_START);
+        append(chars, offset, length);
+        append(ERROR_END);
+        atPrompt = false;
+        signal();
+    }
+
+    /**
+     * Appends a prompt, on a line of its own.
+     *
+     * @param prompt The prompt
+     */
+    public synchronized void publishPrompt(String prompt) {
+        if (lastChar != '\n') {
+            append("\n");
+        }
+        append(prompt);
+        atPrompt = true;
+        signal();
+    }
+
+    /**
+     * Appends a command line as it is run, after the prompt it was typed
+     * at unless that prompt is already the last thing in the stream.
+     *
+     * @param prompt The prompt
+     * @param commandLine The command line
+     */
+    public synchronized void publishCommand(String prompt, String commandLine) {
+        if (!atPrompt) {
+            publishPrompt(prompt);
+        }
+        append(commandLine);
+        append("\n");
+        atPrompt = false;
+        signal();
+    }
+
+    /**
+     * Wraps a sink so that what is written to it is also appended to the stream.
+     *
+     * @param target The sink to pass output on to
+     * @return A sink that writes to both
+     */
+    public OutputSink tee(OutputSink target) {
+        return new TeeOutputSink(target);
+    }
+
+    /**
+     * Gets the sequence number the next character will have.
+     *
+     * @return The number of characters published so far
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Starts following the stream. The first delta the viewer gets is a keyframe.
+     *
+     * @return The new viewer
+     */
+    public synchronized Viewer subscribe() {
+        Viewer viewer = new Viewer();
+        viewers.add(viewer);
+        return viewer;
+    }
+
+    /**
+     * Gets the number of viewers following the stream.
+     *
+     * @return The number of viewers that have not been closed
+     */
+    public synchronized int getViewerCount() {
+        return viewers.size();
+    }
+
+    private void append(String text) {
+        append(text.toCharArray(), 0, text.length());
+    }
+
+    private void append(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        for (Viewer viewer : viewers) {
+            viewer.append(chars, offset, length);
+        }
+
+        // Only the last tail.length characters can matter to a keyframe
+        int skip = Math.max(0, length - tail.length);
+        int position = (int) ((sequence + skip) % tail.length);
+        int remaining = length - skip;
+        int first = Math.min(remaining, tail.length - position);
+        System.arraycopy(chars, offset + skip, tail, position, first);
+        System.arraycopy(chars, offset + skip + first, tail, 0, remaining - first);
+
+        sequence += length;
+        lastChar = chars[offset + length - 1];
+    }
+
+    private void signal() {
+        if (!viewers.isEmpty()) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Builds a keyframe of the end of the stream. Once the stream is longer
+     * than the tail, it starts at the first line that is kept whole, so
+     * that it does not begin in the middle of a line or an escape sequence.
+     */
+    private Delta keyframe() {
+        int length = (int) Math.min(sequence, tail.length);
+        long start = sequence - length;
+        char[] text = new char[length];
+        int position = (int) (start % tail.length);
+        int first = Math.min(length, tail.length - position);
+        System.arraycopy(tail, position, text, 0, first);
+        System.arraycopy(tail, 0, text, first, length - first);
+
+        int from = 0;
+        if (start > 0) {
+            while (from < length && text[from] != '\n') {
+                from++;
+            }
+            from = from < length ? from + 1 : 0;
+        }
+        return new Delta(start + from, new String(text, from, length - from), true);
+    }
+
+    /**
+     * A read-only follower of the stream, which takes what has been
+     * published since it last looked as one delta.
+     */
+    public final class Viewer implements AutoCloseable {
+        // Guarded by the mirror
+        private StringBuilder pending = new StringBuilder();
+        private long pendingFrom;
+        private boolean needsKeyframe = true;
+        private int keyframeCount;
+        private boolean closed;
+
+        private Viewer() {
+        }
+
+        private void append(char[] chars, int offset, int length) {
+            if (needsKeyframe) {
+                return;
+            }
+            if (pending.length() + length > maxPendingChars) {
+                // Let go of the buffer rather than keeping it at its largest
+                pending = new StringBuilder();
+                needsKeyframe = true;
+                return;
+            }
+            if (pending.length() == 0) {
+                pendingFrom = sequence;
+            }
+            pending.append(chars, offset, length);
+        }
+
+        /**
+         * Takes what has been published since the last delta, without waiting.
+         *
+         * @return A delta, a keyframe if the viewer is new or fell behind, or null if there is nothing new
+         */
+        public Delta poll() {
+            synchronized (OutputMirror.this) {
+                return next();
+            }
+        }
+
+        /**
+         * Takes what has been published since the last delta, waiting for something new.
+         *
+         * @param timeout How long to wait at most
+         * @param unit The unit of the timeout
+         * @return A delta, a keyframe if the viewer is new or fell behind, or null if nothing came or the viewer was closed
+         * @throws InterruptedException if the thread was interrupted while waiting
+         */
+        public Delta take(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (OutputMirror.this) {
+                Delta delta = next();
+                while (delta == null && !closed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(OutputMirror.this, remaining);
+                    delta = next();
+                }
+                return delta;
+            }
+        }
+
+        private Delta next() {
+            if (closed) {
+                return null;
+            }
+            if (needsKeyframe) {
+                needsKeyframe = false;
+                keyframeCount++;
+                return keyframe();
+            }
+            if (pending.length() == 0) {
+                return null;
+            }
+            Delta delta = new Delta(pendingFrom, pending.toString(), false);
+            pending.setLength(0);
+            return delta;
+        }
+
+        /**
+         * Gets how many keyframes this viewer has been sent, counting the
+         * first one. Every keyframe after that means the viewer fell behind.
+         *
+         * @return The number of keyframes
+         */
+        public int getKeyframeCount() {
+            synchronized (OutputMirror.this) {
+                return keyframeCount;
+            }
+        }
+
+        /**
+         * Stops following the stream, and wakes a thread waiting in {@link #take}.
+         */
+        @Override
+        public void close() {
+            synchronized (OutputMirror.this) {
+                if (!closed) {
+                    closed = true;
+                    pending = new StringBuilder();
+                    viewers.remove(this);
+                    OutputMirror.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * A piece of the stream. A keyframe replaces whatever the viewer was
+     * showing; any other delta is appended to it.
+     */
+    public static final class Delta {
+        private final long sequence;
+        private final String text;
+        private final boolean keyframe;
+
+        private Delta(long sequence, String text, boolean keyframe) {
+            this.sequence = sequence;
+            this.text = text;
+            this.keyframe = keyframe;
+        }
+
+        /**
+         * Gets the sequence number of the first character.
+         *
+         * @return The position in the stream where the text starts
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Gets the sequence number after the last character, where the next delta starts.
+         *
+         * @return The position in the stream where the text ends
+         */
+        public long getEndSequence() {
+            return sequence + text.length();
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isKeyframe() {
+            return keyframe;
+        }
+    }
+
+    /**
+     * Passes output on to a sink and appends it to the stream.
+     */
+    private final class TeeOutputSink implements OutputSink {
+        private final OutputSink target;
+
+        private TeeOutputSink(OutputSink target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            target.write(chars, offset, length);
+            publish(chars, offset, length);
+        }
+
+        @Override
+        public void writeError(char[] chars, int offset, int length) throws IOException {
+            target.writeError(chars, offset, length);
+            publishError(chars, offset, length);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            // The target may take bytes as they are, so only the copy is decoded
+            target.write(bytes, offset, length);
+            publish(new String(bytes, offset, length, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return target.isTerminal();
+        }
+
+        @Override
+        public Pager getPager() {
+            return target.getPager();
+        }
+
+        @Override
+        public void finish(int exitStatus) {
+            target.finish(exitStatus);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.terminaltrainer.core.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Destination for the output of a running command.
+ *
+ * Output is delivered in chunks as it is produced, on two separate streams:
+ * standard output and standard error. When a whole command line has run,
+ * the consumer is told its exit status through {@link #finish(int)}.
+ * Implementations must accept writes from several threads, since the stages
+ * of a pipeline all report errors to the same sink.
+ */
+public interface OutputSink {
+
+    /**
+     * Writes a chunk of standard output.
+     *
+     * @param chars The characters to write from
+     * @param offset The index of the first character to write
+     * @param length The number of characters to write
+     * @throws IOException if the consumer can no longer accept output
+     */
+    void write(char[] chars, int offset, int length) throws IOException;
+
+    /**
+     * Writes a chunk of standard error.
+     *
+     * @param chars The characters to write from
+     * @param offset The index of the first character to write
+     * @param length The number of characters to write
+     * @throws IOException if the consumer can no longer accept output
+     */
+    void writeError(char[] chars, int offset, int length) throws IOException;
+
+    /**
+     * Writes text to standard output.
+     *
+     * @param text The text to write
+     * @throws IOException if the consumer can no longer accept output
+     */
+    default void write(String text) throws IOException {
+        write(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Writes text to standard error.
+     *
+     * @param text The text to write
+     * @throws IOException if the consumer can no longer accept output
+     */
+    default void writeError(String text) throws IOException {
+        writeError(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Writes UTF-8 encoded bytes to standard output. The chunk must not end
+     * in the middle of a multi-byte sequence.
+     *
+     * @param bytes The bytes to write from
+     * @param offset The index of the first byte to write
+     * @param length The number of bytes to write
+     * @throws IOException if the consumer can no longer accept output
+     */
+    default void write(byte[] bytes, int offset, int length) throws IOException {
+        write(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks if standard output is shown on a terminal that understands ANSI
+     * SGR sequences, rather than going to a pipe, a file or a program.
+     * Commands only color their output when it is.
+     *
+     * @return true if color sequences will be shown as colors
+     */
+    default boolean isTerminal() {
+        return false;
+    }
+
+    /**
+     * Gets the pager of the terminal standard output is shown on, for
+     * commands such as less. Output going to a pipe, a file or a program,
+     * or to a terminal that cannot page, has none.
+     *
+     * @return The pager, or null if there is none
+     */
+    default Pager getPager() {
+        return null;
+    }
+
+    /**
+     * Called once after the whole command line has run.
+     *
+     * @param exitStatus The exit status of the last command, 0 for success
+     */
+    default void finish(int exitStatus) {
+    }
+
+    /**
+     * Gets a writer view of standard output.
+     *
+     * @return A writer that forwards to {@link #write(char[], int, int)}
+     */
+    default Writer getOutputWriter() {
+        return new SinkWriter(this, false);
+    }
+
+    /**
+     * Gets a writer view of standard error.
+     *
+     * @return A writer that forwards to {@link #writeError(char[], int, int)}
+     */
+    default Writer getErrorWriter() {
+        return new SinkWriter(this, true);
+    }
+}
@@ -0,0 +1,21 @@
+package com.terminaltrainer.core.io;
+
+import java.io.IOException;
+
+/**
+ * A terminal that can show a text one screen at a time, as less does,
+ * rather than printing all of it.
+ */
+@FunctionalInterface
+public interface Pager {
+
+    /**
+     * Shows a text and waits until the user has closed it, or the running
+     * command has been cancelled.
+     *
+     * @param title The name of the text, shown in the status line
+     * @param text The text
+     * @throws IOException if the wait was interrupted
+     */
+    void page(String title, String text) throws IOException;
+}
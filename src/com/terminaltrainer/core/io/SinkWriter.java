@@ -0,0 +1,36 @@
+package com.terminaltrainer.core.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer view of one stream of an {@link OutputSink}.
+ */
+final class SinkWriter extends Writer {
+    private final OutputSink sink;
+    private final boolean error;
+
+    SinkWriter(OutputSink sink, boolean error) {
+        this.sink = sink;
+        this.error = error;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (error) {
+            sink.writeError(chars, offset, length);
+        } else {
+            sink.write(chars, offset, length);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Chunks are forwarded as soon as they are written
+    }
+
+    @Override
+    public void close() {
+        // The sink outlives any single writer view
+    }
+}
@@ -0,0 +1,70 @@
+package com.terminaltrainer.core.io;
+
+/**
+ * An output sink that collects both streams, interleaved in the order they
+ * were written, into a single string.
+ */
+public class StringOutputSink implements OutputSink {
+    private final StringBuilder buffer;
+    private int exitStatus;
+
+    /**
+     * Creates a new, empty sink.
+     */
+    public StringOutputSink() {
+        this.buffer = new StringBuilder();
+    }
+
+    @Override
+    public synchronized void write(char[] chars, int offset, int length) {
+        buffer.append(chars, offset, length);
+    }
+
+    @Override
+    public synchronized void writeError(char[] chars, int offset, int length) {
+        buffer.append(chars, offset, length);
+    }
+
+    @Override
+    public synchronized void write(String text) {
+        buffer.append(text);
+    }
+
+    @Override
+    public synchronized void writeError(String text) {
+        buffer.append(text);
+    }
+
+    @Override
+    public synchronized void finish(int exitStatus) {
+        this.exitStatus = exitStatus;
+    }
+
+    /**
+     * Gets the exit status passed to {@link #finish(int)}.
+     *
+     * @return The exit status, or 0 if the sink was never finished
+     */
+    public synchronized int getExitStatus() {
+        return exitStatus;
+    }
+
+    /**
+     * Gets the collected output without its final newline, matching the
+     * convention of {@link com.terminaltrainer.core.commands.Command#execute}.
+     *
+     * @return The collected output
+     */
+    public synchronized String getText() {
+        int length = buffer.length();
+        if (length > 0 && buffer.charAt(length - 1) == '\n') {
+            length--;
+        }
+        return buffer.substring(0, length);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return buffer.toString();
+    }
+}
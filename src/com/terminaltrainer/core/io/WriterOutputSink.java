@@ -0,0 +1,99 @@
+package com.terminaltrainer.core.io;
+
+import com.terminaltrainer.core.exec.ExecutionContext;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * An output sink that forwards each stream to a writer, such as a pipe or a
+ * file for standard output and the terminal for standard error.
+ * Every write checks the current {@link ExecutionContext}, so a cancelled
+ * command stops at its next write even if it never checks for itself.
+ */
+public class WriterOutputSink implements OutputSink {
+    private final Writer output;
+    private final Writer error;
+    private final boolean terminal;
+    private final Pager pager;
+
+    /**
+     * Creates a new sink whose output does not go to a terminal.
+     *
+     * @param output The writer for standard output
+     * @param error The writer for standard error
+     */
+    public WriterOutputSink(Writer output, Writer error) {
+        this(output, error, false);
+    }
+
+    /**
+     * Creates a new sink.
+     *
+     * @param output The writer for standard output
+     * @param error The writer for standard error
+     * @param terminal Whether standard output ends up on a terminal, see {@link OutputSink#isTerminal()}
+     */
+    public WriterOutputSink(Writer output, Writer error, boolean terminal) {
+        this(output, error, terminal, null);
+    }
+
+    /**
+     * Creates a new sink for output shown on a terminal that may be able to page.
+     *
+     * @param output The writer for standard output
+     * @param error The writer for standard error
+     * @param terminal Whether standard output ends up on a terminal, see {@link OutputSink#isTerminal()}
+     * @param pager The pager of that terminal, or null if there is none
+     */
+    public WriterOutputSink(Writer output, Writer error, boolean terminal, Pager pager) {
+        this.output = output;
+        this.error = error;
+        this.terminal = terminal;
+        this.pager = pager;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        ExecutionContext.current().checkCancelled();
+        output.write(chars, offset, length);
+    }
+
+    @Override
+    public void writeError(char[] chars, int offset, int length) throws IOException {
+        ExecutionContext.current().checkCancelled();
+        error.write(chars, offset, length);
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        ExecutionContext.current().checkCancelled();
+        output.write(text);
+    }
+
+    @Override
+    public void writeError(String text) throws IOException {
+        ExecutionContext.current().checkCancelled();
+        error.write(text);
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    @Override
+    public Pager getPager() {
+        return pager;
+    }
+
+    @Override
+    public Writer getOutputWriter() {
+        return output;
+    }
+
+    @Override
+    public Writer getErrorWriter() {
+        return error;
+    }
+}
@@ -0,0 +1,245 @@
+package com.terminaltrainer.core.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Performs bash-style brace expansion on command arguments.
+ * Supports comma lists such as {a,b,c}, numeric sequences such as {1..10},
+ * {01..10} or {10..1..2}, character sequences such as {a..e}, and nesting.
+ * Braces that form neither a list nor a sequence are left untouched.
+ */
+public class BraceExpander {
+    /**
+     * The largest number of words a single argument may expand to.
+     */
+    public static final int MAX_WORDS = 1_000_000;
+
+    /**
+     * Expands every argument.
+     *
+     * @param args The arguments to expand
+     * @return The expanded arguments
+     * @throws IllegalArgumentException if an argument expands to more than {@link #MAX_WORDS} words
+     */
+    public String[] expandAll(String[] args) {
+        boolean anyBrace = false;
+        for (String arg : args) {
+            if (arg.indexOf('{') >= 0) {
+                anyBrace = true;
+                break;
+            }
+        }
+        if (!anyBrace) {
+            return args;
+        }
+
+        List<String> expanded = new ArrayList<>(args.length);
+        for (String arg : args) {
+            expanded.addAll(expand(arg));
+            if (expanded.size() > MAX_WORDS) {
+                throw new IllegalArgumentException("brace expansion produces more than " + MAX_WORDS + " words");
+            }
+        }
+        return expanded.toArray(new String[0]);
+    }
+
+    /**
+     * Expands a single word.
+     *
+     * @param word The word to expand
+     * @return The words the argument expands to, in order
+     * @throws IllegalArgumentException if the word expands to more than {@link #MAX_WORDS} words
+     */
+    public List<String> expand(String word) {
+        List<String> result = new ArrayList<>();
+        expandInto(word, 0, result);
+        return result;
+    }
+
+    private void expandInto(String word, int searchFrom, List<String> result) {
+        int open = findOpen(word, searchFrom);
+        if (open < 0) {
+            result.add(word);
+            return;
+        }
+
+        int close = findClose(word, open);
+        if (close < 0) {
+            result.add(word);
+            return;
+        }
+
+        String prefix = word.substring(0, open);
+        String body = word.substring(open + 1, close);
+        String suffix = word.substring(close + 1);
+
+        List<String> alternatives = splitAlternatives(body);
+        if (alternatives == null) {
+            alternatives = expandSequence(body);
+        }
+        if (alternatives == null) {
+            // Not a valid expression, keep the braces and look further along
+            expandInto(word, open + 1, result);
+            return;
+        }
+
+        for (String alternative : alternatives) {
+            // The prefix holds no valid brace expression, so scanning resumes
+            // inside the substituted alternative
+            expandInto(prefix + alternative + suffix, prefix.length(), result);
+            if (result.size() > MAX_WORDS) {
+                throw new IllegalArgumentException("brace expansion produces more than " + MAX_WORDS + " words");
+            }
+        }
+    }
+
+    private static int findOpen(String word, int from) {
+        for (int i = from; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int findClose(String word, int open) {
+        int depth = 0;
+        for (int i = open; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Splits a brace body at its top-level commas.
+     *
+     * @param body The text between the braces
+     * @return The alternatives, or null if the body has no top-level comma
+     */
+    private static List<String> splitAlternatives(String body) {
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                alternatives.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+
+        if (alternatives.isEmpty()) {
+            return null;
+        }
+        alternatives.add(body.substring(start));
+        return alternatives;
+    }
+
+    /**
+     * Expands a sequence expression such as 1..10, 10..1..2 or a..e.
+     *
+     * @param body The text between the braces
+     * @return The sequence, or null if the body is not a valid sequence
+     */
+    private static List<String> expandSequence(String body) {
+        String[] parts = body.split("\\.\\.", -1);
+        if (parts.length != 2 && parts.length != 3) {
+            return null;
+        }
+
+        long step = 1;
+        if (parts.length == 3) {
+            if (!isInteger(parts[2])) {
+                return null;
+            }
+            step = Math.abs(Long.parseLong(parts[2]));
+            if (step == 0) {
+                step = 1;
+            }
+        }
+
+        if (isInteger(parts[0]) && isInteger(parts[1])) {
+            long from = Long.parseLong(parts[0]);
+            long to = Long.parseLong(parts[1]);
+            if (Math.abs(to - from) / step >= MAX_WORDS) {
+                throw new IllegalArgumentException("brace expansion produces more than " + MAX_WORDS + " words");
+            }
+
+            int width = 0;
+            if (hasLeadingZero(parts[0]) || hasLeadingZero(parts[1])) {
+                width = Math.max(parts[0].length(), parts[1].length());
+            }
+
+            List<String> sequence = new ArrayList<>();
+            long direction = from <= to ? step : -step;
+            for (long value = from; from <= to ? value <= to : value >= to; value += direction) {
+                sequence.add(width > 0 ? pad(value, width) : Long.toString(value));
+            }
+            return sequence;
+        }
+
+        if (parts[0].length() == 1 && parts[1].length() == 1
+                && Character.isLetter(parts[0].charAt(0)) && Character.isLetter(parts[1].charAt(0))) {
+            char from = parts[0].charAt(0);
+            char to = parts[1].charAt(0);
+            List<String> sequence = new ArrayList<>();
+            int direction = from <= to ? (int) step : (int) -step;
+            for (int c = from; from <= to ? c <= to : c >= to; c += direction) {
+                sequence.add(String.valueOf((char) c));
+            }
+            return sequence;
+        }
+
+        return null;
+    }
+
+    private static boolean isInteger(String text) {
+        int start = text.startsWith("-") || text.startsWith("+") ? 1 : 0;
+        if (text.length() == start || text.length() - start > 18) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasLeadingZero(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        return text.length() - start > 1 && text.charAt(start) == '0';
+    }
+
+    private static String pad(long value, int width) {
+        String digits = Long.toString(Math.abs(value));
+        StringBuilder padded = new StringBuilder();
+        if (value < 0) {
+            padded.append('-');
+        }
+        for (int i = digits.length() + padded.length(); i < width; i++) {
+            padded.append('0');
+        }
+        return padded.append(digits).toString();
+    }
+}
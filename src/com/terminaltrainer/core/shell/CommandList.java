@@ -0,0 +1,63 @@
+package com.terminaltrainer.core.shell;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed command line: a sequence of pipelines joined by ';', '&&' or '||'.
+ * The connector at index i joins pipeline i to pipeline i + 1.
+ */
+public final class CommandList {
+    /**
+     * How a pipeline is joined to the pipeline before it.
+     */
+    public enum Connector {
+        /**
+         * Always run the next pipeline (';').
+         */
+        SEQUENCE,
+
+        /**
+         * Run the next pipeline only if the previous one succeeded ('&&').
+         */
+        AND,
+
+        /**
+         * Run the next pipeline only if the previous one failed ('||').
+         */
+        OR
+    }
+
+    private final List<Pipeline> pipelines;
+    private final List<Connector> connectors;
+
+    /**
+     * Creates a new command list.
+     *
+     * @param pipelines The pipelines, in order
+     * @param connectors The connectors between consecutive pipelines
+     */
+    public CommandList(List<Pipeline> pipelines, List<Connector> connectors) {
+        this.pipelines = Collections.unmodifiableList(new ArrayList<>(pipelines));
+        this.connectors = Collections.unmodifiableList(new ArrayList<>(connectors));
+    }
+
+    public List<Pipeline> getPipelines() {
+        return pipelines;
+    }
+
+    /**
+     * Gets the connector between a pipeline and the one after it.
+     *
+     * @param index The index of the earlier pipeline
+     * @return The connector joining pipeline index to pipeline index + 1
+     */
+    public Connector getConnectorAfter(int index) {
+        return connectors.get(index);
+    }
+
+    public boolean isEmpty() {
+        return pipelines.isEmpty();
+    }
+}
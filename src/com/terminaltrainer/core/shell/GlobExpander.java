@@ -0,0 +1,216 @@
+package com.terminaltrainer.core.shell;
+
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.filesystem.VirtualDirectory;
+import com.terminaltrainer.core.filesystem.VirtualFileSystem;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Expands glob patterns in command arguments against the virtual file system.
+ *
+ * Patterns are split into path segments. The literal leading segments are
+ * resolved directly, after which the remaining segments are matched one
+ * directory level at a time. Each wildcard segment is compiled once (and
+ * cached), and its literal prefix narrows the candidates with a sorted
+ * prefix lookup in the directory instead of testing every child.
+ * A '**' segment matches zero or more directories.
+ */
+public class GlobExpander {
+    private static final int CACHE_SIZE = 256;
+    private static final String RECURSIVE_WILDCARD = "**";
+
+    private final VirtualFileSystem fileSystem;
+    private final Map<String, GlobPattern> compiledSegments;
+
+    /**
+     * Creates a new glob expander.
+     *
+     * @param fileSystem The file system to expand patterns against
+     */
+    public GlobExpander(VirtualFileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        this.compiledSegments = new LinkedHashMap<String, GlobPattern>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GlobPattern> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Expands every argument. Arguments without wildcards, and patterns that
+     * match nothing, are passed through with their escapes removed.
+     *
+     * @param args The arguments to expand
+     * @param currentDirectory The current directory (for relative patterns)
+     * @return The expanded arguments
+     */
+    public String[] expandAll(String[] args, String currentDirectory) {
+        boolean anyWildcard = false;
+        for (String arg : args) {
+            if (GlobPattern.hasWildcard(arg)) {
+                anyWildcard = true;
+                break;
+            }
+        }
+        if (!anyWildcard) {
+            String[] unescaped = new String[args.length];
+            for (int i = 0; i < args.length; i++) {
+                unescaped[i] = GlobPattern.unescape(args[i]);
+            }
+            return unescaped;
+        }
+
+        List<String> expanded = new ArrayList<>(args.length);
+        for (String arg : args) {
+            expanded.addAll(expand(arg, currentDirectory));
+        }
+        return expanded.toArray(new String[0]);
+    }
+
+    /**
+     * Expands a single pattern.
+     *
+     * @param pattern The pattern to expand
+     * @param currentDirectory The current directory (for relative patterns)
+     * @return The sorted matching paths, or the unescaped pattern if nothing matches
+     */
+    public List<String> expand(String pattern, String currentDirectory) {
+        List<String> result = new ArrayList<>();
+        if (!GlobPattern.hasWildcard(pattern)) {
+            result.add(GlobPattern.unescape(pattern));
+            return result;
+        }
+
+        boolean absolute = pattern.startsWith("/");
+        boolean directoriesOnly = pattern.endsWith("/");
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+
+        // Literal leading segments are resolved with direct child lookups
+        // while walking, only wildcard segments scan directory ranges
+        VirtualFileSystemNode startNode = absolute
+                ? fileSystem.getRoot()
+                : fileSystem.resolvePath(".", currentDirectory);
+        if (startNode != null && startNode.isDirectory()) {
+            expandSegments((VirtualDirectory) startNode, absolute ? "/" : "", segments, 0,
+                    directoriesOnly, result);
+        }
+
+        if (result.isEmpty()) {
+            result.add(GlobPattern.unescape(pattern));
+            return result;
+        }
+
+        return new ArrayList<>(new TreeSet<>(result));
+    }
+
+    private void expandSegments(VirtualDirectory directory, String displayPath, List<String> segments,
+                                int index, boolean directoriesOnly, List<String> result) {
+        if (index == segments.size()) {
+            result.add(displayPath.isEmpty() ? "." : displayPath);
+            return;
+        }
+
+        String segment = segments.get(index);
+        boolean last = index == segments.size() - 1;
+
+        if (segment.equals(RECURSIVE_WILDCARD)) {
+            expandRecursive(directory, displayPath, segments, index + 1, directoriesOnly, result);
+            return;
+        }
+
+        if (!GlobPattern.hasWildcard(segment)) {
+            String name = GlobPattern.unescape(segment);
+            VirtualFileSystemNode next;
+            if (name.equals(".")) {
+                next = directory;
+            } else if (name.equals("..")) {
+                next = directory.getParent() != null ? directory.getParent() : directory;
+            } else {
+                next = directory.getChild(name);
+            }
+            addMatch(next, displayPath + name, segments, index, last, directoriesOnly, result);
+            return;
+        }
+
+        GlobPattern compiled = compile(segment);
+        List<VirtualFileSystemNode> candidates = directory.getChildrenWithPrefix(compiled.getLiteralPrefix());
+        ExecutionContext.current().chargeVisits(candidates.size());
+        for (VirtualFileSystemNode child : candidates) {
+            if (compiled.matches(child.getName())) {
+                addMatch(child, displayPath + child.getName(), segments, index, last, directoriesOnly, result);
+            }
+        }
+    }
+
+    private void addMatch(VirtualFileSystemNode node, String path, List<String> segments, int index,
+                          boolean last, boolean directoriesOnly, List<String> result) {
+        if (node == null) {
+            return;
+        }
+
+        if (last) {
+            if (!directoriesOnly) {
+                result.add(path);
+            } else if (node.isDirectory()) {
+                result.add(path + "/");
+            }
+        } else if (node.isDirectory()) {
+            expandSegments((VirtualDirectory) node, path + "/", segments, index + 1, directoriesOnly, result);
+        }
+    }
+
+    /**
+     * Matches the rest of the pattern in a directory and in every directory below it.
+     */
+    private void expandRecursive(VirtualDirectory directory, String displayPath, List<String> segments,
+                                 int index, boolean directoriesOnly, List<String> result) {
+        ExecutionContext context = ExecutionContext.current();
+        context.chargeVisits(1);
+        if (index == segments.size()) {
+            // A trailing '**' matches everything below the directory
+            for (VirtualFileSystemNode child : directory.getChildren()) {
+                context.chargeVisits(1);
+                if (child.getName().startsWith(".")) {
+                    continue;
+                }
+                String path = displayPath + child.getName();
+                if (child.isDirectory()) {
+                    result.add(directoriesOnly ? path + "/" : path);
+                    expandRecursive((VirtualDirectory) child, path + "/", segments, index, directoriesOnly, result);
+                } else if (!directoriesOnly) {
+                    result.add(path);
+                }
+            }
+            return;
+        }
+
+        expandSegments(directory, displayPath, segments, index, directoriesOnly, result);
+        for (VirtualDirectory child : directory.getDirectories()) {
+            if (!child.getName().startsWith(".")) {
+                expandRecursive(child, displayPath + child.getName() + "/", segments, index,
+                        directoriesOnly, result);
+            }
+        }
+    }
+
+    private GlobPattern compile(String segment) {
+        GlobPattern compiled = compiledSegments.get(segment);
+        if (compiled == null) {
+            compiled = GlobPattern.compile(segment);
+            compiledSegments.put(segment, compiled);
+        }
+        return compiled;
+    }
+}
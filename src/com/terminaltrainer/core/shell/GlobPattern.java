@@ -0,0 +1,274 @@
+package com.terminaltrainer.core.shell;
+
+/**
+ * A single path segment of a glob pattern, compiled once into a sequence of
+ * matching instructions. Supports '*', '?', bracket expressions such as
+ * [a-c] or [!0-9], and backslash escapes.
+ */
+public final class GlobPattern {
+    private static final int LITERAL = 0;
+    private static final int ANY_CHAR = 1;
+    private static final int ANY_STRING = 2;
+    private static final int CHAR_CLASS = 3;
+
+    private final String source;
+    private final int[] opcodes;
+    private final char[] literals;
+    private final char[][] classRanges;
+    private final boolean[] classNegated;
+    private final String literalPrefix;
+    private final boolean wildcard;
+
+    private GlobPattern(String source, int[] opcodes, char[] literals, char[][] classRanges,
+                        boolean[] classNegated, String literalPrefix, boolean wildcard) {
+        this.source = source;
+        this.opcodes = opcodes;
+        this.literals = literals;
+        this.classRanges = classRanges;
+        this.classNegated = classNegated;
+        this.literalPrefix = literalPrefix;
+        this.wildcard = wildcard;
+    }
+
+    /**
+     * Compiles a single path segment.
+     *
+     * @param segment The segment, which must not contain '/'
+     * @return The compiled pattern
+     */
+    public static GlobPattern compile(String segment) {
+        int length = segment.length();
+        int[] opcodes = new int[length];
+        char[] literals = new char[length];
+        char[][] classRanges = new char[length][];
+        boolean[] classNegated = new boolean[length];
+        StringBuilder prefix = new StringBuilder();
+        boolean inPrefix = true;
+        boolean wildcard = false;
+        int count = 0;
+
+        int i = 0;
+        while (i < length) {
+            char c = segment.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                opcodes[count] = LITERAL;
+                literals[count++] = segment.charAt(i + 1);
+                if (inPrefix) {
+                    prefix.append(segment.charAt(i + 1));
+                }
+                i += 2;
+                continue;
+            }
+
+            if (c == '*') {
+                // Consecutive stars are equivalent to one
+                if (count == 0 || opcodes[count - 1] != ANY_STRING) {
+                    opcodes[count++] = ANY_STRING;
+                }
+                inPrefix = false;
+                wildcard = true;
+                i++;
+            } else if (c == '?') {
+                opcodes[count++] = ANY_CHAR;
+                inPrefix = false;
+                wildcard = true;
+                i++;
+            } else if (c == '[' && findClassEnd(segment, i) > 0) {
+                int end = findClassEnd(segment, i);
+                int start = i + 1;
+                boolean negated = segment.charAt(start) == '!' || segment.charAt(start) == '^';
+                if (negated) {
+                    start++;
+                }
+                opcodes[count] = CHAR_CLASS;
+                classNegated[count] = negated;
+                classRanges[count++] = parseRanges(segment, start, end);
+                inPrefix = false;
+                wildcard = true;
+                i = end + 1;
+            } else {
+                opcodes[count] = LITERAL;
+                literals[count++] = c;
+                if (inPrefix) {
+                    prefix.append(c);
+                }
+                i++;
+            }
+        }
+
+        int[] trimmedOps = new int[count];
+        System.arraycopy(opcodes, 0, trimmedOps, 0, count);
+        return new GlobPattern(segment, trimmedOps, literals, classRanges, classNegated,
+                prefix.toString(), wildcard);
+    }
+
+    /**
+     * Checks if a word contains any unescaped glob metacharacters.
+     *
+     * @param word The word to check
+     * @return true if the word needs glob expansion
+     */
+    public static boolean hasWildcard(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '*' || c == '?' || (c == '[' && findClassEnd(word, i) > 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the escaping backslashes from a segment without wildcards.
+     *
+     * @param segment The segment
+     * @return The literal text the segment stands for
+     */
+    public static String unescape(String segment) {
+        if (segment.indexOf('\\') < 0) {
+            return segment;
+        }
+
+        StringBuilder result = new StringBuilder(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '\\' && i + 1 < segment.length()) {
+                c = segment.charAt(++i);
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Tests a name against this pattern. A leading '.' must be matched
+     * explicitly, as in bash without dotglob.
+     *
+     * @param name The name to test
+     * @return true if the whole name matches
+     */
+    public boolean matches(String name) {
+        if (name.startsWith(".") && !literalPrefix.startsWith(".")) {
+            return false;
+        }
+
+        int nameIndex = 0;
+        int opIndex = 0;
+        int starOp = -1;
+        int starName = 0;
+
+        while (nameIndex < name.length()) {
+            if (opIndex < opcodes.length && opcodes[opIndex] == ANY_STRING) {
+                starOp = opIndex++;
+                starName = nameIndex;
+            } else if (opIndex < opcodes.length && matchesOne(opIndex, name.charAt(nameIndex))) {
+                opIndex++;
+                nameIndex++;
+            } else if (starOp >= 0) {
+                // Let the last star absorb one more character and retry
+                opIndex = starOp + 1;
+                nameIndex = ++starName;
+            } else {
+                return false;
+            }
+        }
+
+        while (opIndex < opcodes.length && opcodes[opIndex] == ANY_STRING) {
+            opIndex++;
+        }
+        return opIndex == opcodes.length;
+    }
+
+    /**
+     * Gets the literal text every match must start with, which callers can
+     * use to narrow candidates with a sorted prefix lookup.
+     *
+     * @return The literal prefix, possibly empty
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * Checks if this segment contains any wildcard.
+     *
+     * @return true if the segment is not a plain literal
+     */
+    public boolean isWildcard() {
+        return wildcard;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private boolean matchesOne(int opIndex, char c) {
+        switch (opcodes[opIndex]) {
+            case LITERAL:
+                return literals[opIndex] == c;
+            case ANY_CHAR:
+                return true;
+            case CHAR_CLASS:
+                char[] ranges = classRanges[opIndex];
+                boolean found = false;
+                for (int i = 0; i < ranges.length; i += 2) {
+                    if (c >= ranges[i] && c <= ranges[i + 1]) {
+                        found = true;
+                        break;
+                    }
+                }
+                return found != classNegated[opIndex];
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Finds the closing ']' of a bracket expression. A ']' directly after
+     * the opening bracket (or its negation) is taken literally.
+     *
+     * @param text The text
+     * @param open The index of the opening '['
+     * @return The index of the closing ']', or -1 if the bracket is unterminated
+     */
+    private static int findClassEnd(String text, int open) {
+        int i = open + 1;
+        if (i < text.length() && (text.charAt(i) == '!' || text.charAt(i) == '^')) {
+            i++;
+        }
+        if (i < text.length() && text.charAt(i) == ']') {
+            i++;
+        }
+        while (i < text.length()) {
+            if (text.charAt(i) == ']') {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static char[] parseRanges(String text, int start, int end) {
+        char[] ranges = new char[(end - start) * 2];
+        int count = 0;
+        int i = start;
+        while (i < end) {
+            char low = text.charAt(i);
+            char high = low;
+            if (i + 2 < end && text.charAt(i + 1) == '-') {
+                high = text.charAt(i + 2);
+                i += 3;
+            } else {
+                i++;
+            }
+            ranges[count++] = low;
+            ranges[count++] = high;
+        }
+        char[] trimmed = new char[count];
+        System.arraycopy(ranges, 0, trimmed, 0, count);
+        return trimmed;
+    }
+}
@@ -0,0 +1,37 @@
+package com.terminaltrainer.core.shell;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sequence of commands joined by '|', where each command's output feeds the next command's input.
+ */
+public final class Pipeline {
+    private final List<SimpleCommand> stages;
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param stages The commands, in order
+     */
+    public Pipeline(List<SimpleCommand> stages) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+    }
+
+    public List<SimpleCommand> getStages() {
+        return stages;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (SimpleCommand stage : stages) {
+            if (result.length() > 0) {
+                result.append(" | ");
+            }
+            result.append(stage);
+        }
+        return result.toString();
+    }
+}
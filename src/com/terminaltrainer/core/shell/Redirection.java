@@ -0,0 +1,48 @@
+package com.terminaltrainer.core.shell;
+
+/**
+ * An input or output redirection attached to a {@link SimpleCommand}.
+ */
+public final class Redirection {
+    /**
+     * The kinds of redirection.
+     */
+    public enum Type {
+        /**
+         * Read standard input from a file ('&lt;').
+         */
+        INPUT,
+
+        /**
+         * Write standard output to a file, truncating it first ('&gt;').
+         */
+        OUTPUT,
+
+        /**
+         * Append standard output to a file ('&gt;&gt;').
+         */
+        APPEND
+    }
+
+    private final Type type;
+    private final Token target;
+
+    /**
+     * Creates a new redirection.
+     *
+     * @param type The kind of redirection
+     * @param target The word naming the file
+     */
+    public Redirection(Type type, Token target) {
+        this.type = type;
+        this.target = target;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Token getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,192 @@
+package com.terminaltrainer.core.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass tokenizer for command lines.
+ *
+ * Handles single quotes, double quotes, backslash escapes, comments starting
+ * with an unquoted '#' at the beginning of a word, and the operators ';',
+ * '&&', '||', '|', '<', '>' and '>>'. Errors report the offset at which
+ * they were detected. The word buffers are reused between calls, so a lexer
+ * instance is not thread-safe.
+ */
+public class ShellLexer {
+    /**
+     * Characters that have a meaning to brace or glob expansion and must
+     * be escaped in a word's pattern form when they were quoted.
+     */
+    private static final String EXPANSION_CHARACTERS = "\\*?[]{},";
+
+    /**
+     * Characters that end an unquoted word.
+     */
+    private static final String OPERATOR_CHARACTERS = ";&|<>";
+
+    private final StringBuilder text;
+    private final StringBuilder pattern;
+
+    /**
+     * Creates a new lexer.
+     */
+    public ShellLexer() {
+        this.text = new StringBuilder();
+        this.pattern = new StringBuilder();
+    }
+
+    /**
+     * Splits a command line into tokens.
+     *
+     * @param input The command line
+     * @return The tokens, in order
+     * @throws ShellSyntaxException if a quote is unterminated or an operator is not supported
+     */
+    public List<Token> tokenize(String input) throws ShellSyntaxException {
+        List<Token> tokens = new ArrayList<>();
+        int length = input.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = input.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            if (c == '#') {
+                // Comment: ignore the rest of the line
+                break;
+            }
+
+            if (c == ';') {
+                tokens.add(new Token(Token.Type.SEMICOLON, ";", ";", i));
+                i++;
+                continue;
+            }
+
+            if (c == '&') {
+                if (i + 1 < length && input.charAt(i + 1) == '&') {
+                    tokens.add(new Token(Token.Type.AND_IF, "&&", "&&", i));
+                    i += 2;
+                    continue;
+                }
+                throw new ShellSyntaxException("background jobs ('&') are not supported", input, i);
+            }
+
+            if (c == '|') {
+                if (i + 1 < length && input.charAt(i + 1) == '|') {
+                    tokens.add(new Token(Token.Type.OR_IF, "||", "||", i));
+                    i += 2;
+                    continue;
+                }
+                tokens.add(new Token(Token.Type.PIPE, "|", "|", i));
+                i++;
+                continue;
+            }
+
+            if (c == '>') {
+                if (i + 1 < length && input.charAt(i + 1) == '>') {
+                    tokens.add(new Token(Token.Type.REDIRECT_APPEND, ">>", ">>", i));
+                    i += 2;
+                    continue;
+                }
+                tokens.add(new Token(Token.Type.REDIRECT_OUT, ">", ">", i));
+                i++;
+                continue;
+            }
+
+            if (c == '<') {
+                tokens.add(new Token(Token.Type.REDIRECT_IN, "<", "<", i));
+                i++;
+                continue;
+            }
+
+            i = readWord(input, i, tokens);
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Reads one word starting at the given offset and adds it to the tokens.
+     *
+     * @return The offset just after the word
+     */
+    private int readWord(String input, int start, List<Token> tokens) throws ShellSyntaxException {
+        text.setLength(0);
+        pattern.setLength(0);
+        int length = input.length();
+        int i = start;
+
+        while (i < length) {
+            char c = input.charAt(i);
+
+            if (Character.isWhitespace(c) || OPERATOR_CHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+
+            if (c == '\\') {
+                if (i + 1 >= length) {
+                    throw new ShellSyntaxException("unexpected end of input after '\\'", input, i);
+                }
+                appendQuoted(input.charAt(i + 1));
+                i += 2;
+            } else if (c == '\'') {
+                int close = input.indexOf('\'', i + 1);
+                if (close < 0) {
+                    throw new ShellSyntaxException("unterminated single quote", input, i);
+                }
+                for (int j = i + 1; j < close; j++) {
+                    appendQuoted(input.charAt(j));
+                }
+                i = close + 1;
+            } else if (c == '"') {
+                i = readDoubleQuoted(input, i);
+            } else {
+                text.append(c);
+                pattern.append(c);
+                i++;
+            }
+        }
+
+        tokens.add(new Token(Token.Type.WORD, text.toString(), pattern.toString(), start));
+        return i;
+    }
+
+    /**
+     * Reads a double-quoted section. Inside double quotes a backslash only
+     * escapes '"', '\\', '$' and '`'; any other backslash is kept literally.
+     *
+     * @return The offset just after the closing quote
+     */
+    private int readDoubleQuoted(String input, int open) throws ShellSyntaxException {
+        int length = input.length();
+        int i = open + 1;
+
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c == '\\' && i + 1 < length && "\"\\$`".indexOf(input.charAt(i + 1)) >= 0) {
+                appendQuoted(input.charAt(i + 1));
+                i += 2;
+            } else {
+                appendQuoted(c);
+                i++;
+            }
+        }
+
+        throw new ShellSyntaxException("unterminated double quote", input, open);
+    }
+
+    private void appendQuoted(char c) {
+        text.append(c);
+        if (EXPANSION_CHARACTERS.indexOf(c) >= 0) {
+            pattern.append('\\');
+        }
+        pattern.append(c);
+    }
+}
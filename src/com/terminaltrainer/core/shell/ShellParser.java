@@ -0,0 +1,119 @@
+package com.terminaltrainer.core.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses command lines into a {@link CommandList}.
+ *
+ * Grammar:
+ * <pre>
+ *   list      := pipeline ((';' | '&amp;&amp;' | '||') pipeline)* [';']
+ *   pipeline  := command ('|' command)*
+ *   command   := (WORD | redirect)+
+ *   redirect  := ('&lt;' | '&gt;' | '&gt;&gt;') WORD
+ * </pre>
+ */
+public class ShellParser {
+    private final ShellLexer lexer;
+
+    /**
+     * Creates a new parser.
+     */
+    public ShellParser() {
+        this.lexer = new ShellLexer();
+    }
+
+    /**
+     * Parses a command line.
+     *
+     * @param input The command line
+     * @return The parsed command list, empty for blank lines and comments
+     * @throws ShellSyntaxException if the command line is not well-formed
+     */
+    public CommandList parse(String input) throws ShellSyntaxException {
+        List<Token> tokens = lexer.tokenize(input);
+        List<Pipeline> pipelines = new ArrayList<>();
+        List<CommandList.Connector> connectors = new ArrayList<>();
+        List<SimpleCommand> stages = new ArrayList<>();
+        List<Token> words = new ArrayList<>();
+        List<Redirection> redirections = new ArrayList<>();
+        Token pendingOperator = null;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+
+            if (!token.isOperator()) {
+                words.add(token);
+                continue;
+            }
+
+            if (token.isRedirection()) {
+                if (i + 1 >= tokens.size()) {
+                    throw new ShellSyntaxException("missing file name after '" + token + "'", input, input.length());
+                }
+                Token target = tokens.get(i + 1);
+                if (target.isOperator()) {
+                    throw new ShellSyntaxException("unexpected token '" + target + "'", input, target.getPosition());
+                }
+                redirections.add(new Redirection(toRedirectionType(token), target));
+                i++;
+                continue;
+            }
+
+            if (words.isEmpty()) {
+                throw new ShellSyntaxException("unexpected token '" + token + "'", input, token.getPosition());
+            }
+
+            stages.add(new SimpleCommand(words, redirections));
+            words.clear();
+            redirections.clear();
+            pendingOperator = token;
+
+            if (token.getType() != Token.Type.PIPE) {
+                pipelines.add(new Pipeline(stages));
+                stages.clear();
+                connectors.add(toConnector(token));
+            }
+        }
+
+        if (!words.isEmpty()) {
+            stages.add(new SimpleCommand(words, redirections));
+            pipelines.add(new Pipeline(stages));
+        } else if (!redirections.isEmpty()) {
+            throw new ShellSyntaxException("missing command before redirection", input,
+                    redirections.get(0).getTarget().getPosition());
+        } else if (pendingOperator != null) {
+            if (pendingOperator.getType() != Token.Type.SEMICOLON) {
+                throw new ShellSyntaxException("unexpected end of input after '" + pendingOperator + "'",
+                        input, input.length());
+            }
+            // A trailing ';' just ends the last pipeline
+            connectors.remove(connectors.size() - 1);
+        }
+
+        return new CommandList(pipelines, connectors);
+    }
+
+    private static CommandList.Connector toConnector(Token token) {
+        switch (token.getType()) {
+            case AND_IF:
+                return CommandList.Connector.AND;
+            case OR_IF:
+                return CommandList.Connector.OR;
+            default:
+                return CommandList.Connector.SEQUENCE;
+        }
+    }
+
+    private static Redirection.Type toRedirectionType(Token token) {
+        switch (token.getType()) {
+            case REDIRECT_IN:
+                return Redirection.Type.INPUT;
+            case REDIRECT_APPEND:
+                return Redirection.Type.APPEND;
+            default:
+                return Redirection.Type.OUTPUT;
+        }
+    }
+}
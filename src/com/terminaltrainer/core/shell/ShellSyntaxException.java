@@ -0,0 +1,50 @@
+package com.terminaltrainer.core.shell;
+
+/**
+ * Thrown when a command line cannot be tokenized or parsed.
+ * Carries the offset in the input at which the problem was found.
+ */
+public class ShellSyntaxException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String input;
+    private final int position;
+
+    /**
+     * Creates a new syntax error.
+     *
+     * @param message A description of the problem
+     * @param input The command line being parsed
+     * @param position The zero-based offset of the problem in the input
+     */
+    public ShellSyntaxException(String message, String input, int position) {
+        super(message);
+        this.input = input;
+        this.position = position;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Formats the error with the offending input and a caret under the position.
+     *
+     * @return A multi-line, human-readable description of the error
+     */
+    public String toDisplayString() {
+        StringBuilder result = new StringBuilder();
+        result.append("syntax error: ").append(getMessage())
+              .append(" (column ").append(position + 1).append(")\n");
+        result.append("  ").append(input).append("\n  ");
+        for (int i = 0; i < position; i++) {
+            result.append(input.charAt(i) == '\t' ? '\t' : ' ');
+        }
+        result.append('^');
+        return result.toString();
+    }
+}
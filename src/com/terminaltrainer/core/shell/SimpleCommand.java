@@ -0,0 +1,67 @@
+package com.terminaltrainer.core.shell;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single command in a parsed command line: a command name followed by its
+ * argument words, plus any redirections of its input and output.
+ */
+public final class SimpleCommand {
+    private final List<Token> words;
+    private final List<Redirection> redirections;
+
+    /**
+     * Creates a new simple command.
+     *
+     * @param words The word tokens, starting with the command name
+     * @param redirections The redirections, in the order they appeared
+     */
+    public SimpleCommand(List<Token> words, List<Redirection> redirections) {
+        this.words = Collections.unmodifiableList(new ArrayList<>(words));
+        this.redirections = Collections.unmodifiableList(new ArrayList<>(redirections));
+    }
+
+    public List<Token> getWords() {
+        return words;
+    }
+
+    public List<Redirection> getRedirections() {
+        return redirections;
+    }
+
+    /**
+     * Gets the literal command name.
+     *
+     * @return The first word with quoting removed
+     */
+    public String getName() {
+        return words.get(0).getText();
+    }
+
+    /**
+     * Gets the argument words, excluding the command name.
+     *
+     * @return The argument tokens
+     */
+    public List<Token> getArguments() {
+        return words.subList(1, words.size());
+    }
+
+    public int getPosition() {
+        return words.get(0).getPosition();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Token word : words) {
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(word.getText());
+        }
+        return result.toString();
+    }
+}
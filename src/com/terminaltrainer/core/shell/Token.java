@@ -0,0 +1,99 @@
+package com.terminaltrainer.core.shell;
+
+/**
+ * A token produced by {@link ShellLexer}.
+ *
+ * Word tokens carry two forms of their text: the literal value with all
+ * quoting removed, and a pattern form in which every quoted or escaped
+ * character is preceded by a backslash. Brace and glob expansion work on
+ * the pattern form so that quoted metacharacters stay literal.
+ */
+public final class Token {
+    /**
+     * The kinds of tokens the lexer produces.
+     */
+    public enum Type {
+        WORD(null),
+        SEMICOLON(";"),
+        AND_IF("&&"),
+        OR_IF("||"),
+        PIPE("|"),
+        REDIRECT_IN("<"),
+        REDIRECT_OUT(">"),
+        REDIRECT_APPEND(">>");
+
+        private final String symbol;
+
+        Type(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Gets the source text of an operator token.
+         *
+         * @return The operator symbol, or null for words
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    private final Type type;
+    private final String text;
+    private final String pattern;
+    private final int position;
+
+    /**
+     * Creates a new token.
+     *
+     * @param type The token type
+     * @param text The literal text, with quoting removed
+     * @param pattern The text with quoted characters escaped for expansion
+     * @param position The zero-based offset of the token in the input
+     */
+    public Token(Type type, String text, String pattern, int position) {
+        this.type = type;
+        this.text = text;
+        this.pattern = pattern;
+        this.position = position;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Checks if this token is an operator rather than a word.
+     *
+     * @return true for operator tokens
+     */
+    public boolean isOperator() {
+        return type != Type.WORD;
+    }
+
+    /**
+     * Checks if this token is a redirection operator.
+     *
+     * @return true for '<', '>' and '>>'
+     */
+    public boolean isRedirection() {
+        return type == Type.REDIRECT_IN || type == Type.REDIRECT_OUT || type == Type.REDIRECT_APPEND;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.WORD ? text : type.getSymbol();
+    }
+}
@@ -0,0 +1,193 @@
+package com.terminaltrainer.core.suggest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+
+/**
+ * Finds the names in a sorted set that are closest to a misspelled word,
+ * without computing the edit distance to every name.
+ *
+ * The search simulates a Levenshtein automaton over the sorted names, the
+ * way a trie would be walked: names are visited in order, the dynamic
+ * programming row for each prefix is computed once and reused by every
+ * name that shares the prefix, and as soon as no continuation of a prefix
+ * can come within the allowed distance, the search jumps past every name
+ * starting with it. Each jump is one lookup in the set, so the work grows
+ * with the number of prefixes near the word rather than with the number
+ * of names.
+ *
+ * Distances count insertions, deletions, substitutions and transpositions
+ * of adjacent characters as one edit each (optimal string alignment).
+ */
+public final class LevenshteinSearch {
+
+    private LevenshteinSearch() {
+    }
+
+    /**
+     * Finds the names closest to a word, if any are within a distance.
+     *
+     * @param names The names to search, in their natural order
+     * @param word The word to look up
+     * @param maxDistance The largest distance to accept
+     * @param limit The most names to return
+     * @return The names at the smallest distance found, in sorted order, at most limit of them
+     */
+    public static List<String> findClosest(NavigableSet<String> names, String word, int maxDistance, int limit) {
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Most typos are a single edit, and a small radius prunes far more,
+        // so widen the search one step at a time
+        for (int radius = Math.min(1, maxDistance); radius <= maxDistance; radius++) {
+            List<String> matches = search(names, word, radius);
+            if (!matches.isEmpty()) {
+                return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Finds the names at the smallest distance from a word, if it is at most the radius.
+     */
+    private static List<String> search(NavigableSet<String> names, String word, int radius) {
+        // rows[p] is the row for the first p characters of the current name
+        int[][] rows = new int[16][];
+        rows[0] = new int[word.length() + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            rows[0][j] = j;
+        }
+
+        List<String> matches = new ArrayList<>();
+        String previous = "";
+        int validRows = 0;
+        String name = names.first();
+
+        while (name != null) {
+            int depth = Math.min(commonPrefixLength(previous, name), validRows);
+            if (name.length() >= rows.length) {
+                int[][] grown = new int[Math.max(rows.length * 2, name.length() + 1)][];
+                System.arraycopy(rows, 0, grown, 0, rows.length);
+                rows = grown;
+            }
+
+            String skipPrefix = null;
+            for (int p = depth + 1; p <= name.length(); p++) {
+                int rowMinimum = computeRow(rows, p, name, word);
+                validRows = p;
+
+                // A later row can only get below this one's minimum through a
+                // transposition from the row before, so both must be out of range
+                if (rowMinimum > radius && minimum(rows[p - 1]) >= radius) {
+                    skipPrefix = name.substring(0, p);
+                    break;
+                }
+            }
+
+            if (skipPrefix != null) {
+                previous = skipPrefix;
+                validRows = skipPrefix.length() - 1;
+                name = ceilingAfterPrefix(names, skipPrefix);
+                continue;
+            }
+
+            int distance = rows[name.length()][word.length()];
+            if (distance < radius) {
+                matches.clear();
+                radius = distance;
+            }
+            if (distance <= radius) {
+                matches.add(name);
+            }
+
+            previous = name;
+            validRows = name.length();
+            name = names.higher(name);
+        }
+
+        return matches;
+    }
+
+    /**
+     * Computes the edit distance between two words.
+     *
+     * @param a The first word
+     * @param b The second word
+     * @return The number of insertions, deletions, substitutions and adjacent transpositions
+     */
+    public static int distance(String a, String b) {
+        int[][] rows = new int[a.length() + 1][];
+        rows[0] = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            rows[0][j] = j;
+        }
+        for (int p = 1; p <= a.length(); p++) {
+            computeRow(rows, p, a, b);
+        }
+        return rows[a.length()][b.length()];
+    }
+
+    /**
+     * Computes the row for the first p characters of a name against the word.
+     *
+     * @return The smallest value in the row
+     */
+    private static int computeRow(int[][] rows, int p, String name, String word) {
+        int[] above = rows[p - 1];
+        int[] row = rows[p];
+        if (row == null) {
+            row = new int[above.length];
+            rows[p] = row;
+        }
+
+        char c = name.charAt(p - 1);
+        row[0] = p;
+        int rowMinimum = p;
+        for (int j = 1; j < row.length; j++) {
+            int cost = word.charAt(j - 1) == c ? 0 : 1;
+            int value = Math.min(above[j - 1] + cost, Math.min(above[j] + 1, row[j - 1] + 1));
+            if (p > 1 && j > 1 && c == word.charAt(j - 2) && name.charAt(p - 2) == word.charAt(j - 1)) {
+                value = Math.min(value, rows[p - 2][j - 2] + 1);
+            }
+            row[j] = value;
+            rowMinimum = Math.min(rowMinimum, value);
+        }
+        return rowMinimum;
+    }
+
+    private static int minimum(int[] row) {
+        int result = Integer.MAX_VALUE;
+        for (int value : row) {
+            result = Math.min(result, value);
+        }
+        return result;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int length = 0;
+        while (length < max && a.charAt(length) == b.charAt(length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Gets the first name after all names starting with a prefix.
+     */
+    private static String ceilingAfterPrefix(NavigableSet<String> names, String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        String upperBound = prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+        return names.ceiling(upperBound);
+    }
+}
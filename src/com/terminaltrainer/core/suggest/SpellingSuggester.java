@@ -0,0 +1,153 @@
+package com.terminaltrainer.core.suggest;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.filesystem.VirtualDirectory;
+import com.terminaltrainer.core.filesystem.VirtualFileSystemNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Suggests what a learner probably meant when a command or path does not
+ * exist, such as 'ls' for "sl" or 'Documents' for "Documnets".
+ *
+ * Both are found with {@link LevenshteinSearch} over sorted names: the
+ * registered command names, and for paths the entries of the directory
+ * each component should be in, which directories already keep sorted. So
+ * large directories need no extra index that could go out of date.
+ */
+public class SpellingSuggester {
+    private static final int MAX_SUGGESTIONS = 3;
+
+    private final TerminalSession session;
+    private volatile NavigableSet<String> commandNames;
+
+    /**
+     * Creates a suggester for a session.
+     *
+     * @param session The session whose commands and file system are searched
+     */
+    public SpellingSuggester(TerminalSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Finds the commands closest to a name that is not a command.
+     *
+     * @param name The unknown command name
+     * @return The closest command names, or an empty list if none is close enough
+     */
+    public List<String> suggestCommands(String name) {
+        NavigableSet<String> names = commandNames;
+        if (names == null) {
+            // Commands are registered once, when the session is created
+            names = new TreeSet<>(session.getCommandProcessor().getCommands().keySet());
+            commandNames = names;
+        }
+        return LevenshteinSearch.findClosest(names, name, maxDistance(name), MAX_SUGGESTIONS);
+    }
+
+    /**
+     * Finds the existing paths closest to a path that does not exist. Each
+     * missing component is replaced with the closest entry of its directory;
+     * when a directory on the way has several equally close entries, only
+     * the first is followed.
+     *
+     * @param path The path, as typed
+     * @return The closest paths in the same form, or an empty list if none is close enough
+     */
+    public List<String> suggestPaths(String path) {
+        if (path == null || path.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String trimmed = path;
+        while (trimmed.length() > 1 && trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        String trailing = path.substring(trimmed.length());
+        int slash = trimmed.lastIndexOf('/');
+        String parentPath = slash < 0 ? "" : trimmed.substring(0, slash + 1);
+        String name = trimmed.substring(slash + 1);
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            return Collections.emptyList();
+        }
+
+        VirtualFileSystemNode parent = resolve(parentPath);
+        if (parent == null && !parentPath.isEmpty()) {
+            // Correct the parent first, then look in the corrected one
+            List<String> parents = suggestPaths(parentPath);
+            if (parents.isEmpty()) {
+                return Collections.emptyList();
+            }
+            parentPath = parents.get(0);
+            if (!parentPath.endsWith("/")) {
+                parentPath += "/";
+            }
+            parent = resolve(parentPath);
+        }
+        if (parent == null || !parent.isDirectory()) {
+            return Collections.emptyList();
+        }
+
+        NavigableSet<String> entries = ((VirtualDirectory) parent).getChildNames();
+        List<String> suggestions = new ArrayList<>();
+        for (String entry : LevenshteinSearch.findClosest(entries, name, maxDistance(name), MAX_SUGGESTIONS)) {
+            suggestions.add(parentPath + entry + trailing);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Gets a line suggesting the commands closest to an unknown one.
+     *
+     * @param name The unknown command name
+     * @return The suggestion preceded by a newline, or an empty string if there is none
+     */
+    public String commandHint(String name) {
+        return hint(suggestCommands(name));
+    }
+
+    /**
+     * Gets a line suggesting the paths closest to one that does not exist.
+     *
+     * @param path The path, as typed
+     * @return The suggestion preceded by a newline, or an empty string if there is none
+     */
+    public String pathHint(String path) {
+        return hint(suggestPaths(path));
+    }
+
+    private VirtualFileSystemNode resolve(String path) {
+        return session.getFileSystem().resolvePath(path.isEmpty() ? "." : path, session.getCurrentDirectory());
+    }
+
+    /**
+     * Gets how many edits a word may be from a suggestion: one for short
+     * words, where more would suggest nearly anything, and up to three for long ones.
+     */
+    private static int maxDistance(String word) {
+        if (word.length() <= 4) {
+            return 1;
+        }
+        return word.length() <= 8 ? 2 : 3;
+    }
+
+    private static String hint(List<String> suggestions) {
+        if (suggestions.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder hint = new StringBuilder("\nDid you mean ");
+        for (int i = 0; i < suggestions.size(); i++) {
+            if (i > 0) {
+                hint.append(i == suggestions.size() - 1 ? " or " : ", ");
+            }
+            hint.append('\'').append(suggestions.get(i)).append('\'');
+        }
+        return hint.append('?').toString();
+    }
+}
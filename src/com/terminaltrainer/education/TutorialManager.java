@@ -71,6 +71,12 @@ public class TutorialManager {
     }
 
 
+    public void restoreState(boolean tutorialMode, int currentTutorialStep) {
+        this.tutorialMode = tutorialMode;
+        this.currentTutorialStep = currentTutorialStep;
+    }
+
+
     public String endTutorial() {
         tutorialMode = false;
         return "Tutorial mode has been ended. Type 'tutorial start' to begin again.";
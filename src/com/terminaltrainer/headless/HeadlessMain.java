@@ -0,0 +1,246 @@
+package com.terminaltrainer.headless;
+
+import com.terminaltrainer.core.SessionSnapshot;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Command-line entry point for running scripts without the Swing interface,
+ * for CI and grading backends. Never loads any AWT or Swing classes.
+ *
+ * Usage: {@code --script FILE... | --stdin} with options:
+ * <pre>
+ *   --snapshot FILE       start every session from a saved snapshot
+ *   --save-snapshot FILE  save the final state of the session (one script only)
+ *   --workers N           number of scripts to run at once (default: available processors)
+ *   --output-dir DIR      write each script's output to DIR/NAME.out instead of standard output
+ *   --echo                print each command line after a prompt, like a terminal transcript
+ *   --no-summary          do not print the throughput and latency summary
+ * </pre>
+ * The summary goes to standard error. The exit status is 0 if every script's
+ * last command succeeded, 1 if any failed and 2 for usage errors.
+ */
+public final class HeadlessMain {
+    private static final String USAGE =
+            "Usage: terminaltrainer (--script FILE... | --stdin) [--snapshot FILE] [--save-snapshot FILE]\n"
+            + "                       [--workers N] [--output-dir DIR] [--echo] [--no-summary]";
+
+    private HeadlessMain() {
+    }
+
+    /**
+     * Checks if the program arguments ask for headless mode.
+     *
+     * @param args The program arguments
+     * @return true if the arguments include --script or --stdin
+     */
+    public static boolean isHeadless(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--script") || arg.equals("--stdin")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the scripts named by the program arguments.
+     *
+     * @param args The program arguments
+     * @return The process exit status
+     */
+    public static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+
+        List<Path> scriptFiles = new ArrayList<>();
+        boolean readStdin = false;
+        Path snapshotFile = null;
+        Path saveSnapshotFile = null;
+        Path outputDirectory = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        boolean echo = false;
+        boolean summary = true;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--script":
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        scriptFiles.add(Paths.get(args[++i]));
+                    }
+                    break;
+                case "--stdin":
+                    readStdin = true;
+                    break;
+                case "--snapshot":
+                case "--save-snapshot":
+                case "--output-dir":
+                case "--workers":
+                    if (i + 1 >= args.length) {
+                        err.println(arg + ": missing argument\n" + USAGE);
+                        return 2;
+                    }
+                    String value = args[++i];
+                    if (arg.equals("--snapshot")) {
+                        snapshotFile = Paths.get(value);
+                    } else if (arg.equals("--save-snapshot")) {
+                        saveSnapshotFile = Paths.get(value);
+                    } else if (arg.equals("--output-dir")) {
+                        outputDirectory = Paths.get(value);
+                    } else {
+                        try {
+                            workers = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            workers = 0;
+                        }
+                        if (workers <= 0) {
+                            err.println("--workers: invalid number: " + value);
+                            return 2;
+                        }
+                    }
+                    break;
+                case "--echo":
+                    echo = true;
+                    break;
+                case "--no-summary":
+                    summary = false;
+                    break;
+                default:
+                    err.println("Unknown option: " + arg + "\n" + USAGE);
+                    return 2;
+            }
+        }
+
+        List<Script> scripts = new ArrayList<>();
+        try {
+            if (readStdin) {
+                scripts.add(Script.fromReader("-", new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+            }
+            for (Path file : scriptFiles) {
+                scripts.add(Script.fromFile(file));
+            }
+        } catch (IOException e) {
+            err.println("script: " + e.getMessage());
+            return 2;
+        }
+        if (scripts.isEmpty()) {
+            err.println("No scripts given\n" + USAGE);
+            return 2;
+        }
+        if (saveSnapshotFile != null && scripts.size() != 1) {
+            err.println("--save-snapshot needs exactly one script");
+            return 2;
+        }
+
+        SessionSnapshot initialState = null;
+        if (snapshotFile != null) {
+            try {
+                initialState = SessionSnapshot.read(snapshotFile);
+            } catch (IOException e) {
+                err.println("--snapshot: " + snapshotFile + ": " + e.getMessage());
+                return 2;
+            }
+        }
+
+        ScriptRunner runner = new ScriptRunner(initialState, workers, echo, saveSnapshotFile != null);
+        RunSummary runSummary = new RunSummary();
+        ResultWriter writer = new ResultWriter(out, err, outputDirectory, scripts.size() > 1, saveSnapshotFile);
+        long start = System.nanoTime();
+
+        try {
+            runner.runAll(scripts, result -> {
+                runSummary.add(result);
+                writer.write(result);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted");
+            return 1;
+        }
+
+        out.flush();
+        if (summary) {
+            err.print(runSummary.format(System.nanoTime() - start, Math.min(workers, scripts.size())));
+        }
+        return runSummary.getFailedScripts() > 0 || writer.hasFailed() ? 1 : 0;
+    }
+
+    /**
+     * Writes each result to standard output or to its own file.
+     */
+    private static final class ResultWriter {
+        private final PrintStream out;
+        private final PrintStream err;
+        private final Path outputDirectory;
+        private final boolean showHeaders;
+        private final Path saveSnapshotFile;
+        private final Set<String> usedFileNames;
+        private boolean failed;
+
+        private ResultWriter(PrintStream out, PrintStream err, Path outputDirectory, boolean showHeaders,
+                             Path saveSnapshotFile) {
+            this.out = out;
+            this.err = err;
+            this.outputDirectory = outputDirectory;
+            this.showHeaders = showHeaders;
+            this.saveSnapshotFile = saveSnapshotFile;
+            this.usedFileNames = new HashSet<>();
+        }
+
+        private void write(ScriptResult result) {
+            try {
+                if (outputDirectory != null) {
+                    Files.createDirectories(outputDirectory);
+                    Path file = outputDirectory.resolve(outputFileName(result.getName()));
+                    Files.write(file, result.getOutput().getBytes(StandardCharsets.UTF_8));
+                } else {
+                    if (showHeaders) {
+                        out.println("==> " + result.getName() + " <== (exit " + result.getExitStatus() + ")");
+                    }
+                    out.print(result.getOutput());
+                }
+
+                if (saveSnapshotFile != null && result.getFinalState() != null) {
+                    result.getFinalState().write(saveSnapshotFile);
+                }
+            } catch (IOException e) {
+                err.println(result.getName() + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+
+        /**
+         * Names an output file after its script, numbering names that were
+         * already used by a script with the same base name.
+         */
+        private String outputFileName(String scriptName) {
+            String base = Paths.get(scriptName).getFileName() != null
+                    ? Paths.get(scriptName).getFileName().toString()
+                    : "script";
+            if (base.equals("-")) {
+                base = "stdin";
+            }
+            String name = base + ".out";
+            for (int n = 2; !usedFileNames.add(name); n++) {
+                name = base + "." + n + ".out";
+            }
+            return name;
+        }
+
+        private boolean hasFailed() {
+            return failed;
+        }
+    }
+}
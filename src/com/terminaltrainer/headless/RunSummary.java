@@ -0,0 +1,99 @@
+package com.terminaltrainer.headless;
+
+import java.util.Arrays;
+
+/**
+ * Throughput and latency figures for a batch of script results.
+ */
+public class RunSummary {
+    private int scripts;
+    private int failedScripts;
+    private long[] commandNanos;
+    private int commandCount;
+    private long[] scriptNanos;
+
+    /**
+     * Creates an empty summary.
+     */
+    public RunSummary() {
+        this.commandNanos = new long[64];
+        this.scriptNanos = new long[16];
+    }
+
+    /**
+     * Adds a script's result to the summary.
+     *
+     * @param result The result
+     */
+    public void add(ScriptResult result) {
+        if (scripts == scriptNanos.length) {
+            scriptNanos = Arrays.copyOf(scriptNanos, scripts * 2);
+        }
+        scriptNanos[scripts++] = result.getTotalNanos();
+        if (result.getExitStatus() != 0) {
+            failedScripts++;
+        }
+
+        long[] latencies = result.getCommandNanos();
+        if (commandCount + latencies.length > commandNanos.length) {
+            commandNanos = Arrays.copyOf(commandNanos, Math.max(commandNanos.length * 2, commandCount + latencies.length));
+        }
+        System.arraycopy(latencies, 0, commandNanos, commandCount, latencies.length);
+        commandCount += latencies.length;
+    }
+
+    public int getScripts() {
+        return scripts;
+    }
+
+    public int getFailedScripts() {
+        return failedScripts;
+    }
+
+    public int getCommands() {
+        return commandCount;
+    }
+
+    /**
+     * Formats the summary.
+     *
+     * @param wallNanos The elapsed time of the whole run
+     * @param workers The number of workers used
+     * @return A few lines of figures
+     */
+    public String format(long wallNanos, int workers) {
+        long[] commands = Arrays.copyOf(commandNanos, commandCount);
+        long[] perScript = Arrays.copyOf(scriptNanos, scripts);
+        Arrays.sort(commands);
+        Arrays.sort(perScript);
+        double seconds = Math.max(wallNanos, 1) / 1e9;
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("scripts: %d (%d failed), commands: %d, workers: %d, wall time: %.3f s%n",
+                scripts, failedScripts, commandCount, workers, seconds));
+        text.append(String.format("throughput: %.1f scripts/s, %.1f commands/s%n",
+                scripts / seconds, commandCount / seconds));
+        text.append(String.format("command latency: p50 %s, p90 %s, p99 %s, max %s%n",
+                formatNanos(percentile(commands, 50)), formatNanos(percentile(commands, 90)),
+                formatNanos(percentile(commands, 99)), formatNanos(percentile(commands, 100))));
+        text.append(String.format("script latency: p50 %s, p99 %s, max %s%n",
+                formatNanos(percentile(perScript, 50)), formatNanos(percentile(perScript, 99)),
+                formatNanos(percentile(perScript, 100))));
+        return text.toString();
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.2f ms", nanos / 1e6);
+        }
+        return String.format("%.1f us", nanos / 1e3);
+    }
+}
@@ -0,0 +1,67 @@
+package com.terminaltrainer.headless;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A named list of command lines to run against a session, one per line.
+ */
+public final class Script {
+    private final String name;
+    private final List<String> commandLines;
+
+    /**
+     * Creates a new script.
+     *
+     * @param name The name to report results under, usually the file name
+     * @param commandLines The command lines, in order
+     */
+    public Script(String name, List<String> commandLines) {
+        this.name = name;
+        this.commandLines = Collections.unmodifiableList(new ArrayList<>(commandLines));
+    }
+
+    /**
+     * Reads a script from a UTF-8 file.
+     *
+     * @param file The file
+     * @return The script, named after the file
+     * @throws IOException if the file cannot be read
+     */
+    public static Script fromFile(Path file) throws IOException {
+        return new Script(file.toString(), Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a script from a reader, up to its end.
+     *
+     * @param name The name of the script
+     * @param reader The reader
+     * @return The script
+     * @throws IOException if reading fails
+     */
+    public static Script fromReader(String name, Reader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader buffered = new BufferedReader(reader);
+        String line;
+        while ((line = buffered.readLine()) != null) {
+            lines.add(line);
+        }
+        return new Script(name, lines);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getCommandLines() {
+        return commandLines;
+    }
+}
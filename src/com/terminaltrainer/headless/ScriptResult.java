@@ -0,0 +1,79 @@
+package com.terminaltrainer.headless;
+
+import com.terminaltrainer.core.SessionSnapshot;
+
+/**
+ * The outcome of running one {@link Script}.
+ */
+public final class ScriptResult {
+    private final String name;
+    private final String output;
+    private final int exitStatus;
+    private final long[] commandNanos;
+    private final long totalNanos;
+    private final SessionSnapshot finalState;
+
+    ScriptResult(String name, String output, int exitStatus, long[] commandNanos, long totalNanos,
+                 SessionSnapshot finalState) {
+        this.name = name;
+        this.output = output;
+        this.exitStatus = exitStatus;
+        this.commandNanos = commandNanos;
+        this.totalNanos = totalNanos;
+        this.finalState = finalState;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets everything the script wrote, standard output and standard error
+     * interleaved as they would appear on a terminal.
+     *
+     * @return The output
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * Gets the exit status of the last command line, as a shell script would.
+     *
+     * @return The exit status, or 2 if the script could not be run at all
+     */
+    public int getExitStatus() {
+        return exitStatus;
+    }
+
+    public int getCommandCount() {
+        return commandNanos.length;
+    }
+
+    /**
+     * Gets how long each command line took.
+     *
+     * @return The latency of each command line in nanoseconds, in script order
+     */
+    public long[] getCommandNanos() {
+        return commandNanos.clone();
+    }
+
+    /**
+     * Gets how long the whole script took, including setting up its session.
+     *
+     * @return The duration in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Gets the session's state after the script ran.
+     *
+     * @return The final state, or null unless the runner was asked to capture it
+     */
+    public SessionSnapshot getFinalState() {
+        return finalState;
+    }
+}
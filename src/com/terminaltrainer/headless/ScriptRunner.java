@@ -0,0 +1,136 @@
+package com.terminaltrainer.headless;
+
+import com.terminaltrainer.core.SessionSnapshot;
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.io.StringOutputSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs scripts against terminal sessions without any user interface.
+ *
+ * Every script gets a session of its own, either fresh or restored from a
+ * snapshot, so scripts cannot see each other's changes and their results
+ * do not depend on the order they run in. Scripts run in parallel on a
+ * fixed number of worker threads, each working on one session at a time.
+ */
+public class ScriptRunner {
+    private final SessionSnapshot initialState;
+    private final int workers;
+    private final boolean echoCommands;
+    private final boolean captureFinalState;
+
+    /**
+     * Creates a new runner.
+     *
+     * @param initialState The state to start every session from, or null for fresh sessions
+     * @param workers The number of scripts to run at once
+     * @param echoCommands Whether to write each command line, after a prompt, before its output
+     * @param captureFinalState Whether to snapshot each session after its script has run
+     */
+    public ScriptRunner(SessionSnapshot initialState, int workers, boolean echoCommands, boolean captureFinalState) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        this.initialState = initialState;
+        this.workers = workers;
+        this.echoCommands = echoCommands;
+        this.captureFinalState = captureFinalState;
+    }
+
+    /**
+     * Runs scripts in parallel and reports their results in the order the
+     * scripts were given, each as soon as it and all scripts before it are done.
+     *
+     * @param scripts The scripts
+     * @param consumer Receives each result, on the calling thread
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void runAll(List<Script> scripts, Consumer<ScriptResult> consumer) throws InterruptedException {
+        if (scripts.size() <= 1 || workers == 1) {
+            for (Script script : scripts) {
+                consumer.accept(run(script));
+            }
+            return;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, scripts.size()), runnable -> {
+            Thread thread = new Thread(runnable, "script-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<ScriptResult>> results = new ArrayList<>(scripts.size());
+            for (Script script : scripts) {
+                results.add(executor.submit(() -> run(script)));
+            }
+            for (Future<ScriptResult> result : results) {
+                try {
+                    consumer.accept(result.get());
+                } catch (ExecutionException e) {
+                    // run() reports its own failures, so this is a bug in a command
+                    throw new IllegalStateException("Script worker failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one script on the calling thread.
+     *
+     * @param script The script
+     * @return The result
+     */
+    public ScriptResult run(Script script) {
+        long start = System.nanoTime();
+        TerminalSession session;
+        try {
+            session = initialState != null ? initialState.restore() : new TerminalSession();
+        } catch (IOException e) {
+            return new ScriptResult(script.getName(), "script: " + e.getMessage() + "\n", 2,
+                    new long[0], System.nanoTime() - start, null);
+        }
+        // Like a shell running a script, leave '!' alone
+        session.setHistoryExpansion(false);
+
+        List<String> commandLines = script.getCommandLines();
+        long[] commandNanos = new long[commandLines.size()];
+        StringBuilder output = new StringBuilder();
+        int status = 0;
+
+        for (int i = 0; i < commandLines.size(); i++) {
+            String commandLine = commandLines.get(i);
+            if (echoCommands) {
+                output.append(session.getPrompt()).append(commandLine).append('\n');
+            }
+
+            StringOutputSink sink = new StringOutputSink();
+            long commandStart = System.nanoTime();
+            int commandStatus = session.executeCommand(commandLine, sink);
+            commandNanos[i] = System.nanoTime() - commandStart;
+
+            // Blank lines and comments leave the status of the previous command
+            if (!commandLine.trim().isEmpty() && !commandLine.trim().startsWith("#")) {
+                status = commandStatus;
+            }
+            // Exactly what the command printed, final newline or not
+            output.append(sink.toString());
+        }
+
+        SessionSnapshot finalState = captureFinalState ? SessionSnapshot.capture(session) : null;
+        return new ScriptResult(script.getName(), output.toString(), status, commandNanos,
+                System.nanoTime() - start, finalState);
+    }
+}
@@ -0,0 +1,366 @@
+package com.terminaltrainer.server;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.io.OutputSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One client of a {@link SessionServer} and the session it owns.
+ *
+ * Fields without a note are only touched by the selector thread. Output is
+ * written by the command thread and sent by the selector thread, so the
+ * output queue is guarded by the connection's monitor; a command that gets
+ * too far ahead of a slow client waits on that monitor until the selector
+ * thread has sent enough of the queue.
+ */
+final class ClientConnection {
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int IAC = 0xFF;
+    private static final int IAC_INTERRUPT = 0xF4;
+    private static final int IAC_WILL = 0xFB;
+    private static final int IAC_DONT = 0xFE;
+    private static final int CTRL_C = 3;
+
+    private final SessionServer server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final OutputSink sink;
+    private final int maxPendingOutputBytes;
+
+    private final ByteArrayOutputStream lineBytes;
+    private final Deque<String> pendingLines;
+    private boolean lineTooLong;
+    private int telnetState;
+    private boolean running;
+    private boolean closing;
+    private long lastActivity;
+
+    // Guarded by this
+    private final Deque<ByteBuffer> outputQueue;
+    private int pendingOutputBytes;
+    private boolean closed;
+
+    // Written by the selector thread, read by the command thread
+    private volatile ExecutionContext context;
+    // Written by whichever thread sent the latest output
+    private volatile char lastChar = '\n';
+
+    // Null while the session is hibernated; then the file holds it
+    private volatile TerminalSession session;
+    private final AtomicReference<Path> hibernatedFile;
+    private volatile String hibernatedPrompt;
+
+    ClientConnection(SessionServer server, SocketChannel channel, SelectionKey key, TerminalSession session,
+                     int maxPendingOutputBytes, long now) {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+        this.session = session;
+        this.maxPendingOutputBytes = maxPendingOutputBytes;
+        this.sink = new ConnectionSink();
+        this.lineBytes = new ByteArrayOutputStream();
+        this.pendingLines = new ArrayDeque<>();
+        this.outputQueue = new ArrayDeque<>();
+        this.hibernatedFile = new AtomicReference<>();
+        this.lastActivity = now;
+    }
+
+    /**
+     * Gets the session.
+     *
+     * @return The session, or null while it is hibernated
+     */
+    TerminalSession getSession() {
+        return session;
+    }
+
+    boolean isHibernated() {
+        return hibernatedFile.get() != null;
+    }
+
+    /**
+     * Drops the session from memory once its state has been written to a
+     * file. Runs on the selector thread while no command is running.
+     *
+     * @param file The file holding the session
+     */
+    void hibernated(Path file) {
+        hibernatedPrompt = session.getPrompt();
+        session = null;
+        hibernatedFile.set(file);
+    }
+
+    /**
+     * Takes the file of a hibernated session. Only one caller gets it, so
+     * restoring the session and closing the connection cannot both use it.
+     *
+     * @return The file, or null if the session is not hibernated
+     */
+    Path takeHibernatedFile() {
+        return hibernatedFile.getAndSet(null);
+    }
+
+    /**
+     * Puts a restored session back in place.
+     *
+     * @param session The session
+     */
+    void rehydrated(TerminalSession session) {
+        this.session = session;
+        hibernatedPrompt = null;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    OutputSink getSink() {
+        return sink;
+    }
+
+    Deque<String> getPendingLines() {
+        return pendingLines;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    void setRunning(boolean running, ExecutionContext context) {
+        this.running = running;
+        this.context = context;
+    }
+
+    boolean isClosing() {
+        return closing;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Splits bytes received from the client into command lines. Ctrl+C, sent
+     * raw or as a telnet interrupt, cancels the running command at once
+     * instead of waiting in line.
+     *
+     * @param input The received bytes
+     * @param now The current time in milliseconds
+     */
+    void receive(ByteBuffer input, long now) {
+        lastActivity = now;
+        while (input.hasRemaining()) {
+            int b = input.get() & 0xFF;
+
+            if (telnetState == IAC) {
+                telnetState = b >= IAC_WILL && b <= IAC_DONT ? b : 0;
+                if (b == IAC_INTERRUPT) {
+                    interrupt();
+                }
+                continue;
+            }
+            if (telnetState != 0) {
+                // The option byte of a WILL, WONT, DO or DONT negotiation
+                telnetState = 0;
+                continue;
+            }
+
+            if (b == IAC) {
+                telnetState = IAC;
+            } else if (b == CTRL_C) {
+                interrupt();
+            } else if (b == '\n') {
+                endLine();
+            } else if (lineBytes.size() < MAX_LINE_BYTES) {
+                lineBytes.write(b);
+            } else {
+                lineTooLong = true;
+            }
+        }
+    }
+
+    private void endLine() {
+        String line = lineBytes.toString(StandardCharsets.UTF_8);
+        lineBytes.reset();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        if (lineTooLong) {
+            lineTooLong = false;
+            send("Line too long: more than " + MAX_LINE_BYTES + " bytes\n");
+            if (!running) {
+                sendPrompt();
+            }
+            return;
+        }
+        pendingLines.add(line);
+    }
+
+    private void interrupt() {
+        ExecutionContext current = context;
+        if (current != null) {
+            current.cancel();
+        } else {
+            pendingLines.clear();
+            lineBytes.reset();
+            send("^C\n");
+            sendPrompt();
+        }
+    }
+
+    /**
+     * Sends the prompt, first ending the line if the last output did not.
+     * Called by whichever thread wrote the last output.
+     */
+    void sendPrompt() {
+        TerminalSession current = session;
+        String prompt = current != null ? current.getPrompt() : hibernatedPrompt;
+        send((lastChar != '\n' ? "\n" : "") + prompt);
+        lastChar = '\n';
+    }
+
+    /**
+     * Sends text, ignoring a closed connection. The selector thread never
+     * waits for a slow client, since it is the thread that would drain the queue.
+     */
+    void send(String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        try {
+            enqueue(StandardCharsets.UTF_8.encode(text), !server.isSelectorThread());
+            lastChar = text.charAt(text.length() - 1);
+        } catch (IOException e) {
+            // The client is gone; the selector thread cleans up
+        }
+    }
+
+    /**
+     * Sends what is left of the output, and closes the connection once it has gone.
+     */
+    void closeAfterFlush() {
+        closing = true;
+        synchronized (this) {
+            if (outputQueue.isEmpty()) {
+                server.closeConnection(this);
+                return;
+            }
+        }
+        key.interestOps(SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Writes as much queued output as the socket accepts. Runs on the selector thread.
+     *
+     * @throws IOException if the connection fails
+     */
+    void flushOutput() throws IOException {
+        boolean drained;
+        synchronized (this) {
+            while (!outputQueue.isEmpty()) {
+                ByteBuffer buffer = outputQueue.peek();
+                int written = channel.write(buffer);
+                pendingOutputBytes -= written;
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                outputQueue.poll();
+            }
+            drained = outputQueue.isEmpty();
+            notifyAll();
+        }
+
+        if (drained) {
+            if (closing) {
+                server.closeConnection(this);
+            } else {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Marks the connection closed and cancels its command. Runs on the selector thread.
+     */
+    void markClosed() {
+        ExecutionContext current = context;
+        if (current != null) {
+            current.cancel();
+        }
+        synchronized (this) {
+            closed = true;
+            outputQueue.clear();
+            pendingOutputBytes = 0;
+            notifyAll();
+        }
+    }
+
+    private void enqueue(ByteBuffer bytes, boolean applyBackpressure) throws IOException {
+        boolean wasEmpty;
+        synchronized (this) {
+            boolean waited = false;
+            while (applyBackpressure && pendingOutputBytes >= maxPendingOutputBytes && !closed) {
+                if (!waited) {
+                    server.getMetrics().backpressureWait();
+                    waited = true;
+                }
+                ExecutionContext.current().checkCancelled();
+                try {
+                    // Wake up now and then to notice cancellation
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the client");
+                }
+            }
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            wasEmpty = outputQueue.isEmpty();
+            outputQueue.add(bytes);
+            pendingOutputBytes += bytes.remaining();
+        }
+        if (wasEmpty) {
+            server.runOnSelector(() -> {
+                if (key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends both output streams to the client as UTF-8.
+     */
+    private final class ConnectionSink implements OutputSink {
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            enqueue(StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars, offset, length)), true);
+            lastChar = chars[offset + length - 1];
+        }
+
+        @Override
+        public void writeError(char[] chars, int offset, int length) throws IOException {
+            write(chars, offset, length);
+        }
+    }
+}
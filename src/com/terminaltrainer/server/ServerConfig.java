@@ -0,0 +1,163 @@
+package com.terminaltrainer.server;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
+/**
+ * Settings for a {@link SessionServer}. Instances are immutable; the
+ * {@code with} methods return modified copies.
+ */
+public final class ServerConfig {
+    private final InetSocketAddress address;
+    private final int maxSessions;
+    private final int commandThreads;
+    private final int commandQueueSize;
+    private final long idleTimeoutMillis;
+    private final int maxPendingOutputBytes;
+    private final int maxPendingLines;
+    private final Path hibernationDirectory;
+    private final long hibernateAfterMillis;
+
+    private ServerConfig(InetSocketAddress address, int maxSessions, int commandThreads, int commandQueueSize,
+                         long idleTimeoutMillis, int maxPendingOutputBytes, int maxPendingLines,
+                         Path hibernationDirectory, long hibernateAfterMillis) {
+        this.address = address;
+        this.maxSessions = maxSessions;
+        this.commandThreads = commandThreads;
+        this.commandQueueSize = commandQueueSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxPendingOutputBytes = maxPendingOutputBytes;
+        this.maxPendingLines = maxPendingLines;
+        this.hibernationDirectory = hibernationDirectory;
+        this.hibernateAfterMillis = hibernateAfterMillis;
+    }
+
+    /**
+     * Gets the default settings for a port on the loopback interface.
+     *
+     * @param port The port, or 0 for any free port
+     * @return The settings
+     */
+    public static ServerConfig localhost(int port) {
+        return new ServerConfig(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                10_000, Runtime.getRuntime().availableProcessors() * 2, 1024,
+                15 * 60 * 1000L, 256 * 1024, 64, null, 0);
+    }
+
+    /**
+     * Sets the address to listen on.
+     *
+     * @param address The address; use a wildcard address to accept remote connections
+     * @return The modified settings
+     */
+    public ServerConfig withAddress(InetSocketAddress address) {
+        return new ServerConfig(address, maxSessions, commandThreads, commandQueueSize,
+                idleTimeoutMillis, maxPendingOutputBytes, maxPendingLines,
+                hibernationDirectory, hibernateAfterMillis);
+    }
+
+    /**
+     * Sets how many sessions may be connected at once. Further connections
+     * are told the server is full and closed.
+     *
+     * @param maxSessions The limit
+     * @return The modified settings
+     */
+    public ServerConfig withMaxSessions(int maxSessions) {
+        return new ServerConfig(address, maxSessions, commandThreads, commandQueueSize,
+                idleTimeoutMillis, maxPendingOutputBytes, maxPendingLines,
+                hibernationDirectory, hibernateAfterMillis);
+    }
+
+    /**
+     * Sets the size of the pool that runs commands, and how many commands may
+     * wait for it. Commands arriving while the queue is full are refused.
+     *
+     * @param commandThreads The number of threads
+     * @param commandQueueSize The number of commands that may wait
+     * @return The modified settings
+     */
+    public ServerConfig withCommandPool(int commandThreads, int commandQueueSize) {
+        return new ServerConfig(address, maxSessions, commandThreads, commandQueueSize,
+                idleTimeoutMillis, maxPendingOutputBytes, maxPendingLines,
+                hibernationDirectory, hibernateAfterMillis);
+    }
+
+    /**
+     * Sets how long a session may go without input before it is closed.
+     * Sessions running a command are never evicted.
+     *
+     * @param idleTimeoutMillis The timeout in milliseconds, or 0 to never evict
+     * @return The modified settings
+     */
+    public ServerConfig withIdleTimeout(long idleTimeoutMillis) {
+        return new ServerConfig(address, maxSessions, commandThreads, commandQueueSize,
+                idleTimeoutMillis, maxPendingOutputBytes, maxPendingLines,
+                hibernationDirectory, hibernateAfterMillis);
+    }
+
+    /**
+     * Sets the backpressure limits for one connection.
+     *
+     * @param maxPendingOutputBytes Output that may wait for a slow client before its command is paused
+     * @param maxPendingLines Command lines that may wait before the server stops reading from the client
+     * @return The modified settings
+     */
+    public ServerConfig withBackpressure(int maxPendingOutputBytes, int maxPendingLines) {
+        return new ServerConfig(address, maxSessions, commandThreads, commandQueueSize,
+                idleTimeoutMillis, maxPendingOutputBytes, maxPendingLines,
+                hibernationDirectory, hibernateAfterMillis);
+    }
+
+    /**
+     * Moves sessions that go without input for a while to files, freeing
+     * their memory until the next command line arrives. Hibernation is off
+     * unless this is called.
+     *
+     * @param hibernationDirectory The directory for the session files, which must exist
+     * @param hibernateAfterMillis The idle time in milliseconds, or 0 to never hibernate
+     * @return The modified settings
+     */
+    public ServerConfig withHibernation(Path hibernationDirectory, long hibernateAfterMillis) {
+        return new ServerConfig(address, maxSessions, commandThreads, commandQueueSize,
+                idleTimeoutMillis, maxPendingOutputBytes, maxPendingLines,
+                hibernationDirectory, hibernateAfterMillis);
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getCommandThreads() {
+        return commandThreads;
+    }
+
+    public int getCommandQueueSize() {
+        return commandQueueSize;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public int getMaxPendingOutputBytes() {
+        return maxPendingOutputBytes;
+    }
+
+    public int getMaxPendingLines() {
+        return maxPendingLines;
+    }
+
+    public Path getHibernationDirectory() {
+        return hibernationDirectory;
+    }
+
+    public long getHibernateAfterMillis() {
+        return hibernateAfterMillis;
+    }
+}
@@ -0,0 +1,176 @@
+package com.terminaltrainer.server;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line entry point for running a {@link SessionServer}, started
+ * with {@code --serve}. Never loads any AWT or Swing classes.
+ *
+ * Usage: {@code --serve} with options:
+ * <pre>
+ *   --port N                port to listen on (default: 2323)
+ *   --bind ADDRESS          address to listen on (default: loopback only)
+ *   --max-sessions N        sessions allowed at once (default: 10000)
+ *   --idle-timeout SECS     close sessions idle this long, 0 for never (default: 900)
+ *   --workers N             threads running commands (default: twice the available processors)
+ *   --hibernate-after SECS  move sessions idle this long to disk (default: never)
+ *   --hibernate-dir DIR     directory for hibernated sessions (default: a new temporary directory)
+ * </pre>
+ * Connect with {@code telnet localhost 2323} or {@code nc localhost 2323}.
+ * Runs until the process is stopped. The exit status is 1 if the server
+ * cannot start and 2 for usage errors.
+ */
+public final class ServerMain {
+    private static final String USAGE =
+            "Usage: terminaltrainer --serve [--port N] [--bind ADDRESS] [--max-sessions N]\n"
+            + "                       [--idle-timeout SECONDS] [--workers N]\n"
+            + "                       [--hibernate-after SECONDS] [--hibernate-dir DIR]";
+
+    private ServerMain() {
+    }
+
+    /**
+     * Checks if the program arguments ask for server mode.
+     *
+     * @param args The program arguments
+     * @return true if the arguments include --serve
+     */
+    public static boolean isServer(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--serve")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     *
+     * @param args The program arguments
+     * @return The process exit status
+     */
+    public static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        PrintStream err = System.err;
+
+        int port = 2323;
+        String bindAddress = null;
+        ServerConfig defaults = ServerConfig.localhost(port);
+        int maxSessions = defaults.getMaxSessions();
+        long idleTimeoutSeconds = defaults.getIdleTimeoutMillis() / 1000;
+        int workers = defaults.getCommandThreads();
+        long hibernateAfterSeconds = 0;
+        Path hibernationDirectory = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--serve":
+                    break;
+                case "--bind":
+                case "--hibernate-dir":
+                    if (i + 1 >= args.length) {
+                        err.println(arg + ": missing argument\n" + USAGE);
+                        return 2;
+                    }
+                    if (arg.equals("--bind")) {
+                        bindAddress = args[++i];
+                    } else {
+                        hibernationDirectory = Paths.get(args[++i]);
+                    }
+                    break;
+                case "--port":
+                case "--max-sessions":
+                case "--idle-timeout":
+                case "--hibernate-after":
+                case "--workers":
+                    if (i + 1 >= args.length) {
+                        err.println(arg + ": missing argument\n" + USAGE);
+                        return 2;
+                    }
+                    String value = args[++i];
+                    long number;
+                    try {
+                        number = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        number = -1;
+                    }
+                    boolean valid = arg.equals("--idle-timeout") || arg.equals("--hibernate-after") ? number >= 0
+                            : arg.equals("--port") ? number >= 0 && number <= 65535
+                            : number > 0 && number <= Integer.MAX_VALUE;
+                    if (!valid) {
+                        err.println(arg + ": invalid number: " + value);
+                        return 2;
+                    }
+                    if (arg.equals("--port")) {
+                        port = (int) number;
+                    } else if (arg.equals("--max-sessions")) {
+                        maxSessions = (int) number;
+                    } else if (arg.equals("--idle-timeout")) {
+                        idleTimeoutSeconds = number;
+                    } else if (arg.equals("--hibernate-after")) {
+                        hibernateAfterSeconds = number;
+                    } else {
+                        workers = (int) number;
+                    }
+                    break;
+                default:
+                    err.println("Unknown option: " + arg + "\n" + USAGE);
+                    return 2;
+            }
+        }
+
+        InetSocketAddress address = bindAddress == null
+                ? ServerConfig.localhost(port).getAddress()
+                : new InetSocketAddress(bindAddress, port);
+        if (address.isUnresolved()) {
+            err.println("--bind: unknown host: " + bindAddress);
+            return 2;
+        }
+
+        ServerConfig config = ServerConfig.localhost(port)
+                .withAddress(address)
+                .withMaxSessions(maxSessions)
+                .withIdleTimeout(idleTimeoutSeconds * 1000)
+                .withCommandPool(workers, defaults.getCommandQueueSize());
+
+        if (hibernateAfterSeconds > 0) {
+            try {
+                if (hibernationDirectory == null) {
+                    hibernationDirectory = Files.createTempDirectory("terminaltrainer-sessions");
+                    // Only removed if empty, which it is once every session has closed
+                    hibernationDirectory.toFile().deleteOnExit();
+                } else {
+                    Files.createDirectories(hibernationDirectory);
+                }
+            } catch (IOException e) {
+                err.println("--hibernate-dir: " + e.getMessage());
+                return 1;
+            }
+            config = config.withHibernation(hibernationDirectory, hibernateAfterSeconds * 1000);
+        }
+
+        SessionServer server = new SessionServer(config);
+        try {
+            server.start();
+        } catch (IOException e) {
+            err.println("serve: " + address + ": " + e.getMessage());
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-shutdown"));
+        err.println("Listening on " + address.getAddress().getHostAddress() + ":" + server.getPort());
+
+        try {
+            server.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,204 @@
+package com.terminaltrainer.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing the load on a {@link SessionServer}.
+ */
+public class ServerMetrics {
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder acceptedSessions = new LongAdder();
+    private final LongAdder rejectedSessions = new LongAdder();
+    private final LongAdder evictedSessions = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder refusedCommands = new LongAdder();
+    private final LongAdder commandNanos = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final AtomicInteger hibernatedSessions = new AtomicInteger();
+    private final LongAdder hibernations = new LongAdder();
+    private final LongAdder hibernationFailures = new LongAdder();
+    private final LongAdder rehydrations = new LongAdder();
+    private final LongAdder rehydrationFailures = new LongAdder();
+    private final LongAdder rehydrateNanos = new LongAdder();
+    private final LongAccumulator maxRehydrateNanos = new LongAccumulator(Math::max, 0);
+
+    void sessionOpened() {
+        activeSessions.incrementAndGet();
+        acceptedSessions.increment();
+    }
+
+    void sessionClosed(boolean hibernated) {
+        activeSessions.decrementAndGet();
+        if (hibernated) {
+            hibernatedSessions.decrementAndGet();
+        }
+    }
+
+    void sessionRejected() {
+        rejectedSessions.increment();
+    }
+
+    void sessionEvicted() {
+        evictedSessions.increment();
+    }
+
+    void commandCompleted(long nanos) {
+        commands.increment();
+        commandNanos.add(nanos);
+    }
+
+    void commandRefused() {
+        refusedCommands.increment();
+    }
+
+    void backpressureWait() {
+        backpressureWaits.increment();
+    }
+
+    void sessionHibernated() {
+        hibernatedSessions.incrementAndGet();
+        hibernations.increment();
+    }
+
+    void hibernationFailed() {
+        hibernationFailures.increment();
+    }
+
+    void sessionRehydrated(long nanos) {
+        hibernatedSessions.decrementAndGet();
+        rehydrations.increment();
+        rehydrateNanos.add(nanos);
+        maxRehydrateNanos.accumulate(nanos);
+    }
+
+    void rehydrationFailed() {
+        hibernatedSessions.decrementAndGet();
+        rehydrationFailures.increment();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public long getAcceptedSessions() {
+        return acceptedSessions.sum();
+    }
+
+    public long getRejectedSessions() {
+        return rejectedSessions.sum();
+    }
+
+    public long getEvictedSessions() {
+        return evictedSessions.sum();
+    }
+
+    public long getCommands() {
+        return commands.sum();
+    }
+
+    /**
+     * Gets how many commands were refused because the command queue was full.
+     *
+     * @return The number of refused commands
+     */
+    public long getRefusedCommands() {
+        return refusedCommands.sum();
+    }
+
+    /**
+     * Gets the total time spent running commands, excluding time waiting in the queue.
+     *
+     * @return The total in nanoseconds
+     */
+    public long getCommandNanos() {
+        return commandNanos.sum();
+    }
+
+    /**
+     * Gets how often a command had to wait for a slow client to read its output.
+     *
+     * @return The number of waits
+     */
+    public long getBackpressureWaits() {
+        return backpressureWaits.sum();
+    }
+
+    /**
+     * Gets how many connected sessions are held in memory.
+     *
+     * @return The number of resident sessions
+     */
+    public int getResidentSessions() {
+        return getActiveSessions() - getHibernatedSessions();
+    }
+
+    /**
+     * Gets how many connected sessions are currently stored on disk.
+     *
+     * @return The number of hibernated sessions
+     */
+    public int getHibernatedSessions() {
+        return hibernatedSessions.get();
+    }
+
+    public long getHibernations() {
+        return hibernations.sum();
+    }
+
+    /**
+     * Gets how often a session could not be written to disk and stayed in memory.
+     *
+     * @return The number of failures
+     */
+    public long getHibernationFailures() {
+        return hibernationFailures.sum();
+    }
+
+    public long getRehydrations() {
+        return rehydrations.sum();
+    }
+
+    /**
+     * Gets how often a hibernated session could not be read back and was
+     * replaced with a new one.
+     *
+     * @return The number of failures
+     */
+    public long getRehydrationFailures() {
+        return rehydrationFailures.sum();
+    }
+
+    /**
+     * Gets the total time spent restoring hibernated sessions.
+     *
+     * @return The total in nanoseconds
+     */
+    public long getRehydrateNanos() {
+        return rehydrateNanos.sum();
+    }
+
+    /**
+     * Gets the longest time spent restoring one hibernated session.
+     *
+     * @return The maximum in nanoseconds
+     */
+    public long getMaxRehydrateNanos() {
+        return maxRehydrateNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        long rehydrated = getRehydrations();
+        return "sessions: " + getActiveSessions() + " active (" + getResidentSessions() + " resident, "
+                + getHibernatedSessions() + " hibernated), " + getAcceptedSessions() + " accepted, "
+                + getRejectedSessions() + " rejected, " + getEvictedSessions() + " evicted; commands: "
+                + getCommands() + " run, " + getRefusedCommands() + " refused; backpressure waits: "
+                + getBackpressureWaits() + "; hibernations: " + getHibernations() + " ("
+                + getHibernationFailures() + " failed); rehydrations: " + rehydrated + " ("
+                + getRehydrationFailures() + " failed), "
+                + String.format("avg %.2fms, max %.2fms",
+                        rehydrated == 0 ? 0.0 : getRehydrateNanos() / 1e6 / rehydrated, getMaxRehydrateNanos() / 1e6);
+    }
+}
@@ -0,0 +1,85 @@
+package com.terminaltrainer.server;
+
+import com.terminaltrainer.core.SessionSnapshot;
+import com.terminaltrainer.core.TerminalSession;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the state of idle sessions to files and back, so that a session
+ * nobody is typing in costs little more memory than its connection.
+ *
+ * Each hibernated session is one file in the {@link SessionSnapshot}
+ * format, deleted once the session is restored or its connection closes.
+ * Methods may be called from any thread, but only one at a time per file.
+ */
+final class SessionHibernator {
+    private static final String FILE_SUFFIX = ".session";
+
+    private final Path directory;
+    private final ServerMetrics metrics;
+    private final AtomicLong nextFileNumber;
+
+    SessionHibernator(Path directory, ServerMetrics metrics) {
+        this.directory = directory;
+        this.metrics = metrics;
+        this.nextFileNumber = new AtomicLong();
+    }
+
+    /**
+     * Writes a session's state to a new file. The session must not be running a command.
+     *
+     * @param session The session
+     * @return The file holding the session
+     * @throws IOException if the file cannot be written
+     */
+    Path hibernate(TerminalSession session) throws IOException {
+        SessionSnapshot snapshot = SessionSnapshot.capture(session);
+        Path file = directory.resolve("session-" + nextFileNumber.incrementAndGet() + FILE_SUFFIX);
+        try {
+            snapshot.write(file);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Restores a session from its file and deletes the file.
+     *
+     * @param file A file returned by {@link #hibernate}
+     * @return The restored session
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    TerminalSession rehydrate(Path file) throws IOException {
+        long start = System.nanoTime();
+        TerminalSession session;
+        try {
+            session = SessionSnapshot.read(file).restore();
+        } catch (IOException e) {
+            metrics.rehydrationFailed();
+            throw e;
+        } finally {
+            discard(file);
+        }
+        metrics.sessionRehydrated(System.nanoTime() - start);
+        return session;
+    }
+
+    /**
+     * Deletes a hibernated session that will not be restored.
+     *
+     * @param file A file returned by {@link #hibernate}
+     */
+    void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Leave it for whoever cleans up the directory
+        }
+    }
+}
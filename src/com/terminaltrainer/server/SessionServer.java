@@ -0,0 +1,482 @@
+package com.terminaltrainer.server;
+
+import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.exec.BudgetMetrics;
+import com.terminaltrainer.core.exec.ExecutionContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves many terminal sessions from one process over TCP, one session per
+ * connection, with a line-based protocol that works with telnet or nc: the
+ * client sends command lines, the server sends their output followed by a
+ * new prompt. Ctrl+C, raw or as a telnet interrupt, cancels the running
+ * command; 'exit' or 'logout' ends the session.
+ *
+ * A single selector thread does all socket I/O without blocking. Commands
+ * run on a bounded pool, one at a time per session, and are refused with a
+ * message when the pool's queue is full. Output a slow client has not read
+ * yet is limited per connection: past the limit the command writing it
+ * waits, and past a number of queued command lines the server stops reading
+ * from the client, so TCP flow control pushes back on it. Connections that
+ * stay idle longer than the configured timeout are closed.
+ *
+ * The command pool uses platform threads on purpose. Commands are CPU-bound
+ * work on in-memory file systems, and the pool's size is what limits how
+ * many of them run at once. Running each command on its own virtual thread
+ * would remove that limit. A command waiting for a slow client to read its
+ * output holds its worker, so a slow client cannot get more work running.
+ *
+ * If hibernation is configured, sessions idle for a shorter time are written
+ * to disk and dropped from memory while their connections stay open; the
+ * next command line restores the session before it runs. Both steps run on
+ * the command pool, never on the selector thread.
+ */
+public class SessionServer implements AutoCloseable {
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final ServerConfig config;
+    private final ServerMetrics metrics;
+    private final BudgetMetrics budgetMetrics;
+    private final Queue<Runnable> selectorTasks;
+    private final Set<ClientConnection> connections;
+    private final ByteBuffer readBuffer;
+    private final SessionHibernator hibernator;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private ThreadPoolExecutor commandPool;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    /**
+     * Creates a new server. Call {@link #start()} to begin accepting connections.
+     *
+     * @param config The settings
+     */
+    public SessionServer(ServerConfig config) {
+        this.config = config;
+        this.metrics = new ServerMetrics();
+        this.budgetMetrics = new BudgetMetrics();
+        this.selectorTasks = new ConcurrentLinkedQueue<>();
+        this.connections = new HashSet<>();
+        this.readBuffer = ByteBuffer.allocateDirect(8192);
+        this.hibernator = config.getHibernationDirectory() != null && config.getHibernateAfterMillis() > 0
+                ? new SessionHibernator(config.getHibernationDirectory(), metrics)
+                : null;
+    }
+
+    /**
+     * Binds the listening socket and starts the selector thread.
+     *
+     * @throws IOException if the address cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(config.getAddress(), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        commandPool = new ThreadPoolExecutor(config.getCommandThreads(), config.getCommandThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(config.getCommandQueueSize()), runnable -> {
+                    Thread thread = new Thread(runnable, "session-command-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        commandPool.allowCoreThreadTimeOut(true);
+
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "session-server");
+        selectorThread.start();
+    }
+
+    /**
+     * Gets the port the server listens on, useful when it was started on port 0.
+     *
+     * @return The port
+     */
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.socket().getLocalSocketAddress()).getPort();
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the budget metrics shared by all sessions of this server.
+     *
+     * @return The metrics
+     */
+    public BudgetMetrics getBudgetMetrics() {
+        return budgetMetrics;
+    }
+
+    /**
+     * Stops accepting connections, cancels running commands and closes every session.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commandPool.shutdownNow();
+    }
+
+    /**
+     * Waits until the server has been closed.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        selectorThread.join();
+    }
+
+    boolean isSelectorThread() {
+        return Thread.currentThread() == selectorThread;
+    }
+
+    /**
+     * Runs a task on the selector thread, which owns all selection keys.
+     */
+    void runOnSelector(Runnable task) {
+        selectorTasks.add(task);
+        selector.wakeup();
+    }
+
+    private void selectLoop() {
+        long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL_MILLIS;
+
+        while (running) {
+            try {
+                selector.select(SWEEP_INTERVAL_MILLIS);
+            } catch (IOException e) {
+                break;
+            }
+
+            Runnable task;
+            while ((task = selectorTasks.poll()) != null) {
+                task.run();
+            }
+
+            long now = System.currentTimeMillis();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept(now);
+                    continue;
+                }
+
+                ClientConnection connection = (ClientConnection) key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        read(connection, now);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flushOutput();
+                    }
+                } catch (IOException e) {
+                    closeConnection(connection);
+                }
+            }
+
+            if (now >= nextSweep) {
+                sweepIdle(now);
+                nextSweep = now + SWEEP_INTERVAL_MILLIS;
+            }
+        }
+
+        for (ClientConnection connection : new ArrayList<>(connections)) {
+            closeConnection(connection);
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Shutting down anyway
+        }
+    }
+
+    private void accept(long now) {
+        SocketChannel channel;
+        try {
+            channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            return;
+        }
+
+        if (connections.size() >= config.getMaxSessions()) {
+            metrics.sessionRejected();
+            try {
+                channel.write(StandardCharsets.UTF_8.encode("Server full, try again later.\n"));
+                channel.close();
+            } catch (IOException e) {
+                // Nothing more to tell the client
+            }
+            return;
+        }
+
+        try {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            ClientConnection connection = new ClientConnection(this, channel, key, newSession(),
+                    config.getMaxPendingOutputBytes(), now);
+            key.attach(connection);
+            connections.add(connection);
+            metrics.sessionOpened();
+
+            connection.send("Welcome to Terminal Trainer!\n"
+                    + "Type 'help' for a list of available commands, or 'exit' to leave.\n\n");
+            connection.sendPrompt();
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already failed
+            }
+        }
+    }
+
+    private TerminalSession newSession() {
+        TerminalSession session = new TerminalSession();
+        session.getCommandProcessor().setBudgetMetrics(budgetMetrics);
+        return session;
+    }
+
+
+    private void read(ClientConnection connection, long now) throws IOException {
+        readBuffer.clear();
+        int read = connection.getChannel().read(readBuffer);
+        if (read < 0) {
+            closeConnection(connection);
+            return;
+        }
+        readBuffer.flip();
+        connection.receive(readBuffer, now);
+        dispatch(connection);
+    }
+
+    /**
+     * Starts the connection's next command line if it is not already running
+     * one, and adjusts whether more input is read.
+     */
+    private void dispatch(ClientConnection connection) {
+        while (!connection.isRunning() && !connection.isClosing() && !connection.getPendingLines().isEmpty()) {
+            String line = connection.getPendingLines().poll();
+            String trimmed = line.trim();
+            if (trimmed.equals("exit") || trimmed.equals("logout")) {
+                connection.getPendingLines().clear();
+                connection.send("logout\n");
+                connection.closeAfterFlush();
+                return;
+            }
+
+            ExecutionContext context = new ExecutionContext();
+            connection.setRunning(true, context);
+            try {
+                commandPool.execute(context.wrap(() -> runCommand(connection, line)));
+            } catch (RejectedExecutionException e) {
+                connection.setRunning(false, null);
+                metrics.commandRefused();
+                connection.send("Server busy, command not run: " + line + "\n");
+                connection.sendPrompt();
+            }
+        }
+
+        SelectionKey key = connection.getKey();
+        if (key.isValid() && !connection.isClosing()) {
+            boolean reading = connection.getPendingLines().size() < config.getMaxPendingLines();
+            int ops = key.interestOps();
+            key.interestOps(reading ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Runs one command line on a pool thread, then hands the connection back
+     * to the selector thread for its next line.
+     */
+    private void runCommand(ClientConnection connection, String line) {
+        try {
+            TerminalSession session = connection.getSession();
+            if (session == null) {
+                session = rehydrate(connection);
+            }
+
+            if (session != null) {
+                long start = System.nanoTime();
+                session.executeCommand(line, connection.getSink());
+                metrics.commandCompleted(System.nanoTime() - start);
+
+                if (ExecutionContext.current().isCancelled()) {
+                    connection.send("^C\n");
+                }
+                connection.sendPrompt();
+            }
+        } finally {
+            // Whatever happened, the connection must not stay marked as running
+            runOnSelector(() -> {
+                connection.setRunning(false, null);
+                if (connection.getKey().isValid()) {
+                    dispatch(connection);
+                }
+            });
+        }
+    }
+
+    /**
+     * Restores a hibernated session on a pool thread.
+     *
+     * @return The session, or null if the connection was closed meanwhile
+     */
+    private TerminalSession rehydrate(ClientConnection connection) {
+        Path file = connection.takeHibernatedFile();
+        if (file == null) {
+            return null;
+        }
+
+        TerminalSession session;
+        try {
+            session = hibernator.rehydrate(file);
+            session.getCommandProcessor().setBudgetMetrics(budgetMetrics);
+        } catch (IOException e) {
+            connection.send("Could not restore your session (" + e.getMessage() + "); starting a new one.\n");
+            session = newSession();
+        }
+        connection.rehydrated(session);
+        return session;
+    }
+
+    private void sweepIdle(long now) {
+        long timeout = config.getIdleTimeoutMillis();
+        long hibernateAfter = hibernator != null ? config.getHibernateAfterMillis() : 0;
+
+        List<ClientConnection> evict = new ArrayList<>();
+        List<ClientConnection> hibernate = new ArrayList<>();
+        for (ClientConnection connection : connections) {
+            if (connection.isRunning() || connection.isClosing()) {
+                continue;
+            }
+            long idle = now - connection.getLastActivity();
+            if (timeout > 0 && idle > timeout) {
+                evict.add(connection);
+            } else if (hibernateAfter > 0 && idle > hibernateAfter && !connection.isHibernated()) {
+                hibernate.add(connection);
+            }
+        }
+
+        for (ClientConnection connection : evict) {
+            metrics.sessionEvicted();
+            connection.send("\nSession closed after " + (timeout / 1000) + " seconds of inactivity.\n");
+            connection.closeAfterFlush();
+        }
+        for (ClientConnection connection : hibernate) {
+            hibernate(connection);
+        }
+    }
+
+    /**
+     * Writes an idle session to disk on a pool thread. The connection counts
+     * as running meanwhile, so no command line starts until it is done.
+     */
+    private void hibernate(ClientConnection connection) {
+        TerminalSession session = connection.getSession();
+        connection.setRunning(true, null);
+        try {
+            commandPool.execute(() -> {
+                Path file;
+                try {
+                    file = hibernator.hibernate(session);
+                } catch (IOException e) {
+                    metrics.hibernationFailed();
+                    file = null;
+                }
+
+                Path written = file;
+                runOnSelector(() -> {
+                    connection.setRunning(false, null);
+                    if (!connection.getKey().isValid()) {
+                        if (written != null) {
+                            hibernator.discard(written);
+                        }
+                        return;
+                    }
+                    if (written != null) {
+                        connection.hibernated(written);
+                        metrics.sessionHibernated();
+                    }
+                    dispatch(connection);
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool is busy; try again at the next sweep
+            connection.setRunning(false, null);
+        }
+    }
+
+    /**
+     * Closes a connection and releases its session. Runs on the selector thread.
+     */
+    void closeConnection(ClientConnection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        connection.markClosed();
+        connection.getKey().cancel();
+        try {
+            connection.getChannel().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+
+        Path hibernatedFile = connection.takeHibernatedFile();
+        if (hibernatedFile != null) {
+            hibernator.discard(hibernatedFile);
+        }
+        metrics.sessionClosed(hibernatedFile != null);
+    }
+}
@@ -0,0 +1,94 @@
+package com.terminaltrainer.ui;
+
+import com.terminaltrainer.core.io.AnsiStyle;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import java.awt.Color;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns {@link AnsiStyle} codes into document attributes, on top of the
+ * style a stream is normally shown in.
+ *
+ * Each code's attributes are made once and then shared, so consecutive
+ * runs in the same style are the same object and the renderer can merge
+ * them. Safe to use from the threads producing output.
+ */
+final class AnsiAttributes {
+    /**
+     * The most styles kept before the cache starts over.
+     */
+    private static final int MAX_CACHED = 1024;
+
+    private final AttributeSet base;
+    private final Color background;
+    private final Map<Integer, AttributeSet> cache;
+
+    /**
+     * Creates the attributes for one stream.
+     *
+     * @param base The style for text in the default style
+     * @param background The terminal's background color, used when colors are inverted
+     */
+    AnsiAttributes(AttributeSet base, Color background) {
+        this.base = base;
+        this.background = background;
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the attributes for text in a style.
+     *
+     * @param style The {@link AnsiStyle}
+     * @return The base style for the default style, otherwise the base style with the changes applied
+     */
+    AttributeSet get(int style) {
+        if (style == AnsiStyle.DEFAULT) {
+            return base;
+        }
+        AttributeSet attributes = cache.get(style);
+        if (attributes == null) {
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+            attributes = create(style);
+            AttributeSet raced = cache.putIfAbsent(style, attributes);
+            if (raced != null) {
+                attributes = raced;
+            }
+        }
+        return attributes;
+    }
+
+    private AttributeSet create(int style) {
+        SimpleAttributeSet attributes = new SimpleAttributeSet(base);
+        int foregroundIndex = AnsiStyle.getForeground(style);
+        int backgroundIndex = AnsiStyle.getBackground(style);
+        Color foreground = foregroundIndex == AnsiStyle.DEFAULT_COLOR
+                ? StyleConstants.getForeground(base) : new Color(AnsiStyle.rgb(foregroundIndex));
+        Color fill = backgroundIndex == AnsiStyle.DEFAULT_COLOR ? null : new Color(AnsiStyle.rgb(backgroundIndex));
+        if (AnsiStyle.isInverse(style)) {
+            Color swapped = fill != null ? fill : background;
+            fill = foreground;
+            foreground = swapped;
+        }
+
+        StyleConstants.setForeground(attributes, foreground);
+        if (fill != null) {
+            StyleConstants.setBackground(attributes, fill);
+        }
+        if (AnsiStyle.isBold(style)) {
+            StyleConstants.setBold(attributes, true);
+        }
+        if (AnsiStyle.isItalic(style)) {
+            StyleConstants.setItalic(attributes, true);
+        }
+        if (AnsiStyle.isUnderline(style)) {
+            StyleConstants.setUnderline(attributes, true);
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,278 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JTextPane;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+import javax.swing.text.Position;
+import java.awt.Color;
+import java.awt.FlowLayout;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bar above the terminal for finding text in the scrollback, opened with Ctrl+F.
+ *
+ * Matches are found as the query is typed, ignoring case, and kept up to
+ * date while output arrives. Enter and Up move to the match before the
+ * current one, Shift+Enter and Down to the one after, wrapping around at
+ * either end; Escape closes the bar. Only the matches in view are
+ * highlighted, so the cost of highlighting does not grow with the number of
+ * matches. The caret stays in the input line; the terminal scrolls instead.
+ */
+final class FindBar extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    private static final Highlighter.HighlightPainter MATCH_PAINTER =
+            new DefaultHighlighter.DefaultHighlightPainter(new Color(100, 90, 0));
+    private static final Highlighter.HighlightPainter CURRENT_PAINTER =
+            new DefaultHighlighter.DefaultHighlightPainter(new Color(200, 110, 0));
+
+    private final JTextPane terminal;
+    private final JScrollPane scrollPane;
+    private final ScrollbackSearch search;
+    private final JTextField field;
+    private final JLabel status;
+    private final List<Object> highlights;
+    private Position current;
+    private boolean refreshScheduled;
+
+    /**
+     * Creates a hidden find bar.
+     *
+     * @param terminal The text pane to search
+     * @param scrollPane The scroll pane showing it
+     */
+    FindBar(JTextPane terminal, JScrollPane scrollPane) {
+        super(new FlowLayout(FlowLayout.LEFT, 5, 2));
+        this.terminal = terminal;
+        this.scrollPane = scrollPane;
+        this.search = new ScrollbackSearch(terminal.getDocument(), this::scheduleRefresh);
+        this.field = new JTextField(24);
+        this.status = new JLabel();
+        this.highlights = new ArrayList<>();
+
+        JButton previous = new JButton("Previous");
+        previous.setToolTipText("Previous match (Enter)");
+        previous.addActionListener(e -> move(-1));
+        JButton next = new JButton("Next");
+        next.setToolTipText("Next match (Shift+Enter)");
+        next.addActionListener(e -> move(1));
+        JButton close = new JButton("Close");
+        close.setToolTipText("Close (Escape)");
+        close.addActionListener(e -> close());
+
+        add(new JLabel("Find:"));
+        add(field);
+        add(previous);
+        add(next);
+        add(close);
+        add(status);
+        setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.GRAY));
+        setVisible(false);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                queryChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                queryChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        bind(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "previous", () -> move(-1));
+        bind(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "previous", () -> move(-1));
+        bind(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, InputEvent.SHIFT_DOWN_MASK), "next", () -> move(1));
+        bind(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "next", () -> move(1));
+        bind(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "close", this::close);
+        bind(KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.CTRL_DOWN_MASK), "selectAll", field::selectAll);
+
+        scrollPane.getViewport().addChangeListener(e -> scheduleRefresh());
+    }
+
+    private void bind(KeyStroke key, String name, Runnable action) {
+        field.getInputMap(JComponent.WHEN_FOCUSED).put(key, name);
+        field.getActionMap().put(name, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Shows the bar, or focuses it if it is already showing.
+     */
+    void open() {
+        if (!isVisible()) {
+            setVisible(true);
+            revalidate();
+            search.setQuery(field.getText());
+            current = null;
+            selectNearest();
+        }
+        field.selectAll();
+        field.requestFocusInWindow();
+    }
+
+    /**
+     * Hides the bar, removes its highlights and gives the focus back to the terminal.
+     */
+    void close() {
+        setVisible(false);
+        revalidate();
+        search.setQuery("");
+        current = null;
+        clearHighlights();
+        terminal.requestFocusInWindow();
+    }
+
+    private void queryChanged() {
+        search.setQuery(field.getText());
+        int index = currentIndex();
+        if (index >= 0) {
+            select(index);
+        } else {
+            selectNearest();
+        }
+    }
+
+    /**
+     * Moves to the last match starting in or above the view, or the first
+     * match if there is none above.
+     */
+    private void selectNearest() {
+        if (search.size() == 0) {
+            current = null;
+            refresh();
+            return;
+        }
+        Rectangle view = scrollPane.getViewport().getViewRect();
+        int bottom = terminal.viewToModel2D(new Point(view.x + view.width, view.y + view.height));
+        int index = search.indexAtOrAfter(bottom + 1) - 1;
+        select(Math.max(0, index));
+    }
+
+    private void move(int direction) {
+        int size = search.size();
+        if (size == 0) {
+            return;
+        }
+        int index = currentIndex();
+        if (index < 0) {
+            selectNearest();
+        } else {
+            select((index + direction + size) % size);
+        }
+    }
+
+    private void select(int index) {
+        int start = search.getStart(index);
+        try {
+            current = terminal.getDocument().createPosition(start);
+            Rectangle match = terminal.modelToView2D(start).getBounds();
+            match.add(terminal.modelToView2D(start + search.getQueryLength()).getBounds());
+            // Leave a few lines of context around the match
+            match.grow(0, match.height * 3);
+            terminal.scrollRectToVisible(match);
+        } catch (BadLocationException e) {
+            current = null;
+        }
+        refresh();
+    }
+
+    /**
+     * Finds the current match among the matches.
+     *
+     * @return Its index, or -1 if there is none or its text has changed
+     */
+    private int currentIndex() {
+        if (current == null) {
+            return -1;
+        }
+        int offset = current.getOffset();
+        int index = search.indexAtOrAfter(offset);
+        return index < search.size() && search.getStart(index) == offset ? index : -1;
+    }
+
+    private void scheduleRefresh() {
+        if (!refreshScheduled && isVisible()) {
+            refreshScheduled = true;
+            SwingUtilities.invokeLater(() -> {
+                refreshScheduled = false;
+                if (isVisible()) {
+                    refresh();
+                }
+            });
+        }
+    }
+
+    /**
+     * Updates the count and highlights the matches in view.
+     */
+    private void refresh() {
+        clearHighlights();
+        int size = search.size();
+        int index = currentIndex();
+        if (field.getText().isEmpty()) {
+            status.setText("");
+        } else if (size == 0) {
+            status.setText("No matches");
+        } else if (index < 0) {
+            status.setText(size + (size == 1 ? " match" : " matches"));
+        } else {
+            status.setText((index + 1) + " of " + size);
+        }
+        if (size == 0) {
+            return;
+        }
+
+        Rectangle view = scrollPane.getViewport().getViewRect();
+        int top = terminal.viewToModel2D(new Point(view.x, view.y));
+        int bottom = terminal.viewToModel2D(new Point(view.x + view.width, view.y + view.height));
+        int length = search.getQueryLength();
+        Highlighter highlighter = terminal.getHighlighter();
+        try {
+            for (int i = search.indexAtOrAfter(top - length + 1); i < size && search.getStart(i) <= bottom; i++) {
+                int start = search.getStart(i);
+                highlights.add(highlighter.addHighlight(start, start + length,
+                        i == index ? CURRENT_PAINTER : MATCH_PAINTER));
+            }
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void clearHighlights() {
+        Highlighter highlighter = terminal.getHighlighter();
+        for (Object highlight : highlights) {
+            highlighter.removeHighlight(highlight);
+        }
+        highlights.clear();
+    }
+}
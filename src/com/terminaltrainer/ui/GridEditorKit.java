@@ -0,0 +1,50 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.text.Element;
+import javax.swing.text.StyledEditorKit;
+import javax.swing.text.View;
+import javax.swing.text.ViewFactory;
+
+/**
+ * An editor kit that shows a whole styled document with one {@link GridView},
+ * instead of the paragraph and glyph views a text pane normally builds.
+ * The document, caret, highlights and key handling stay those of the text pane.
+ */
+final class GridEditorKit extends StyledEditorKit {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The system property that selects the renderer; "grid" selects this one.
+     */
+    static final String RENDERER_PROPERTY = "terminaltrainer.renderer";
+
+    private static final ViewFactory FACTORY = GridViewFactory.INSTANCE;
+
+    /**
+     * Checks if the system properties ask for the grid renderer.
+     *
+     * @return true if terminaltrainer.renderer is "grid"
+     */
+    static boolean isSelected() {
+        return "grid".equalsIgnoreCase(System.getProperty(RENDERER_PROPERTY, "").trim());
+    }
+
+    @Override
+    public ViewFactory getViewFactory() {
+        return FACTORY;
+    }
+
+    @Override
+    public Object clone() {
+        return new GridEditorKit();
+    }
+
+    private enum GridViewFactory implements ViewFactory {
+        INSTANCE;
+
+        @Override
+        public View create(Element element) {
+            return new GridView(element);
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.LayeredHighlighter;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import javax.swing.text.View;
+import javax.swing.text.ViewFactory;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Shows a styled document as a grid of fixed-size character cells, one
+ * document line after another, each wrapped at the width of the view.
+ *
+ * Unlike the paragraph views a text pane builds, nothing is laid out per
+ * line: the only layout kept is how many rows each line takes, so an edit
+ * at the end of the document costs the same however much scrollback there
+ * is, and a line of a megabyte costs no more to show than a short one.
+ * Painting only touches the rows inside the clip, reading their text and
+ * style runs straight from the document. Runs of printable ASCII are drawn
+ * as text, which the graphics pipeline renders from its own glyph cache;
+ * any other character is copied from a cache of one-cell glyph images, so
+ * it cannot push the rest of the row off the grid.
+ *
+ * Every character takes one cell in the font's widest advance; tabs and
+ * control characters are shown as blanks.
+ */
+final class GridView extends View {
+    /**
+     * The most distinct styles whose glyphs are cached before the cache starts over.
+     */
+    private static final int MAX_STYLES = 64;
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final Segment segment = new Segment();
+
+    // Cell metrics, for the container's font
+    private Font font;
+    private int cellWidth = 8;
+    private int cellHeight = 16;
+    private int ascent = 12;
+    private int columns = 80;
+
+    // rowStart[i] is the first row of line i; rowStart[lineCount] is the row count
+    private int[] rowStart = new int[1];
+    private int lineCount;
+    private boolean layoutValid;
+
+    private final Map<AttributeSet, GlyphStyle> styles = new IdentityHashMap<>();
+    private AttributeSet lastAttributes;
+    private GlyphStyle lastStyle;
+
+    /**
+     * Creates a view of a document.
+     *
+     * @param element The root element of the document, with one child per line
+     */
+    GridView(Element element) {
+        super(element);
+    }
+
+
+    @Override
+    public float getPreferredSpan(int axis) {
+        updateMetrics();
+        if (axis == X_AXIS) {
+            return (float) columns * cellWidth;
+        }
+        ensureLayout();
+        return (float) rowStart[lineCount] * cellHeight;
+    }
+
+
+    @Override
+    public float getMinimumSpan(int axis) {
+        return axis == X_AXIS ? cellWidth : getPreferredSpan(axis);
+    }
+
+
+    @Override
+    public void setSize(float width, float height) {
+        updateMetrics();
+        int newColumns = Math.max(1, (int) width / cellWidth);
+        if (newColumns != columns) {
+            columns = newColumns;
+            layoutValid = false;
+            preferenceChanged(null, true, true);
+        }
+    }
+
+
+    @Override
+    public void paint(Graphics g, Shape allocation) {
+        updateMetrics();
+        ensureLayout();
+        Rectangle alloc = allocation.getBounds();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = alloc;
+        }
+
+        int totalRows = rowStart[lineCount];
+        int firstRow = Math.max(0, (clip.y - alloc.y) / cellHeight);
+        int lastRow = Math.min(totalRows - 1, (clip.y + clip.height - alloc.y) / cellHeight);
+        if (firstRow > lastRow) {
+            return;
+        }
+
+        // Selections and other highlights are drawn under the text, row by row
+        Component container = getContainer();
+        LayeredHighlighter highlighter = null;
+        if (container instanceof JTextComponent
+                && ((JTextComponent) container).getHighlighter() instanceof LayeredHighlighter) {
+            highlighter = (LayeredHighlighter) ((JTextComponent) container).getHighlighter();
+        }
+
+        Element root = getElement();
+        int line = lineAtRow(firstRow);
+        for (int row = firstRow; row <= lastRow; row++) {
+            while (rowStart[line + 1] <= row) {
+                line++;
+            }
+            Element element = root.getElement(line);
+            int start = element.getStartOffset() + (row - rowStart[line]) * columns;
+            int end = Math.min(element.getEndOffset() - 1, start + columns);
+            if (end > start) {
+                if (highlighter != null) {
+                    highlighter.paintLayeredHighlights(g, start, end, allocation, (JTextComponent) container, this);
+                }
+                paintRow(g, start, end, alloc.x, alloc.y + row * cellHeight);
+            }
+        }
+    }
+
+    private void paintRow(Graphics g, int start, int end, int x, int y) {
+        Document doc = getDocument();
+        try {
+            doc.getText(start, end - start, segment);
+        } catch (BadLocationException e) {
+            return;
+        }
+
+        int offset = start;
+        while (offset < end) {
+            int runEnd = end;
+            AttributeSet attributes = null;
+            if (doc instanceof StyledDocument) {
+                Element run = ((StyledDocument) doc).getCharacterElement(offset);
+                runEnd = Math.min(end, run.getEndOffset());
+                attributes = run.getAttributes();
+            }
+            GlyphStyle style = getStyle(attributes);
+            int runX = x + (offset - start) * cellWidth;
+            int runWidth = (runEnd - offset) * cellWidth;
+            if (style.background != null) {
+                g.setColor(style.background);
+                g.fillRect(runX, y, runWidth, cellHeight);
+            }
+            g.setFont(style.glyphFont);
+            g.setColor(style.foreground);
+            if (style.underline) {
+                g.drawLine(runX, y + ascent + 1, runX + runWidth - 1, y + ascent + 1);
+            }
+            int i = offset;
+            while (i < runEnd) {
+                int from = i;
+                while (i < runEnd && isGridChar(segment.array[segment.offset + i - start])) {
+                    i++;
+                }
+                if (i > from) {
+                    g.drawChars(segment.array, segment.offset + from - start, i - from, x + (from - start) * cellWidth, y + ascent);
+                }
+                if (i < runEnd) {
+                    char c = segment.array[segment.offset + i - start];
+                    if (c > ' ') {
+                        g.drawImage(style.getGlyph(c), x + (i - start) * cellWidth, y, null);
+                    }
+                    i++;
+                }
+            }
+            offset = runEnd;
+        }
+    }
+
+    /**
+     * Checks if a character can be drawn as part of a run. Printable ASCII
+     * advances by exactly one cell in a monospaced font; anything else is
+     * drawn into a cell of its own so a fallback font cannot shift the grid.
+     */
+    private static boolean isGridChar(char c) {
+        return c >= ' ' && c <= '~';
+    }
+
+
+    @Override
+    public Shape modelToView(int pos, Shape allocation, Position.Bias bias) throws BadLocationException {
+        Document doc = getDocument();
+        if (pos < 0 || pos > doc.getLength()) {
+            throw new BadLocationException("Invalid offset", pos);
+        }
+        updateMetrics();
+        ensureLayout();
+        Rectangle alloc = allocation.getBounds();
+
+        Element root = getElement();
+        int line = root.getElementIndex(pos);
+        Element element = root.getElement(line);
+        int column = pos - element.getStartOffset();
+        int length = element.getEndOffset() - 1 - element.getStartOffset();
+        int row = column / columns;
+        int x = column % columns;
+        // The end of a line filling its last row is shown after that row, not on a new one
+        if (row > 0 && x == 0 && column >= length) {
+            row--;
+            x = columns;
+        }
+        return new Rectangle(alloc.x + x * cellWidth, alloc.y + (rowStart[line] + row) * cellHeight, 1, cellHeight);
+    }
+
+
+    @Override
+    public Shape modelToView(int p0, Position.Bias b0, int p1, Position.Bias b1, Shape allocation)
+            throws BadLocationException {
+        Rectangle alloc = allocation.getBounds();
+        Rectangle start = modelToView(p0, allocation, b0).getBounds();
+        Rectangle end = modelToView(p1, allocation, b1).getBounds();
+        // A range ending at a wrap ends after the last cell of its row, not before the first cell of the next
+        if (p1 > p0 && end.y > start.y && end.x == alloc.x) {
+            end = new Rectangle(alloc.x + columns * cellWidth, end.y - cellHeight, 1, cellHeight);
+        }
+        if (end.y != start.y) {
+            start.x = alloc.x;
+            start.width = alloc.width;
+        }
+        start.add(end);
+        return start;
+    }
+
+
+    @Override
+    public int viewToModel(float x, float y, Shape allocation, Position.Bias[] biasReturn) {
+        updateMetrics();
+        ensureLayout();
+        Rectangle alloc = allocation.getBounds();
+        biasReturn[0] = Position.Bias.Forward;
+
+        int row = (int) Math.floor((y - alloc.y) / cellHeight);
+        if (row < 0) {
+            return getStartOffset();
+        }
+        if (row >= rowStart[lineCount]) {
+            return getDocument().getLength();
+        }
+
+        int line = lineAtRow(row);
+        Element element = getElement().getElement(line);
+        int length = element.getEndOffset() - 1 - element.getStartOffset();
+        int cell = Math.round((x - alloc.x) / cellWidth);
+        int column = (row - rowStart[line]) * columns + Math.max(0, Math.min(columns, cell));
+        return element.getStartOffset() + Math.min(column, length);
+    }
+
+
+    @Override
+    public void insertUpdate(DocumentEvent e, Shape allocation, ViewFactory factory) {
+        linesChanged(e, allocation);
+    }
+
+
+    @Override
+    public void removeUpdate(DocumentEvent e, Shape allocation, ViewFactory factory) {
+        linesChanged(e, allocation);
+    }
+
+
+    @Override
+    public void changedUpdate(DocumentEvent e, Shape allocation, ViewFactory factory) {
+        linesChanged(e, allocation);
+    }
+
+    /**
+     * Recounts the rows of the lines from the first one an edit touched,
+     * and repaints from there down.
+     */
+    private void linesChanged(DocumentEvent e, Shape allocation) {
+        int oldRows = rowStart[lineCount];
+        int firstLine = getElement().getElementIndex(e.getOffset());
+        if (!layoutValid || firstLine > lineCount) {
+            layoutValid = false;
+            ensureLayout();
+            firstLine = 0;
+        } else {
+            layoutFrom(firstLine);
+        }
+
+        int newRows = rowStart[lineCount];
+        if (newRows != oldRows) {
+            preferenceChanged(null, false, true);
+        }
+        Component container = getContainer();
+        if (container != null) {
+            if (allocation == null) {
+                container.repaint();
+            } else {
+                Rectangle alloc = allocation.getBounds();
+                int top = rowStart[Math.min(firstLine, lineCount)] * cellHeight;
+                container.repaint(alloc.x, alloc.y + top, alloc.width, Math.max(oldRows, newRows) * cellHeight - top);
+            }
+        }
+    }
+
+    private void ensureLayout() {
+        if (!layoutValid) {
+            layoutFrom(0);
+            layoutValid = true;
+        }
+    }
+
+    /**
+     * Recounts the rows of every line from one on. Lines before it are unchanged.
+     */
+    private void layoutFrom(int firstLine) {
+        Element root = getElement();
+        int count = root.getElementCount();
+        if (rowStart.length < count + 1) {
+            rowStart = Arrays.copyOf(rowStart, Math.max(count + 1, rowStart.length * 2));
+        }
+        lineCount = count;
+        int row = rowStart[firstLine];
+        for (int i = firstLine; i < count; i++) {
+            Element element = root.getElement(i);
+            int length = element.getEndOffset() - 1 - element.getStartOffset();
+            row += Math.max(1, (length + columns - 1) / columns);
+            rowStart[i + 1] = row;
+        }
+    }
+
+    /**
+     * Finds the line shown on a row.
+     */
+    private int lineAtRow(int row) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (rowStart[mid] <= row) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void updateMetrics() {
+        Component container = getContainer();
+        if (container == null || container.getFont() == null || container.getFont().equals(font)) {
+            return;
+        }
+        font = container.getFont();
+        FontMetrics metrics = container.getFontMetrics(font);
+        cellWidth = Math.max(1, metrics.charWidth('W'));
+        cellHeight = Math.max(1, metrics.getHeight());
+        ascent = metrics.getAscent();
+        styles.clear();
+        lastAttributes = null;
+        lastStyle = null;
+        layoutValid = false;
+    }
+
+    private GlyphStyle getStyle(AttributeSet attributes) {
+        if (attributes == lastAttributes && lastStyle != null) {
+            return lastStyle;
+        }
+        GlyphStyle style = styles.get(attributes);
+        if (style == null) {
+            if (styles.size() >= MAX_STYLES) {
+                styles.clear();
+            }
+            style = new GlyphStyle(attributes);
+            styles.put(attributes, style);
+        }
+        lastAttributes = attributes;
+        lastStyle = style;
+        return style;
+    }
+
+
+    /**
+     * The colours, font and underline of a style, with the glyphs drawn in it so far.
+     * Glyphs are kept in pages of 256 characters made when first needed.
+     */
+    private final class GlyphStyle {
+        private final Color foreground;
+        private final Color background;
+        private final boolean underline;
+        private final Font glyphFont;
+        private final Image[][] pages = new Image[Character.MAX_VALUE + 1 >> PAGE_BITS][];
+
+        private GlyphStyle(AttributeSet attributes) {
+            Component container = getContainer();
+            if (attributes != null && attributes.isDefined(StyleConstants.Foreground)) {
+                foreground = StyleConstants.getForeground(attributes);
+            } else {
+                foreground = container != null ? container.getForeground() : Color.WHITE;
+            }
+            boolean defined = attributes != null && attributes.isDefined(StyleConstants.Background);
+            background = defined ? StyleConstants.getBackground(attributes) : null;
+            underline = attributes != null && StyleConstants.isUnderline(attributes);
+            int fontStyle = Font.PLAIN;
+            if (attributes != null && StyleConstants.isBold(attributes)) {
+                fontStyle |= Font.BOLD;
+            }
+            if (attributes != null && StyleConstants.isItalic(attributes)) {
+                fontStyle |= Font.ITALIC;
+            }
+            glyphFont = font != null ? font.deriveFont(fontStyle) : new Font(Font.MONOSPACED, fontStyle, 14);
+        }
+
+        private Image getGlyph(char c) {
+            Image[] page = pages[c >>> PAGE_BITS];
+            if (page == null) {
+                page = new Image[PAGE_SIZE];
+                pages[c >>> PAGE_BITS] = page;
+            }
+            Image glyph = page[c & PAGE_SIZE - 1];
+            if (glyph == null) {
+                glyph = drawGlyph(c);
+                page[c & PAGE_SIZE - 1] = glyph;
+            }
+            return glyph;
+        }
+
+        private Image drawGlyph(char c) {
+            BufferedImage image = new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            try {
+                Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+                if (hints instanceof Map) {
+                    g.addRenderingHints((Map<?, ?>) hints);
+                } else {
+                    g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                }
+                g.setFont(glyphFont);
+                g.setColor(foreground);
+                g.drawString(String.valueOf(c), 0, ascent);
+            } finally {
+                g.dispose();
+            }
+            return image;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.terminaltrainer.ui;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The images shown by the window, decoded and scaled on background threads
+ * so the window never waits for them.
+ *
+ * Images are read from the classpath next to this class. When running from
+ * a checkout whose classes were compiled without copying the images, they
+ * are read from the source tree instead. Each image is decoded once, and
+ * each size it is scaled to is made once and then shared.
+ */
+final class ImageAssets {
+    static final String MASCOT = "mascot.png";
+    static final String ICON = "TerminalIcon.png";
+
+    private static final Path SOURCE_DIRECTORY = Paths.get("src", "com", "terminaltrainer", "ui");
+
+    private final ThreadPoolExecutor loader;
+    private final Map<String, CompletableFuture<BufferedImage>> originals;
+    private final Map<String, CompletableFuture<BufferedImage>> scaled;
+
+    /**
+     * Creates an empty cache. Its threads stop when they have been idle for a while.
+     */
+    ImageAssets() {
+        this.loader = new ThreadPoolExecutor(2, 2, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "image-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loader.allowCoreThreadTimeOut(true);
+        this.originals = new ConcurrentHashMap<>();
+        this.scaled = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts decoding an image, unless it already has been.
+     *
+     * @param name The file name of the image
+     * @return The image, or a future failed with an {@link UncheckedIOException} if it cannot be read
+     */
+    CompletableFuture<BufferedImage> load(String name) {
+        return originals.computeIfAbsent(name, key -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, loader));
+    }
+
+    /**
+     * Gets an image scaled to a size, scaling it unless that size was made before.
+     *
+     * @param name The file name of the image
+     * @param width The width in pixels
+     * @param height The height in pixels
+     * @return The scaled image
+     */
+    CompletableFuture<BufferedImage> loadScaled(String name, int width, int height) {
+        return scaled.computeIfAbsent(name + '@' + width + 'x' + height,
+                key -> load(name).thenApplyAsync(image -> scale(image, width, height), loader));
+    }
+
+    private static BufferedImage read(String name) throws IOException {
+        URL url = ImageAssets.class.getResource(name);
+        BufferedImage image;
+        if (url != null) {
+            image = ImageIO.read(url);
+        } else {
+            Path file = SOURCE_DIRECTORY.resolve(name);
+            if (!Files.isRegularFile(file)) {
+                throw new FileNotFoundException(name + " is not on the classpath or in " + SOURCE_DIRECTORY);
+            }
+            image = ImageIO.read(file.toFile());
+        }
+        if (image == null) {
+            throw new IOException(name + " is not in a known image format");
+        }
+        return image;
+    }
+
+    /**
+     * Scales an image smoothly. Large reductions are done by halving first,
+     * since one bilinear step would skip most of the source pixels.
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != width || current.getHeight() != height) {
+            current = draw(current, width, height);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+}
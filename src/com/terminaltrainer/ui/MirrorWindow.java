@@ -0,0 +1,138 @@
+package com.terminaltrainer.ui;
+
+import com.terminaltrainer.core.io.AnsiParser;
+import com.terminaltrainer.core.io.OutputMirror;
+
+import javax.swing.JFrame;
+import javax.swing.JScrollPane;
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.WindowConstants;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A read-only window following a session's {@link OutputMirror}, for an
+ * instructor watching a learner's terminal. Opened with Ctrl+Shift+M; any
+ * number can be open at once.
+ *
+ * A daemon thread takes what the mirror has gathered at most once per
+ * frame and waits while the event dispatch thread inserts it, so a burst
+ * of output arrives as a few large inserts and never piles up in the event
+ * queue the learner's window shares. If the window falls too far behind,
+ * the mirror drops it back to a keyframe. The window keeps a bounded amount
+ * of text, dropping whole lines from the top.
+ */
+final class MirrorWindow {
+    private static final long FRAME_MILLIS = 50;
+    private static final int MAX_CHARS = 4 * OutputMirror.DEFAULT_KEYFRAME_CHARS;
+
+    private final OutputMirror.Viewer viewer;
+    private final JFrame frame;
+    private final JTextPane view;
+    private final StyledDocument doc;
+    private final AnsiAttributes attributes;
+    private final AnsiParser parser;
+    private final Thread follower;
+
+    private MirrorWindow(OutputMirror mirror, String title) {
+        this.viewer = mirror.subscribe();
+        this.frame = new JFrame(title);
+        this.view = new JTextPane();
+        view.setEditable(false);
+        view.setBackground(Color.BLACK);
+        view.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        this.doc = view.getStyledDocument();
+
+        SimpleAttributeSet base = new SimpleAttributeSet();
+        StyleConstants.setForeground(base, Color.LIGHT_GRAY);
+        this.attributes = new AnsiAttributes(base, view.getBackground());
+        this.parser = new AnsiParser((chars, offset, length, style) -> {
+            try {
+                doc.insertString(doc.getLength(), new String(chars, offset, length), attributes.get(style));
+            } catch (BadLocationException e) {
+                throw new IOException(e);
+            }
+        });
+
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.setSize(640, 480);
+        frame.getContentPane().add(new JScrollPane(view));
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                viewer.close();
+            }
+        });
+
+        this.follower = new Thread(this::follow, "mirror-viewer");
+        follower.setDaemon(true);
+    }
+
+    /**
+     * Opens a window following a mirror. Must be called on the event dispatch thread.
+     *
+     * @param mirror The mirror to follow
+     * @param title The window title
+     * @param owner The component to place the window next to
+     */
+    static void open(OutputMirror mirror, String title, Component owner) {
+        MirrorWindow window = new MirrorWindow(mirror, title);
+        window.frame.setLocationRelativeTo(owner);
+        window.frame.setVisible(true);
+        window.follower.start();
+    }
+
+    private void follow() {
+        try {
+            while (true) {
+                OutputMirror.Delta delta = viewer.take(1, TimeUnit.SECONDS);
+                if (delta == null) {
+                    if (!frame.isDisplayable()) {
+                        return;
+                    }
+                    continue;
+                }
+                SwingUtilities.invokeAndWait(() -> show(delta));
+                // Let the next frame's output gather in the mirror
+                Thread.sleep(FRAME_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            viewer.close();
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+            viewer.close();
+        }
+    }
+
+    private void show(OutputMirror.Delta delta) {
+        try {
+            if (delta.isKeyframe()) {
+                doc.remove(0, doc.getLength());
+                parser.reset();
+            }
+            char[] text = delta.getText().toCharArray();
+            parser.parse(text, 0, text.length);
+
+            if (doc.getLength() > MAX_CHARS) {
+                Element root = doc.getDefaultRootElement();
+                Element line = root.getElement(root.getElementIndex(doc.getLength() - MAX_CHARS));
+                doc.remove(0, Math.min(line.getEndOffset(), doc.getLength()));
+            }
+            view.setCaretPosition(doc.getLength());
+        } catch (BadLocationException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Caret;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.StyledDocument;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Carries command output from the threads producing it to the end of the
+ * terminal's document.
+ *
+ * Chunks are queued and merged into runs of one style as they arrive. A
+ * Swing timer starts inserting one frame after output arrives, so a
+ * command writing thousands of small chunks causes one document edit per
+ * style run per frame rather than one per chunk. Each frame stops inserting
+ * once its time budget is spent and queues the next one behind any events
+ * waiting on the event dispatch thread, so a large output is paged in over
+ * many frames and keys typed meanwhile are handled within a frame. The
+ * caret is not moved by each insertion, only once at the end of the frame.
+ *
+ * Producers that get too far ahead of the display wait for the queue to
+ * drain. Actions queued with {@link #whenRendered(Runnable)} run on the
+ * event dispatch thread once everything queued before them is in the document.
+ */
+final class OutputRenderer {
+    /**
+     * The time between frames.
+     */
+    static final int FRAME_MILLIS = 16;
+
+    /**
+     * How long one frame may spend inserting text, leaving the rest of the
+     * frame for input and painting.
+     */
+    private static final long FRAME_BUDGET_NANOS = 4_000_000;
+
+    /**
+     * The most characters inserted at once. Keeps the time between budget
+     * checks short.
+     */
+    private static final int SLICE_CHARS = 4 * 1024;
+
+    /**
+     * The most characters that may wait for the display before a producer is made to wait.
+     */
+    private static final int MAX_PENDING_CHARS = 256 * 1024;
+
+    private final JTextPane terminal;
+    private final StyledDocument doc;
+    private final Runnable afterFrame;
+    private final Timer timer;
+
+    // Guarded by queue
+    private final Deque<Run> queue;
+    private int pendingChars;
+    private boolean frameScheduled;
+
+    // Only used on the event dispatch thread
+    private char lastChar = '\n';
+
+    /**
+     * Creates a renderer for a terminal.
+     *
+     * @param terminal The text pane whose document receives the output
+     * @param afterFrame Runs on the event dispatch thread after each frame that inserted text
+     */
+    OutputRenderer(JTextPane terminal, Runnable afterFrame) {
+        this.terminal = terminal;
+        this.doc = terminal.getStyledDocument();
+        this.afterFrame = afterFrame;
+        this.queue = new ArrayDeque<>();
+        this.timer = new Timer(FRAME_MILLIS, event -> renderFrame());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Queues output. Called by the thread producing it.
+     *
+     * @param chars The characters to write from
+     * @param offset The index of the first character
+     * @param length The number of characters
+     * @param style The style to show them in
+     * @throws InterruptedIOException if the thread is interrupted while waiting for the display
+     */
+    void write(char[] chars, int offset, int length, AttributeSet style) throws InterruptedIOException {
+        if (length == 0) {
+            return;
+        }
+        synchronized (queue) {
+            while (pendingChars >= MAX_PENDING_CHARS) {
+                try {
+                    queue.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the terminal");
+                }
+            }
+
+            Run last = queue.peekLast();
+            if (last == null || last.style != style || last.action != null) {
+                last = new Run(style, null);
+                queue.addLast(last);
+            }
+            last.text.append(chars, offset, length);
+            pendingChars += length;
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * Runs an action on the event dispatch thread once all output queued so
+     * far has been inserted.
+     *
+     * @param action The action
+     */
+    void whenRendered(Runnable action) {
+        synchronized (queue) {
+            queue.addLast(new Run(null, action));
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * Checks if the last inserted output did not end with a newline.
+     * Call on the event dispatch thread.
+     *
+     * @return true if the output ends in the middle of a line
+     */
+    boolean endsMidLine() {
+        return lastChar != '\n';
+    }
+
+    /**
+     * Forgets where the last output ended, for the next command.
+     */
+    void resetLine() {
+        lastChar = '\n';
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            SwingUtilities.invokeLater(timer::restart);
+        }
+    }
+
+    /**
+     * Inserts queued output until the queue is empty or the frame's budget is spent.
+     */
+    private void renderFrame() {
+        long deadline = System.nanoTime() + FRAME_BUDGET_NANOS;
+        boolean inserted = false;
+        Caret caret = terminal.getCaret();
+        int caretPolicy = caret instanceof DefaultCaret ? ((DefaultCaret) caret).getUpdatePolicy() : -1;
+        if (caretPolicy >= 0) {
+            ((DefaultCaret) caret).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        }
+
+        try {
+            while (System.nanoTime() < deadline) {
+                Run run;
+                String text = null;
+                synchronized (queue) {
+                    run = queue.peekFirst();
+                    if (run == null) {
+                        frameScheduled = false;
+                        break;
+                    }
+                    if (run.action != null) {
+                        queue.removeFirst();
+                    } else {
+                        text = run.take(SLICE_CHARS);
+                        if (run.isEmpty()) {
+                            queue.removeFirst();
+                        }
+                        pendingChars -= text.length();
+                        queue.notifyAll();
+                    }
+                }
+
+                if (run.action != null) {
+                    // The action may edit the document itself, so settle the
+                    // caret first and leave anything after it to the next frame
+                    if (inserted) {
+                        finishFrame(caretPolicy);
+                        inserted = false;
+                    } else if (caretPolicy >= 0) {
+                        ((DefaultCaret) caret).setUpdatePolicy(caretPolicy);
+                    }
+                    caretPolicy = -1;
+                    run.action.run();
+                    break;
+                }
+                doc.insertString(doc.getLength(), text, run.style);
+                lastChar = text.charAt(text.length() - 1);
+                inserted = true;
+            }
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        } finally {
+            if (inserted) {
+                finishFrame(caretPolicy);
+            } else if (caretPolicy >= 0) {
+                ((DefaultCaret) caret).setUpdatePolicy(caretPolicy);
+            }
+        }
+
+        synchronized (queue) {
+            if (frameScheduled) {
+                // Out of time with output left: carry on behind any input
+                // and paint events that arrived meanwhile
+                SwingUtilities.invokeLater(this::renderFrame);
+            }
+        }
+    }
+
+    private void finishFrame(int caretPolicy) {
+        Caret caret = terminal.getCaret();
+        if (caretPolicy >= 0) {
+            ((DefaultCaret) caret).setUpdatePolicy(caretPolicy);
+        }
+        terminal.setCaretPosition(doc.getLength());
+        afterFrame.run();
+    }
+
+
+    /**
+     * Queued output in one style, or an action to run once the output
+     * before it is in place.
+     */
+    private static final class Run {
+        private final AttributeSet style;
+        private final Runnable action;
+        private final StringBuilder text;
+        private int taken;
+
+        private Run(AttributeSet style, Runnable action) {
+            this.style = style;
+            this.action = action;
+            this.text = new StringBuilder();
+        }
+
+        /**
+         * Removes text from the front of the run.
+         *
+         * @return At most the given number of characters
+         */
+        private String take(int maxChars) {
+            int end = Math.min(text.length(), taken + maxChars);
+            String result = text.substring(taken, end);
+            taken = end;
+            // Drop what was taken once it is most of the buffer, so the run
+            // does not grow while a producer keeps adding to it
+            if (taken > text.length() / 2) {
+                text.delete(0, taken);
+                taken = 0;
+            }
+            return result;
+        }
+
+        private boolean isEmpty() {
+            return taken == text.length();
+        }
+    }
+}
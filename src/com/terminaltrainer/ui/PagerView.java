@@ -0,0 +1,379 @@
+package com.terminaltrainer.ui;
+
+import com.terminaltrainer.core.filesystem.LineIndex;
+
+import javax.swing.JComponent;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+
+/**
+ * Shows a text one screen at a time in place of the terminal, for less and more.
+ *
+ * Only the lines on screen are ever looked at. They are found through a
+ * {@link LineIndex} of the text, which scans only as far as the screen has
+ * been, so opening a huge text is immediate and only going to its end or
+ * searching scans further. Nothing is added to the terminal's document.
+ * Long lines are cut at the edge of the screen and can be scrolled
+ * sideways; a tab moves to the next multiple of eight columns.
+ *
+ * Only used on the event dispatch thread.
+ */
+final class PagerView extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int TAB_WIDTH = 8;
+    private static final Color MATCH_BACKGROUND = new Color(200, 110, 0);
+
+    private final Color foreground;
+    private final Color background;
+    private String title;
+    private String text;
+    private LineIndex index;
+    private Runnable onClose;
+    // The first line and column on screen
+    private int top;
+    private int left;
+    private String query;
+    // The search being typed after '/', or null
+    private StringBuilder input;
+    private String message;
+
+    /**
+     * Creates a closed pager.
+     *
+     * @param font The font, which should be monospaced
+     * @param foreground The text color
+     * @param background The background color
+     */
+    PagerView(Font font, Color foreground, Color background) {
+        this.foreground = foreground;
+        this.background = background;
+        setFont(font);
+        setFocusable(true);
+        // Tab is just another key here, as in the terminal
+        setFocusTraversalKeysEnabled(false);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (text != null) {
+                    e.consume();
+                    handleKeyPress(e);
+                }
+            }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                if (text != null) {
+                    e.consume();
+                    handleKeyTyped(e.getKeyChar());
+                }
+            }
+        });
+        addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                // The terminal behind is never meant to be typed into while paging
+                if (text != null && !e.isTemporary()) {
+                    requestFocusInWindow();
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows a text from its first line.
+     *
+     * @param title The name shown in the status line
+     * @param text The text
+     * @param onClose Runs when the user quits or {@link #close()} is called
+     */
+    void open(String title, String text, Runnable onClose) {
+        this.title = title;
+        this.text = text;
+        this.index = new LineIndex(text);
+        this.onClose = onClose;
+        this.top = 0;
+        this.left = 0;
+        this.input = null;
+        this.message = null;
+        repaint();
+    }
+
+    /**
+     * Stops showing the text, if one is shown.
+     */
+    void close() {
+        if (text == null) {
+            return;
+        }
+        Runnable closed = onClose;
+        text = null;
+        index = null;
+        onClose = null;
+        closed.run();
+    }
+
+    boolean isOpen() {
+        return text != null;
+    }
+
+    private void handleKeyPress(KeyEvent e) {
+        if (input != null) {
+            handleSearchKey(e);
+            return;
+        }
+        message = null;
+        int rows = getRows();
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_SPACE:
+            case KeyEvent.VK_F:
+            case KeyEvent.VK_PAGE_DOWN:
+                scrollTo(top + rows);
+                break;
+            case KeyEvent.VK_B:
+            case KeyEvent.VK_PAGE_UP:
+                scrollTo(top - rows);
+                break;
+            case KeyEvent.VK_ENTER:
+            case KeyEvent.VK_J:
+            case KeyEvent.VK_DOWN:
+                scrollTo(top + 1);
+                break;
+            case KeyEvent.VK_K:
+            case KeyEvent.VK_UP:
+                scrollTo(top - 1);
+                break;
+            case KeyEvent.VK_LEFT:
+                left = Math.max(0, left - getColumns() / 2);
+                break;
+            case KeyEvent.VK_RIGHT:
+                left += getColumns() / 2;
+                break;
+            case KeyEvent.VK_HOME:
+                scrollTo(0);
+                break;
+            case KeyEvent.VK_END:
+                scrollTo(Integer.MAX_VALUE);
+                break;
+            case KeyEvent.VK_ESCAPE:
+            case KeyEvent.VK_Q:
+                close();
+                return;
+            case KeyEvent.VK_C:
+                if (e.isControlDown()) {
+                    close();
+                    return;
+                }
+                break;
+            default:
+                // g, G, n, N and / depend on shift, so they are handled as typed characters
+                return;
+        }
+        repaint();
+    }
+
+    private void handleKeyTyped(char c) {
+        if (input != null) {
+            if (c != KeyEvent.CHAR_UNDEFINED && !Character.isISOControl(c)) {
+                input.append(c);
+                repaint();
+            }
+            return;
+        }
+        switch (c) {
+            case 'g':
+            case '<':
+                scrollTo(0);
+                break;
+            case 'G':
+            case '>':
+                scrollTo(Integer.MAX_VALUE);
+                break;
+            case 'n':
+                search(true);
+                break;
+            case 'N':
+                search(false);
+                break;
+            case '/':
+                input = new StringBuilder();
+                message = null;
+                break;
+            default:
+                return;
+        }
+        repaint();
+    }
+
+    private void handleSearchKey(KeyEvent e) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_ENTER:
+                // An empty pattern repeats the last search, as in less
+                if (input.length() > 0) {
+                    query = input.toString();
+                }
+                input = null;
+                search(true);
+                break;
+            case KeyEvent.VK_ESCAPE:
+                input = null;
+                break;
+            case KeyEvent.VK_BACK_SPACE:
+                if (input.length() == 0) {
+                    input = null;
+                } else {
+                    input.setLength(input.length() - 1);
+                }
+                break;
+            default:
+                return;
+        }
+        repaint();
+    }
+
+    /**
+     * Moves the top of the screen to a line, keeping the last screen full.
+     * Only scans as far as the new screen, unless that is past the end.
+     */
+    private void scrollTo(int line) {
+        int rows = getRows();
+        if (line <= 0) {
+            top = 0;
+        } else if (line <= Integer.MAX_VALUE - rows && index.hasLine(line + rows - 1)) {
+            top = line;
+        } else {
+            top = Math.max(0, index.getLineCount() - rows);
+        }
+    }
+
+    /**
+     * Moves to the next match of the last pattern below the top line, or
+     * the previous one above it, and puts its line at the top.
+     */
+    private void search(boolean forward) {
+        if (query == null || query.isEmpty()) {
+            message = "No previous search pattern";
+            return;
+        }
+        int match;
+        if (forward) {
+            match = index.hasLine(top + 1) ? text.indexOf(query, index.getLineStart(top + 1)) : -1;
+        } else {
+            match = top > 0 ? text.lastIndexOf(query, index.getLineStart(top) - 1) : -1;
+        }
+        if (match < 0) {
+            message = "Pattern not found";
+            return;
+        }
+        top = index.getLineOf(match);
+    }
+
+    private int getRows() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        // The last row is the status line
+        return Math.max(1, getHeight() / metrics.getHeight() - 1);
+    }
+
+    private int getColumns() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        return Math.max(1, getWidth() / Math.max(1, metrics.charWidth('m')));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(background);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (text == null) {
+            return;
+        }
+
+        g.setFont(getFont());
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        int charWidth = Math.max(1, metrics.charWidth('m'));
+        int rows = getRows();
+        int columns = getColumns();
+        char[] row = new char[columns];
+        boolean[] matched = new boolean[columns];
+
+        for (int r = 0; r < rows; r++) {
+            int baseline = r * lineHeight + metrics.getAscent();
+            if (!index.hasLine(top + r)) {
+                g.setColor(Color.GRAY);
+                g.drawString("~", 0, baseline);
+                continue;
+            }
+            int length = layoutRow(top + r, row, matched);
+            for (int column = 0; column < length; column++) {
+                if (matched[column]) {
+                    g.setColor(MATCH_BACKGROUND);
+                    g.fillRect(column * charWidth, r * lineHeight, charWidth, lineHeight);
+                }
+            }
+            g.setColor(foreground);
+            g.drawChars(row, 0, length, 0, baseline);
+        }
+
+        int statusY = rows * lineHeight;
+        g.setColor(foreground);
+        g.fillRect(0, statusY, getWidth(), lineHeight);
+        g.setColor(background);
+        g.drawString(getStatus(rows), 0, statusY + metrics.getAscent());
+    }
+
+    /**
+     * Lays out the part of a line that is on screen, expanding tabs and
+     * showing other control characters as '?'.
+     *
+     * @return The number of columns filled
+     */
+    private int layoutRow(int line, char[] row, boolean[] matched) {
+        int start = index.getLineStart(line);
+        int end = index.getLineEnd(line);
+        int queryLength = query != null ? query.length() : 0;
+        int matchEnd = -1;
+        int column = 0;
+        int filled = 0;
+        for (int offset = start; offset < end && column < left + row.length; offset++) {
+            if (queryLength > 0 && offset > matchEnd - 1 && text.startsWith(query, offset)) {
+                matchEnd = offset + queryLength;
+            }
+            char c = text.charAt(offset);
+            int width = c == '\t' ? TAB_WIDTH - column % TAB_WIDTH : 1;
+            for (int i = 0; i < width; i++, column++) {
+                int target = column - left;
+                if (target >= 0 && target < row.length) {
+                    row[target] = c == '\t' ? ' ' : c < ' ' || c == 0x7F ? '?' : c;
+                    matched[target] = offset < matchEnd;
+                    filled = target + 1;
+                }
+            }
+        }
+        return filled;
+    }
+
+    private String getStatus(int rows) {
+        if (input != null) {
+            return "/" + input;
+        }
+        if (message != null) {
+            return message;
+        }
+        int last = top + rows;
+        StringBuilder status = new StringBuilder(title);
+        status.append("  lines ").append(top + 1).append('-');
+        if (index.hasLine(last)) {
+            status.append(last);
+            long percent = text.isEmpty() ? 100 : 100L * index.getLineStart(last) / text.length();
+            status.append("  ").append(percent).append('%');
+        } else {
+            status.append(Math.max(top + 1, index.getLineCount())).append("  (END)");
+        }
+        return status.toString();
+    }
+}
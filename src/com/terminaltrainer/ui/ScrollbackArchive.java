@@ -0,0 +1,147 @@
+package com.terminaltrainer.ui;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrollback trimmed from the terminal, kept in a file so it can still be
+ * searched after it has left the window.
+ *
+ * Text is written by a background thread in the order it was given, so
+ * trimming never waits for the disk on the event dispatch thread. The
+ * file is replaced when the archive is opened. After a write fails, further
+ * text is dropped and the failure is reported by {@link #search}.
+ */
+final class ScrollbackArchive implements Closeable {
+    private final Path file;
+    private final ExecutorService writerThread;
+    // Only used on the writer thread
+    private final Writer writer;
+    private IOException failure;
+
+    private ScrollbackArchive(Path file, Writer writer) {
+        this.file = file;
+        this.writer = writer;
+        this.writerThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scrollback-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates an empty archive.
+     *
+     * @param file The file, replaced if it exists
+     * @return The archive
+     * @throws IOException if the file cannot be created
+     */
+    static ScrollbackArchive open(Path file) throws IOException {
+        return new ScrollbackArchive(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Adds trimmed text to the end of the archive. Returns at once.
+     *
+     * @param text The text, normally whole lines
+     */
+    void append(String text) {
+        try {
+            writerThread.execute(() -> {
+                if (failure != null) {
+                    return;
+                }
+                try {
+                    writer.write(text);
+                    writer.flush();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed; the window is going away
+        }
+    }
+
+    /**
+     * Finds the archived lines containing some text, once all text appended
+     * so far has been written. Reads the whole file, so call it off the
+     * event dispatch thread.
+     *
+     * @param query The text to look for
+     * @param limit The most lines to return
+     * @return The last matching lines, oldest first
+     * @throws IOException if the archive could not be written or read
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    List<String> search(String query, int limit) throws IOException, InterruptedException {
+        try {
+            return writerThread.submit(() -> {
+                if (failure != null) {
+                    throw failure;
+                }
+                Deque<String> matches = new ArrayDeque<>();
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.contains(query)) {
+                            if (matches.size() == limit) {
+                                matches.removeFirst();
+                            }
+                            matches.addLast(line);
+                        }
+                    }
+                }
+                return new ArrayList<>(matches);
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Scrollback search failed", e.getCause());
+        } catch (RejectedExecutionException e) {
+            throw new IOException("Scrollback archive is closed");
+        }
+    }
+
+    /**
+     * Writes what is pending and closes the file, waiting up to a second.
+     */
+    @Override
+    public void close() {
+        if (writerThread.isShutdown()) {
+            return;
+        }
+        writerThread.execute(() -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Nothing more will be written
+            }
+        });
+        writerThread.shutdown();
+        try {
+            writerThread.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
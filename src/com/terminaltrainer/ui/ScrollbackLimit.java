@@ -0,0 +1,144 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.text.Element;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * How much output the terminal keeps before the oldest lines are dropped,
+ * and where dropped lines go.
+ *
+ * Trimming happens in chunks: once either limit is passed, the scrollback
+ * is cut back to nine tenths of it, so the document is edited once per
+ * tenth of the limit rather than on every line. A limit of zero or less
+ * means unlimited.
+ */
+public final class ScrollbackLimit {
+    /**
+     * Prefix of the system properties read by {@link #fromSystemProperties()}.
+     */
+    public static final String PROPERTY_PREFIX = "terminaltrainer.scrollback.";
+
+    /**
+     * The limit used when no system property overrides it.
+     */
+    public static final ScrollbackLimit DEFAULT = new ScrollbackLimit(10_000, 2_000_000, null);
+
+    private final int maxLines;
+    private final int maxChars;
+    private final Path spillFile;
+
+    /**
+     * Creates a new limit.
+     *
+     * @param maxLines The most lines to keep
+     * @param maxChars The most characters to keep
+     * @param spillFile The file to write dropped lines to, or null to discard them
+     */
+    public ScrollbackLimit(int maxLines, int maxChars, Path spillFile) {
+        this.maxLines = maxLines;
+        this.maxChars = maxChars;
+        this.spillFile = spillFile;
+    }
+
+    /**
+     * Reads the limit from the system properties terminaltrainer.scrollback.maxLines,
+     * .maxChars and .spillFile, using the defaults for any that are missing
+     * or malformed.
+     *
+     * @return The configured limit
+     */
+    public static ScrollbackLimit fromSystemProperties() {
+        String spillFile = System.getProperty(PROPERTY_PREFIX + "spillFile");
+        return new ScrollbackLimit(
+                readProperty("maxLines", DEFAULT.maxLines),
+                readProperty("maxChars", DEFAULT.maxChars),
+                spillFile == null || spillFile.trim().isEmpty() ? null : Paths.get(spillFile.trim()));
+    }
+
+    private static int readProperty(String name, int defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    public Path getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Checks if scrollback of a given size should be trimmed.
+     *
+     * @param lines The number of lines
+     * @param chars The number of characters
+     * @return true if either limit is passed
+     */
+    public boolean isExceeded(int lines, int chars) {
+        return maxLines > 0 && lines > maxLines || maxChars > 0 && chars > maxChars;
+    }
+
+    /**
+     * Works out how much of a document to trim. The cut falls at the start
+     * of a line, unless the last line alone is longer than the characters
+     * to keep.
+     *
+     * @param root The root element of the document, with one child per line
+     * @param length The length of the document
+     * @param keepFrom The offset of the first character that must be kept
+     * @return The number of characters to remove from the start, 0 for none
+     */
+    public int getTrimOffset(Element root, int length, int keepFrom) {
+        int lines = root.getElementCount();
+        if (!isExceeded(lines, length)) {
+            return 0;
+        }
+
+        int end = 0;
+        if (lines > getRetainedLines()) {
+            end = root.getElement(lines - getRetainedLines()).getStartOffset();
+        }
+        if (length - end > getRetainedChars()) {
+            int charCut = length - getRetainedChars();
+            Element line = root.getElement(root.getElementIndex(charCut));
+            // The last line ends past the document, after its implicit newline
+            if (line.getStartOffset() == charCut || line.getEndOffset() > length) {
+                end = charCut;
+            } else {
+                end = line.getEndOffset();
+            }
+        }
+        return Math.max(0, Math.min(end, keepFrom));
+    }
+
+    /**
+     * Gets how many lines to keep when trimming.
+     *
+     * @return The number of lines, or Integer.MAX_VALUE if lines are unlimited
+     */
+    public int getRetainedLines() {
+        return maxLines > 0 ? maxLines - maxLines / 10 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets how many characters to keep when trimming.
+     *
+     * @return The number of characters, or Integer.MAX_VALUE if characters are unlimited
+     */
+    public int getRetainedChars() {
+        return maxChars > 0 ? maxChars - maxChars / 10 : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,257 @@
+package com.terminaltrainer.ui;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Arrays;
+
+/**
+ * The places where some text occurs in a document, ignoring case, kept up
+ * to date as the document changes.
+ *
+ * The whole document is only scanned when the query changes to one that
+ * does not extend the last. Typing another character just rechecks the
+ * matches already found, and an edit only rescans the text around it:
+ * output appended at the end is searched as it arrives, and lines trimmed
+ * from the start drop their matches and shift the rest. Text is read
+ * through a segment, which normally refers to the document's own buffer
+ * rather than copying it.
+ *
+ * Only used on the event dispatch thread.
+ */
+final class ScrollbackSearch implements DocumentListener {
+    private final Document doc;
+    private final Runnable onChange;
+    private final Segment text = new Segment();
+    private char[] query = new char[0];
+    private int[] starts = new int[64];
+    private int count;
+    // Reused when splicing in the matches around an edit
+    private int[] found = new int[16];
+    private int foundCount;
+
+    /**
+     * Creates an empty search and starts following a document.
+     *
+     * @param doc The document
+     * @param onChange Runs after an edit to the document has changed the matches
+     */
+    ScrollbackSearch(Document doc, Runnable onChange) {
+        this.doc = doc;
+        this.onChange = onChange;
+        doc.addDocumentListener(this);
+    }
+
+    /**
+     * Changes the text searched for.
+     *
+     * @param newQuery The text, or an empty string to match nothing
+     */
+    void setQuery(String newQuery) {
+        char[] folded = new char[newQuery.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(newQuery.charAt(i));
+        }
+        if (Arrays.equals(folded, query)) {
+            return;
+        }
+
+        boolean narrowing = query.length > 0 && startsWith(folded, query);
+        query = folded;
+        if (query.length == 0) {
+            count = 0;
+        } else if (narrowing) {
+            // Every match of the longer query is a match of the shorter one
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (matchesAt(starts[i])) {
+                    starts[kept++] = starts[i];
+                }
+            }
+            count = kept;
+        } else {
+            count = 0;
+            foundCount = 0;
+            scan(0, doc.getLength());
+            starts = Arrays.copyOf(found, Math.max(64, foundCount));
+            count = foundCount;
+        }
+    }
+
+    /**
+     * Gets the length of the text searched for, which is the length of every match.
+     *
+     * @return The number of characters
+     */
+    int getQueryLength() {
+        return query.length;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Gets where a match starts.
+     *
+     * @param index The index of the match, in document order
+     * @return The document offset
+     */
+    int getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Finds the first match starting at or after an offset.
+     *
+     * @param offset The document offset
+     * @return The index of the match, or {@link #size()} if there is none
+     */
+    int indexAtOrAfter(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        if (query.length == 0) {
+            return;
+        }
+        // Matches reaching into the insertion are gone; later ones move along
+        int offset = e.getOffset();
+        int length = e.getLength();
+        splice(offset - query.length + 1, offset, length, offset + length + query.length - 1);
+    }
+
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        if (query.length == 0) {
+            return;
+        }
+        // Matches overlapping the removed text are gone; later ones move back,
+        // and new ones may span the join
+        int offset = e.getOffset();
+        int length = e.getLength();
+        splice(offset - query.length + 1, offset + length, -length, offset + query.length - 1);
+    }
+
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // Only attributes changed
+    }
+
+    /**
+     * Replaces the matches starting in [from, unchangedFrom) with those
+     * found by scanning the edited document from {@code from} to
+     * {@code scanTo}, and moves the matches from {@code unchangedFrom} on by
+     * {@code shift}.
+     */
+    private void splice(int from, int unchangedFrom, int shift, int scanTo) {
+        from = Math.max(0, from);
+        int first = indexAtOrAfter(from);
+        int rest = indexAtOrAfter(unchangedFrom);
+        for (int i = rest; i < count; i++) {
+            starts[i] += shift;
+        }
+
+        foundCount = 0;
+        scan(from, Math.min(scanTo, doc.getLength()));
+        int removed = rest - first;
+        if (removed == 0 && foundCount == 0) {
+            return;
+        }
+        int newCount = count - removed + foundCount;
+        if (newCount > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(newCount, starts.length * 2));
+        }
+        System.arraycopy(starts, rest, starts, first + foundCount, count - rest);
+        System.arraycopy(found, 0, starts, first, foundCount);
+        count = newCount;
+        onChange.run();
+    }
+
+    /**
+     * Adds the matches starting in [from, to - query length] to {@code found}.
+     */
+    private void scan(int from, int to) {
+        int m = query.length;
+        if (to - from < m) {
+            return;
+        }
+        try {
+            doc.getText(from, to - from, text);
+        } catch (BadLocationException e) {
+            return;
+        }
+
+        char[] chars = text.array;
+        int base = text.offset;
+        char first = query[0];
+        int last = to - from - m;
+        for (int i = 0; i <= last; i++) {
+            if (fold(chars[base + i]) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < m && fold(chars[base + i + j]) == query[j]) {
+                j++;
+            }
+            if (j == m) {
+                if (foundCount == found.length) {
+                    found = Arrays.copyOf(found, found.length * 2);
+                }
+                found[foundCount++] = from + i;
+            }
+        }
+    }
+
+    private boolean matchesAt(int offset) {
+        if (offset + query.length > doc.getLength()) {
+            return false;
+        }
+        try {
+            doc.getText(offset, query.length, text);
+        } catch (BadLocationException e) {
+            return false;
+        }
+        for (int j = 0; j < query.length; j++) {
+            if (fold(text.array[text.offset + j]) != query[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(char[] text, char[] prefix) {
+        if (prefix.length > text.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (text[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+}
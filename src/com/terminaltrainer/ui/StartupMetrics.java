@@ -0,0 +1,86 @@
+package com.terminaltrainer.ui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records when each phase of starting the window was reached, in
+ * milliseconds since the clock was started at the top of main.
+ *
+ * The phases overlap: the session is built and the images decoded in the
+ * background while the window is shown, so they can finish in any order.
+ * The one to watch is {@link #FIRST_PROMPT}, the time until the user can
+ * type a command. When the system property terminaltrainer.startup.metrics
+ * is "true", each phase is also printed to standard error as it is reached.
+ * Safe to use from any thread.
+ */
+public final class StartupMetrics {
+    /**
+     * The system property that turns on printing of the phases.
+     */
+    public static final String PROPERTY = "terminaltrainer.startup.metrics";
+
+    public static final String FRAME_SHOWN = "frame shown";
+    public static final String SESSION_READY = "session ready";
+    public static final String FIRST_PROMPT = "first prompt";
+    public static final String ICON_LOADED = "icon loaded";
+    public static final String MASCOT_LOADED = "mascot loaded";
+
+    private final long startNanos;
+    private final boolean print;
+    private final Map<String, Long> phases;
+
+    /**
+     * Starts the clock.
+     */
+    public StartupMetrics() {
+        this.startNanos = System.nanoTime();
+        this.print = Boolean.getBoolean(PROPERTY);
+        this.phases = new LinkedHashMap<>();
+    }
+
+    /**
+     * Records that a phase was reached. Only the first time counts.
+     *
+     * @param phase The name of the phase
+     */
+    public void mark(String phase) {
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        synchronized (phases) {
+            if (phases.containsKey(phase)) {
+                return;
+            }
+            phases.put(phase, millis);
+        }
+        if (print) {
+            System.err.println("startup: " + phase + " after " + millis + " ms");
+        }
+    }
+
+    /**
+     * Gets when a phase was reached.
+     *
+     * @param phase The name of the phase
+     * @return The milliseconds since the clock started, or -1 if the phase has not been reached
+     */
+    public long getMillis(String phase) {
+        synchronized (phases) {
+            Long millis = phases.get(phase);
+            return millis != null ? millis : -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        synchronized (phases) {
+            for (Map.Entry<String, Long> phase : phases.entrySet()) {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                text.append(phase.getKey()).append(": ").append(phase.getValue()).append(" ms");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -1,23 +1,61 @@
 package com.terminaltrainer.ui;
 
+import com.terminaltrainer.core.CommandHistory;
+import com.terminaltrainer.core.ReverseHistorySearch;
 import com.terminaltrainer.core.TerminalSession;
+import com.terminaltrainer.core.completion.Completion;
+import com.terminaltrainer.core.completion.CompletionEngine;
+import com.terminaltrainer.core.exec.CommandRunner;
+import com.terminaltrainer.core.exec.ExecutionContext;
+import com.terminaltrainer.core.exec.RunningCommand;
+import com.terminaltrainer.core.io.AnsiParser;
+import com.terminaltrainer.core.io.OutputSink;
+import com.terminaltrainer.core.io.Pager;
 
 import javax.swing.*;
 import javax.swing.text.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
-import java.net.URL;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 
 
 public class TerminalUI {
-    private final TerminalSession session;
+    // Mascot sizes are rounded to this, so resizing the window reuses a few cached images
+    private static final int MASCOT_SIZE_STEP = 16;
+    private static final int MAX_MASCOT_SIZE = 225;
+    private static final int[] ICON_SIZES = {16, 32, 64, 128};
+    private static final String TERMINAL_CARD = "terminal";
+    private static final String PAGER_CARD = "pager";
+
+    private final CompletableFuture<TerminalSession> pendingSession;
+    private final StartupMetrics metrics;
+    private final ImageAssets images;
+    // Set on the event dispatch thread once the session has been built
+    private TerminalSession session;
+    private CommandRunner commandRunner;
+    private CompletionEngine completionEngine;
+    private ReverseHistorySearch historySearch;
+    private final ScrollbackLimit scrollbackLimit;
+    private ScrollbackArchive scrollbackArchive;
     private JFrame frame;
     private JTextPane terminal;
+    private OutputRenderer outputRenderer;
+    private FindBar findBar;
+    private PagerView pagerView;
+    private CardLayout screenCards;
+    private JPanel screen;
     private StyledDocument doc;
     private Style defaultStyle;
     private Style promptStyle;
@@ -27,37 +65,73 @@ public class TerminalUI {
     private Style successStyle;
     private Style highlightStyle;
     private Style mascotStyle;
+    private AnsiAttributes outputAttributes;
+    private AnsiAttributes errorAttributes;
 
+    private int promptStart;
     private int inputStart;
     private int inputEnd;
     private boolean processingCommand;
-    private final List<String> commandHistory;
-    private int historyIndex;
+    private RunningCommand runningCommand;
+    private final StringBuilder typeAhead;
+    private String inputBeforeSearch;
+    private int caretBeforeSearch;
+    private boolean lastKeyWasTab;
 
-    private final JPanel mascotPanel;
-    private final JLabel mascotLabel;
-    private final JTextArea mascotSpeech;
+    private JPanel mascotPanel;
+    private JLabel mascotLabel;
+    private JTextArea mascotSpeech;
+    private int mascotSize;
 
 
     public TerminalUI(TerminalSession session) {
-        this.session = session;
-        this.commandHistory = new ArrayList<>();
-        this.historyIndex = 0;
-        this.processingCommand = false;
+        this(CompletableFuture.completedFuture(session), new StartupMetrics());
+    }
 
-        this.mascotPanel = new JPanel(new BorderLayout());
 
-        ImageIcon mascotIcon = null;
-        try {
-            mascotIcon = new ImageIcon("src/com/terminaltrainer/ui/mascot.png", "Mascot Image");
-        } catch (Exception e) {
-            mascotIcon = loadMascotImage();
-        }
+    /**
+     * Creates a window for a session that may still be being built. The
+     * window is built and shown by {@link #start()} without waiting for it;
+     * the prompt appears once it is ready, and anything typed before then
+     * is kept for the prompt.
+     *
+     * @param session The session, built in the background
+     * @param metrics Where to record the startup phases
+     */
+    public TerminalUI(CompletableFuture<TerminalSession> session, StartupMetrics metrics) {
+        this.metrics = metrics;
+        this.images = new ImageAssets();
+        // Start decoding while the window is built
+        images.load(ImageAssets.MASCOT);
+        images.load(ImageAssets.ICON);
+        this.pendingSession = session.thenApply(ready -> {
+            // Reading the history log is file I/O, so it stays off the event dispatch thread too
+            Path historyFile = CommandHistory.defaultLogFile();
+            if (historyFile != null) {
+                ready.getCommandHistory().attachLog(historyFile);
+            }
+            metrics.mark(StartupMetrics.SESSION_READY);
+            return ready;
+        });
+        this.typeAhead = new StringBuilder();
+        // No prompt until the session is ready
+        this.processingCommand = true;
+        this.scrollbackLimit = ScrollbackLimit.fromSystemProperties();
+        openScrollbackArchive();
+    }
 
-        this.mascotLabel = new JLabel(mascotIcon);
-        this.mascotSpeech = new JTextArea(5, 20);
 
-        initializeUI();
+    private void openScrollbackArchive() {
+        Path spillFile = scrollbackLimit.getSpillFile();
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            scrollbackArchive = ScrollbackArchive.open(spillFile);
+            Runtime.getRuntime().addShutdownHook(new Thread(scrollbackArchive::close, "scrollback-archive-close"));
+        } catch (IOException e) {
+            System.err.println("Failed to open scrollback file " + spillFile + ": " + e.getMessage());
+        }
     }
 
 
@@ -65,21 +139,28 @@ public class TerminalUI {
         frame = new JFrame("Terminal Trainer");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(800, 600);
-        
-        try {
-            ImageIcon icon = new ImageIcon("src/com/terminaltrainer/ui/TerminalIcon.png");
-            frame.setIconImage(icon.getImage());
-        } catch (Exception e) {
-            System.err.println("Failed to load TerminalIcon.png: " + e.getMessage());
-        }
+        loadIcon();
 
         terminal = new JTextPane();
+        if (GridEditorKit.isSelected()) {
+            // Replaces the document, so before anything else uses it
+            terminal.setEditorKit(new GridEditorKit());
+        }
         terminal.setEditable(true);
         terminal.setBackground(Color.BLACK);
         terminal.setCaretColor(Color.WHITE);
         terminal.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        // Tab completes instead of moving the focus
+        terminal.setFocusTraversalKeysEnabled(false);
 
         doc = terminal.getStyledDocument();
+        outputRenderer = new OutputRenderer(terminal, () -> {
+            try {
+                trimScrollback();
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+            }
+        });
         defaultStyle = StyleContext.getDefaultStyleContext().getStyle(StyleContext.DEFAULT_STYLE);
 
         promptStyle = doc.addStyle("prompt", defaultStyle);
@@ -106,6 +187,12 @@ public class TerminalUI {
         StyleConstants.setForeground(mascotStyle, Color.CYAN);
         StyleConstants.setItalic(mascotStyle, true);
 
+        outputAttributes = new AnsiAttributes(outputStyle, terminal.getBackground());
+        errorAttributes = new AnsiAttributes(errorStyle, terminal.getBackground());
+
+        mascotPanel = new JPanel(new BorderLayout());
+        mascotLabel = new JLabel(createPlaceholderMascot());
+        mascotSpeech = new JTextArea(5, 20);
         mascotSpeech.setEditable(false);
         mascotSpeech.setLineWrap(true);
         mascotSpeech.setWrapStyleWord(true);
@@ -117,9 +204,26 @@ public class TerminalUI {
 
         mascotPanel.add(mascotLabel, BorderLayout.NORTH);
         mascotPanel.add(new JScrollPane(mascotSpeech), BorderLayout.CENTER);
+        mascotPanel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateMascot();
+            }
+        });
+
+        JScrollPane terminalScrollPane = new JScrollPane(terminal);
+        findBar = new FindBar(terminal, terminalScrollPane);
+        JPanel terminalPanel = new JPanel(new BorderLayout());
+        terminalPanel.add(findBar, BorderLayout.NORTH);
+        pagerView = new PagerView(terminal.getFont(), Color.LIGHT_GRAY, terminal.getBackground());
+        screenCards = new CardLayout();
+        screen = new JPanel(screenCards);
+        screen.add(terminalScrollPane, TERMINAL_CARD);
+        screen.add(pagerView, PAGER_CARD);
+        terminalPanel.add(screen, BorderLayout.CENTER);
 
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
-                new JScrollPane(terminal), mascotPanel);
+                terminalPanel, mascotPanel);
         splitPane.setDividerLocation(600);
 
         frame.getContentPane().add(splitPane);
@@ -129,6 +233,11 @@ public class TerminalUI {
             public void keyPressed(KeyEvent e) {
                 handleKeyPress(e);
             }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                handleKeyTyped(e);
+            }
         });
 
         terminal.setNavigationFilter(new NavigationFilter() {
@@ -158,12 +267,55 @@ public class TerminalUI {
 
 
     private void handleKeyPress(KeyEvent e) {
+        if (e.getKeyCode() == KeyEvent.VK_C && e.isControlDown() && terminal.getSelectedText() == null) {
+            e.consume();
+            interrupt();
+            return;
+        }
+
+        if (e.getKeyCode() == KeyEvent.VK_F && e.isControlDown()) {
+            e.consume();
+            findBar.open();
+            return;
+        }
+
+        if (e.getKeyCode() == KeyEvent.VK_M && e.isControlDown() && e.isShiftDown()) {
+            e.consume();
+            // Nothing to watch until the session is ready
+            if (session != null) {
+                MirrorWindow.open(session.getMirror(), "Terminal Trainer (watching)", frame);
+            }
+            return;
+        }
+
         if (processingCommand) {
+            // Typed characters are kept for the next prompt by handleKeyTyped
+            e.consume();
+            return;
+        }
+
+        if (e.getKeyCode() == KeyEvent.VK_R && e.isControlDown()) {
             e.consume();
+            if (historySearch.isActive()) {
+                historySearch.searchOlder();
+                showSearch();
+            } else {
+                startSearch();
+            }
             return;
         }
+        if (historySearch.isActive() && !handleSearchKey(e)) {
+            return;
+        }
+
+        boolean tabBefore = lastKeyWasTab;
+        lastKeyWasTab = e.getKeyCode() == KeyEvent.VK_TAB;
 
         switch (e.getKeyCode()) {
+            case KeyEvent.VK_TAB:
+                e.consume();
+                complete(tabBefore);
+                break;
             case KeyEvent.VK_ENTER:
                 e.consume();
                 processInput();
@@ -189,53 +341,258 @@ public class TerminalUI {
     }
 
 
-    private void processInput() {
+    /**
+     * Collects characters typed while a command is running, so they appear
+     * at the next prompt instead of in the middle of the output. During a
+     * reverse search, typed characters extend the query instead.
+     */
+    private void handleKeyTyped(KeyEvent e) {
+        char c = e.getKeyChar();
+        if (historySearch != null && historySearch.isActive()) {
+            e.consume();
+            if (c != KeyEvent.CHAR_UNDEFINED && !Character.isISOControl(c)) {
+                historySearch.append(String.valueOf(c));
+                showSearch();
+            }
+            return;
+        }
+        if (!processingCommand) {
+            return;
+        }
+
+        e.consume();
+        if (c == '\b') {
+            if (typeAhead.length() > 0) {
+                typeAhead.setLength(typeAhead.length() - 1);
+            }
+        } else if (c != KeyEvent.CHAR_UNDEFINED && !Character.isISOControl(c)) {
+            typeAhead.append(c);
+        }
+    }
+
+
+    /**
+     * Handles Ctrl+C: cancels the running command, or abandons the current
+     * input line when no command is running.
+     */
+    private void interrupt() {
+        if (processingCommand) {
+            typeAhead.setLength(0);
+            if (runningCommand != null) {
+                runningCommand.cancel();
+            }
+            return;
+        }
+
+        if (historySearch.isActive()) {
+            cancelSearch();
+            return;
+        }
+
         try {
-            processingCommand = true;
+            terminal.setCaretPosition(doc.getLength());
+            appendText("^C\n", defaultStyle);
+            session.getCommandHistory().resetNavigation();
+            displayPrompt();
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
+
 
+    /**
+     * Completes the word before the caret. When it cannot be extended, a
+     * second Tab in a row lists the candidates above a fresh prompt.
+     */
+    private void complete(boolean secondTab) {
+        try {
+            String input = doc.getText(inputStart, doc.getLength() - inputStart);
+            int caret = Math.max(0, terminal.getCaretPosition() - inputStart);
+            Completion completion = completionEngine.complete(input, caret);
+
+            if (completion.extendsWord()) {
+                doc.remove(inputStart + completion.getStart(), completion.getEnd() - completion.getStart());
+                doc.insertString(inputStart + completion.getStart(), completion.getReplacement(), commandStyle);
+                terminal.setCaretPosition(inputStart + completion.getStart() + completion.getReplacement().length());
+                return;
+            }
+            if (!secondTab || completion.getCandidates().size() < 2) {
+                Toolkit.getDefaultToolkit().beep();
+                return;
+            }
+
+            FontMetrics metrics = terminal.getFontMetrics(terminal.getFont());
+            int columns = terminal.getVisibleRect().width / Math.max(1, metrics.charWidth('m'));
+            terminal.setCaretPosition(doc.getLength());
+            appendText("\n" + completion.formatCandidates(columns), outputStyle);
+            displayPrompt();
+            appendText(input, commandStyle);
+            terminal.setCaretPosition(inputStart + caret);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    private void processInput() {
+        try {
             String command = doc.getText(inputStart, doc.getLength() - inputStart);
 
             appendText("\n", defaultStyle);
+            // The session adds the command to the history when it runs it
+            session.getCommandHistory().resetNavigation();
 
-            if (!command.trim().isEmpty()) {
-                commandHistory.add(command);
-                historyIndex = commandHistory.size();
-            }
+            // Run the command off the event dispatch thread so the window stays responsive
+            processingCommand = true;
+            outputRenderer.resetLine();
+            runningCommand = commandRunner.submit(command, new DocumentOutputSink());
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
 
-            String result = session.executeCommand(command);
 
-            if (!result.isEmpty()) {
-                appendText(result + "\n", outputStyle);
+    /**
+     * Called on the event dispatch thread once a command has finished and
+     * all of its output has been inserted.
+     */
+    private void commandFinished(boolean endsMidLine) {
+        try {
+            if (runningCommand != null && runningCommand.isCancelled()) {
+                appendText("^C\n", defaultStyle);
+            } else if (endsMidLine) {
+                appendText("\n", outputStyle);
             }
 
+            processingCommand = false;
+            runningCommand = null;
             displayPrompt();
+            restoreTypeAhead();
         } catch (BadLocationException e) {
             e.printStackTrace();
-        } finally {
-            processingCommand = false;
+        }
+    }
+
+
+    /**
+     * Puts the characters typed while no prompt was shown after the prompt.
+     */
+    private void restoreTypeAhead() throws BadLocationException {
+        if (typeAhead.length() > 0) {
+            appendText(typeAhead.toString(), commandStyle);
+            typeAhead.setLength(0);
+            terminal.setCaretPosition(doc.getLength());
         }
     }
 
 
     private void navigateHistory(int direction) {
-        if (commandHistory.isEmpty()) {
+        CommandHistory history = session.getCommandHistory();
+        String entry = direction < 0 ? history.getPreviousCommand() : history.getNextCommand();
+        // Past the oldest entry there is nothing to show, so keep the line
+        if (direction < 0 && entry.isEmpty()) {
             return;
         }
 
-        historyIndex += direction;
+        try {
+            doc.remove(inputStart, doc.getLength() - inputStart);
+            doc.insertString(inputStart, entry, commandStyle);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
 
-        if (historyIndex < 0) {
-            historyIndex = 0;
-        } else if (historyIndex > commandHistory.size()) {
-            historyIndex = commandHistory.size();
+
+    /**
+     * Starts an incremental reverse search, shown in place of the prompt.
+     */
+    private void startSearch() {
+        try {
+            inputBeforeSearch = doc.getText(inputStart, doc.getLength() - inputStart);
+            caretBeforeSearch = terminal.getCaretPosition() - inputStart;
+            historySearch.start();
+            showSearch();
+        } catch (BadLocationException e) {
+            e.printStackTrace();
         }
+    }
+
+
+    /**
+     * Handles a key pressed during a reverse search. Backspace shortens the
+     * query and Escape or Ctrl+G gives up. Any other key that is not typed
+     * text puts the match on the line and is then handled as usual, so
+     * Enter runs it and the arrows start editing it.
+     *
+     * @return true if the key should be handled as usual
+     */
+    private boolean handleSearchKey(KeyEvent e) {
+        int keyCode = e.getKeyCode();
+        if (keyCode == KeyEvent.VK_BACK_SPACE) {
+            e.consume();
+            historySearch.deleteLast();
+            showSearch();
+            return false;
+        }
+        if (keyCode == KeyEvent.VK_ESCAPE || keyCode == KeyEvent.VK_G && e.isControlDown()) {
+            e.consume();
+            cancelSearch();
+            return false;
+        }
+        if (keyCode == KeyEvent.VK_SHIFT || keyCode == KeyEvent.VK_CONTROL || keyCode == KeyEvent.VK_ALT
+                || keyCode == KeyEvent.VK_META) {
+            return false;
+        }
+        boolean typedText = !e.isActionKey() && keyCode != KeyEvent.VK_ENTER && keyCode != KeyEvent.VK_TAB
+                && !e.isControlDown() && !e.isAltDown();
+        if (typedText) {
+            // handleKeyTyped adds it to the query
+            return false;
+        }
+
+        String match = historySearch.finish();
+        if (match.isEmpty()) {
+            endSearch(inputBeforeSearch, caretBeforeSearch);
+        } else {
+            endSearch(match, historySearch.getMatchOffset());
+        }
+        return true;
+    }
+
 
+    private void cancelSearch() {
+        historySearch.finish();
+        endSearch(inputBeforeSearch, caretBeforeSearch);
+    }
+
+
+    /**
+     * Replaces the prompt and input with the search prompt and the current match.
+     */
+    private void showSearch() {
         try {
-            doc.remove(inputStart, doc.getLength() - inputStart);
+            String match = historySearch.getMatch();
+            doc.remove(promptStart, doc.getLength() - promptStart);
+            appendText(historySearch.getPrompt(), promptStyle);
+            inputStart = doc.getLength();
+            appendText(match, commandStyle);
+            terminal.setCaretPosition(inputStart + historySearch.getMatchOffset());
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
 
-            if (historyIndex < commandHistory.size()) {
-                doc.insertString(inputStart, commandHistory.get(historyIndex), commandStyle);
-            }
+
+    /**
+     * Puts the usual prompt back, followed by a line to edit.
+     */
+    private void endSearch(String input, int caret) {
+        try {
+            doc.remove(promptStart, doc.getLength() - promptStart);
+            appendText(session.getPrompt(), promptStyle);
+            inputStart = doc.getLength();
+            appendText(input, commandStyle);
+            terminal.setCaretPosition(inputStart + Math.max(0, Math.min(caret, input.length())));
         } catch (BadLocationException e) {
             e.printStackTrace();
         }
@@ -247,9 +604,11 @@ public class TerminalUI {
     private void displayPrompt() {
         try {
             String prompt = session.getPrompt();
+            promptStart = doc.getLength();
             appendText(prompt, promptStyle);
             inputStart = doc.getLength();
             inputEnd = inputStart;
+            trimScrollback();
             terminal.setCaretPosition(inputStart);
         } catch (BadLocationException e) {
             e.printStackTrace();
@@ -263,6 +622,105 @@ public class TerminalUI {
     }
 
 
+    /**
+     * Drops the oldest lines once the scrollback passes its limits, moving
+     * them to the archive if there is one. Lines are removed from the start
+     * of the document, so every offset kept into it moves back by the same
+     * amount. The prompt and the line being typed are never removed.
+     */
+    private void trimScrollback() throws BadLocationException {
+        Element root = doc.getDefaultRootElement();
+        int keepFrom = processingCommand ? doc.getLength()
+                : root.getElement(root.getElementIndex(promptStart)).getStartOffset();
+        int end = scrollbackLimit.getTrimOffset(root, doc.getLength(), keepFrom);
+        if (end <= 0) {
+            return;
+        }
+
+        if (scrollbackArchive != null) {
+            scrollbackArchive.append(doc.getText(0, end));
+        }
+        doc.remove(0, end);
+        promptStart = Math.max(0, promptStart - end);
+        inputStart = Math.max(0, inputStart - end);
+        inputEnd = Math.max(0, inputEnd - end);
+    }
+
+
+    /**
+     * Passes the output of one command to the renderer, and reports the
+     * command finished once all of its output is in the document. Color
+     * sequences in each stream are turned into styles, so a color left on
+     * by one command does not carry over to the next.
+     */
+    private class DocumentOutputSink implements OutputSink {
+        private final AnsiParser output = new AnsiParser((chars, offset, length, style) ->
+                outputRenderer.write(chars, offset, length, outputAttributes.get(style)));
+        private final AnsiParser error = new AnsiParser((chars, offset, length, style) ->
+                outputRenderer.write(chars, offset, length, errorAttributes.get(style)));
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            synchronized (output) {
+                output.parse(chars, offset, length);
+            }
+        }
+
+        @Override
+        public void writeError(char[] chars, int offset, int length) throws IOException {
+            synchronized (error) {
+                error.parse(chars, offset, length);
+            }
+        }
+
+        @Override
+        public boolean isTerminal() {
+            return true;
+        }
+
+        @Override
+        public Pager getPager() {
+            return TerminalUI.this::page;
+        }
+
+        @Override
+        public void finish(int exitStatus) {
+            outputRenderer.whenRendered(() -> commandFinished(outputRenderer.endsMidLine()));
+        }
+    }
+
+
+    /**
+     * Shows a text in the pager in place of the terminal, and keeps the
+     * command that asked for it waiting until the user quits the pager or
+     * the command is cancelled.
+     */
+    private void page(String title, String text) throws IOException {
+        CountDownLatch closed = new CountDownLatch(1);
+        ExecutionContext context = ExecutionContext.current();
+        Runnable cancel = () -> SwingUtilities.invokeLater(pagerView::close);
+        SwingUtilities.invokeLater(() -> {
+            screenCards.show(screen, PAGER_CARD);
+            pagerView.open(title, text, () -> {
+                screenCards.show(screen, TERMINAL_CARD);
+                terminal.requestFocusInWindow();
+                closed.countDown();
+            });
+            pagerView.requestFocusInWindow();
+        });
+        context.addCancellationListener(cancel);
+        try {
+            closed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            SwingUtilities.invokeLater(pagerView::close);
+            throw new InterruptedIOException("Interrupted while paging");
+        } finally {
+            context.removeCancellationListener(cancel);
+        }
+    }
+
+
     public void displayMascotMessage(String message) {
         mascotSpeech.setText(message);
     }
@@ -290,24 +748,96 @@ public class TerminalUI {
 
         return new ImageIcon(image);
     }
-    private ImageIcon loadMascotImage() {
-        try {
-            URL imageUrl = getClass().getResource("src/com/terminaltrainer/ui/mascot.png");
-            if (imageUrl == null) {
-                System.err.println("Could not find mascot image. Using placeholder instead.");
-                return createPlaceholderMascot();
+
+
+    /**
+     * Sets the window icon once the icon has been decoded and scaled to
+     * the sizes the window system picks from.
+     */
+    private void loadIcon() {
+        List<CompletableFuture<BufferedImage>> sizes = new ArrayList<>();
+        for (int size : ICON_SIZES) {
+            sizes.add(images.loadScaled(ImageAssets.ICON, size, size));
+        }
+        CompletableFuture.allOf(sizes.toArray(new CompletableFuture<?>[0])).whenComplete((done, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("Failed to load " + ImageAssets.ICON + ": " + error.getCause().getMessage());
+                        return;
+                    }
+                    List<Image> icons = new ArrayList<>();
+                    for (CompletableFuture<BufferedImage> size : sizes) {
+                        icons.add(size.join());
+                    }
+                    frame.setIconImages(icons);
+                    metrics.mark(StartupMetrics.ICON_LOADED);
+                }));
+    }
+
+
+    /**
+     * Shows the mascot at the size that fits the panel, keeping the
+     * placeholder until the image has been decoded.
+     */
+    private void updateMascot() {
+        int width = mascotPanel.getWidth() - 10;
+        int size = Math.min(MAX_MASCOT_SIZE, width / MASCOT_SIZE_STEP * MASCOT_SIZE_STEP);
+        if (size < MASCOT_SIZE_STEP || size == mascotSize) {
+            return;
+        }
+        mascotSize = size;
+        images.loadScaled(ImageAssets.MASCOT, size, size).whenComplete((image, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("Could not load mascot image, using placeholder instead: "
+                                + error.getCause().getMessage());
+                    } else if (size == mascotSize) {
+                        mascotLabel.setIcon(new ImageIcon(image));
+                        metrics.mark(StartupMetrics.MASCOT_LOADED);
+                    }
+                }));
+    }
+
+
+    /**
+     * Called on the event dispatch thread when the session has been built,
+     * or failed to be.
+     */
+    private void attachSession(TerminalSession ready, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            cause.printStackTrace();
+            try {
+                appendText("Failed to start the session: " + cause + "\n", errorStyle);
+            } catch (BadLocationException e) {
+                e.printStackTrace();
             }
-            return new ImageIcon(imageUrl);
-        } catch (Exception e) {
-            System.err.println("Error loading mascot image: " + e.getMessage());
-            return createPlaceholderMascot();
+            return;
+        }
+
+        session = ready;
+        commandRunner = new CommandRunner(ready);
+        completionEngine = new CompletionEngine(ready);
+        historySearch = new ReverseHistorySearch(ready.getCommandHistory());
+        processingCommand = false;
+        try {
+            displayPrompt();
+            restoreTypeAhead();
+        } catch (BadLocationException e) {
+            e.printStackTrace();
         }
+        metrics.mark(StartupMetrics.FIRST_PROMPT);
     }
 
 
+    /**
+     * Builds and shows the window, then shows the prompt once the session is ready.
+     */
     public void start() {
         SwingUtilities.invokeLater(() -> {
+            initializeUI();
             frame.setVisible(true);
+            metrics.mark(StartupMetrics.FRAME_SHOWN);
             terminal.requestFocusInWindow();
 
             try {
@@ -316,8 +846,6 @@ public class TerminalUI {
                 appendText("Type 'help' for a list of available commands.\n", outputStyle);
                 appendText("Type 'tutorial start' to begin the guided tutorial.\n\n", outputStyle);
 
-                displayPrompt();
-
                 displayMascotMessage("Hi there! I'm Tux, your terminal guide. " +
                         "I'll help you learn how to use Linux commands. " +
                         "Type 'help' to see what commands are available, or " +
@@ -325,6 +853,9 @@ public class TerminalUI {
             } catch (BadLocationException e) {
                 e.printStackTrace();
             }
+
+            pendingSession.whenComplete((ready, error) ->
+                    SwingUtilities.invokeLater(() -> attachSession(ready, error)));
         });
     }
 }